@@ -0,0 +1,83 @@
+package projects.dao;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import projects.dao.fake.FakeDatabase;
+import projects.dao.fake.FakeProjectTables;
+import projects.entity.Project;
+
+/**
+ * Measures whole {@link ProjectDao} calls against the fake JDBC driver with no simulated latency, so
+ * the time is everything the application does around the database: opening connections, transaction
+ * handling, binding, mapping and building the entity lists.
+ *
+ * The fake database must be in place before {@link DbConnection} is first used, which is why each
+ * fork points {@code projects.db.url} at it in the trial setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectDaoBenchmark {
+	private static final int PROJECT_COUNT = 1000;
+
+	private ProjectDao projectDao;
+	private Project project;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		FakeDatabase database = new FakeProjectTables(PROJECT_COUNT, 5, 8, 2, 20)
+				.install(new FakeDatabase("project-dao"));
+
+		System.setProperty("projects.db.url", database.getUrl());
+
+		projectDao = new ProjectDao();
+		project = projectDao.fetchProjectById(PROJECT_COUNT / 2).orElseThrow();
+	}
+
+	@Benchmark
+	public List<Project> fetchAllProjects() {
+		return projectDao.fetchAllProjects();
+	}
+
+	@Benchmark
+	public Optional<Project> fetchProjectById() {
+		return projectDao.fetchProjectById(PROJECT_COUNT / 2);
+	}
+
+	@Benchmark
+	public List<Project> fetchProjectsByCategory() {
+		return projectDao.fetchProjectsByCategory(FakeProjectTables.categoryName(1));
+	}
+
+	@Benchmark
+	public boolean modifyProjectDetails() {
+		return projectDao.modifyProjectDetails(project);
+	}
+
+	@Benchmark
+	public Project insertProject() {
+		Project insert = new Project();
+
+		insert.setProjectName("Build a bookcase");
+		insert.setEstimatedHours(new BigDecimal("12.50"));
+		insert.setDifficulty(3);
+
+		return projectDao.insertProject(insert);
+	}
+}
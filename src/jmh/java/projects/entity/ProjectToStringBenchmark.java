@@ -0,0 +1,70 @@
+package projects.entity;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Project#toString()}, which the menu uses to show the selected project, as the number
+ * of materials, steps and categories grows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectToStringBenchmark {
+	@Param({"10", "100", "1000"})
+	public int childCount;
+
+	private Project project;
+
+	@Setup
+	public void setUp() {
+		project = new Project();
+		project.setProjectId(1);
+		project.setProjectName("Build a bookcase");
+		project.setEstimatedHours(new BigDecimal("12.50"));
+		project.setActualHours(new BigDecimal("14.25"));
+		project.setDifficulty(3);
+		project.setNotes("Use the oak boards from the garage.");
+
+		for(int pos = 1; pos <= childCount; pos++) {
+			Material material = new Material();
+			material.setMaterialId(pos);
+			material.setProjectId(1);
+			material.setMaterialName("Material " + pos);
+			material.setNumRequired(pos);
+			material.setCost(new BigDecimal("3.75"));
+			project.getMaterials().add(material);
+
+			Step step = new Step();
+			step.setStepId(pos);
+			step.setProjectId(1);
+			step.setStepText("Step " + pos + " of the bookcase");
+			step.setStepOrder(pos);
+			project.getSteps().add(step);
+
+			Category category = new Category();
+			category.setCategoryId(pos);
+			category.setCategoryName("Category " + pos);
+			project.getCategories().add(category);
+		}
+	}
+
+	@Benchmark
+	public String projectToString() {
+		return project.toString();
+	}
+}
@@ -0,0 +1,107 @@
+package projects.json;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/**
+ * Measures {@link ProjectJsonCodec} writing a project to a reused buffer and reading it back. The
+ * setup checks that a project survives a round trip unchanged. Run with {@code -prof gc} to see
+ * that encoding allocates nothing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectJsonCodecBenchmark {
+	@Param({"10", "100", "1000"})
+	public int childCount;
+
+	private Project project;
+	private ByteBuffer buffer;
+	private JsonWriter writer;
+	private byte[] json;
+
+	@Setup
+	public void setUp() {
+		project = new Project();
+		project.setProjectId(1);
+		project.setProjectName("Build a bookcase");
+		project.setEstimatedHours(new BigDecimal("12.50"));
+		project.setActualHours(new BigDecimal("14.25"));
+		project.setDifficulty(3);
+		project.setNotes("Use the oak boards from the garage, \"not\" the pine.");
+
+		for(int pos = 1; pos <= childCount; pos++) {
+			Material material = new Material();
+			material.setMaterialId(pos);
+			material.setMaterialName("Material " + pos);
+			material.setNumRequired(pos);
+			material.setCost(new BigDecimal("3.75"));
+			project.getMaterials().add(material);
+
+			Step step = new Step();
+			step.setStepId(pos);
+			step.setStepText("Step " + pos + " of the bookcase");
+			step.setStepOrder(pos);
+			project.getSteps().add(step);
+
+			Category category = new Category();
+			category.setCategoryId(pos);
+			category.setCategoryName("Category " + pos);
+			project.getCategories().add(category);
+		}
+
+		buffer = ByteBuffer.allocate(childCount * 256 + 1024);
+		writer = new JsonWriter(buffer);
+		json = encode(project);
+
+		Project decoded = ProjectJsonCodec.readProject(new JsonReader(json, 0, json.length));
+
+		if(!Arrays.equals(json, encode(decoded))) {
+			throw new IllegalStateException("The project changed in a JSON round trip: "
+					+ new String(json, StandardCharsets.UTF_8));
+		}
+	}
+
+	private byte[] encode(Project source) {
+		buffer.clear();
+		ProjectJsonCodec.writeProject(source, writer);
+		writer.flush();
+
+		return Arrays.copyOf(buffer.array(), buffer.position());
+	}
+
+	@Benchmark
+	public int encodeProject() {
+		buffer.clear();
+		ProjectJsonCodec.writeProject(project, writer);
+		writer.flush();
+
+		return buffer.position();
+	}
+
+	@Benchmark
+	public Project decodeProject() {
+		return ProjectJsonCodec.readProject(new JsonReader(json, 0, json.length));
+	}
+}
@@ -0,0 +1,35 @@
+package provided.util;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the field name to column name conversion that {@link DaoBase#extract} runs for every
+ * field of every row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CamelCaseBenchmark {
+	private final DaoBase dao = new DaoBase() {};
+
+	@Param({"notes", "projectId", "estimatedHours"})
+	public String identifier;
+
+	@Benchmark
+	public String camelCaseToSnakeCase() {
+		return dao.camelCaseToSnakeCase(identifier);
+	}
+}
@@ -0,0 +1,119 @@
+package provided.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import projects.dao.DbConnection;
+import projects.dao.fake.FakeDatabase;
+import projects.dao.fake.FakeProjectTables;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/**
+ * Measures {@link DaoBase#extract} for each entity. Each result set stays on one row served by the
+ * fake JDBC driver, so the time is the reflection, the column lookups and the exceptions thrown for
+ * the list fields that have no column, with no I/O. {@link #queryOneRow()} measures a whole
+ * statement: prepare, bind, execute, read and close.
+ *
+ * The connection comes from {@link DbConnection}, once with instrumentation and once without, so
+ * the difference between the two runs is what the instrumented connection costs. The setting is
+ * read when DbConnection is first used, so it is made in the trial setup of each fork.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DaoBaseBenchmark {
+	private final DaoBase dao = new DaoBase() {};
+
+	@Param({"false", "true"})
+	public String instrument;
+
+	private Connection conn;
+	private ResultSet projectRow;
+	private ResultSet materialRow;
+	private ResultSet stepRow;
+	private ResultSet categoryRow;
+
+	@Setup
+	public void setUp() throws SQLException {
+		FakeDatabase database =
+				new FakeProjectTables(1, 1, 1, 1, 1).install(new FakeDatabase("dao-base"));
+
+		System.setProperty("projects.db.url", database.getUrl());
+		System.setProperty("projects.db.instrument", instrument);
+
+		conn = DbConnection.getConnection();
+		projectRow = positionedRow("SELECT * FROM project WHERE project_id = ?");
+		materialRow = positionedRow("SELECT * FROM material WHERE project_id = ?");
+		stepRow = positionedRow("SELECT * FROM step WHERE project_id = ?");
+		categoryRow = positionedRow("SELECT c.* FROM category c "
+				+ "JOIN project_category pc USING (category_id) WHERE project_id = ?");
+	}
+
+	@TearDown
+	public void tearDown() throws SQLException {
+		conn.close();
+	}
+
+	private ResultSet positionedRow(String sql) throws SQLException {
+		PreparedStatement stmt = conn.prepareStatement(sql);
+
+		stmt.setInt(1, 1);
+
+		ResultSet rs = stmt.executeQuery();
+
+		rs.next();
+		return rs;
+	}
+
+	@Benchmark
+	public Project extractProject() {
+		return dao.extract(projectRow, Project.class);
+	}
+
+	@Benchmark
+	public Material extractMaterial() {
+		return dao.extract(materialRow, Material.class);
+	}
+
+	@Benchmark
+	public Step extractStep() {
+		return dao.extract(stepRow, Step.class);
+	}
+
+	@Benchmark
+	public Category extractCategory() {
+		return dao.extract(categoryRow, Category.class);
+	}
+
+	@Benchmark
+	public Project queryOneRow() throws SQLException {
+		try(PreparedStatement stmt = conn.prepareStatement("SELECT * FROM project WHERE project_id = ?")) {
+			stmt.setInt(1, 1);
+
+			try(ResultSet rs = stmt.executeQuery()) {
+				rs.next();
+				return dao.extract(rs, Project.class);
+			}
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package provided.util;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import projects.dao.fake.FakeDatabase;
+
+/**
+ * Measures {@link DaoBase#setParameter} for each supported Java type and for a null value, binding to
+ * a prepared statement of the fake JDBC driver.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetParameterBenchmark {
+	/**
+	 * The value bound by each run, with the class passed to setParameter.
+	 */
+	public enum ParameterType {
+		INTEGER(42, Integer.class),
+		LONG(42L, Long.class),
+		STRING("Build a bookcase", String.class),
+		DECIMAL(new BigDecimal("12.50"), BigDecimal.class),
+		DOUBLE(12.5, Double.class),
+		NULL(null, Integer.class);
+
+		private final Object value;
+		private final Class<?> classType;
+
+		ParameterType(Object value, Class<?> classType) {
+			this.value = value;
+			this.classType = classType;
+		}
+	}
+
+	private final DaoBase dao = new DaoBase() {};
+
+	@Param
+	public ParameterType type;
+
+	private Connection conn;
+	private PreparedStatement stmt;
+
+	@Setup
+	public void setUp() throws SQLException {
+		FakeDatabase database = new FakeDatabase("set-parameter");
+
+		conn = DriverManager.getConnection(database.getUrl());
+		stmt = conn.prepareStatement("SELECT ?");
+	}
+
+	@TearDown
+	public void tearDown() throws SQLException {
+		conn.close();
+	}
+
+	@Benchmark
+	public void setParameter() throws SQLException {
+		dao.setParameter(stmt, 1, type.value, type.classType);
+	}
+}
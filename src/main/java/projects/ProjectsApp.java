@@ -1,16 +1,40 @@
 package projects;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.Set;
+import projects.bulk.ImportResult;
+import projects.dao.BackupTable;
+import projects.dao.InMemoryProjectRepository;
 import projects.entity.Project;
 import projects.exception.DbException;
+import projects.log.Logger;
+import projects.metrics.MetricsServer;
+import projects.metrics.OperationMetrics;
+import projects.metrics.OperationStats;
 import projects.service.ProjectService;
+import projects.trace.Span;
+import projects.trace.Tracer;
 
 public class ProjectsApp {
+	  private static final Logger LOG = Logger.get(ProjectsApp.class);
+
+	  /* Set -Dprojects.repository=memory to keep projects in memory instead of in MySQL. */
+	  private static final String REPOSITORY = System.getProperty("projects.repository", "mysql");
+
+	  /* Serve Prometheus metrics at http://<host>:<port>/metrics. Enable with -Dprojects.metrics.port=9404 */
+	  private static final int METRICS_PORT = Integer.getInteger("projects.metrics.port", -1);
+
 	  private Scanner scanner = new Scanner(System.in);
-	  private ProjectService projectService = new ProjectService();
+	  private ProjectService projectService = "memory".equals(REPOSITORY)
+			  ? ProjectService.create(new InMemoryProjectRepository())
+			  : ProjectService.create();
 	// Holds the currently selected project. This is updated when a user selects or updates a project.
 	  private Project curProject;
 	// @formatter:off
@@ -19,7 +43,14 @@ public class ProjectsApp {
 		      "2) List projects",
 		      "3) Select a project",
 		      "4) Update project details",
-		      "5) Delete a project"
+		      "5) Delete a project",
+		      "6) Import projects from a file",
+		      "7) Export projects to a file",
+		      "8) Back up the database",
+		      "9) Restore the database from a backup",
+		      "10) List projects in a category",
+		      "11) Show operation latency statistics",
+		      "12) Write recent traces to a file"
 	  );
 	// @formatter:on
 	  
@@ -31,7 +62,32 @@ public class ProjectsApp {
 
 	  public static void main(String[] args) {
 		    // Launches the application by creating a ProjectsApp instance and starting the main loop.
-	    new ProjectsApp().processUserSelections();
+	    ProjectsApp app = new ProjectsApp();
+
+	    try(MetricsServer metricsServer = app.startMetricsServer()) {
+	    	app.processUserSelections();
+	    }
+	  }
+
+	  /**
+	   * Starts serving the service's metrics if a metrics port is configured.
+	   * 
+	   * @return The server, or null if there is none.
+	   */
+	  private MetricsServer startMetricsServer() {
+		  if(METRICS_PORT < 0) {
+			  return null;
+		  }
+
+		  try {
+			  MetricsServer server = new MetricsServer(projectService.getMetricsRegistry(), METRICS_PORT);
+			  LOG.info("Serving metrics", "url", "http://localhost:" + server.getPort() + "/metrics");
+			  return server;
+		  }
+		  catch(IOException e) {
+			  LOG.warn("Unable to serve metrics", "port", METRICS_PORT, "error", e.getMessage());
+			  return null;
+		  }
 	  }
 	  
 	  /**
@@ -46,50 +102,193 @@ public class ProjectsApp {
 	      try {
 	        int selection = getUserSelection();
 
-	        switch(selection) {
-	          case -1:
-	        	// Exit the application
-	            done = exitMenu();
-	            break;
-
-	          case 1:
-	        	// Create a new project
-	            createProject();
-	            break;
-	            
-	          case 2:
-	        	// List all available projects
-	              listProjects();
-	              break;
-	              
-	          case 3:
-	        	// Select a project to work with
-	        	  selectProject();
-	        	  break;
-	        	  
-	          case 4:
-	        	// Update the currently selected project's details
-	        	  updateProjectDetails();
-	        	  break;
-	        
-	          case 5:
-	        	  // Delete a project
-	        	  deleteProject();
-	        	  break;
-
-	          default:
-	        	// Handle invalid input
-	            System.out.println("\n" + selection + " is not a valid selection. Try again.");
-	            break;
+	        try(Span span = Tracer.startSpan(selectionSpanName(selection))) {
+	          done = processSelection(selection);
 	        }
 	      }
 	      catch(Exception e) {
 	    	// Handle unexpected input or runtime errors gracefully
+	        LOG.debug("Menu action failed", e);
 	        System.out.println("\nError: " + e + " Try again.");
 	      }
 	    }
 	  }
+
+	  /**
+	   * Runs the menu action the user selected.
+	   * 
+	   * @param selection The menu selection, or -1 to exit.
+	   * @return True if the user chose to exit.
+	   * @throws IOException Thrown if a file cannot be read or written.
+	   */
+	  private boolean processSelection(int selection) throws IOException {
+	    boolean done = false;
+
+	    switch(selection) {
+	      case -1:
+	        // Exit the application
+	        done = exitMenu();
+	        break;
+
+	      case 1:
+	        // Create a new project
+	        createProject();
+	        break;
+
+	      case 2:
+	        // List all available projects
+	        listProjects();
+	        break;
+
+	      case 3:
+	        // Select a project to work with
+	        selectProject();
+	        break;
+
+	      case 4:
+	        // Update the currently selected project's details
+	        updateProjectDetails();
+	        break;
+
+	      case 5:
+	        // Delete a project
+	        deleteProject();
+	        break;
+
+	      case 6:
+	        // Load projects in bulk from an NDJSON or CSV file
+	        importProjects();
+	        break;
+
+	      case 7:
+	        // Write all projects with their details to an NDJSON or CSV file
+	        exportProjects();
+	        break;
+
+	      case 8:
+	        // Write a consistent binary backup of the project tables
+	        backupDatabase();
+	        break;
+
+	      case 9:
+	        // Replace some or all project tables with a backup
+	        restoreDatabase();
+	        break;
+
+	      case 10:
+	        // List the projects linked to one category
+	        listProjectsInCategory();
+	        break;
+
+	      case 11:
+	        // Show per-operation latency percentiles
+	        showOperationStats();
+	        break;
+
+	      case 12:
+	        // Dump the trace ring buffer in the Chrome trace format
+	        dumpTraces();
+	        break;
+
+	      default:
+	        // Handle invalid input
+	        System.out.println("\n" + selection + " is not a valid selection. Try again.");
+	        break;
+	    }
+
+	    return done;
+	  }
 	  
+	  /**
+	   * Prompts the user for the path of an NDJSON or CSV file and imports the projects in it. An
+	   * import that failed part way through resumes after the last committed record.
+	   */
+	  private void importProjects() throws IOException {
+		  String path = getStringInput("Enter the path of the file to import (.ndjson or .csv)");
+
+		  if(Objects.isNull(path)) {
+			  return;
+		  }
+
+		  ImportResult result = projectService.importProjects(Path.of(path));
+
+		  System.out.println("Imported " + result.getRecordsImported() + " projects in "
+				  + result.getElapsedMillis() + " ms (" + result.getRecordsSkipped()
+				  + " already imported).");
+	  }
+
+	  /**
+	   * Prompts the user for the path of the export file and writes all projects to it. A name ending
+	   * in .gz is compressed.
+	   */
+	  private void exportProjects() throws IOException {
+		  String path = getStringInput("Enter the path of the export file (.ndjson or .csv, optionally .gz)");
+
+		  if(Objects.isNull(path)) {
+			  return;
+		  }
+
+		  long count = projectService.exportProjects(Path.of(path));
+
+		  System.out.println("Exported " + count + " projects to " + path + ".");
+	  }
+
+	  /**
+	   * Prompts the user for the path of the backup file and backs up the project tables to it.
+	   */
+	  private void backupDatabase() throws IOException {
+		  String path = getStringInput("Enter the path of the backup file");
+
+		  if(Objects.isNull(path)) {
+			  return;
+		  }
+
+		  long rows = projectService.backupDatabase(Path.of(path));
+
+		  System.out.println("Backed up " + rows + " rows to " + path + ".");
+	  }
+
+	  /**
+	   * Prompts the user for a backup file and the tables to restore, asks for confirmation and then
+	   * replaces the tables with the contents of the backup.
+	   */
+	  private void restoreDatabase() throws IOException {
+		  String path = getStringInput("Enter the path of the backup file");
+
+		  if(Objects.isNull(path)) {
+			  return;
+		  }
+
+		  String tableNames = getStringInput("Enter the tables to restore, separated by commas [all]");
+		  Set<BackupTable> tables = EnumSet.noneOf(BackupTable.class);
+
+		  if(Objects.isNull(tableNames)) {
+			  tables = EnumSet.allOf(BackupTable.class);
+		  }
+		  else {
+			  for(String name : tableNames.split(",")) {
+				  try {
+					  tables.add(BackupTable.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+				  }
+				  catch(IllegalArgumentException e) {
+					  throw new DbException(name.trim() + " is not a table that can be restored.");
+				  }
+			  }
+		  }
+
+		  String confirm = getStringInput("This replaces everything in " + tables + ". Type yes to continue");
+
+		  if(!"yes".equalsIgnoreCase(confirm)) {
+			  System.out.println("Restore cancelled.");
+			  return;
+		  }
+
+		  long rows = projectService.restoreDatabase(Path.of(path), tables);
+		  curProject = null;
+
+		  System.out.println("Restored " + rows + " rows from " + path + ".");
+	  }
+
 	  /**
 	   * Prompts the user to select a project ID to delete, performs the deletion,
 	   * and clears the current project if it matches the deleted one.
@@ -191,6 +390,82 @@ public class ProjectsApp {
 		  projects.forEach(project -> System.out.println("  " + project.getProjectId() + ": " + project.getProjectName()));
 	  }
 	  
+	  /**
+	   * Prompts the user for a category name and lists the projects in that category.
+	   */
+	  private void listProjectsInCategory() {
+		  String categoryName = getStringInput("Enter a category name");
+
+		  if(Objects.isNull(categoryName)) {
+			  return;
+		  }
+
+		  List<Project> projects = projectService.fetchProjectsByCategory(categoryName);
+
+		  System.out.println("\nProjects in " + categoryName + ":");
+
+		  projects.forEach(project -> System.out.println("  " + project.getProjectId() + ": " + project.getProjectName()));
+	  }
+
+	  /**
+	   * Returns the name of the root trace span of a menu selection, such as "app.Select a project".
+	   */
+	  private String selectionSpanName(int selection) {
+		  if(selection < 1 || selection > operations.size()) {
+			  return "app.selection";
+		  }
+
+		  String label = operations.get(selection - 1);
+		  return "app." + label.substring(label.indexOf(')') + 2);
+	  }
+
+	  /**
+	   * Prompts for a file and writes the spans in the trace buffer to it. Tracing is off unless the
+	   * application was started with -Dprojects.trace.enabled=true.
+	   */
+	  private void dumpTraces() throws IOException {
+		  if(!Tracer.isEnabled()) {
+			  System.out.println("\nTracing is off. Start the application with -Dprojects.trace.enabled=true.");
+			  return;
+		  }
+
+		  String path = getStringInput("Enter the path of the trace file (.json)");
+
+		  if(Objects.isNull(path)) {
+			  return;
+		  }
+
+		  int spans = Tracer.dump(Path.of(path));
+
+		  System.out.println("Wrote " + spans + " spans to " + path
+				  + ". Open it in chrome://tracing or https://ui.perfetto.dev.");
+	  }
+
+	  /**
+	   * Prints the latency percentiles of each service and DAO operation over the last metrics interval
+	   * and since the application started. Operations that have not been called are left out.
+	   */
+	  private void showOperationStats() {
+		  OperationMetrics metrics = projectService.getMetrics();
+
+		  printOperationStats("Last interval", metrics.getLastInterval());
+		  printOperationStats("Since start", metrics.getTotals());
+	  }
+
+	  private void printOperationStats(String title, List<OperationStats> stats) {
+		  System.out.println("\n" + title + " (latency in ms):");
+		  System.out.printf("  %-34s %9s %9s %9s %9s %9s %9s%n", "Operation", "Count", "Calls/s", "p50",
+				  "p99", "p999", "max");
+
+		  for(OperationStats operation : stats) {
+			  if(operation.getCount() > 0) {
+				  System.out.printf("  %-34s %9d %9.1f %9.3f %9.3f %9.3f %9.3f%n", operation.getOperation(),
+						  operation.getCount(), operation.getRate(), operation.getP50() / 1e6,
+						  operation.getP99() / 1e6, operation.getP999() / 1e6, operation.getMax() / 1e6);
+			  }
+		  }
+	  }
+
 	  /**
 	   * This method allows the user to select a "current" project. The current project is one on which
 	   * you can add materials, steps, and categories.
@@ -0,0 +1,282 @@
+package projects.backup;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+import projects.dao.BackupTable;
+import projects.dao.ProjectBackupDao.RowBlock;
+import projects.util.BinaryInput;
+
+/**
+ * This class reads the blocks of a file written by {@link BackupFileWriter}. Several threads may call
+ * {@link #next()} at once: the file is read under a lock, but each block is checked and decoded on
+ * the calling thread.
+ *
+ * Files of older format versions can still be read. A column that a file does not hold is the
+ * project row version, and it is restored as 1.
+ *
+ * A restore calls {@link #verify()} before it changes any table, so that a corrupt or incomplete
+ * file is rejected while the tables still hold their old rows.
+ */
+class BackupFileReader implements Closeable {
+	private final FileChannel channel;
+	private final Set<BackupTable> tables;
+	private final int formatVersion;
+	private final ReentrantLock readLock = new ReentrantLock();
+	private int blocksRead;
+	private boolean ended;
+	private boolean verified;
+
+	/**
+	 * Opens the file and checks its header.
+	 *
+	 * @param file The backup file.
+	 * @param tables The tables whose blocks are returned. Other blocks are skipped without decoding.
+	 * @throws IOException Thrown if the file cannot be read or is not a backup file.
+	 */
+	BackupFileReader(Path file, Set<BackupTable> tables) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		this.tables = tables;
+
+		ByteBuffer header = readFully(BackupFileWriter.HEADER_BYTES);
+
+		if(header.getInt() != BackupFileWriter.MAGIC) {
+			channel.close();
+			throw new IOException(file + " is not a project backup file.");
+		}
+
+		formatVersion = header.getInt();
+
+		if(formatVersion < 1 || formatVersion > BackupFileWriter.VERSION) {
+			channel.close();
+			throw new IOException("Unsupported backup format version " + formatVersion + ".");
+		}
+	}
+
+	/**
+	 * Reads the whole file once, checking the checksum of every block, that the blocks of the
+	 * selected tables decode to the row counts in their headers and that the end block is present.
+	 * The reader is then rewound to the first block.
+	 *
+	 * @throws IOException Thrown if the file cannot be read, is incomplete or a block is corrupt.
+	 */
+	void verify() throws IOException {
+		readLock.lock();
+
+		try {
+			long firstBlock = channel.position();
+
+			while(true) {
+				ByteBuffer header = readFully(BackupFileWriter.BLOCK_HEADER_BYTES);
+				int tableId = header.get();
+				int rowCount = header.getInt();
+				int length = header.getInt();
+				int checksum = header.getInt();
+
+				if(tableId == BackupFileWriter.END_TABLE_ID) {
+					checkBlockCount(rowCount);
+					break;
+				}
+
+				blocksRead++;
+
+				BackupTable table = tableFor(tableId);
+				ByteBuffer payload = readFully(checkLength(table, rowCount, length));
+
+				checkChecksum(table, payload, checksum);
+
+				if(tables.contains(table)) {
+					decode(table, rowCount, payload);
+				}
+			}
+
+			channel.position(firstBlock);
+			blocksRead = 0;
+			verified = true;
+		}
+		finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the next block of a selected table.
+	 *
+	 * @return The block, or null once the end block has been read.
+	 * @throws IOException Thrown if the file cannot be read, is incomplete or a block is corrupt.
+	 * @throws IllegalStateException Thrown if the file has not been verified.
+	 */
+	RowBlock next() throws IOException {
+		BackupTable table;
+		int rowCount;
+		int checksum;
+		ByteBuffer payload;
+
+		readLock.lock();
+
+		try {
+			if(!verified) {
+				throw new IllegalStateException("The backup file has not been verified.");
+			}
+
+			while(true) {
+				if(ended) {
+					return null;
+				}
+
+				ByteBuffer header = readFully(BackupFileWriter.BLOCK_HEADER_BYTES);
+				int tableId = header.get();
+
+				rowCount = header.getInt();
+
+				int length = header.getInt();
+
+				checksum = header.getInt();
+
+				if(tableId == BackupFileWriter.END_TABLE_ID) {
+					checkBlockCount(rowCount);
+					ended = true;
+					return null;
+				}
+
+				blocksRead++;
+				table = tableFor(tableId);
+
+				if(tables.contains(table)) {
+					payload = readFully(checkLength(table, rowCount, length));
+					break;
+				}
+
+				channel.position(channel.position() + length);
+			}
+		}
+		finally {
+			readLock.unlock();
+		}
+
+		checkChecksum(table, payload, checksum);
+
+		return new RowBlock(table, decode(table, rowCount, payload));
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private BackupTable tableFor(int tableId) throws IOException {
+		try {
+			return BackupTable.forFileId(tableId);
+		}
+		catch(IllegalArgumentException e) {
+			throw new IOException("The backup file holds a block of unknown table " + tableId + ".");
+		}
+	}
+
+	/**
+	 * Checks a block's lengths against the limits the writer keeps to, so a corrupt header cannot
+	 * make the reader allocate an arbitrary amount of memory. Every column takes at least one byte,
+	 * so a block cannot hold more rows than bytes.
+	 */
+	private int checkLength(BackupTable table, int rowCount, int length) throws IOException {
+		if(rowCount < 0 || rowCount > length || length > BackupFileWriter.MAX_BLOCK_BYTES) {
+			throw new IOException("A " + table.getTableName() + " block has a corrupt header: "
+					+ rowCount + " rows in " + length + " bytes.");
+		}
+
+		return length;
+	}
+
+	private void checkBlockCount(int blockCount) throws IOException {
+		if(blockCount != blocksRead) {
+			throw new IOException("The backup file should hold " + blockCount + " blocks but holds "
+					+ blocksRead + ".");
+		}
+	}
+
+	private void checkChecksum(BackupTable table, ByteBuffer payload, int checksum)
+			throws IOException {
+		CRC32C crc = new CRC32C();
+
+		crc.update(payload.duplicate());
+
+		if((int)crc.getValue() != checksum) {
+			throw new IOException("Checksum mismatch in a " + table.getTableName() + " block.");
+		}
+	}
+
+	/**
+	 * Decodes the rows of a block. The payload must hold exactly the given number of rows.
+	 */
+	private List<Object[]> decode(BackupTable table, int rowCount, ByteBuffer payload)
+			throws IOException {
+		BinaryInput in = new BinaryInput(payload, 0);
+
+		try {
+			List<Object[]> rows = decodeRows(table, rowCount, in);
+
+			if(in.position() == payload.limit()) {
+				return rows;
+			}
+		}
+		catch(RuntimeException e) {
+			/* A payload that runs out or holds an unknown tag is reported below. */
+		}
+
+		throw new IOException("A " + table.getTableName() + " block does not hold the " + rowCount
+				+ " rows its header says it does.");
+	}
+
+	private List<Object[]> decodeRows(BackupTable table, int rowCount, BinaryInput in) {
+		List<Object[]> rows = new ArrayList<>(rowCount);
+
+		int storedColumns = table.getColumnCount(formatVersion);
+
+		for(int pos = 0; pos < rowCount; pos++) {
+			Object[] row = new Object[table.getColumnCount()];
+
+			for(int col = storedColumns; col < row.length; col++) {
+				row[col] = 1;
+			}
+
+			for(int col = 0; col < storedColumns; col++) {
+				Class<?> type = table.getType(col);
+
+				if(type == Integer.class) {
+					row[col] = in.readInteger();
+				}
+				else if(type == BigDecimal.class) {
+					row[col] = in.readDecimal();
+				}
+				else {
+					row[col] = in.readString();
+				}
+			}
+
+			rows.add(row);
+		}
+
+		return rows;
+	}
+
+	private ByteBuffer readFully(int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer) < 0) {
+				throw new IOException("The backup file is incomplete.");
+			}
+		}
+
+		return buffer.flip();
+	}
+}
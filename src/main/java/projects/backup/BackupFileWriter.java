@@ -0,0 +1,143 @@
+package projects.backup;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+import projects.dao.BackupTable;
+import projects.util.BinaryOutput;
+
+/**
+ * This class writes a backup file. The layout is:
+ * <ul>
+ * <li>A 16 byte header: the magic number "PJBK", the format version and the time the backup was
+ * taken in epoch milliseconds.</li>
+ * <li>Any number of blocks. Each block starts with a 13 byte header: the table ID (one byte), the
+ * row count, the payload length and the CRC-32C of the payload. The payload holds the rows, each
+ * column written with {@link BinaryOutput} in {@link BackupTable} column order, and is at most
+ * {@link #MAX_BLOCK_BYTES} long.</li>
+ * <li>An end block with table ID 0, whose row count field holds the number of blocks in the file.
+ * A file without it is incomplete.</li>
+ * </ul>
+ * Blocks of different tables may be interleaved in any order. Blocks are encoded on the calling
+ * thread, so several threads can write at once and only the file append is serialized.
+ */
+class BackupFileWriter implements Closeable {
+	static final int MAGIC = 0x504A424B;
+	static final int VERSION = 2;
+	static final int HEADER_BYTES = 16;
+	static final int BLOCK_HEADER_BYTES = 13;
+	static final int END_TABLE_ID = 0;
+	static final int MAX_BLOCK_BYTES = 256 << 20;
+
+	private final FileChannel channel;
+	private final ReentrantLock appendLock = new ReentrantLock();
+	private int blockCount;
+
+	/**
+	 * Creates the file, replacing any existing one, and writes the header.
+	 *
+	 * @param file The backup file.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	BackupFileWriter(Path file) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+		header.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis()).flip();
+		writeFully(header);
+	}
+
+	/**
+	 * Encodes a block of rows and appends it to the file.
+	 *
+	 * @param table The table the rows belong to.
+	 * @param rows The rows, with the column values in {@link BackupTable} order.
+	 * @throws IOException Thrown if the file cannot be written or the block is too large.
+	 */
+	void writeBlock(BackupTable table, List<Object[]> rows) throws IOException {
+		BinaryOutput out = new BinaryOutput(rows.size() * 32);
+
+		for(Object[] row : rows) {
+			for(int col = 0; col < row.length; col++) {
+				Class<?> type = table.getType(col);
+
+				if(type == Integer.class) {
+					out.writeInteger((Integer)row[col]);
+				}
+				else if(type == BigDecimal.class) {
+					out.writeDecimal((BigDecimal)row[col]);
+				}
+				else {
+					out.writeString((String)row[col]);
+				}
+			}
+		}
+
+		byte[] payload = out.toByteArray();
+
+		if(payload.length > MAX_BLOCK_BYTES) {
+			throw new IOException("A block of " + rows.size() + " " + table.getTableName()
+					+ " rows takes " + payload.length + " bytes, more than a backup block may hold.");
+		}
+
+		CRC32C crc = new CRC32C();
+
+		crc.update(payload);
+
+		appendLock.lock();
+
+		try {
+			writeBlockHeader(table.getFileId(), rows.size(), payload.length, (int)crc.getValue());
+			writeFully(ByteBuffer.wrap(payload));
+			blockCount++;
+		}
+		finally {
+			appendLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes the end block and forces the file to disk.
+	 *
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	void finish() throws IOException {
+		appendLock.lock();
+
+		try {
+			writeBlockHeader(END_TABLE_ID, blockCount, 0, 0);
+			channel.force(true);
+		}
+		finally {
+			appendLock.unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private void writeBlockHeader(int tableId, int rowCount, int length, int checksum)
+			throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+
+		header.put((byte)tableId).putInt(rowCount).putInt(length).putInt(checksum).flip();
+		writeFully(header);
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package projects.backup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import projects.dao.BackupTable;
+import projects.dao.ProjectBackupDao;
+
+/**
+ * This class backs up the project tables to a single binary file and restores them from it. Both
+ * directions use {@code workers} database connections in parallel, so they scale with the number of
+ * cores on the application and database hosts. See {@link BackupFileWriter} for the file layout and
+ * {@link ProjectBackupDao} for how the snapshot is kept consistent.
+ */
+public class ProjectBackup {
+	private final ProjectBackupDao backupDao;
+	private final int workers;
+	private final int blockRows;
+
+	/**
+	 * Create a backup helper.
+	 *
+	 * @param backupDao The DAO that reads and writes the tables.
+	 * @param workers The number of connections used in parallel.
+	 * @param blockRows The number of rows in each block of the backup file.
+	 */
+	public ProjectBackup(ProjectBackupDao backupDao, int workers, int blockRows) {
+		this.backupDao = backupDao;
+		this.workers = workers;
+		this.blockRows = blockRows;
+	}
+
+	/**
+	 * Backs up every table in {@link BackupTable}. The file is written under a temporary name and
+	 * moved into place once it is complete.
+	 *
+	 * @param file The backup file.
+	 * @return The number of rows backed up.
+	 * @throws IOException Thrown if the file cannot be written.
+	 * @throws projects.exception.DbException Thrown if the tables cannot be read.
+	 */
+	public long backup(Path file) throws IOException {
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		long rows;
+
+		try(BackupFileWriter writer = new BackupFileWriter(tempFile)) {
+			rows = backupDao.backupTables(workers, blockRows, writer::writeBlock);
+			writer.finish();
+		}
+		catch(IOException | RuntimeException e) {
+			Files.deleteIfExists(tempFile);
+			throw e;
+		}
+
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		return rows;
+	}
+
+	/**
+	 * Replaces the contents of the given tables with the rows in a backup file. Restoring only some
+	 * tables can leave rows in the other tables pointing at projects or categories that no longer
+	 * exist. The whole file is checked before any table is emptied, so a corrupt file leaves the
+	 * tables as they were.
+	 *
+	 * @param file The backup file.
+	 * @param tables The tables to restore.
+	 * @return The number of rows restored.
+	 * @throws IOException Thrown if the file cannot be read or is corrupt.
+	 * @throws projects.exception.DbException Thrown if the rows cannot be written.
+	 */
+	public long restore(Path file, Set<BackupTable> tables) throws IOException {
+		try(BackupFileReader reader = new BackupFileReader(file, tables)) {
+			reader.verify();
+			return backupDao.restoreTables(tables, workers, reader::next);
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package projects.bulk;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * The file formats read by {@link ProjectImporter} and written by {@link ProjectExporter}. A file
+ * whose name ends in .gz is gzip compressed.
+ */
+public enum ImportFormat {
+	/**
+	 * One JSON object per line. Each object holds one project and its {@code materials},
+	 * {@code steps} and {@code categories} arrays.
+	 */
+	NDJSON,
+
+	/**
+	 * Comma separated values. The first column gives the record type: {@code project},
+	 * {@code material}, {@code step} or {@code category}. Material, step and category lines belong to
+	 * the project line above them. A column may be quoted with double quotes, and a quoted column may
+	 * span lines. The exporter adds the row ID as the last column of each line; the importer ignores
+	 * it.
+	 */
+	CSV;
+
+	/**
+	 * Picks the format from the file name extension. Files ending in .csv or .csv.gz are CSV; anything
+	 * else is NDJSON.
+	 *
+	 * @param file The file.
+	 * @return The format of the file.
+	 */
+	public static ImportFormat forFile(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		return name.endsWith(".csv") || name.endsWith(".csv.gz") ? CSV : NDJSON;
+	}
+
+	/**
+	 * Returns {@code true} if the file name ends in .gz.
+	 *
+	 * @param file The file.
+	 * @return Whether the file is gzip compressed.
+	 */
+	public static boolean isGzip(Path file) {
+		return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+	}
+}
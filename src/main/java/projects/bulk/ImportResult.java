@@ -0,0 +1,43 @@
+package projects.bulk;
+
+/**
+ * The outcome of a call to {@link ProjectImporter#importFile(java.nio.file.Path)}.
+ */
+public class ImportResult {
+	private final long recordsSkipped;
+	private final long recordsImported;
+	private final long elapsedMillis;
+
+	ImportResult(long recordsSkipped, long recordsImported, long elapsedMillis) {
+		this.recordsSkipped = recordsSkipped;
+		this.recordsImported = recordsImported;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * Returns the number of records skipped because an earlier run had already committed them.
+	 */
+	public long getRecordsSkipped() {
+		return recordsSkipped;
+	}
+
+	/**
+	 * Returns the number of records imported by this run.
+	 */
+	public long getRecordsImported() {
+		return recordsImported;
+	}
+
+	/**
+	 * Returns how long this run took, in milliseconds.
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "ImportResult [recordsSkipped=" + recordsSkipped + ", recordsImported=" + recordsImported
+				+ ", elapsedMillis=" + elapsedMillis + "]";
+	}
+}
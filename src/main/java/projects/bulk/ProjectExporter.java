@@ -0,0 +1,115 @@
+package projects.bulk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+import projects.dao.ProjectExportDao;
+import projects.json.JsonWriter;
+
+/**
+ * This class writes every project, with its materials, steps and categories, to a file. Projects are
+ * streamed from the database one at a time by {@link ProjectExportDao} and written straight out, so
+ * the heap used does not grow with the number of projects.
+ *
+ * The output is written through a 64 KB buffer to a file channel, gzip compressed if the file name
+ * ends in .gz. It goes to a temporary file that is moved into place once it is complete and forced
+ * to disk, so a failed export never leaves a truncated file under the requested name.
+ */
+public class ProjectExporter {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final ProjectExportDao exportDao;
+	private final int fetchSize;
+
+	/**
+	 * Create an exporter.
+	 *
+	 * @param exportDao The DAO that reads the projects.
+	 * @param fetchSize The number of rows fetched from the server at a time by each cursor.
+	 */
+	public ProjectExporter(ProjectExportDao exportDao, int fetchSize) {
+		this.exportDao = exportDao;
+		this.fetchSize = fetchSize;
+	}
+
+	/**
+	 * Exports all projects.
+	 *
+	 * @param file The file to write. Its format is chosen by {@link ImportFormat#forFile(Path)}.
+	 * @return The number of projects written.
+	 * @throws IOException Thrown if the file cannot be written.
+	 * @throws projects.exception.DbException Thrown if the projects cannot be read.
+	 */
+	public long exportFile(Path file) throws IOException {
+		ImportFormat format = ImportFormat.forFile(file);
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		long count;
+
+		try(FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			OutputStream stream = Channels.newOutputStream(channel);
+			GZIPOutputStream gzip = null;
+
+			if(ImportFormat.isGzip(file)) {
+				gzip = new GZIPOutputStream(stream, BUFFER_SIZE);
+				stream = gzip;
+			}
+
+			/* CSV is written as text; JSON is encoded straight to bytes. */
+			Writer csv = format == ImportFormat.CSV ? new BufferedWriter(
+					new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE) : null;
+			JsonWriter json = Objects.isNull(csv) ? new JsonWriter(stream, BUFFER_SIZE) : null;
+
+			count = exportDao.readAllProjects(fetchSize, project -> {
+				if(Objects.nonNull(csv)) {
+					ProjectRecordWriter.writeCsv(project, csv);
+				}
+				else {
+					ProjectRecordWriter.writeJson(project, json);
+				}
+			});
+
+			if(Objects.nonNull(csv)) {
+				csv.flush();
+			}
+			else {
+				flush(json);
+			}
+
+			if(Objects.nonNull(gzip)) {
+				gzip.finish();
+			}
+
+			channel.force(true);
+		}
+		catch(IOException | RuntimeException e) {
+			Files.deleteIfExists(tempFile);
+			throw e;
+		}
+
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		return count;
+	}
+
+	private static void flush(JsonWriter json) throws IOException {
+		try {
+			json.flush();
+		}
+		catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+}
@@ -0,0 +1,335 @@
+package projects.bulk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import projects.dao.ProjectImportDao;
+import projects.entity.Project;
+import projects.exception.DbException;
+
+/**
+ * This class loads a large file of projects into the database. The work is split into three stages
+ * that run at the same time:
+ * <ol>
+ * <li>A reader thread reads the file and groups the lines into chunks of {@code commitSize}
+ * records.</li>
+ * <li>A pool of parser threads turns each chunk into project objects.</li>
+ * <li>The calling thread writes the chunks, in file order, with multi-row inserts. Each chunk is one
+ * transaction.</li>
+ * </ol>
+ * The reader hands each chunk to the writer through a bounded queue, so a slow database holds the
+ * reader back instead of letting parsed projects pile up in memory.
+ *
+ * Every transaction also records how many records of the file have been committed. If an import
+ * fails part way through, running it again skips the committed records and carries on from the
+ * first record that was not. The checkpoint is keyed by the absolute path of the file together with
+ * its size and modification time, so a file that has been changed or replaced since is imported from
+ * the start. The checkpoint is deleted once the import completes, so importing the same file again
+ * imports it again.
+ *
+ * Blank lines and lines starting with {@code #} are ignored in both formats. A file whose name ends
+ * in .gz is decompressed as it is read.
+ */
+public class ProjectImporter {
+	private final ProjectImportDao importDao;
+	private final int commitSize;
+	private final int parserThreads;
+	private final int queueCapacity;
+
+	/**
+	 * Create an importer.
+	 *
+	 * @param importDao The DAO that writes the projects.
+	 * @param commitSize The number of records written in each transaction.
+	 * @param parserThreads The number of threads parsing records.
+	 * @param queueCapacity The number of chunks that may wait for the writer.
+	 */
+	public ProjectImporter(ProjectImportDao importDao, int commitSize, int parserThreads,
+			int queueCapacity) {
+		this.importDao = importDao;
+		this.commitSize = commitSize;
+		this.parserThreads = parserThreads;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Imports a file, resuming after the last committed record if it was imported before.
+	 *
+	 * @param file The file. Its format is chosen by {@link ImportFormat#forFile(Path)}.
+	 * @return The number of records skipped and imported.
+	 * @throws IOException Thrown if the file cannot be read.
+	 * @throws DbException Thrown if a record is not valid or cannot be written. The records committed
+	 *         before the failure stay in the database.
+	 */
+	public ImportResult importFile(Path file) throws IOException {
+		long start = System.nanoTime();
+		ImportFormat format = ImportFormat.forFile(file);
+		String importKey = importKey(file);
+		long checkpoint = importDao.fetchCheckpoint(importKey);
+
+		BlockingQueue<Future<Chunk>> queue = new ArrayBlockingQueue<>(queueCapacity);
+		ExecutorService parsers = Executors.newFixedThreadPool(parserThreads, runnable -> {
+			Thread thread = new Thread(runnable, "project-import-parser");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		Thread reader = new Thread(() -> read(file, format, checkpoint, parsers, queue),
+				"project-import-reader");
+
+		reader.setDaemon(true);
+		reader.start();
+
+		try {
+			long imported = write(queue, importKey);
+
+			importDao.deleteCheckpoint(importKey);
+			long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+			return new ImportResult(checkpoint, imported, elapsedMillis);
+		}
+		finally {
+			reader.interrupt();
+			parsers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns the checkpoint key of a file: the SHA-256 of its size, modification time and absolute
+	 * path, as 64 hex digits. Hashing keeps the key the width of its column however long the path.
+	 *
+	 * @throws IOException Thrown if the file attributes cannot be read.
+	 */
+	static String importKey(Path file) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		String identity = attributes.size() + ":" + attributes.lastModifiedTime().toMillis() + ":"
+				+ file.toAbsolutePath().normalize();
+
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256")
+					.digest(identity.getBytes(StandardCharsets.UTF_8));
+
+			return HexFormat.of().formatHex(hash);
+		}
+		catch(NoSuchAlgorithmException e) {
+			/* Every Java platform is required to support SHA-256. */
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes the chunks in the order the reader queued them until the end marker is reached.
+	 *
+	 * @return The number of records written.
+	 */
+	private long write(BlockingQueue<Future<Chunk>> queue, String importKey) throws IOException {
+		long imported = 0;
+
+		try {
+			while(true) {
+				Chunk chunk = queue.take().get();
+
+				if(chunk == Chunk.END) {
+					return imported;
+				}
+
+				importDao.insertProjects(chunk.projects, importKey, chunk.recordsThrough);
+				imported += chunk.projects.size();
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DbException("Import interrupted after " + imported + " records.");
+		}
+		catch(ExecutionException e) {
+			if(e.getCause() instanceof IOException cause) {
+				throw cause;
+			}
+
+			if(e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+
+			throw new DbException(e.getCause());
+		}
+	}
+
+	/**
+	 * Reads the file, skips the records committed by an earlier run and queues a parse task for each
+	 * chunk. Any failure is queued too, so the writer sees it in order.
+	 */
+	private void read(Path file, ImportFormat format, long checkpoint, ExecutorService parsers,
+			BlockingQueue<Future<Chunk>> queue) {
+		try {
+			InputStream stream = Files.newInputStream(file);
+
+			if(ImportFormat.isGzip(file)) {
+				stream = new GZIPInputStream(stream, 1 << 16);
+			}
+
+			try(BufferedReader in = new BufferedReader(
+					new InputStreamReader(stream, StandardCharsets.UTF_8), 1 << 16)) {
+				ChunkBuilder builder = new ChunkBuilder(format, checkpoint, parsers, queue);
+				String line;
+				long lineNumber = 0;
+
+				while(Objects.nonNull(line = in.readLine())) {
+					lineNumber++;
+
+					if(line.isBlank() || line.startsWith("#")) {
+						continue;
+					}
+
+					long firstLineNumber = lineNumber;
+
+					/* A quoted CSV column may hold line breaks. */
+					while(format == ImportFormat.CSV && ProjectRecordParser.csvQuoteOpen(line)) {
+						String nextLine = in.readLine();
+
+						if(Objects.isNull(nextLine)) {
+							break;
+						}
+
+						line = line + "\n" + nextLine;
+						lineNumber++;
+					}
+
+					builder.addLine(line, firstLineNumber);
+				}
+
+				builder.finish();
+			}
+
+			queue.put(CompletableFuture.completedFuture(Chunk.END));
+		}
+		catch(InterruptedException e) {
+			/* The writer has stopped, so there is nobody left to tell. */
+		}
+		catch(IOException | RuntimeException e) {
+			try {
+				queue.put(CompletableFuture.failedFuture(e));
+			}
+			catch(InterruptedException interrupted) {
+				/* The writer has already stopped. */
+			}
+		}
+	}
+
+	/**
+	 * Groups lines into records and records into chunks on the reader thread.
+	 */
+	private class ChunkBuilder {
+		private final ImportFormat format;
+		private final long checkpoint;
+		private final ExecutorService parsers;
+		private final BlockingQueue<Future<Chunk>> queue;
+
+		private List<List<String>> records = new ArrayList<>(commitSize);
+		private List<Long> lineNumbers = new ArrayList<>(commitSize);
+		private List<String> record;
+		private long recordCount;
+
+		ChunkBuilder(ImportFormat format, long checkpoint, ExecutorService parsers,
+				BlockingQueue<Future<Chunk>> queue) {
+			this.format = format;
+			this.checkpoint = checkpoint;
+			this.parsers = parsers;
+			this.queue = queue;
+		}
+
+		void addLine(String line, long lineNumber) throws InterruptedException {
+			boolean startsRecord = format == ImportFormat.NDJSON
+					|| ProjectRecordParser.csvRecordType(line).equals("project");
+
+			if(startsRecord) {
+				endRecord();
+				recordCount++;
+
+				/* Records committed by an earlier run are only counted. */
+				if(recordCount > checkpoint) {
+					record = new ArrayList<>(4);
+					records.add(record);
+					lineNumbers.add(lineNumber);
+				}
+			}
+			else if(recordCount == 0) {
+				throw new DbException("Line " + lineNumber + " does not follow a project line.");
+			}
+
+			if(Objects.nonNull(record)) {
+				record.add(line);
+			}
+		}
+
+		void finish() throws InterruptedException {
+			endRecord();
+			submit();
+		}
+
+		private void endRecord() throws InterruptedException {
+			record = null;
+
+			if(records.size() >= commitSize) {
+				submit();
+			}
+		}
+
+		private void submit() throws InterruptedException {
+			if(records.isEmpty()) {
+				return;
+			}
+
+			List<List<String>> chunkRecords = records;
+			List<Long> chunkLineNumbers = lineNumbers;
+			long recordsThrough = recordCount;
+
+			records = new ArrayList<>(commitSize);
+			lineNumbers = new ArrayList<>(commitSize);
+
+			queue.put(parsers.submit(() -> {
+				List<Project> projects = new ArrayList<>(chunkRecords.size());
+
+				for(int pos = 0; pos < chunkRecords.size(); pos++) {
+					projects.add(ProjectRecordParser.parse(format, chunkRecords.get(pos),
+							chunkLineNumbers.get(pos)));
+				}
+
+				return new Chunk(projects, recordsThrough);
+			}));
+		}
+	}
+
+	/**
+	 * A parsed chunk and the number of file records committed once it has been written.
+	 */
+	private static class Chunk {
+		private static final Chunk END = new Chunk(List.of(), -1);
+
+		private final List<Project> projects;
+		private final long recordsThrough;
+
+		Chunk(List<Project> projects, long recordsThrough) {
+			this.projects = projects;
+			this.recordsThrough = recordsThrough;
+		}
+	}
+}
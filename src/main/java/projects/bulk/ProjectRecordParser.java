@@ -0,0 +1,251 @@
+package projects.bulk;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.exception.DbException;
+import projects.json.JsonReader;
+import projects.json.ProjectJsonCodec;
+
+/**
+ * This class turns the raw lines of one import record into a {@link Project} with its materials,
+ * steps and categories. It holds no state, so records can be parsed on any number of threads. The
+ * REST API reads request bodies with {@link #parseProject(byte[])}, so it accepts the same JSON as
+ * an NDJSON import.
+ */
+public class ProjectRecordParser {
+	private ProjectRecordParser() {
+	}
+
+	/**
+	 * Parses one record.
+	 *
+	 * @param format The file format.
+	 * @param lines The lines of the record. An NDJSON record is one line; a CSV record is a project
+	 *        line followed by its child lines.
+	 * @param lineNumber The line number of the first line, used in error messages.
+	 * @return The project.
+	 * @throws DbException Thrown if the record is not valid.
+	 */
+	static Project parse(ImportFormat format, List<String> lines, long lineNumber) {
+		try {
+			return format == ImportFormat.CSV ? parseCsv(lines)
+					: parseJson(lines.get(0).getBytes(StandardCharsets.UTF_8));
+		}
+		catch(RuntimeException e) {
+			throw new DbException("Invalid record at line " + lineNumber + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Parses a project given as one JSON object in the NDJSON import format. Row IDs in the object
+	 * are ignored.
+	 *
+	 * @param json The JSON text as UTF-8.
+	 * @return The project.
+	 * @throws IllegalArgumentException Thrown if the text is not a valid project.
+	 */
+	public static Project parseProject(byte[] json) {
+		try {
+			return parseJson(json);
+		}
+		catch(IllegalArgumentException e) {
+			throw e;
+		}
+		catch(RuntimeException e) {
+			throw new IllegalArgumentException("Invalid project: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the record type in the first column of a CSV line, in lower case.
+	 *
+	 * @param line The CSV line.
+	 * @return The record type.
+	 */
+	static String csvRecordType(String line) {
+		int comma = line.indexOf(',');
+		String type = comma < 0 ? line : line.substring(0, comma);
+
+		return type.strip().toLowerCase(Locale.ROOT);
+	}
+
+	private static Project parseCsv(List<String> lines) {
+		Project project = null;
+
+		for(String line : lines) {
+			List<String> columns = splitCsv(line);
+
+			switch(csvRecordType(line)) {
+				case "project":
+					project = new Project();
+					project.setProjectName(required(column(columns, 1), "project name"));
+					project.setEstimatedHours(toDecimal(column(columns, 2)));
+					project.setActualHours(toDecimal(column(columns, 3)));
+					project.setDifficulty(toInteger(column(columns, 4)));
+					project.setNotes(column(columns, 5));
+					break;
+
+				case "material":
+					Material material = new Material();
+					material.setMaterialName(required(column(columns, 1), "material name"));
+					material.setNumRequired(toInteger(column(columns, 2)));
+					material.setCost(toDecimal(column(columns, 3)));
+					project.getMaterials().add(material);
+					break;
+
+				case "step":
+					Step step = new Step();
+					step.setStepText(required(column(columns, 1), "step text"));
+					step.setStepOrder(toInteger(column(columns, 2)));
+					project.getSteps().add(step);
+					break;
+
+				case "category":
+					Category category = new Category();
+					category.setCategoryName(required(column(columns, 1), "category name"));
+					project.getCategories().add(category);
+					break;
+
+				default:
+					throw new IllegalArgumentException("Unknown record type '" + csvRecordType(line) + "'");
+			}
+		}
+
+		return project;
+	}
+
+	private static Project parseJson(byte[] json) {
+		JsonReader reader = new JsonReader(json, 0, json.length);
+
+		if(reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+			throw new IllegalArgumentException("Expected a JSON object");
+		}
+
+		Project project = ProjectJsonCodec.readProject(reader);
+
+		if(reader.peek() != JsonReader.Token.END_DOCUMENT) {
+			throw new IllegalArgumentException("Unexpected text after the JSON value");
+		}
+
+		/* Row IDs come from the database the project is written to. */
+		project.setProjectId(null);
+		required(project.getProjectName(), "projectName");
+
+		for(Material material : project.getMaterials()) {
+			material.setMaterialId(null);
+			required(material.getMaterialName(), "materialName");
+		}
+
+		for(Step step : project.getSteps()) {
+			step.setStepId(null);
+			required(step.getStepText(), "stepText");
+		}
+
+		for(Category category : project.getCategories()) {
+			category.setCategoryId(null);
+			required(category.getCategoryName(), "categoryName");
+		}
+
+		return project;
+	}
+
+	/**
+	 * Returns {@code true} if a CSV line ends inside a quoted column, meaning the column carries on
+	 * on the next line. A quote inside a quoted column is written twice, so an odd number of quotes
+	 * leaves a column open.
+	 *
+	 * @param line The CSV text read so far.
+	 * @return Whether a quoted column is still open.
+	 */
+	static boolean csvQuoteOpen(String line) {
+		boolean open = false;
+
+		for(int pos = 0; pos < line.length(); pos++) {
+			if(line.charAt(pos) == '"') {
+				open = !open;
+			}
+		}
+
+		return open;
+	}
+
+	/**
+	 * Splits a CSV line into columns. A column may be quoted with double quotes, and a double quote
+	 * inside a quoted column is written twice.
+	 */
+	private static List<String> splitCsv(String line) {
+		List<String> columns = new ArrayList<>();
+		StringBuilder column = new StringBuilder();
+		boolean quoted = false;
+
+		for(int pos = 0; pos < line.length(); pos++) {
+			char ch = line.charAt(pos);
+
+			if(quoted) {
+				if(ch != '"') {
+					column.append(ch);
+				}
+				else if(pos + 1 < line.length() && line.charAt(pos + 1) == '"') {
+					column.append('"');
+					pos++;
+				}
+				else {
+					quoted = false;
+				}
+			}
+			else if(ch == '"') {
+				quoted = true;
+			}
+			else if(ch == ',') {
+				columns.add(column.toString());
+				column.setLength(0);
+			}
+			else {
+				column.append(ch);
+			}
+		}
+
+		if(quoted) {
+			throw new IllegalArgumentException("Unterminated quoted column");
+		}
+
+		columns.add(column.toString());
+
+		return columns;
+	}
+
+	/**
+	 * Returns a column, or null if the line is too short or the column is blank.
+	 */
+	private static String column(List<String> columns, int index) {
+		if(index >= columns.size() || columns.get(index).isBlank()) {
+			return null;
+		}
+
+		return columns.get(index).strip();
+	}
+
+	private static String required(String value, String name) {
+		if(Objects.isNull(value)) {
+			throw new IllegalArgumentException("The " + name + " is missing");
+		}
+
+		return value;
+	}
+
+	private static BigDecimal toDecimal(String value) {
+		return Objects.isNull(value) ? null : new BigDecimal(value);
+	}
+
+	private static Integer toInteger(String value) {
+		return Objects.isNull(value) ? null : Integer.valueOf(value);
+	}
+}
@@ -0,0 +1,113 @@
+package projects.bulk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Objects;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.json.JsonWriter;
+import projects.json.ProjectJsonCodec;
+
+/**
+ * This class writes a {@link Project} with its materials, steps and categories as one export
+ * record. The output is the format read by {@link ProjectRecordParser}, with the row IDs added, so an
+ * export can be imported again. JSON is written by {@link ProjectJsonCodec}, which the REST API
+ * uses too.
+ */
+public class ProjectRecordWriter {
+	private ProjectRecordWriter() {
+	}
+
+	/**
+	 * Writes a project as one line of NDJSON.
+	 *
+	 * @param project The project.
+	 * @param out The destination.
+	 * @throws IOException Thrown if the destination cannot be written.
+	 */
+	static void writeJson(Project project, JsonWriter out) throws IOException {
+		try {
+			ProjectJsonCodec.writeProject(project, out);
+			out.newLine();
+		}
+		catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Writes a project as a project line followed by one line for each material, step and category.
+	 * The row ID is added as the last column of each line.
+	 *
+	 * @param project The project.
+	 * @param out The destination.
+	 * @throws IOException Thrown if the destination cannot be written.
+	 */
+	static void writeCsv(Project project, Writer out) throws IOException {
+		out.write("project");
+		writeCsvColumn(project.getProjectName(), out);
+		writeCsvColumn(project.getEstimatedHours(), out);
+		writeCsvColumn(project.getActualHours(), out);
+		writeCsvColumn(project.getDifficulty(), out);
+		writeCsvColumn(project.getNotes(), out);
+		writeCsvColumn(project.getProjectId(), out);
+		out.write('\n');
+
+		for(Material material : project.getMaterials()) {
+			out.write("material");
+			writeCsvColumn(material.getMaterialName(), out);
+			writeCsvColumn(material.getNumRequired(), out);
+			writeCsvColumn(material.getCost(), out);
+			writeCsvColumn(material.getMaterialId(), out);
+			out.write('\n');
+		}
+
+		for(Step step : project.getSteps()) {
+			out.write("step");
+			writeCsvColumn(step.getStepText(), out);
+			writeCsvColumn(step.getStepOrder(), out);
+			writeCsvColumn(step.getStepId(), out);
+			out.write('\n');
+		}
+
+		for(Category category : project.getCategories()) {
+			out.write("category");
+			writeCsvColumn(category.getCategoryName(), out);
+			writeCsvColumn(category.getCategoryId(), out);
+			out.write('\n');
+		}
+	}
+
+	/**
+	 * Writes a comma and then the column. A null value is written as an empty column. Text is quoted
+	 * if it holds a comma, a quote or a line break.
+	 */
+	private static void writeCsvColumn(Object value, Writer out) throws IOException {
+		out.write(',');
+
+		if(Objects.isNull(value)) {
+			return;
+		}
+
+		String text = value instanceof BigDecimal number ? number.toPlainString() : value.toString();
+		boolean quote = false;
+
+		for(int pos = 0; pos < text.length() && !quote; pos++) {
+			char ch = text.charAt(pos);
+			quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+		}
+
+		if(quote) {
+			out.write('"');
+			out.write(text.replace("\"", "\"\""));
+			out.write('"');
+		}
+		else {
+			out.write(text);
+		}
+	}
+}
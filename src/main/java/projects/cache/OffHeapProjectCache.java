@@ -0,0 +1,430 @@
+package projects.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import projects.entity.Project;
+import projects.util.IntObjectMap;
+
+/**
+ * This cache holds fully loaded projects (with materials, steps and categories) outside the Java
+ * heap. Each project is stored in the compact form written by {@link ProjectBinaryCodec} in a chunk
+ * handed out by a {@link SlabAllocator}. Only a small index entry per project lives on the heap, in
+ * a primitive-keyed {@link IntObjectMap}, so a large number of projects can be cached without
+ * growing the old generation.
+ *
+ * A project is decoded only when it is requested. Each {@link #get(Integer)} returns a new
+ * {@link Project} object, so callers may modify what they get back without affecting the cache.
+ *
+ * When a size class runs out of chunks, entries of that class are evicted using the CLOCK (second
+ * chance) algorithm: an entry that was read since it was last considered is skipped once. If the
+ * class holds no entries at all, a whole slab is taken from the class with the most slabs: the
+ * entry its clock would evict next picks the slab, every entry in that slab is evicted and the slab
+ * is carved again for the class that needs it. Without this, slabs stay with the classes they were
+ * first carved for and projects of a new size could never be cached once the capacity is used.
+ *
+ * A project loaded from the database may be out of date by the time it is put in the cache, if the
+ * project was written and invalidated in the meantime. Callers read {@link #epoch(Integer)} before
+ * loading and pass it to {@link #put(Project, long)}, which refuses the project if an invalidation
+ * has happened since.
+ */
+public class OffHeapProjectCache {
+	private static final int DEFAULT_SLAB_SIZE = 1 << 20;
+	private static final int EPOCH_BITS = 10;
+	private static final int EPOCH_STRIPES = 1 << EPOCH_BITS;
+
+	private final SlabAllocator allocator;
+	private final IntObjectMap<Entry> index = new IntObjectMap<>();
+	private final List<LinkedHashSet<Entry>> clocks = new ArrayList<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/*
+	 * Invalidation counts, striped by project ID. Two projects that share a stripe only cost each
+	 * other a refused put, never a stale entry.
+	 */
+	private final AtomicLongArray epochs = new AtomicLongArray(EPOCH_STRIPES);
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Create a cache that reserves at most {@code capacityBytes} of off-heap memory.
+	 *
+	 * @param capacityBytes The maximum number of off-heap bytes to use.
+	 */
+	public OffHeapProjectCache(long capacityBytes) {
+		this(capacityBytes, DEFAULT_SLAB_SIZE);
+	}
+
+	/**
+	 * Create a cache that reserves at most {@code capacityBytes} of off-heap memory in slabs of the
+	 * given size. The slab size is also the size of the largest project that can be cached.
+	 *
+	 * @param capacityBytes The maximum number of off-heap bytes to use.
+	 * @param slabSize The slab size. It must be a power of two.
+	 */
+	public OffHeapProjectCache(long capacityBytes, int slabSize) {
+		allocator = new SlabAllocator(capacityBytes, slabSize);
+
+		for(int sizeClass = 0; sizeClass <= allocator.sizeClass(slabSize); sizeClass++) {
+			clocks.add(new LinkedHashSet<>());
+		}
+	}
+
+	/**
+	 * Returns the cached project with the given ID. The project is decoded from off-heap memory.
+	 *
+	 * @param projectId The project ID.
+	 * @return The project or {@link Optional#empty()} if it is not cached.
+	 */
+	public Optional<Project> get(Integer projectId) {
+		lock.readLock().lock();
+
+		try {
+			Entry entry = index.get(projectId);
+
+			if(Objects.isNull(entry)) {
+				misses.increment();
+				return Optional.empty();
+			}
+
+			entry.referenced = true;
+			hits.increment();
+
+			return Optional.of(ProjectBinaryCodec.decode(allocator.slab(entry.handle),
+					allocator.offset(entry.handle)));
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the row version of a cached project, read from its encoded form without decoding the
+	 * rest of the project.
+	 *
+	 * @param projectId The project ID.
+	 * @return The row version or {@link Optional#empty()} if the project is not cached or was cached
+	 *         without one.
+	 */
+	public Optional<Integer> getRowVersion(Integer projectId) {
+		lock.readLock().lock();
+
+		try {
+			Entry entry = index.get(projectId);
+
+			if(Objects.isNull(entry)) {
+				misses.increment();
+				return Optional.empty();
+			}
+
+			entry.referenced = true;
+			hits.increment();
+
+			Integer rowVersion = ProjectBinaryCodec.decodeRowVersion(allocator.slab(entry.handle),
+					allocator.offset(entry.handle));
+
+			return Optional.ofNullable(rowVersion);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the invalidation epoch of a project. Read it before loading the project that will be
+	 * passed to {@link #put(Project, long)}.
+	 *
+	 * @param projectId The project ID.
+	 * @return The epoch.
+	 */
+	public long epoch(Integer projectId) {
+		return epochs.get(stripe(projectId));
+	}
+
+	/**
+	 * Adds or replaces the project in the cache, unless the project has been invalidated since the
+	 * epoch was read. The project must have a project ID. Projects that are larger than a slab are
+	 * not cached.
+	 *
+	 * @param project The fully loaded project.
+	 * @param epoch The value of {@link #epoch(Integer)} read before the project was loaded.
+	 * @return {@code true} if the project was cached.
+	 */
+	public boolean put(Project project, long epoch) {
+		byte[] bytes = ProjectBinaryCodec.encode(project);
+
+		if(bytes.length > allocator.maxChunkSize()) {
+			return false;
+		}
+
+		int sizeClass = allocator.sizeClass(bytes.length);
+
+		lock.writeLock().lock();
+
+		try {
+			/* Invalidations take the write lock too, so none can slip in between check and store. */
+			if(epochs.get(stripe(project.getProjectId())) != epoch) {
+				return false;
+			}
+
+			removeEntry(project.getProjectId());
+
+			long handle = allocator.allocate(sizeClass);
+
+			while(handle == SlabAllocator.NO_CHUNK) {
+				if(!evictOne(sizeClass) && !evictSlab(sizeClass)) {
+					return false;
+				}
+
+				handle = allocator.allocate(sizeClass);
+			}
+
+			allocator.slab(handle).put(allocator.offset(handle), bytes);
+
+			Entry entry = new Entry(project.getProjectId(), handle, bytes.length, sizeClass);
+
+			index.put(entry.projectId, entry);
+			clocks.get(sizeClass).add(entry);
+
+			return true;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes the project from the cache. This must be called whenever the project is modified or
+	 * deleted.
+	 *
+	 * @param projectId The project ID.
+	 */
+	public void invalidate(Integer projectId) {
+		lock.writeLock().lock();
+
+		try {
+			epochs.incrementAndGet(stripe(projectId));
+			removeEntry(projectId);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes every project from the cache. This is called when the project tables are replaced as a
+	 * whole, for example by a restore.
+	 */
+	public void clear() {
+		lock.writeLock().lock();
+
+		try {
+			for(int stripe = 0; stripe < EPOCH_STRIPES; stripe++) {
+				epochs.incrementAndGet(stripe);
+			}
+
+			for(Entry entry : index.values()) {
+				allocator.free(entry.handle);
+			}
+
+			index.clear();
+
+			for(LinkedHashSet<Entry> clock : clocks) {
+				clock.clear();
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of cached projects.
+	 */
+	public int size() {
+		lock.readLock().lock();
+
+		try {
+			return index.size();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of off-heap bytes reserved by the cache.
+	 */
+	public long reservedBytes() {
+		lock.readLock().lock();
+
+		try {
+			return allocator.reservedBytes();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Calls the visitor with the encoded bytes of every cached project. Entries cannot be added or
+	 * removed until this method returns, so the visitor should not call back into the cache.
+	 *
+	 * @param visitor Receives each project ID with a read-only view of its encoded bytes.
+	 * @throws IOException Thrown if the visitor throws it.
+	 */
+	public void forEachEncoded(EncodedEntryVisitor visitor) throws IOException {
+		lock.readLock().lock();
+
+		try {
+			for(Entry entry : index.values()) {
+				int offset = allocator.offset(entry.handle);
+				visitor.visit(entry.projectId,
+						allocator.slab(entry.handle).slice(offset, entry.length).asReadOnlyBuffer());
+			}
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Evicts the entry of the given size class that its clock picks. The caller must hold the write
+	 * lock.
+	 *
+	 * @return {@code false} if the size class holds no entries, so nothing can be evicted.
+	 */
+	private boolean evictOne(int sizeClass) {
+		Entry victim = nextVictim(clocks.get(sizeClass));
+
+		if(Objects.isNull(victim)) {
+			return false;
+		}
+
+		removeEntry(victim.projectId);
+		evictions.increment();
+		return true;
+	}
+
+	/**
+	 * Empties one slab of the size class with the most slabs, so the allocator can hand it to the
+	 * given class. The slab is the one holding the entry that class's clock would evict next. The
+	 * caller must hold the write lock.
+	 *
+	 * @return {@code false} if no other size class holds a slab.
+	 */
+	private boolean evictSlab(int sizeClass) {
+		int victimClass = allocator.largestOtherClass(sizeClass);
+
+		if(victimClass < 0) {
+			return false;
+		}
+
+		LinkedHashSet<Entry> clock = clocks.get(victimClass);
+		Entry victim = nextVictim(clock);
+
+		if(Objects.isNull(victim)) {
+			return false;
+		}
+
+		int slabIndex = allocator.slabIndex(victim.handle);
+
+		for(Entry entry : new ArrayList<>(clock)) {
+			if(allocator.slabIndex(entry.handle) == slabIndex) {
+				removeEntry(entry.projectId);
+				evictions.increment();
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Sweeps a clock and returns the first entry that has not been read since the last sweep,
+	 * leaving it in place. Entries that were read are cleared and moved to the back.
+	 *
+	 * @return The entry, or null if the clock is empty.
+	 */
+	private static Entry nextVictim(LinkedHashSet<Entry> clock) {
+		while(!clock.isEmpty()) {
+			Iterator<Entry> iter = clock.iterator();
+			Entry entry = iter.next();
+
+			if(!entry.referenced) {
+				return entry;
+			}
+
+			/* Give the entry a second chance by moving it to the back of the clock. */
+			iter.remove();
+			entry.referenced = false;
+			clock.add(entry);
+		}
+
+		return null;
+	}
+
+	private static int stripe(int projectId) {
+		return (projectId * 0x9E3779B9) >>> (32 - EPOCH_BITS);
+	}
+
+	/**
+	 * Removes an entry and frees its chunk. The caller must hold the write lock.
+	 */
+	private void removeEntry(int projectId) {
+		Entry entry = index.remove(projectId);
+
+		if(Objects.nonNull(entry)) {
+			clocks.get(entry.sizeClass).remove(entry);
+			allocator.free(entry.handle);
+		}
+	}
+
+	/**
+	 * Receives the encoded form of a cached project from {@link #forEachEncoded(EncodedEntryVisitor)}.
+	 */
+	@FunctionalInterface
+	public interface EncodedEntryVisitor {
+		void visit(int projectId, ByteBuffer encoded) throws IOException;
+	}
+
+	/**
+	 * The on-heap part of a cached project.
+	 */
+	private static class Entry {
+		private final int projectId;
+		private final long handle;
+		private final int length;
+		private final int sizeClass;
+		private volatile boolean referenced;
+
+		Entry(int projectId, long handle, int length, int sizeClass) {
+			this.projectId = projectId;
+			this.handle = handle;
+			this.length = length;
+			this.sizeClass = sizeClass;
+		}
+	}
+}
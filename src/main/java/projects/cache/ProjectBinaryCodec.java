@@ -0,0 +1,164 @@
+package projects.cache;
+
+import java.nio.ByteBuffer;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.util.BinaryInput;
+import projects.util.BinaryOutput;
+
+/**
+ * This class converts a {@link Project} and its materials, steps and categories to and from a
+ * compact binary form. Values are written with {@link BinaryOutput}; child lists are a variable
+ * length count followed by the children.
+ *
+ * Format 2 added the row version after the notes. Projects in format 1, which may still be found in
+ * a warm cache snapshot, are decoded without a row version.
+ */
+public class ProjectBinaryCodec {
+	private static final int FORMAT_VERSION = 2;
+
+	/**
+	 * Encodes the project and all of its children.
+	 *
+	 * @param project The project to encode.
+	 * @return The encoded bytes.
+	 */
+	public static byte[] encode(Project project) {
+		BinaryOutput out = new BinaryOutput();
+
+		out.writeVarLong(FORMAT_VERSION);
+		out.writeInteger(project.getProjectId());
+		out.writeString(project.getProjectName());
+		out.writeDecimal(project.getEstimatedHours());
+		out.writeDecimal(project.getActualHours());
+		out.writeInteger(project.getDifficulty());
+		out.writeString(project.getNotes());
+		out.writeInteger(project.getRowVersion());
+
+		out.writeVarLong(project.getMaterials().size());
+
+		for(Material material : project.getMaterials()) {
+			out.writeInteger(material.getMaterialId());
+			out.writeInteger(material.getProjectId());
+			out.writeString(material.getMaterialName());
+			out.writeInteger(material.getNumRequired());
+			out.writeDecimal(material.getCost());
+		}
+
+		out.writeVarLong(project.getSteps().size());
+
+		for(Step step : project.getSteps()) {
+			out.writeInteger(step.getStepId());
+			out.writeInteger(step.getProjectId());
+			out.writeString(step.getStepText());
+			out.writeInteger(step.getStepOrder());
+		}
+
+		out.writeVarLong(project.getCategories().size());
+
+		for(Category category : project.getCategories()) {
+			out.writeInteger(category.getCategoryId());
+			out.writeString(category.getCategoryName());
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decodes a project that was encoded with {@link #encode(Project)}. Only absolute reads are done
+	 * on the buffer so it may be shared between threads.
+	 *
+	 * @param buffer The buffer holding the encoded bytes.
+	 * @param offset The index of the first encoded byte.
+	 * @return The decoded project.
+	 * @throws IllegalStateException Thrown if the bytes were written in an unknown format.
+	 */
+	public static Project decode(ByteBuffer buffer, int offset) {
+		BinaryInput in = new BinaryInput(buffer, offset);
+		int version = readFormatVersion(in);
+		Project project = new Project();
+
+		project.setProjectId(in.readInteger());
+		project.setProjectName(in.readString());
+		project.setEstimatedHours(in.readDecimal());
+		project.setActualHours(in.readDecimal());
+		project.setDifficulty(in.readInteger());
+		project.setNotes(in.readString());
+
+		if(version >= 2) {
+			project.setRowVersion(in.readInteger());
+		}
+
+		for(long count = in.readVarLong(); count > 0; count--) {
+			Material material = new Material();
+
+			material.setMaterialId(in.readInteger());
+			material.setProjectId(in.readInteger());
+			material.setMaterialName(in.readString());
+			material.setNumRequired(in.readInteger());
+			material.setCost(in.readDecimal());
+
+			project.getMaterials().add(material);
+		}
+
+		for(long count = in.readVarLong(); count > 0; count--) {
+			Step step = new Step();
+
+			step.setStepId(in.readInteger());
+			step.setProjectId(in.readInteger());
+			step.setStepText(in.readString());
+			step.setStepOrder(in.readInteger());
+
+			project.getSteps().add(step);
+		}
+
+		for(long count = in.readVarLong(); count > 0; count--) {
+			Category category = new Category();
+
+			category.setCategoryId(in.readInteger());
+			category.setCategoryName(in.readString());
+
+			project.getCategories().add(category);
+		}
+
+		return project;
+	}
+
+	/**
+	 * Reads only the row version of an encoded project. The fields before it are skipped without
+	 * being decoded and the children are not read at all.
+	 *
+	 * @param buffer The buffer holding the encoded bytes.
+	 * @param offset The index of the first encoded byte.
+	 * @return The row version, or null if the project was encoded without one.
+	 * @throws IllegalStateException Thrown if the bytes were written in an unknown format.
+	 */
+	public static Integer decodeRowVersion(ByteBuffer buffer, int offset) {
+		BinaryInput in = new BinaryInput(buffer, offset);
+
+		if(readFormatVersion(in) < 2) {
+			return null;
+		}
+
+		in.readInteger();
+		in.skipString();
+		in.skipDecimal();
+		in.skipDecimal();
+		in.readInteger();
+		in.skipString();
+
+		return in.readInteger();
+	}
+
+	private static int readFormatVersion(BinaryInput in) {
+		int version = (int)in.readVarLong();
+
+		if(version < 1 || version > FORMAT_VERSION) {
+			throw new IllegalStateException("Unknown project format version " + version);
+		}
+
+		return version;
+	}
+}
@@ -0,0 +1,253 @@
+package projects.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class hands out fixed-size chunks of off-heap memory. Memory is reserved from the operating
+ * system in slabs (direct {@link ByteBuffer}s). Each slab is carved into chunks of a single size
+ * class when it is first needed. Size classes are powers of two between {@link #MIN_CHUNK_SIZE}
+ * and the slab size, so a request wastes at most half of its chunk.
+ *
+ * A chunk is identified by a handle. The slab index is stored in the high 32 bits and the byte
+ * offset within the slab in the low 32 bits. Freed chunks go back on the free list of their size
+ * class and are reused before a new slab is carved. Once the capacity is used up, a slab whose
+ * chunks are all free can be handed to another size class with {@link #reassignSlab(int, int)}, so
+ * the split between size classes follows the sizes being stored rather than the first ones seen.
+ *
+ * This class is not thread safe. The caller is expected to guard it with its own lock.
+ */
+class SlabAllocator {
+	static final int MIN_CHUNK_SIZE = 64;
+	static final long NO_CHUNK = -1L;
+
+	private final int slabSize;
+	private final int maxSlabs;
+	private final List<ByteBuffer> slabs = new ArrayList<>();
+	private final List<Integer> slabClasses = new ArrayList<>();
+	private final List<Integer> slabUsedChunks = new ArrayList<>();
+	private final long[][] freeLists;
+	private final int[] freeCounts;
+
+	/**
+	 * Create an allocator that will reserve at most {@code capacityBytes} of off-heap memory.
+	 *
+	 * @param capacityBytes The total number of bytes that may be reserved.
+	 * @param slabSize The size of each slab. It must be a power of two and at least
+	 *        {@link #MIN_CHUNK_SIZE}.
+	 */
+	SlabAllocator(long capacityBytes, int slabSize) {
+		if(Integer.bitCount(slabSize) != 1 || slabSize < MIN_CHUNK_SIZE) {
+			throw new IllegalArgumentException("Slab size must be a power of two >= " + MIN_CHUNK_SIZE);
+		}
+
+		this.slabSize = slabSize;
+		this.maxSlabs = (int)Math.max(1, capacityBytes / slabSize);
+
+		int numClasses = sizeClass(slabSize) + 1;
+		this.freeLists = new long[numClasses][];
+		this.freeCounts = new int[numClasses];
+
+		for(int sizeClass = 0; sizeClass < numClasses; sizeClass++) {
+			freeLists[sizeClass] = new long[16];
+		}
+	}
+
+	/**
+	 * Returns the largest number of bytes that fit in a single chunk.
+	 */
+	int maxChunkSize() {
+		return slabSize;
+	}
+
+	/**
+	 * Returns the size class that holds an entry of the given length.
+	 *
+	 * @param length The number of bytes to store.
+	 * @return The size class. Class 0 holds {@link #MIN_CHUNK_SIZE} bytes; each class above it holds
+	 *         twice as much as the one below.
+	 */
+	int sizeClass(int length) {
+		int chunkSize = Math.max(MIN_CHUNK_SIZE, Integer.highestOneBit(length - 1) << 1);
+		return Integer.numberOfTrailingZeros(chunkSize) - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE);
+	}
+
+	/**
+	 * Allocates a chunk from the given size class. A free chunk is reused if there is one.
+	 * Otherwise, a new slab is carved into chunks of this class if the capacity allows it, or an
+	 * entirely free slab of another class is reassigned to this one.
+	 *
+	 * @param sizeClass The size class obtained from {@link #sizeClass(int)}.
+	 * @return The chunk handle or {@link #NO_CHUNK} if the caller must evict something first.
+	 */
+	long allocate(int sizeClass) {
+		if(freeCounts[sizeClass] == 0 && !carveSlab(sizeClass)) {
+			int freeSlab = findFreeSlab(sizeClass);
+
+			if(freeSlab < 0) {
+				return NO_CHUNK;
+			}
+
+			reassignSlab(freeSlab, sizeClass);
+		}
+
+		long handle = freeLists[sizeClass][--freeCounts[sizeClass]];
+		int slabIndex = slabIndex(handle);
+
+		slabUsedChunks.set(slabIndex, slabUsedChunks.get(slabIndex) + 1);
+		return handle;
+	}
+
+	/**
+	 * Returns a chunk to the free list of its size class.
+	 *
+	 * @param handle The handle returned by {@link #allocate(int)}.
+	 */
+	void free(long handle) {
+		int slabIndex = slabIndex(handle);
+		int sizeClass = slabClasses.get(slabIndex);
+		long[] freeList = freeLists[sizeClass];
+
+		slabUsedChunks.set(slabIndex, slabUsedChunks.get(slabIndex) - 1);
+
+		if(freeCounts[sizeClass] == freeList.length) {
+			freeList = Arrays.copyOf(freeList, freeList.length * 2);
+			freeLists[sizeClass] = freeList;
+		}
+
+		freeList[freeCounts[sizeClass]++] = handle;
+	}
+
+	/**
+	 * Returns a slab of another size class whose chunks are all free, or -1 if there is none.
+	 *
+	 * @param sizeClass The size class that needs a slab.
+	 */
+	private int findFreeSlab(int sizeClass) {
+		for(int slabIndex = 0; slabIndex < slabs.size(); slabIndex++) {
+			if(slabUsedChunks.get(slabIndex) == 0 && slabClasses.get(slabIndex) != sizeClass) {
+				return slabIndex;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the size class that holds the most slabs, other than the given one, or -1 if every slab
+	 * belongs to the given class.
+	 */
+	int largestOtherClass(int sizeClass) {
+		int[] counts = new int[freeLists.length];
+		int largest = -1;
+
+		for(int slabClass : slabClasses) {
+			counts[slabClass]++;
+		}
+
+		for(int other = 0; other < counts.length; other++) {
+			if(other != sizeClass && counts[other] > 0
+					&& (largest < 0 || counts[other] > counts[largest])) {
+				largest = other;
+			}
+		}
+
+		return largest;
+	}
+
+	/**
+	 * Moves a slab whose chunks are all free to another size class. Its chunks are taken off the free
+	 * list of the old class and the slab is carved again into chunks of the new class.
+	 *
+	 * @param slabIndex The slab, as returned by {@link #slabIndex(long)}.
+	 * @param sizeClass The new size class.
+	 * @throws IllegalStateException Thrown if a chunk of the slab is still allocated.
+	 */
+	void reassignSlab(int slabIndex, int sizeClass) {
+		if(slabUsedChunks.get(slabIndex) != 0) {
+			throw new IllegalStateException("Slab " + slabIndex + " still holds allocated chunks");
+		}
+
+		int oldClass = slabClasses.get(slabIndex);
+		long[] freeList = freeLists[oldClass];
+		int kept = 0;
+
+		for(int pos = 0; pos < freeCounts[oldClass]; pos++) {
+			if(slabIndex(freeList[pos]) != slabIndex) {
+				freeList[kept++] = freeList[pos];
+			}
+		}
+
+		freeCounts[oldClass] = kept;
+		slabClasses.set(slabIndex, sizeClass);
+		pushChunks(slabIndex, sizeClass);
+	}
+
+	/**
+	 * Returns the slab that holds the given chunk. Use {@link #offset(long)} to find the chunk
+	 * within the slab. Only absolute get and put methods should be used on the returned buffer.
+	 */
+	ByteBuffer slab(long handle) {
+		return slabs.get(slabIndex(handle));
+	}
+
+	/**
+	 * Returns the byte offset of the chunk within its slab.
+	 */
+	int offset(long handle) {
+		return (int)handle;
+	}
+
+	/**
+	 * Returns the number of bytes of off-heap memory reserved so far.
+	 */
+	long reservedBytes() {
+		return (long)slabs.size() * slabSize;
+	}
+
+	/**
+	 * Reserves a new slab and pushes all of its chunks onto the free list of the size class.
+	 *
+	 * @return {@code true} if a slab was reserved, {@code false} if the capacity is used up.
+	 */
+	private boolean carveSlab(int sizeClass) {
+		if(slabs.size() >= maxSlabs) {
+			return false;
+		}
+
+		slabs.add(ByteBuffer.allocateDirect(slabSize));
+		slabClasses.add(sizeClass);
+		slabUsedChunks.add(0);
+		pushChunks(slabs.size() - 1, sizeClass);
+
+		return true;
+	}
+
+	/**
+	 * Pushes every chunk of a slab onto the free list of the size class.
+	 */
+	private void pushChunks(int slabIndex, int sizeClass) {
+		int chunkSize = MIN_CHUNK_SIZE << sizeClass;
+		int numChunks = slabSize / chunkSize;
+
+		if(freeLists[sizeClass].length < freeCounts[sizeClass] + numChunks) {
+			freeLists[sizeClass] =
+					Arrays.copyOf(freeLists[sizeClass], freeCounts[sizeClass] + numChunks);
+		}
+
+		/* Push in reverse so that chunks are handed out from the start of the slab. */
+		for(int chunk = numChunks - 1; chunk >= 0; chunk--) {
+			freeLists[sizeClass][freeCounts[sizeClass]++] =
+					((long)slabIndex << 32) | ((long)chunk * chunkSize);
+		}
+	}
+
+	/**
+	 * Returns the index of the slab that holds the given chunk.
+	 */
+	int slabIndex(long handle) {
+		return (int)(handle >>> 32);
+	}
+}
@@ -0,0 +1,345 @@
+package projects.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.CRC32C;
+import projects.entity.Project;
+import projects.util.IntSet;
+
+/**
+ * This class saves the project cache to a local file and maps it back into memory when the
+ * application starts, so cached projects survive a restart. The file layout is:
+ *
+ * <pre>
+ * header: magic (int), format version (int), change ID (long), index offset (long), count (int),
+ *         CRC-32C of the header fields before it and of the index (int)
+ * data:   for each project: length (int), encoded project (see {@link ProjectBinaryCodec})
+ * index:  for each project, sorted by project ID: project ID (int), data offset (long)
+ * </pre>
+ *
+ * A file that is truncated, overwritten or from another format is rejected when it is opened: the
+ * checksum must match and every index entry must point at a project inside the data section. The
+ * projects themselves are not checksummed, as that would mean reading the whole file at startup. A
+ * project that cannot be decoded is dropped from the snapshot the first time it is asked for.
+ *
+ * The change ID is the last entry of the project change log that the cache had seen when the file
+ * was written. Projects changed after that must be invalidated before the snapshot is used.
+ *
+ * Projects are decoded straight from the mapped file, so the snapshot can serve requests as soon
+ * as the index has been read.
+ */
+public class WarmCacheSnapshot {
+	private static final int MAGIC = 0x504A4353; // "PJCS"
+	private static final int FORMAT_VERSION = 2;
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4;
+	private static final int CHECKED_HEADER_SIZE = HEADER_SIZE - 4;
+	private static final int INDEX_ENTRY_SIZE = 4 + 8;
+	private static final long REMOVED = -1L;
+
+	private final MappedByteBuffer mapped;
+	private final long changeId;
+	private final int[] projectIds;
+	private final AtomicLongArray offsets;
+
+	private WarmCacheSnapshot(MappedByteBuffer mapped, long changeId, int[] projectIds,
+			AtomicLongArray offsets) {
+		this.mapped = mapped;
+		this.changeId = changeId;
+		this.projectIds = projectIds;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Maps a snapshot file into memory and reads its index.
+	 *
+	 * @param file The snapshot file.
+	 * @return The snapshot.
+	 * @throws IOException Thrown if the file cannot be read, was not written by this class or is
+	 *         damaged.
+	 */
+	public static WarmCacheSnapshot open(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too large to be a project cache snapshot.");
+			}
+
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			mapped.order(ByteOrder.BIG_ENDIAN);
+
+			if(mapped.capacity() < HEADER_SIZE || mapped.getInt(0) != MAGIC) {
+				throw new IOException(file + " is not a project cache snapshot.");
+			}
+
+			if(mapped.getInt(4) != FORMAT_VERSION) {
+				throw new IOException(file + " was written in an unknown format.");
+			}
+
+			long changeId = mapped.getLong(8);
+			long indexOffset = mapped.getLong(16);
+			int count = mapped.getInt(24);
+
+			if(count < 0 || indexOffset < HEADER_SIZE
+					|| indexOffset + (long)count * INDEX_ENTRY_SIZE != mapped.capacity()) {
+				throw new IOException(file + " is damaged: its index does not end the file.");
+			}
+
+			CRC32C crc = new CRC32C();
+
+			crc.update(mapped.slice(0, CHECKED_HEADER_SIZE));
+			crc.update(mapped.slice((int)indexOffset, count * INDEX_ENTRY_SIZE));
+
+			if((int)crc.getValue() != mapped.getInt(CHECKED_HEADER_SIZE)) {
+				throw new IOException(file + " is damaged: its checksum does not match.");
+			}
+
+			int[] projectIds = new int[count];
+			AtomicLongArray offsets = new AtomicLongArray(count);
+
+			for(int pos = 0; pos < count; pos++) {
+				int entryOffset = (int)indexOffset + pos * INDEX_ENTRY_SIZE;
+				long offset = mapped.getLong(entryOffset + 4);
+				int length = offset < HEADER_SIZE || offset > indexOffset - 4 ? -1
+						: mapped.getInt((int)offset);
+
+				if(length < 0 || offset + 4 + length > indexOffset) {
+					throw new IOException(file + " is damaged: a project lies outside the data.");
+				}
+
+				projectIds[pos] = mapped.getInt(entryOffset);
+				offsets.set(pos, offset);
+			}
+
+			return new WarmCacheSnapshot(mapped, changeId, projectIds, offsets);
+		}
+	}
+
+	/**
+	 * Writes the contents of the cache to a snapshot file. Projects still held by a previous
+	 * snapshot are carried over unless the cache has a newer copy. The file is written to a
+	 * temporary file first and then moved into place, so a crash never leaves a partial snapshot.
+	 *
+	 * @param file The snapshot file.
+	 * @param changeId The last change log entry reflected by the cache.
+	 * @param cache The project cache.
+	 * @param previous The snapshot the cache was warmed from. This may be null.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	public static void write(Path file, long changeId, OffHeapProjectCache cache,
+			WarmCacheSnapshot previous) throws IOException {
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+		try(FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			SnapshotWriter writer = new SnapshotWriter(channel);
+
+			cache.forEachEncoded(writer::writeEntry);
+
+			if(Objects.nonNull(previous)) {
+				previous.forEachEncoded(writer::writeEntry);
+			}
+
+			writer.finish(changeId);
+			channel.force(true);
+		}
+
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns the last change log entry that the snapshot reflects.
+	 */
+	public long getChangeId() {
+		return changeId;
+	}
+
+	/**
+	 * Returns the project with the given ID decoded from the mapped file.
+	 *
+	 * @param projectId The project ID.
+	 * @return The project or {@link Optional#empty()} if it is not in the snapshot, was invalidated
+	 *         or cannot be decoded.
+	 */
+	public Optional<Project> get(Integer projectId) {
+		int pos = Arrays.binarySearch(projectIds, projectId);
+
+		if(pos < 0) {
+			return Optional.empty();
+		}
+
+		long offset = offsets.get(pos);
+
+		if(offset == REMOVED) {
+			return Optional.empty();
+		}
+
+		try {
+			return Optional.of(ProjectBinaryCodec.decode(mapped, (int)offset + 4));
+		}
+		catch(RuntimeException e) {
+			offsets.set(pos, REMOVED);
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Returns the row version of a project, read from the mapped file without decoding the rest of
+	 * the project.
+	 *
+	 * @param projectId The project ID.
+	 * @return The row version or {@link Optional#empty()} if the project is not in the snapshot, was
+	 *         invalidated, was written without one or cannot be decoded.
+	 */
+	public Optional<Integer> getRowVersion(Integer projectId) {
+		int pos = Arrays.binarySearch(projectIds, projectId);
+
+		if(pos < 0) {
+			return Optional.empty();
+		}
+
+		long offset = offsets.get(pos);
+
+		if(offset == REMOVED) {
+			return Optional.empty();
+		}
+
+		try {
+			return Optional.ofNullable(ProjectBinaryCodec.decodeRowVersion(mapped, (int)offset + 4));
+		}
+		catch(RuntimeException e) {
+			offsets.set(pos, REMOVED);
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Marks a project as stale so that it is no longer served from the snapshot.
+	 *
+	 * @param projectId The project ID.
+	 */
+	public void invalidate(Integer projectId) {
+		int pos = Arrays.binarySearch(projectIds, projectId);
+
+		if(pos >= 0) {
+			offsets.set(pos, REMOVED);
+		}
+	}
+
+	/**
+	 * Returns the number of projects that can still be served from the snapshot.
+	 */
+	public int size() {
+		int size = 0;
+
+		for(int pos = 0; pos < projectIds.length; pos++) {
+			if(offsets.get(pos) != REMOVED) {
+				size++;
+			}
+		}
+
+		return size;
+	}
+
+	private void forEachEncoded(OffHeapProjectCache.EncodedEntryVisitor visitor) throws IOException {
+		for(int pos = 0; pos < projectIds.length; pos++) {
+			long offset = offsets.get(pos);
+
+			if(offset != REMOVED) {
+				int length = mapped.getInt((int)offset);
+				visitor.visit(projectIds[pos], mapped.slice((int)offset + 4, length).asReadOnlyBuffer());
+			}
+		}
+	}
+
+	/**
+	 * Writes entries to the data section of a new snapshot file and then appends the sorted index.
+	 */
+	private static class SnapshotWriter {
+		private final FileChannel channel;
+		private final IntSet written = new IntSet();
+		private final ByteBuffer scratch = ByteBuffer.allocate(HEADER_SIZE);
+		private int[] projectIds = new int[1024];
+		private long[] offsets = new long[1024];
+		private int count;
+		private long position = HEADER_SIZE;
+
+		SnapshotWriter(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		void writeEntry(int projectId, ByteBuffer encoded) throws IOException {
+			/* The first copy of a project wins. The live cache is written before the old snapshot. */
+			if(!written.add(projectId)) {
+				return;
+			}
+
+			if(count == projectIds.length) {
+				projectIds = Arrays.copyOf(projectIds, count * 2);
+				offsets = Arrays.copyOf(offsets, count * 2);
+			}
+
+			projectIds[count] = projectId;
+			offsets[count] = position;
+			count++;
+
+			scratch.clear().putInt(encoded.remaining()).flip();
+			position += writeFully(scratch, position);
+			position += writeFully(encoded, position);
+		}
+
+		void finish(long changeId) throws IOException {
+			long indexOffset = position;
+
+			/* Sort the index by project ID, carrying the entry position along in the low bits. */
+			long[] order = new long[count];
+
+			for(int pos = 0; pos < count; pos++) {
+				order[pos] = ((long)projectIds[pos] << 32) | pos;
+			}
+
+			Arrays.sort(order);
+
+			ByteBuffer index = ByteBuffer.allocate(count * INDEX_ENTRY_SIZE);
+
+			for(long entry : order) {
+				int pos = (int)entry;
+				index.putInt(projectIds[pos]).putLong(offsets[pos]);
+			}
+
+			index.flip();
+			scratch.clear().putInt(MAGIC).putInt(FORMAT_VERSION).putLong(changeId).putLong(indexOffset)
+					.putInt(count).flip();
+
+			CRC32C crc = new CRC32C();
+
+			crc.update(scratch.duplicate());
+			crc.update(index.duplicate());
+			scratch.limit(HEADER_SIZE).putInt(CHECKED_HEADER_SIZE, (int)crc.getValue());
+
+			writeFully(index, indexOffset);
+			writeFully(scratch, 0);
+		}
+
+		private int writeFully(ByteBuffer buffer, long filePosition) throws IOException {
+			int length = buffer.remaining();
+			long pos = filePosition;
+
+			while(buffer.hasRemaining()) {
+				pos += channel.write(buffer, pos);
+			}
+
+			return length;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package projects.dao;
+
+import java.math.BigDecimal;
+
+/**
+ * The tables copied by a backup, with the columns saved for each. Each table has a fixed ID that is
+ * stored in the backup file, so the order of the constants may change without breaking old backups.
+ * New columns are only added at the end, so that an older file holds a prefix of the columns.
+ */
+public enum BackupTable {
+	// @formatter:off
+	PROJECT(1, "project", "project_id",
+			new String[] {"project_id", "project_name", "estimated_hours", "actual_hours", "difficulty", "notes",
+					"row_version"},
+			new Class<?>[] {Integer.class, String.class, BigDecimal.class, BigDecimal.class, Integer.class, String.class,
+					Integer.class}),
+	CATEGORY(2, "category", "category_id",
+			new String[] {"category_id", "category_name"},
+			new Class<?>[] {Integer.class, String.class}),
+	STEP(3, "step", "step_id",
+			new String[] {"step_id", "project_id", "step_text", "step_order"},
+			new Class<?>[] {Integer.class, Integer.class, String.class, Integer.class}),
+	MATERIAL(4, "material", "material_id",
+			new String[] {"material_id", "project_id", "material_name", "num_required", "cost"},
+			new Class<?>[] {Integer.class, Integer.class, String.class, Integer.class, BigDecimal.class}),
+	PROJECT_CATEGORY(5, "project_category", "project_id",
+			new String[] {"project_id", "category_id"},
+			new Class<?>[] {Integer.class, Integer.class});
+	// @formatter:on
+
+	private final int fileId;
+	private final String tableName;
+	private final String rangeColumn;
+	private final String[] columns;
+	private final Class<?>[] types;
+
+	BackupTable(int fileId, String tableName, String rangeColumn, String[] columns,
+			Class<?>[] types) {
+		this.fileId = fileId;
+		this.tableName = tableName;
+		this.rangeColumn = rangeColumn;
+		this.columns = columns;
+		this.types = types;
+	}
+
+	/**
+	 * Returns the table with the given file ID.
+	 *
+	 * @param fileId The ID stored in the backup file.
+	 * @return The table.
+	 * @throws IllegalArgumentException Thrown if no table has the ID.
+	 */
+	public static BackupTable forFileId(int fileId) {
+		for(BackupTable table : values()) {
+			if(table.fileId == fileId) {
+				return table;
+			}
+		}
+
+		throw new IllegalArgumentException("Unknown backup table ID " + fileId);
+	}
+
+	public int getFileId() {
+		return fileId;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * Returns the integer column used to split the table into key ranges that are read in parallel.
+	 */
+	public String getRangeColumn() {
+		return rangeColumn;
+	}
+
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	/**
+	 * Returns the number of columns saved in a backup file of the given format version. Files of
+	 * version 1 were written before the project table had its row_version column.
+	 */
+	public int getColumnCount(int formatVersion) {
+		return formatVersion < 2 && this == PROJECT ? columns.length - 1 : columns.length;
+	}
+
+	public String getColumn(int index) {
+		return columns[index];
+	}
+
+	/**
+	 * Returns the Java type of a column: {@link Integer}, {@link BigDecimal} or {@link String}.
+	 */
+	public Class<?> getType(int index) {
+		return types[index];
+	}
+}
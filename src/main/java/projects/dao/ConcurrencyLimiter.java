@@ -0,0 +1,311 @@
+package projects.dao;
+
+import java.net.SocketTimeoutException;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import projects.exception.ConcurrencyLimitException;
+import projects.trace.Span;
+import projects.trace.Tracer;
+
+/**
+ * This class caps the number of database operations in flight. The cap adapts to the latency the
+ * database is showing, using additive increase / multiplicative decrease (AIMD). Two moving averages
+ * of operation latency are kept: a short one that follows the last few dozen operations and a long
+ * one that follows the last few thousand.
+ * <ul>
+ * <li>While the short average stays within {@link #LATENCY_TOLERANCE} times the long average, and
+ * the limit is actually being used, the limit grows by one for each limit's worth of completed
+ * operations.</li>
+ * <li>When the short average rises above that, or an operation fails in a way that points at the
+ * database being overloaded, the limit is cut by {@link #BACKOFF_RATIO}. After a cut, at least a
+ * limit's worth of operations must complete before the next one, so a single slow spell does not
+ * collapse the limit.</li>
+ * </ul>
+ * Only timeouts, transient SQL errors and connection failures count as congestion; see
+ * {@link #isCongestion(Throwable)}. Any other failure, such as a constraint violation or a missing
+ * row, says nothing about the load on the database: its permit is released without touching the
+ * limit or the latency averages.
+ * Comparing two averages of the same mix of operations, rather than each operation with a fixed
+ * target, means a slow query such as a full listing does not look like congestion on its own.
+ *
+ * Operations that arrive while the limit is reached wait in a bounded queue. When the queue is full,
+ * or an operation waits too long, it is rejected with a {@link ConcurrencyLimitException} instead of
+ * piling more load onto a struggling database.
+ */
+public class ConcurrencyLimiter {
+	private static final double LATENCY_TOLERANCE = 1.5;
+	private static final double BACKOFF_RATIO = 0.9;
+	private static final double SHORT_SMOOTHING = 0.05;
+	private static final double LONG_SMOOTHING = 0.001;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final int maxQueueDepth;
+	private final long maxWaitNanos;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition permitAvailable = lock.newCondition();
+
+	private double limit;
+	private int inFlight;
+	private int queueDepth;
+	private double shortLatencyNanos;
+	private double longLatencyNanos;
+	private int completedSinceBackoff;
+
+	private final LongAdder rejections = new LongAdder();
+
+	/**
+	 * Create a limiter using the system properties {@code projects.limiter.initial},
+	 * {@code projects.limiter.max}, {@code projects.limiter.queue} and
+	 * {@code projects.limiter.maxWaitMillis}.
+	 */
+	public ConcurrencyLimiter() {
+		this(Integer.getInteger("projects.limiter.initial", 8), 1,
+				Integer.getInteger("projects.limiter.max", 64),
+				Integer.getInteger("projects.limiter.queue", 256),
+				Long.getLong("projects.limiter.maxWaitMillis", 2000));
+	}
+
+	/**
+	 * Create a limiter.
+	 *
+	 * @param initialLimit The limit to start with.
+	 * @param minLimit The limit never drops below this.
+	 * @param maxLimit The limit never grows above this.
+	 * @param maxQueueDepth The number of operations that may wait for a permit.
+	 * @param maxWaitMillis How long an operation may wait before it is rejected.
+	 */
+	public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueueDepth,
+			long maxWaitMillis) {
+		this.limit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.maxQueueDepth = maxQueueDepth;
+		this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+	}
+
+	/**
+	 * Runs a database operation once the limit allows it and feeds its latency back into the limit.
+	 *
+	 * @param <T> The type returned by the operation.
+	 * @param operation The operation.
+	 * @return The value returned by the operation.
+	 * @throws ConcurrencyLimitException Thrown if the operation was rejected.
+	 */
+	public <T> T call(Supplier<T> operation) {
+		try(Span span = Tracer.startSpan("dao.limiterWait")) {
+			acquire();
+		}
+
+		long start = System.nanoTime();
+		T result;
+
+		try {
+			result = operation.get();
+		}
+		catch(RuntimeException | Error e) {
+			if(isCongestion(e)) {
+				release(System.nanoTime() - start, true);
+			}
+			else {
+				releaseUnmeasured();
+			}
+
+			throw e;
+		}
+
+		release(System.nanoTime() - start, false);
+		return result;
+	}
+
+	/**
+	 * Tells whether a failure is a sign of an overloaded database: a timeout, a transient SQL error, or
+	 * a connection that could not be opened or was lost. The exception and its causes are checked,
+	 * since the DAO wraps the {@link SQLException} in a
+	 * {@link projects.exception.DbException DbException}.
+	 *
+	 * @param failure The exception thrown by the operation.
+	 * @return {@code true} if the failure should cut the limit.
+	 */
+	public static boolean isCongestion(Throwable failure) {
+		for(Throwable cause = failure; Objects.nonNull(cause); cause = cause.getCause()) {
+			if(cause instanceof SQLTransientException || cause instanceof SQLRecoverableException
+					|| cause instanceof SQLNonTransientConnectionException
+					|| cause instanceof SocketTimeoutException || cause instanceof TimeoutException) {
+				return true;
+			}
+
+			/* SQLState class 08 is a connection exception, whatever class the driver throws. */
+			if(cause instanceof SQLException sqlException && Objects.nonNull(sqlException.getSQLState())
+					&& sqlException.getSQLState().startsWith("08")) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the current limit on in-flight operations.
+	 */
+	public int getLimit() {
+		lock.lock();
+
+		try {
+			return (int)limit;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of operations currently running.
+	 */
+	public int getInFlight() {
+		lock.lock();
+
+		try {
+			return inFlight;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of operations waiting for a permit.
+	 */
+	public int getQueueDepth() {
+		lock.lock();
+
+		try {
+			return queueDepth;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of operations rejected since the limiter was created.
+	 */
+	public long getRejections() {
+		return rejections.sum();
+	}
+
+	private void acquire() {
+		lock.lock();
+
+		try {
+			if(inFlight < (int)limit) {
+				inFlight++;
+				return;
+			}
+
+			if(queueDepth >= maxQueueDepth) {
+				rejections.increment();
+				throw new ConcurrencyLimitException(
+						"Too many database operations waiting (" + queueDepth + "). Try again later.");
+			}
+
+			queueDepth++;
+
+			try {
+				long remaining = maxWaitNanos;
+
+				while(inFlight >= (int)limit) {
+					if(remaining <= 0) {
+						rejections.increment();
+						throw new ConcurrencyLimitException(
+								"Timed out waiting for a database operation slot. Try again later.");
+					}
+
+					remaining = permitAvailable.awaitNanos(remaining);
+				}
+
+				inFlight++;
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				rejections.increment();
+				throw new ConcurrencyLimitException("Interrupted waiting for a database operation slot.");
+			}
+			finally {
+				queueDepth--;
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Releases the permit of an operation whose failure is not congestion. Its latency is not fed
+	 * into the averages and the limit is left as it is.
+	 */
+	private void releaseUnmeasured() {
+		lock.lock();
+
+		try {
+			inFlight--;
+
+			if(queueDepth > 0 && inFlight < (int)limit) {
+				permitAvailable.signal();
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void release(long latencyNanos, boolean failed) {
+		lock.lock();
+
+		try {
+			boolean saturated = inFlight >= limit / 2;
+
+			inFlight--;
+			completedSinceBackoff++;
+
+			if(longLatencyNanos == 0) {
+				shortLatencyNanos = latencyNanos;
+				longLatencyNanos = latencyNanos;
+			}
+			else {
+				shortLatencyNanos += (latencyNanos - shortLatencyNanos) * SHORT_SMOOTHING;
+				longLatencyNanos += (latencyNanos - longLatencyNanos) * LONG_SMOOTHING;
+			}
+
+			boolean congested = failed || shortLatencyNanos > longLatencyNanos * LATENCY_TOLERANCE;
+
+			if(congested) {
+				if(completedSinceBackoff >= limit) {
+					limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+					completedSinceBackoff = 0;
+				}
+			}
+			else if(saturated) {
+				limit = Math.min(maxLimit, limit + 1.0 / limit);
+			}
+
+			/* Wake one waiter for each free slot. The limit may have grown past the next whole number. */
+			for(int free = Math.min((int)limit - inFlight, queueDepth); free > 0; free--) {
+				permitAvailable.signal();
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+}
@@ -3,10 +3,26 @@ package projects.dao;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 
+import projects.dao.jfr.ConnectionAcquireEvent;
 import projects.exception.DbException;
+import projects.log.Level;
+import projects.log.Logger;
+import projects.log.Sampler;
+import projects.trace.Span;
+import projects.trace.Tracer;
 
 public class DbConnection {
+	private static final Logger LOG = Logger.get(DbConnection.class);
+
+	/*
+	 * Connections are opened for every DAO call, so only a sample of them is logged, at DEBUG. Set the
+	 * share with -Dprojects.log.connectSampleRate=... (0.01 by default; 1 logs every connection).
+	 */
+	private static final Sampler CONNECT_SAMPLER =
+			new Sampler(Double.parseDouble(System.getProperty("projects.log.connectSampleRate", "0.01")));
 	
 	 // Database connection configuration
 	
@@ -15,6 +31,52 @@ public class DbConnection {
 	private static int PORT = 3306;
 	private static String SCHEMA = "projects";
 	private static String USER = "projects";
+
+	/*
+	 * Replaces the MySQL URL, for example with an in-process fake driver for benchmarks. Set with
+	 * -Dprojects.db.url=... The URL must already have a query string, because connection options
+	 * such as useCursorFetch are appended with '&'.
+	 */
+	private static final String URL = System.getProperty("projects.db.url",
+			String.format("jdbc:mysql://%s:%d/%s?user=%s&password=%s&useSSL=false",
+					HOST, PORT, SCHEMA, USER, PASSWORD));
+
+	/*
+	 * Added to every connection, including one to a replaced URL. Without it Connector/J sends each
+	 * row of a JDBC batch as its own statement and round trip; with it a batch of updates goes out as
+	 * multi-statement packets and a batch of inserts as multi-row INSERTs. The DAO batch methods
+	 * depend on it.
+	 */
+	private static final String BATCH_PARAMETERS = "&rewriteBatchedStatements=true";
+
+	/*
+	 * Wraps each connection so that statements, result sets and transactions emit Flight Recorder
+	 * events. Turn off with -Dprojects.db.instrument=false to hand the driver's connection straight to
+	 * the DAOs; the slow query log and StatementCounter then see nothing.
+	 */
+	private static final boolean INSTRUMENT =
+			Boolean.parseBoolean(System.getProperty("projects.db.instrument", "true"));
+
+	/*
+	 * Logs statements slower than -Dprojects.slowQuery.thresholdMillis (500 by default; -1 turns the
+	 * log off). See SlowQueryLog for the other settings. It needs the instrumented connections.
+	 */
+	private static final SlowQueryLog SLOW_QUERY_LOG = INSTRUMENT ? SlowQueryLog.fromSystemProperties() : null;
+
+	/* Every statement is reported to the statement counter and, if it is on, the slow query log. */
+	private static final StatementListener LISTENER = Objects.isNull(SLOW_QUERY_LOG)
+			? StatementCounter.LISTENER
+			: (sql, parameters, parameterCount, nanos, success) -> {
+				StatementCounter.LISTENER.statementExecuted(sql, parameters, parameterCount, nanos, success);
+				SLOW_QUERY_LOG.statementExecuted(sql, parameters, parameterCount, nanos, success);
+			};
+
+	/* Connection statistics for monitoring. Striped counters, so connecting threads do not contend. */
+	private static final LongAdder CONNECTIONS_OPENED = new LongAdder();
+	private static final LongAdder CONNECT_FAILURES = new LongAdder();
+	private static final LongAdder CONNECT_NANOS = new LongAdder();
+	private static final LongAdder OPEN_CONNECTIONS = new LongAdder();
+
 	  /**
      * Establishes and returns a connection to the database.
      *
@@ -22,19 +84,110 @@ public class DbConnection {
      * @throws DbException if the connection cannot be established.
      */
 	public static Connection getConnection() {
-		 // Format the JDBC URI using the provided connection details
-		String uri = String.format("jdbc:mysql://%s:%d/%s?user=%s&password=%s&useSSL=false",
-				HOST, PORT, SCHEMA, USER, PASSWORD);
+		return getConnection("", INSTRUMENT);
+	}
+
+	/**
+	 * Returns a connection that reads query results through server-side cursors. A statement on this
+	 * connection with a fetch size set fetches that many rows at a time instead of the whole result,
+	 * and several such result sets may be open at once.
+	 *
+	 * @return A valid {@link Connection} object.
+	 * @throws DbException if the connection cannot be established.
+	 */
+	public static Connection getCursorConnection() {
+		return getConnection("&useCursorFetch=true", INSTRUMENT);
+	}
+
+	/**
+	 * Returns the driver's connection without the instrumentation, so that statements run on it are
+	 * neither recorded nor logged. The slow query log runs its EXPLAINs on it.
+	 *
+	 * @return A valid {@link Connection} object.
+	 * @throws DbException if the connection cannot be established.
+	 */
+	static Connection getUninstrumentedConnection() {
+		return getConnection("", false);
+	}
+
+	/**
+	 * Returns the number of connections opened since the start.
+	 */
+	public static long getConnectionsOpened() {
+		return CONNECTIONS_OPENED.sum();
+	}
+
+	/**
+	 * Returns the number of attempts to connect that failed since the start.
+	 */
+	public static long getConnectFailures() {
+		return CONNECT_FAILURES.sum();
+	}
+
+	/**
+	 * Returns the total time spent connecting, successfully or not, in nanoseconds.
+	 */
+	public static long getConnectNanos() {
+		return CONNECT_NANOS.sum();
+	}
+
+	/**
+	 * Returns the number of instrumented connections that are open. Connections handed out without
+	 * the instrumentation are not counted, because nothing sees them close.
+	 */
+	public static long getOpenConnections() {
+		return OPEN_CONNECTIONS.sum();
+	}
+
+	/**
+	 * Called by an instrumented connection the first time it is closed.
+	 */
+	static void connectionClosed() {
+		OPEN_CONNECTIONS.decrement();
+	}
+
+	private static Connection getConnection(String extraParameters, boolean instrument) {
+		 // Add the extra options to the configured JDBC URI
+		String uri = URL + BATCH_PARAMETERS + extraParameters;
+		ConnectionAcquireEvent event = new ConnectionAcquireEvent();
+		Span span = Tracer.startSpan("db.connect");
+		long start = System.nanoTime();
+
+		event.begin();
 				
 		try {
 			 // Attempt to establish a connection to the database
 			Connection conn = DriverManager.getConnection(uri);
-			System.out.println("Connection successful!");// Log success message
-			return conn;
+			event.success = true;
+			CONNECTIONS_OPENED.increment();
+
+			if(LOG.isEnabled(Level.DEBUG) && CONNECT_SAMPLER.sample()) {
+				LOG.debug("Connection successful", "micros", (System.nanoTime() - start) / 1000,
+						"cursorFetch", extraParameters.contains("useCursorFetch"),
+						"sampledFrom", CONNECT_SAMPLER.takeSkipped() + 1);
+			}
+
+			if(!instrument) {
+				return conn;
+			}
+
+			OPEN_CONNECTIONS.increment();
+			return InstrumentedConnection.wrap(conn, LISTENER);
 		} catch(SQLException e) {
+			CONNECT_FAILURES.increment();
 			  // Log the connection URI and throw a custom database exception if connection fails
-			System.out.println("Unable to get connection at " + uri);
+			LOG.warn("Unable to get connection", "uri", uri.replaceAll("password=[^&]*", "password=***"),
+					"error", e.getMessage());
 			throw new DbException("Unable to connect to the database.", e);
+		} finally {
+			CONNECT_NANOS.add(System.nanoTime() - start);
+			span.close();
+			event.end();
+
+			if(event.shouldCommit()) {
+				event.cursorFetch = extraParameters.contains("useCursorFetch");
+				event.commit();
+			}
 		}
 	}
 
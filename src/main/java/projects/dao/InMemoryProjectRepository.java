@@ -0,0 +1,435 @@
+package projects.dao;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.exception.DbException;
+import projects.util.IntObjectMap;
+import projects.util.IntSet;
+
+/**
+ * This class keeps projects in memory. It can run the application without a database (an embedded
+ * mode for small deployments) and gives benchmarks a store whose cost is close to zero, so they
+ * measure the code above it.
+ *
+ * Three indexes are kept up to date on every write:
+ * <ul>
+ * <li>project ID to project, for {@link #fetchProjectById(Integer)},</li>
+ * <li>the projects sorted by name and then ID, for {@link #fetchAllProjects()},</li>
+ * <li>category name to project IDs, for {@link #fetchProjectsByCategory(String)}.</li>
+ * </ul>
+ * Reads take a shared lock and run in parallel; writes take an exclusive lock. Projects are copied
+ * on the way in and on the way out, so callers can never change a stored project behind the
+ * repository's back.
+ *
+ * Each write adds one to the row version of the projects it changes, as the database does.
+ *
+ * Unlike {@link ProjectDao#insertProject(Project)}, an inserted project keeps its materials, steps
+ * and categories, so the repository can be loaded with complete projects. Categories are shared by
+ * name, as they are in the database.
+ */
+public class InMemoryProjectRepository implements ProjectRepository {
+	private static final Comparator<Project> BY_NAME =
+			Comparator.comparing(Project::getProjectName).thenComparing(Project::getProjectId);
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final IntObjectMap<Project> projectsById = new IntObjectMap<>();
+	private final TreeSet<Project> projectsByName = new TreeSet<>(BY_NAME);
+	private final Map<String, IntSet> projectIdsByCategory = new HashMap<>();
+	private final Map<String, Integer> categoryIds = new HashMap<>();
+
+	private int nextProjectId = 1;
+	private int nextMaterialId = 1;
+	private int nextStepId = 1;
+	private int nextCategoryId = 1;
+
+	@Override
+	public Project insertProject(Project project) {
+		requireName(project);
+
+		Project stored = copyDetails(project);
+
+		lock.writeLock().lock();
+
+		try {
+			stored.setProjectId(nextProjectId++);
+			stored.setRowVersion(1);
+
+			for(Material material : project.getMaterials()) {
+				Material copy = copy(material);
+
+				copy.setMaterialId(nextMaterialId++);
+				copy.setProjectId(stored.getProjectId());
+				stored.getMaterials().add(copy);
+			}
+
+			int stepOrder = 1;
+
+			for(Step step : project.getSteps()) {
+				Step copy = copy(step);
+
+				copy.setStepId(nextStepId++);
+				copy.setProjectId(stored.getProjectId());
+
+				if(Objects.isNull(copy.getStepOrder())) {
+					copy.setStepOrder(stepOrder);
+				}
+
+				stepOrder = copy.getStepOrder() + 1;
+				stored.getSteps().add(copy);
+			}
+
+			for(Category category : project.getCategories()) {
+				String name = category.getCategoryName();
+				IntSet projectIds = projectIdsByCategory.computeIfAbsent(name, key -> new IntSet());
+
+				/* A project is linked to a category once, as the join table's unique key enforces. */
+				if(projectIds.add(stored.getProjectId())) {
+					Category copy = new Category();
+
+					copy.setCategoryId(categoryIds.computeIfAbsent(name, key -> nextCategoryId++));
+					copy.setCategoryName(name);
+					stored.getCategories().add(copy);
+				}
+			}
+
+			projectsById.put(stored.getProjectId(), stored);
+			projectsByName.add(stored);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+
+		project.setProjectId(stored.getProjectId());
+		project.setRowVersion(1);
+		return project;
+	}
+
+	@Override
+	public List<Project> fetchAllProjects() {
+		lock.readLock().lock();
+
+		try {
+			List<Project> projects = new ArrayList<>(projectsByName.size());
+
+			for(Project project : projectsByName) {
+				projects.add(copyDetails(project));
+			}
+
+			return projects;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<Project> fetchProjectsByCategory(String categoryName) {
+		List<Project> projects = new ArrayList<>();
+
+		lock.readLock().lock();
+
+		try {
+			IntSet projectIds = projectIdsByCategory.get(categoryName);
+
+			if(Objects.isNull(projectIds)) {
+				return projects;
+			}
+
+			for(int projectId : projectIds.toArray()) {
+				projects.add(copyDetails(projectsById.get(projectId)));
+			}
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+
+		projects.sort(BY_NAME);
+		return projects;
+	}
+
+	@Override
+	public List<Project> fetchProjectsPage(String afterName, Integer afterId, int limit) {
+		ProjectRepository.checkPagePosition(afterName, afterId);
+		lock.readLock().lock();
+
+		try {
+			Collection<Project> rest = projectsByName;
+
+			if(Objects.nonNull(afterName)) {
+				Project after = new Project();
+
+				after.setProjectName(afterName);
+				after.setProjectId(afterId);
+				rest = projectsByName.tailSet(after, false);
+			}
+
+			List<Project> projects = new ArrayList<>(Math.min(limit, projectsByName.size()));
+
+			for(Project project : rest) {
+				if(projects.size() >= limit) {
+					break;
+				}
+
+				projects.add(copyDetails(project));
+			}
+
+			return projects;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Optional<Project> fetchProjectById(Integer projectId) {
+		lock.readLock().lock();
+
+		try {
+			Project stored = projectsById.get(projectId);
+
+			if(Objects.isNull(stored)) {
+				return Optional.empty();
+			}
+
+			Project project = copyDetails(stored);
+
+			stored.getMaterials().forEach(material -> project.getMaterials().add(copy(material)));
+			stored.getSteps().forEach(step -> project.getSteps().add(copy(step)));
+			stored.getCategories().forEach(category -> project.getCategories().add(copy(category)));
+
+			return Optional.of(project);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Optional<Integer> fetchProjectVersion(Integer projectId) {
+		lock.readLock().lock();
+
+		try {
+			Project stored = projectsById.get(projectId);
+
+			return Objects.isNull(stored) ? Optional.empty() : Optional.of(stored.getRowVersion());
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean modifyProjectDetails(Project project) {
+		requireName(project);
+
+		lock.writeLock().lock();
+
+		try {
+			Project stored = projectsById.get(project.getProjectId());
+
+			if(Objects.isNull(stored)) {
+				return false;
+			}
+
+			/* The name is part of the sort key, so the project must leave the index while it changes. */
+			projectsByName.remove(stored);
+			stored.setProjectName(project.getProjectName());
+			stored.setEstimatedHours(project.getEstimatedHours());
+			stored.setActualHours(project.getActualHours());
+			stored.setDifficulty(project.getDifficulty());
+			stored.setNotes(project.getNotes());
+			stored.setRowVersion(stored.getRowVersion() + 1);
+			projectsByName.add(stored);
+
+			return true;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean deleteProject(Integer projectId) {
+		lock.writeLock().lock();
+
+		try {
+			Project stored = projectsById.remove(projectId);
+
+			if(Objects.isNull(stored)) {
+				return false;
+			}
+
+			projectsByName.remove(stored);
+
+			for(Category category : stored.getCategories()) {
+				projectIdsByCategory.get(category.getCategoryName()).remove(projectId);
+			}
+
+			return true;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int modifyProjectDetailsBatch(Collection<Project> projects) {
+		lock.writeLock().lock();
+
+		try {
+			int updated = 0;
+
+			for(Project project : projects) {
+				Project stored = projectsById.get(project.getProjectId());
+
+				if(Objects.isNull(stored)) {
+					continue;
+				}
+
+				projectsByName.remove(stored);
+
+				if(Objects.nonNull(project.getProjectName())) {
+					stored.setProjectName(project.getProjectName());
+				}
+
+				if(Objects.nonNull(project.getEstimatedHours())) {
+					stored.setEstimatedHours(project.getEstimatedHours());
+				}
+
+				if(Objects.nonNull(project.getActualHours())) {
+					stored.setActualHours(project.getActualHours());
+				}
+
+				if(Objects.nonNull(project.getDifficulty())) {
+					stored.setDifficulty(project.getDifficulty());
+				}
+
+				if(Objects.nonNull(project.getNotes())) {
+					stored.setNotes(project.getNotes());
+				}
+
+				stored.setRowVersion(stored.getRowVersion() + 1);
+				projectsByName.add(stored);
+				updated++;
+			}
+
+			return updated;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int incrementActualHours(Map<Integer, BigDecimal> deltas) {
+		lock.writeLock().lock();
+
+		try {
+			int updated = 0;
+
+			for(Map.Entry<Integer, BigDecimal> delta : deltas.entrySet()) {
+				Project stored = projectsById.get(delta.getKey());
+
+				if(Objects.nonNull(stored)) {
+					BigDecimal hours = Objects.isNull(stored.getActualHours()) ? BigDecimal.ZERO
+							: stored.getActualHours();
+
+					stored.setActualHours(hours.add(delta.getValue()));
+					stored.setRowVersion(stored.getRowVersion() + 1);
+					updated++;
+				}
+			}
+
+			return updated;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of stored projects.
+	 */
+	public int size() {
+		lock.readLock().lock();
+
+		try {
+			return projectsById.size();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The project_name column is NOT NULL, and the name is the sort key of the name index.
+	 */
+	private static void requireName(Project project) {
+		if(Objects.isNull(project.getProjectName())) {
+			throw new DbException("The project name cannot be null.");
+		}
+	}
+
+	/**
+	 * Copies the project row without its materials, steps and categories.
+	 */
+	private static Project copyDetails(Project project) {
+		Project copy = new Project();
+
+		copy.setProjectId(project.getProjectId());
+		copy.setProjectName(project.getProjectName());
+		copy.setEstimatedHours(project.getEstimatedHours());
+		copy.setActualHours(project.getActualHours());
+		copy.setDifficulty(project.getDifficulty());
+		copy.setNotes(project.getNotes());
+		copy.setRowVersion(project.getRowVersion());
+
+		return copy;
+	}
+
+	private static Material copy(Material material) {
+		Material copy = new Material();
+
+		copy.setMaterialId(material.getMaterialId());
+		copy.setProjectId(material.getProjectId());
+		copy.setMaterialName(material.getMaterialName());
+		copy.setNumRequired(material.getNumRequired());
+		copy.setCost(material.getCost());
+
+		return copy;
+	}
+
+	private static Step copy(Step step) {
+		Step copy = new Step();
+
+		copy.setStepId(step.getStepId());
+		copy.setProjectId(step.getProjectId());
+		copy.setStepText(step.getStepText());
+		copy.setStepOrder(step.getStepOrder());
+
+		return copy;
+	}
+
+	private static Category copy(Category category) {
+		Category copy = new Category();
+
+		copy.setCategoryId(category.getCategoryId());
+		copy.setCategoryName(category.getCategoryName());
+
+		return copy;
+	}
+}
@@ -0,0 +1,467 @@
+package projects.dao;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.ShardingKey;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import projects.dao.jfr.StatementPrepareEvent;
+import projects.dao.jfr.TransactionEndEvent;
+import projects.trace.Span;
+import projects.trace.Tracer;
+
+/**
+ * This class wraps a JDBC connection so that its statements, result sets and transactions emit
+ * Flight Recorder events and every statement execution is reported to a {@link StatementListener}.
+ * The connection and its statements are plain delegates that pass every call on to the driver's
+ * objects, so the DAOs see no difference and a call costs one extra virtual dispatch. Result sets
+ * are only wrapped while their event is enabled in a recording, and bind values are only kept when
+ * there is a listener. Stored procedure calls are passed through unwrapped; the DAOs make none.
+ *
+ * Record the events with, for example,
+ * {@code -XX:StartFlightRecording:filename=projects.jfr} and break latency down with
+ * {@code jfr print --events projects.dao.StatementExecute projects.jfr}.
+ */
+final class InstrumentedConnection implements Connection {
+	private final Connection conn;
+	private final StatementListener listener;
+	private int statementCount;
+	private boolean closed;
+
+	private InstrumentedConnection(Connection conn, StatementListener listener) {
+		this.conn = conn;
+		this.listener = listener;
+	}
+
+	/**
+	 * Wraps a connection.
+	 *
+	 * @param conn The driver's connection.
+	 * @param listener Told about every statement execution, or null.
+	 * @return A connection that emits events and otherwise behaves like the driver's.
+	 */
+	static Connection wrap(Connection conn, StatementListener listener) {
+		return new InstrumentedConnection(conn, listener);
+	}
+
+	/**
+	 * Returns the approximate number of bytes a column or parameter value takes on the wire.
+	 */
+	static long sizeOf(Object value) {
+		if(Objects.isNull(value)) {
+			return 0;
+		}
+
+		if(value instanceof String string) {
+			return string.length();
+		}
+
+		if(value instanceof byte[] bytes) {
+			return bytes.length;
+		}
+
+		if(value instanceof BigDecimal decimal) {
+			return decimal.precision() / 2 + 1;
+		}
+
+		return 8;
+	}
+
+	StatementListener getListener() {
+		return listener;
+	}
+
+	void statementExecuted() {
+		statementCount++;
+	}
+
+	/**
+	 * Wraps a prepared statement and emits the prepare event.
+	 */
+	private PreparedStatement prepared(String sql, SqlCall<PreparedStatement> prepare)
+			throws SQLException {
+		StatementPrepareEvent event = new StatementPrepareEvent();
+
+		event.begin();
+		PreparedStatement stmt = prepare.call();
+		event.end();
+
+		if(event.shouldCommit()) {
+			event.sql = sql;
+			event.commit();
+		}
+
+		return new InstrumentedPreparedStatement(this, stmt, sql);
+	}
+
+	private void endTransaction(String action, SqlCall<Void> end) throws SQLException {
+		TransactionEndEvent event = new TransactionEndEvent();
+
+		event.begin();
+
+		try(Span span = Tracer.startSpan("sql." + action)) {
+			end.call();
+			event.success = true;
+		}
+		finally {
+			event.end();
+
+			if(event.shouldCommit()) {
+				event.action = action;
+				event.statementCount = statementCount;
+				event.commit();
+			}
+
+			statementCount = 0;
+		}
+	}
+
+	/**
+	 * A JDBC call, so that the wrappers can time and report calls with different results in one
+	 * place.
+	 */
+	@FunctionalInterface
+	interface SqlCall<T> {
+		T call() throws SQLException;
+	}
+
+	@Override
+	public Statement createStatement() throws SQLException {
+		return new InstrumentedStatement(this, conn.createStatement(), null);
+	}
+
+	@Override
+	public Statement createStatement(int resultSetType, int resultSetConcurrency)
+			throws SQLException {
+		return new InstrumentedStatement(this,
+				conn.createStatement(resultSetType, resultSetConcurrency), null);
+	}
+
+	@Override
+	public Statement createStatement(int resultSetType, int resultSetConcurrency,
+			int resultSetHoldability) throws SQLException {
+		return new InstrumentedStatement(this, conn.createStatement(resultSetType,
+				resultSetConcurrency, resultSetHoldability), null);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql) throws SQLException {
+		return prepared(sql, () -> conn.prepareStatement(sql));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int resultSetType,
+			int resultSetConcurrency) throws SQLException {
+		return prepared(sql, () -> conn.prepareStatement(sql, resultSetType, resultSetConcurrency));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int resultSetType,
+			int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+		return prepared(sql, () -> conn.prepareStatement(sql, resultSetType, resultSetConcurrency,
+				resultSetHoldability));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys)
+			throws SQLException {
+		return prepared(sql, () -> conn.prepareStatement(sql, autoGeneratedKeys));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+		return prepared(sql, () -> conn.prepareStatement(sql, columnIndexes));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, String[] columnNames)
+			throws SQLException {
+		return prepared(sql, () -> conn.prepareStatement(sql, columnNames));
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql) throws SQLException {
+		return conn.prepareCall(sql);
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency)
+			throws SQLException {
+		return conn.prepareCall(sql, resultSetType, resultSetConcurrency);
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency,
+			int resultSetHoldability) throws SQLException {
+		return conn.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+	}
+
+	@Override
+	public void commit() throws SQLException {
+		endTransaction("commit", () -> {
+			conn.commit();
+			return null;
+		});
+	}
+
+	@Override
+	public void rollback() throws SQLException {
+		endTransaction("rollback", () -> {
+			conn.rollback();
+			return null;
+		});
+	}
+
+	@Override
+	public void rollback(Savepoint savepoint) throws SQLException {
+		conn.rollback(savepoint);
+	}
+
+	@Override
+	public void close() throws SQLException {
+		if(!closed) {
+			closed = true;
+			DbConnection.connectionClosed();
+		}
+
+		conn.close();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		return iface.isInstance(this) ? iface.cast(this) : conn.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || conn.isWrapperFor(iface);
+	}
+
+	@Override
+	public String nativeSQL(String sql) throws SQLException {
+		return conn.nativeSQL(sql);
+	}
+
+	@Override
+	public void setAutoCommit(boolean autoCommit) throws SQLException {
+		conn.setAutoCommit(autoCommit);
+	}
+
+	@Override
+	public boolean getAutoCommit() throws SQLException {
+		return conn.getAutoCommit();
+	}
+
+	@Override
+	public boolean isClosed() throws SQLException {
+		return conn.isClosed();
+	}
+
+	@Override
+	public DatabaseMetaData getMetaData() throws SQLException {
+		return conn.getMetaData();
+	}
+
+	@Override
+	public void setReadOnly(boolean readOnly) throws SQLException {
+		conn.setReadOnly(readOnly);
+	}
+
+	@Override
+	public boolean isReadOnly() throws SQLException {
+		return conn.isReadOnly();
+	}
+
+	@Override
+	public void setCatalog(String catalog) throws SQLException {
+		conn.setCatalog(catalog);
+	}
+
+	@Override
+	public String getCatalog() throws SQLException {
+		return conn.getCatalog();
+	}
+
+	@Override
+	public void setTransactionIsolation(int level) throws SQLException {
+		conn.setTransactionIsolation(level);
+	}
+
+	@Override
+	public int getTransactionIsolation() throws SQLException {
+		return conn.getTransactionIsolation();
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		return conn.getWarnings();
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+		conn.clearWarnings();
+	}
+
+	@Override
+	public Map<String, Class<?>> getTypeMap() throws SQLException {
+		return conn.getTypeMap();
+	}
+
+	@Override
+	public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+		conn.setTypeMap(map);
+	}
+
+	@Override
+	public void setHoldability(int holdability) throws SQLException {
+		conn.setHoldability(holdability);
+	}
+
+	@Override
+	public int getHoldability() throws SQLException {
+		return conn.getHoldability();
+	}
+
+	@Override
+	public Savepoint setSavepoint() throws SQLException {
+		return conn.setSavepoint();
+	}
+
+	@Override
+	public Savepoint setSavepoint(String name) throws SQLException {
+		return conn.setSavepoint(name);
+	}
+
+	@Override
+	public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+		conn.releaseSavepoint(savepoint);
+	}
+
+	@Override
+	public Clob createClob() throws SQLException {
+		return conn.createClob();
+	}
+
+	@Override
+	public Blob createBlob() throws SQLException {
+		return conn.createBlob();
+	}
+
+	@Override
+	public NClob createNClob() throws SQLException {
+		return conn.createNClob();
+	}
+
+	@Override
+	public SQLXML createSQLXML() throws SQLException {
+		return conn.createSQLXML();
+	}
+
+	@Override
+	public boolean isValid(int timeout) throws SQLException {
+		return conn.isValid(timeout);
+	}
+
+	@Override
+	public void setClientInfo(String name, String value) throws SQLClientInfoException {
+		conn.setClientInfo(name, value);
+	}
+
+	@Override
+	public void setClientInfo(Properties properties) throws SQLClientInfoException {
+		conn.setClientInfo(properties);
+	}
+
+	@Override
+	public String getClientInfo(String name) throws SQLException {
+		return conn.getClientInfo(name);
+	}
+
+	@Override
+	public Properties getClientInfo() throws SQLException {
+		return conn.getClientInfo();
+	}
+
+	@Override
+	public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+		return conn.createArrayOf(typeName, elements);
+	}
+
+	@Override
+	public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+		return conn.createStruct(typeName, attributes);
+	}
+
+	@Override
+	public void setSchema(String schema) throws SQLException {
+		conn.setSchema(schema);
+	}
+
+	@Override
+	public String getSchema() throws SQLException {
+		return conn.getSchema();
+	}
+
+	@Override
+	public void abort(Executor executor) throws SQLException {
+		conn.abort(executor);
+	}
+
+	@Override
+	public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+		conn.setNetworkTimeout(executor, milliseconds);
+	}
+
+	@Override
+	public int getNetworkTimeout() throws SQLException {
+		return conn.getNetworkTimeout();
+	}
+
+	@Override
+	public void beginRequest() throws SQLException {
+		conn.beginRequest();
+	}
+
+	@Override
+	public void endRequest() throws SQLException {
+		conn.endRequest();
+	}
+
+	@Override
+	public boolean setShardingKeyIfValid(ShardingKey shardingKey, ShardingKey superShardingKey,
+			int timeout) throws SQLException {
+		return conn.setShardingKeyIfValid(shardingKey, superShardingKey, timeout);
+	}
+
+	@Override
+	public boolean setShardingKeyIfValid(ShardingKey shardingKey, int timeout) throws SQLException {
+		return conn.setShardingKeyIfValid(shardingKey, timeout);
+	}
+
+	@Override
+	public void setShardingKey(ShardingKey shardingKey, ShardingKey superShardingKey)
+			throws SQLException {
+		conn.setShardingKey(shardingKey, superShardingKey);
+	}
+
+	@Override
+	public void setShardingKey(ShardingKey shardingKey) throws SQLException {
+		conn.setShardingKey(shardingKey);
+	}
+}
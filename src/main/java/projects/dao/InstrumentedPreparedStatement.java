@@ -0,0 +1,389 @@
+package projects.dao;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLType;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+/**
+ * A prepared statement of an {@link InstrumentedConnection}. Each setter records its bind value
+ * before passing it on, and each execution reports the SQL the statement was prepared with.
+ */
+final class InstrumentedPreparedStatement extends InstrumentedStatement
+		implements PreparedStatement {
+	private final PreparedStatement stmt;
+
+	InstrumentedPreparedStatement(InstrumentedConnection connection, PreparedStatement stmt,
+			String sql) {
+		super(connection, stmt, sql);
+		this.stmt = stmt;
+	}
+
+	@Override
+	public ResultSet executeQuery() throws SQLException {
+		return executeQuery("executeQuery", null, stmt::executeQuery);
+	}
+
+	@Override
+	public int executeUpdate() throws SQLException {
+		return execute("executeUpdate", null, stmt::executeUpdate);
+	}
+
+	@Override
+	public long executeLargeUpdate() throws SQLException {
+		return execute("executeLargeUpdate", null, stmt::executeLargeUpdate);
+	}
+
+	@Override
+	public boolean execute() throws SQLException {
+		return execute("execute", null, stmt::execute);
+	}
+
+	@Override
+	public void addBatch() throws SQLException {
+		batchAdded();
+		stmt.addBatch();
+	}
+
+	@Override
+	public void clearParameters() throws SQLException {
+		parametersCleared();
+		stmt.clearParameters();
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return stmt.getMetaData();
+	}
+
+	@Override
+	public ParameterMetaData getParameterMetaData() throws SQLException {
+		return stmt.getParameterMetaData();
+	}
+
+	@Override
+	public void setNull(int parameterIndex, int sqlType) throws SQLException {
+		parameter(parameterIndex, null);
+		stmt.setNull(parameterIndex, sqlType);
+	}
+
+	@Override
+	public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setBoolean(parameterIndex, x);
+	}
+
+	@Override
+	public void setByte(int parameterIndex, byte x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setByte(parameterIndex, x);
+	}
+
+	@Override
+	public void setShort(int parameterIndex, short x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setShort(parameterIndex, x);
+	}
+
+	@Override
+	public void setInt(int parameterIndex, int x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setInt(parameterIndex, x);
+	}
+
+	@Override
+	public void setLong(int parameterIndex, long x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setLong(parameterIndex, x);
+	}
+
+	@Override
+	public void setFloat(int parameterIndex, float x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setFloat(parameterIndex, x);
+	}
+
+	@Override
+	public void setDouble(int parameterIndex, double x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setDouble(parameterIndex, x);
+	}
+
+	@Override
+	public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setBigDecimal(parameterIndex, x);
+	}
+
+	@Override
+	public void setString(int parameterIndex, String x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setString(parameterIndex, x);
+	}
+
+	@Override
+	public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setBytes(parameterIndex, x);
+	}
+
+	@Override
+	public void setDate(int parameterIndex, Date x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setDate(parameterIndex, x);
+	}
+
+	@Override
+	public void setTime(int parameterIndex, Time x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setTime(parameterIndex, x);
+	}
+
+	@Override
+	public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setTimestamp(parameterIndex, x);
+	}
+
+	@Override
+	public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setAsciiStream(parameterIndex, x, length);
+	}
+
+	@Override
+	@Deprecated
+	public void setUnicodeStream(int parameterIndex, InputStream x, int length)
+			throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setUnicodeStream(parameterIndex, x, length);
+	}
+
+	@Override
+	public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setBinaryStream(parameterIndex, x, length);
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setObject(parameterIndex, x, targetSqlType);
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setObject(parameterIndex, x);
+	}
+
+	@Override
+	public void setCharacterStream(int parameterIndex, Reader reader, int length)
+			throws SQLException {
+		parameter(parameterIndex, reader);
+		stmt.setCharacterStream(parameterIndex, reader, length);
+	}
+
+	@Override
+	public void setRef(int parameterIndex, Ref x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setRef(parameterIndex, x);
+	}
+
+	@Override
+	public void setBlob(int parameterIndex, Blob x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setBlob(parameterIndex, x);
+	}
+
+	@Override
+	public void setClob(int parameterIndex, Clob x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setClob(parameterIndex, x);
+	}
+
+	@Override
+	public void setArray(int parameterIndex, Array x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setArray(parameterIndex, x);
+	}
+
+	@Override
+	public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setDate(parameterIndex, x, cal);
+	}
+
+	@Override
+	public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setTime(parameterIndex, x, cal);
+	}
+
+	@Override
+	public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setTimestamp(parameterIndex, x, cal);
+	}
+
+	@Override
+	public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+		parameter(parameterIndex, null);
+		stmt.setNull(parameterIndex, sqlType, typeName);
+	}
+
+	@Override
+	public void setURL(int parameterIndex, URL x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setURL(parameterIndex, x);
+	}
+
+	@Override
+	public void setRowId(int parameterIndex, RowId x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setRowId(parameterIndex, x);
+	}
+
+	@Override
+	public void setNString(int parameterIndex, String value) throws SQLException {
+		parameter(parameterIndex, value);
+		stmt.setNString(parameterIndex, value);
+	}
+
+	@Override
+	public void setNCharacterStream(int parameterIndex, Reader value, long length)
+			throws SQLException {
+		parameter(parameterIndex, value);
+		stmt.setNCharacterStream(parameterIndex, value, length);
+	}
+
+	@Override
+	public void setNClob(int parameterIndex, NClob value) throws SQLException {
+		parameter(parameterIndex, value);
+		stmt.setNClob(parameterIndex, value);
+	}
+
+	@Override
+	public void setClob(int parameterIndex, Reader reader, long length) throws SQLException {
+		parameter(parameterIndex, reader);
+		stmt.setClob(parameterIndex, reader, length);
+	}
+
+	@Override
+	public void setBlob(int parameterIndex, InputStream inputStream, long length)
+			throws SQLException {
+		parameter(parameterIndex, inputStream);
+		stmt.setBlob(parameterIndex, inputStream, length);
+	}
+
+	@Override
+	public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException {
+		parameter(parameterIndex, reader);
+		stmt.setNClob(parameterIndex, reader, length);
+	}
+
+	@Override
+	public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+		parameter(parameterIndex, xmlObject);
+		stmt.setSQLXML(parameterIndex, xmlObject);
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength)
+			throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+	}
+
+	@Override
+	public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setAsciiStream(parameterIndex, x, length);
+	}
+
+	@Override
+	public void setBinaryStream(int parameterIndex, InputStream x, long length)
+			throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setBinaryStream(parameterIndex, x, length);
+	}
+
+	@Override
+	public void setCharacterStream(int parameterIndex, Reader reader, long length)
+			throws SQLException {
+		parameter(parameterIndex, reader);
+		stmt.setCharacterStream(parameterIndex, reader, length);
+	}
+
+	@Override
+	public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setAsciiStream(parameterIndex, x);
+	}
+
+	@Override
+	public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setBinaryStream(parameterIndex, x);
+	}
+
+	@Override
+	public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+		parameter(parameterIndex, reader);
+		stmt.setCharacterStream(parameterIndex, reader);
+	}
+
+	@Override
+	public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException {
+		parameter(parameterIndex, value);
+		stmt.setNCharacterStream(parameterIndex, value);
+	}
+
+	@Override
+	public void setClob(int parameterIndex, Reader reader) throws SQLException {
+		parameter(parameterIndex, reader);
+		stmt.setClob(parameterIndex, reader);
+	}
+
+	@Override
+	public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
+		parameter(parameterIndex, inputStream);
+		stmt.setBlob(parameterIndex, inputStream);
+	}
+
+	@Override
+	public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+		parameter(parameterIndex, reader);
+		stmt.setNClob(parameterIndex, reader);
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x, SQLType targetSqlType, int scaleOrLength)
+			throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x, SQLType targetSqlType) throws SQLException {
+		parameter(parameterIndex, x);
+		stmt.setObject(parameterIndex, x, targetSqlType);
+	}
+}
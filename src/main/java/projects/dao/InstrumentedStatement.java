@@ -0,0 +1,508 @@
+package projects.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Objects;
+import projects.dao.InstrumentedConnection.SqlCall;
+import projects.dao.jfr.ResultSetReadEvent;
+import projects.dao.jfr.StatementExecuteEvent;
+import projects.trace.Span;
+import projects.trace.Tracer;
+
+/**
+ * A plain statement of an {@link InstrumentedConnection}. Every execution emits a Flight Recorder
+ * event and is reported to the connection's listener; each execution reports the SQL passed to it.
+ * {@link InstrumentedPreparedStatement} adds the bind values.
+ */
+class InstrumentedStatement implements Statement {
+	private final InstrumentedConnection connection;
+	private final Statement stmt;
+	private final String sql;
+	private final boolean counting = new StatementExecuteEvent().isEnabled();
+	private long parameterBytes;
+	private int batchSize;
+	private Object[] parameters;
+	private int parameterCount;
+
+	InstrumentedStatement(InstrumentedConnection connection, Statement stmt, String sql) {
+		this.connection = connection;
+		this.stmt = stmt;
+		this.sql = sql;
+	}
+
+	/**
+	 * Records a bind value: its size while the execute event is enabled, and the value itself for
+	 * the listener. The array is reused by every execution of the statement.
+	 */
+	void parameter(int index, Object value) {
+		if(counting) {
+			parameterBytes += InstrumentedConnection.sizeOf(value);
+		}
+
+		if(Objects.isNull(connection.getListener())) {
+			return;
+		}
+
+		if(Objects.isNull(parameters)) {
+			parameters = new Object[Math.max(8, index)];
+		}
+		else if(index > parameters.length) {
+			parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+		}
+
+		parameters[index - 1] = value;
+		parameterCount = Math.max(parameterCount, index);
+	}
+
+	void batchAdded() {
+		batchSize++;
+	}
+
+	void parametersCleared() {
+		parameterCount = 0;
+	}
+
+	/**
+	 * Runs an execution of the statement, timing it and reporting it.
+	 *
+	 * @param method The JDBC method, for the event and the span.
+	 * @param executed The SQL passed to the method, or null for the prepared SQL.
+	 * @param call Calls the driver.
+	 */
+	<T> T execute(String method, String executed, SqlCall<T> call) throws SQLException {
+		String reported = Objects.isNull(executed) ? sql : executed;
+		StatementExecuteEvent event = new StatementExecuteEvent();
+		StatementListener listener = connection.getListener();
+		boolean success = false;
+		long start = System.nanoTime();
+
+		connection.statementExecuted();
+		event.begin();
+
+		try(Span span = Tracer.startSpan("sql." + method, reported)) {
+			T result = call.call();
+
+			success = true;
+			event.success = true;
+			event.rowCount = rowCount(result);
+
+			return result;
+		}
+		finally {
+			event.end();
+
+			if(Objects.nonNull(listener)) {
+				listener.statementExecuted(reported, parameters, parameterCount,
+						System.nanoTime() - start, success);
+			}
+
+			if(event.shouldCommit()) {
+				event.sql = reported;
+				event.method = method;
+				event.batchSize = batchSize;
+				event.bytes = parameterBytes;
+				event.commit();
+			}
+
+			batchSize = 0;
+			parameterBytes = 0;
+		}
+	}
+
+	ResultSet executeQuery(String method, String executed, SqlCall<ResultSet> call)
+			throws SQLException {
+		return wrap(execute(method, executed, call), Objects.isNull(executed) ? sql : executed);
+	}
+
+	ResultSet wrap(ResultSet rs) {
+		return wrap(rs, sql);
+	}
+
+	private static long rowCount(Object result) {
+		if(result instanceof Integer count) {
+			return count;
+		}
+
+		if(result instanceof Long count) {
+			return count;
+		}
+
+		long total = 0;
+
+		if(result instanceof int[] counts) {
+			for(int count : counts) {
+				total += Math.max(0, count);
+			}
+
+			return total;
+		}
+
+		if(result instanceof long[] counts) {
+			for(long count : counts) {
+				total += Math.max(0, count);
+			}
+
+			return total;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Wraps a result set to count its rows and bytes, but only while a recording has the read event
+	 * enabled. Otherwise the driver's result set is returned as it is.
+	 */
+	private static ResultSet wrap(ResultSet rs, String sql) {
+		if(Objects.isNull(rs) || !new ResultSetReadEvent().isEnabled()) {
+			return rs;
+		}
+
+		return (ResultSet)Proxy.newProxyInstance(InstrumentedStatement.class.getClassLoader(),
+				new Class<?>[] {ResultSet.class}, new ResultSetHandler(rs, sql));
+	}
+
+	@Override
+	public ResultSet executeQuery(String sql) throws SQLException {
+		return executeQuery("executeQuery", sql, () -> stmt.executeQuery(sql));
+	}
+
+	@Override
+	public int executeUpdate(String sql) throws SQLException {
+		return execute("executeUpdate", sql, () -> stmt.executeUpdate(sql));
+	}
+
+	@Override
+	public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+		return execute("executeUpdate", sql, () -> stmt.executeUpdate(sql, autoGeneratedKeys));
+	}
+
+	@Override
+	public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+		return execute("executeUpdate", sql, () -> stmt.executeUpdate(sql, columnIndexes));
+	}
+
+	@Override
+	public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+		return execute("executeUpdate", sql, () -> stmt.executeUpdate(sql, columnNames));
+	}
+
+	@Override
+	public long executeLargeUpdate(String sql) throws SQLException {
+		return execute("executeLargeUpdate", sql, () -> stmt.executeLargeUpdate(sql));
+	}
+
+	@Override
+	public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+		return execute("executeLargeUpdate", sql,
+				() -> stmt.executeLargeUpdate(sql, autoGeneratedKeys));
+	}
+
+	@Override
+	public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+		return execute("executeLargeUpdate", sql,
+				() -> stmt.executeLargeUpdate(sql, columnIndexes));
+	}
+
+	@Override
+	public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+		return execute("executeLargeUpdate", sql, () -> stmt.executeLargeUpdate(sql, columnNames));
+	}
+
+	@Override
+	public boolean execute(String sql) throws SQLException {
+		return execute("execute", sql, () -> stmt.execute(sql));
+	}
+
+	@Override
+	public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+		return execute("execute", sql, () -> stmt.execute(sql, autoGeneratedKeys));
+	}
+
+	@Override
+	public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+		return execute("execute", sql, () -> stmt.execute(sql, columnIndexes));
+	}
+
+	@Override
+	public boolean execute(String sql, String[] columnNames) throws SQLException {
+		return execute("execute", sql, () -> stmt.execute(sql, columnNames));
+	}
+
+	@Override
+	public int[] executeBatch() throws SQLException {
+		return execute("executeBatch", null, stmt::executeBatch);
+	}
+
+	@Override
+	public long[] executeLargeBatch() throws SQLException {
+		return execute("executeLargeBatch", null, stmt::executeLargeBatch);
+	}
+
+	@Override
+	public void addBatch(String sql) throws SQLException {
+		/* A plain statement's batch carries the SQL itself. */
+		if(counting) {
+			parameterBytes += InstrumentedConnection.sizeOf(sql);
+		}
+
+		batchAdded();
+		stmt.addBatch(sql);
+	}
+
+	@Override
+	public void clearBatch() throws SQLException {
+		batchSize = 0;
+		parameterBytes = 0;
+		stmt.clearBatch();
+	}
+
+	@Override
+	public ResultSet getResultSet() throws SQLException {
+		return wrap(stmt.getResultSet());
+	}
+
+	@Override
+	public ResultSet getGeneratedKeys() throws SQLException {
+		return wrap(stmt.getGeneratedKeys());
+	}
+
+	@Override
+	public Connection getConnection() {
+		return connection;
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		return iface.isInstance(this) ? iface.cast(this) : stmt.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || stmt.isWrapperFor(iface);
+	}
+
+	@Override
+	public void close() throws SQLException {
+		stmt.close();
+	}
+
+	@Override
+	public int getMaxFieldSize() throws SQLException {
+		return stmt.getMaxFieldSize();
+	}
+
+	@Override
+	public void setMaxFieldSize(int max) throws SQLException {
+		stmt.setMaxFieldSize(max);
+	}
+
+	@Override
+	public int getMaxRows() throws SQLException {
+		return stmt.getMaxRows();
+	}
+
+	@Override
+	public void setMaxRows(int max) throws SQLException {
+		stmt.setMaxRows(max);
+	}
+
+	@Override
+	public long getLargeMaxRows() throws SQLException {
+		return stmt.getLargeMaxRows();
+	}
+
+	@Override
+	public void setLargeMaxRows(long max) throws SQLException {
+		stmt.setLargeMaxRows(max);
+	}
+
+	@Override
+	public void setEscapeProcessing(boolean enable) throws SQLException {
+		stmt.setEscapeProcessing(enable);
+	}
+
+	@Override
+	public int getQueryTimeout() throws SQLException {
+		return stmt.getQueryTimeout();
+	}
+
+	@Override
+	public void setQueryTimeout(int seconds) throws SQLException {
+		stmt.setQueryTimeout(seconds);
+	}
+
+	@Override
+	public void cancel() throws SQLException {
+		stmt.cancel();
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		return stmt.getWarnings();
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+		stmt.clearWarnings();
+	}
+
+	@Override
+	public void setCursorName(String name) throws SQLException {
+		stmt.setCursorName(name);
+	}
+
+	@Override
+	public int getUpdateCount() throws SQLException {
+		return stmt.getUpdateCount();
+	}
+
+	@Override
+	public long getLargeUpdateCount() throws SQLException {
+		return stmt.getLargeUpdateCount();
+	}
+
+	@Override
+	public boolean getMoreResults() throws SQLException {
+		return stmt.getMoreResults();
+	}
+
+	@Override
+	public boolean getMoreResults(int current) throws SQLException {
+		return stmt.getMoreResults(current);
+	}
+
+	@Override
+	public void setFetchDirection(int direction) throws SQLException {
+		stmt.setFetchDirection(direction);
+	}
+
+	@Override
+	public int getFetchDirection() throws SQLException {
+		return stmt.getFetchDirection();
+	}
+
+	@Override
+	public void setFetchSize(int rows) throws SQLException {
+		stmt.setFetchSize(rows);
+	}
+
+	@Override
+	public int getFetchSize() throws SQLException {
+		return stmt.getFetchSize();
+	}
+
+	@Override
+	public int getResultSetConcurrency() throws SQLException {
+		return stmt.getResultSetConcurrency();
+	}
+
+	@Override
+	public int getResultSetType() throws SQLException {
+		return stmt.getResultSetType();
+	}
+
+	@Override
+	public int getResultSetHoldability() throws SQLException {
+		return stmt.getResultSetHoldability();
+	}
+
+	@Override
+	public boolean isClosed() throws SQLException {
+		return stmt.isClosed();
+	}
+
+	@Override
+	public void setPoolable(boolean poolable) throws SQLException {
+		stmt.setPoolable(poolable);
+	}
+
+	@Override
+	public boolean isPoolable() throws SQLException {
+		return stmt.isPoolable();
+	}
+
+	@Override
+	public void closeOnCompletion() throws SQLException {
+		stmt.closeOnCompletion();
+	}
+
+	@Override
+	public boolean isCloseOnCompletion() throws SQLException {
+		return stmt.isCloseOnCompletion();
+	}
+
+	@Override
+	public String enquoteLiteral(String val) throws SQLException {
+		return stmt.enquoteLiteral(val);
+	}
+
+	@Override
+	public String enquoteIdentifier(String identifier, boolean alwaysQuote) throws SQLException {
+		return stmt.enquoteIdentifier(identifier, alwaysQuote);
+	}
+
+	@Override
+	public boolean isSimpleIdentifier(String identifier) throws SQLException {
+		return stmt.isSimpleIdentifier(identifier);
+	}
+
+	@Override
+	public String enquoteNCharLiteral(String val) throws SQLException {
+		return stmt.enquoteNCharLiteral(val);
+	}
+
+	/**
+	 * Counts the rows and bytes read from a result set for its event. It is a dynamic proxy, as a
+	 * result set has too many methods for a hand-written delegate to be worth it, and is only used
+	 * while the event is recorded.
+	 */
+	private static class ResultSetHandler implements InvocationHandler {
+		private final ResultSet rs;
+		private final ResultSetReadEvent event = new ResultSetReadEvent();
+		private boolean closed;
+
+		ResultSetHandler(ResultSet rs, String sql) {
+			this.rs = rs;
+
+			event.sql = sql;
+			event.begin();
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			Object result;
+
+			try {
+				result = method.invoke(rs, args);
+			}
+			catch(InvocationTargetException e) {
+				throw e.getCause();
+			}
+
+			String name = method.getName();
+
+			if(name.equals("next")) {
+				if((Boolean)result) {
+					event.rowCount++;
+				}
+			}
+			else if(name.startsWith("get") && Objects.nonNull(args) && args.length > 0) {
+				event.bytes += InstrumentedConnection.sizeOf(result);
+			}
+			else if(name.equals("close") && !closed) {
+				closed = true;
+				event.commit();
+			}
+
+			return result;
+		}
+	}
+}
@@ -0,0 +1,421 @@
+package projects.dao;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import projects.exception.DbException;
+import provided.util.DaoBase;
+
+/**
+ * This DAO reads and writes whole tables for backup and restore, using several connections at once.
+ *
+ * A backup opens one connection per worker and starts a consistent-snapshot transaction on each
+ * while another connection holds a read lock on the backed-up tables. No write can commit while the
+ * lock is held, so every worker sees exactly the same data. The lock is released as soon as the
+ * snapshots exist, so writes are only blocked for the time it takes to open them. Each table is then
+ * split into key ranges that the workers read in parallel.
+ *
+ * A restore empties the tables and has each worker insert blocks of rows with foreign key checks
+ * turned off, so blocks can be loaded in any order. Every project's row version is then raised
+ * above any version the project table held before the restore, so that no version a client saw
+ * before the restore, and may send back as an ETag, names a restored project.
+ */
+public class ProjectBackupDao extends DaoBase {
+	/* Each table is split into about this many key ranges per worker, so the workers stay busy. */
+	private static final int RANGES_PER_WORKER = 4;
+
+	/**
+	 * Receives the rows of a table in blocks. It is called from several threads at once.
+	 */
+	@FunctionalInterface
+	public interface RowBlockConsumer {
+		void accept(BackupTable table, List<Object[]> rows) throws IOException;
+	}
+
+	/**
+	 * Supplies blocks of rows to restore. It is called from several threads at once.
+	 */
+	@FunctionalInterface
+	public interface RowBlockSupplier {
+		/**
+		 * @return The next block, or null if there are no more.
+		 */
+		RowBlock next() throws IOException;
+	}
+
+	/**
+	 * A block of rows from one table. Each row holds the column values in {@link BackupTable} order.
+	 */
+	public static class RowBlock {
+		private final BackupTable table;
+		private final List<Object[]> rows;
+
+		public RowBlock(BackupTable table, List<Object[]> rows) {
+			this.table = table;
+			this.rows = rows;
+		}
+
+		public BackupTable getTable() {
+			return table;
+		}
+
+		public List<Object[]> getRows() {
+			return rows;
+		}
+	}
+
+	/**
+	 * Reads every row of every backup table from one consistent snapshot.
+	 *
+	 * @param workers The number of connections reading in parallel.
+	 * @param blockRows The number of rows handed to the consumer at a time.
+	 * @param consumer Receives the rows.
+	 * @return The number of rows read.
+	 * @throws IOException Thrown if the consumer fails.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	public long backupTables(int workers, int blockRows, RowBlockConsumer consumer)
+			throws IOException {
+		List<Connection> snapshots = new ArrayList<>(workers);
+
+		try {
+			openSnapshots(workers, snapshots);
+
+			List<KeyRange> ranges = splitIntoRanges(snapshots.get(0), workers);
+			BlockingQueue<Connection> idle = new ArrayBlockingQueue<>(workers, false, snapshots);
+			List<Callable<Long>> tasks = new ArrayList<>(ranges.size());
+
+			for(KeyRange range : ranges) {
+				tasks.add(() -> {
+					Connection conn = idle.take();
+
+					try {
+						return readRange(conn, range, blockRows, consumer);
+					}
+					finally {
+						idle.put(conn);
+					}
+				});
+			}
+
+			return runAll(workers, "project-backup", tasks);
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+		finally {
+			for(Connection conn : snapshots) {
+				try {
+					conn.close();
+				}
+				catch(SQLException e) {
+					/* The snapshot is read-only, so there is nothing to lose. */
+				}
+			}
+		}
+	}
+
+	/**
+	 * Empties the given tables and loads them from the supplied blocks. Blocks for tables not in the
+	 * set are skipped. Each block is committed on its own, so if the restore fails the tables are
+	 * left part loaded and the restore should be run again. The caller should check the blocks before
+	 * calling this, as the tables are emptied first. Once every block is loaded, the row version of
+	 * every project is raised by the largest row version held before the restore.
+	 *
+	 * @param tables The tables to restore.
+	 * @param workers The number of connections inserting in parallel.
+	 * @param supplier Supplies the blocks.
+	 * @return The number of rows inserted.
+	 * @throws IOException Thrown if the supplier fails.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	public long restoreTables(Set<BackupTable> tables, int workers, RowBlockSupplier supplier)
+			throws IOException {
+		String projectTable = BackupTable.PROJECT.getTableName();
+		long highestVersion;
+
+		try(Connection conn = DbConnection.getConnection()) {
+			try(Statement stmt = conn.createStatement()) {
+				try(ResultSet rs = stmt.executeQuery(
+						"SELECT COALESCE(MAX(row_version), 0) FROM " + projectTable)) {
+					rs.next();
+					highestVersion = rs.getLong(1);
+				}
+
+				stmt.execute("SET FOREIGN_KEY_CHECKS = 0");
+
+				for(BackupTable table : tables) {
+					stmt.execute("TRUNCATE TABLE " + table.getTableName());
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+
+		List<Callable<Long>> tasks = new ArrayList<>(workers);
+
+		for(int worker = 0; worker < workers; worker++) {
+			tasks.add(() -> insertBlocks(tables, supplier));
+		}
+
+		long count = runAll(workers, "project-restore", tasks);
+
+		if(highestVersion == 0) {
+			return count;
+		}
+
+		String sql = "UPDATE " + projectTable + " SET row_version = row_version + ?";
+
+		try(Connection conn = DbConnection.getConnection()) {
+			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+				setParameter(stmt, 1, highestVersion, Long.class);
+				stmt.executeUpdate();
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Takes a read lock on the backup tables, opens a consistent snapshot on each worker connection
+	 * and releases the lock.
+	 */
+	private void openSnapshots(int workers, List<Connection> snapshots) throws SQLException {
+		StringJoiner lockList = new StringJoiner(", ", "LOCK TABLES ", "");
+
+		for(BackupTable table : BackupTable.values()) {
+			lockList.add(table.getTableName() + " READ");
+		}
+
+		try(Connection lockConn = DbConnection.getConnection();
+				Statement lockStmt = lockConn.createStatement()) {
+			lockStmt.execute(lockList.toString());
+
+			try {
+				for(int worker = 0; worker < workers; worker++) {
+					Connection conn = DbConnection.getCursorConnection();
+
+					snapshots.add(conn);
+					startTransaction(conn);
+
+					try(Statement stmt = conn.createStatement()) {
+						stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+					}
+				}
+			}
+			finally {
+				lockStmt.execute("UNLOCK TABLES");
+			}
+		}
+	}
+
+	/**
+	 * Splits every table into ranges of its range column, using the smallest and largest value in the
+	 * snapshot. Empty tables get no ranges.
+	 */
+	private List<KeyRange> splitIntoRanges(Connection conn, int workers) throws SQLException {
+		List<KeyRange> ranges = new ArrayList<>();
+
+		for(BackupTable table : BackupTable.values()) {
+			String column = table.getRangeColumn();
+			String sql = "SELECT MIN(" + column + "), MAX(" + column + ") FROM " + table.getTableName();
+
+			try(Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+				rs.next();
+
+				Integer min = rs.getObject(1, Integer.class);
+				Integer max = rs.getObject(2, Integer.class);
+
+				if(Objects.isNull(min)) {
+					continue;
+				}
+
+				long span = (long)max - min + 1;
+				long rangeSize = Math.max(1, -Math.floorDiv(-span, (long)workers * RANGES_PER_WORKER));
+
+				for(long from = min; from <= max; from += rangeSize) {
+					ranges.add(new KeyRange(table, from, Math.min(max, from + rangeSize - 1)));
+				}
+			}
+		}
+
+		return ranges;
+	}
+
+	private long readRange(Connection conn, KeyRange range, int blockRows, RowBlockConsumer consumer)
+			throws SQLException, IOException {
+		BackupTable table = range.table;
+		StringJoiner columns = new StringJoiner(", ");
+
+		for(int col = 0; col < table.getColumnCount(); col++) {
+			columns.add(table.getColumn(col));
+		}
+
+		// @formatter:off
+		String sql = ""
+				+ "SELECT " + columns + " "
+				+ "FROM " + table.getTableName() + " "
+				+ "WHERE " + table.getRangeColumn() + " BETWEEN ? AND ?";
+		// @formatter:on
+
+		try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setFetchSize(blockRows);
+			setParameter(stmt, 1, range.from, Long.class);
+			setParameter(stmt, 2, range.to, Long.class);
+
+			try(ResultSet rs = stmt.executeQuery()) {
+				List<Object[]> rows = new ArrayList<>(blockRows);
+				long count = 0;
+
+				while(rs.next()) {
+					Object[] row = new Object[table.getColumnCount()];
+
+					for(int col = 0; col < row.length; col++) {
+						row[col] = rs.getObject(col + 1, table.getType(col));
+					}
+
+					rows.add(row);
+					count++;
+
+					if(rows.size() == blockRows) {
+						consumer.accept(table, rows);
+						rows = new ArrayList<>(blockRows);
+					}
+				}
+
+				if(!rows.isEmpty()) {
+					consumer.accept(table, rows);
+				}
+
+				return count;
+			}
+		}
+	}
+
+	/**
+	 * Inserts blocks on one connection until the supplier runs out.
+	 */
+	private long insertBlocks(Set<BackupTable> tables, RowBlockSupplier supplier)
+			throws SQLException, IOException {
+		try(Connection conn = DbConnection.getConnection()) {
+			try(Statement stmt = conn.createStatement()) {
+				stmt.execute("SET FOREIGN_KEY_CHECKS = 0");
+			}
+
+			startTransaction(conn);
+
+			try {
+				long count = 0;
+				RowBlock block;
+
+				while(Objects.nonNull(block = supplier.next())) {
+					BackupTable table = block.getTable();
+
+					if(!tables.contains(table)) {
+						continue;
+					}
+
+					StringJoiner columns = new StringJoiner(", ");
+					Class<?>[] types = new Class<?>[table.getColumnCount()];
+
+					for(int col = 0; col < types.length; col++) {
+						columns.add(table.getColumn(col));
+						types[col] = table.getType(col);
+					}
+
+					insertRows(conn, table.getTableName(), columns.toString(), types, block.getRows(),
+							false);
+					commitTransaction(conn);
+					count += block.getRows().size();
+				}
+
+				return count;
+			}
+			catch(Exception e) {
+				rollbackTransaction(conn);
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Runs the tasks on a pool of worker threads and adds up their results. If a task fails, the
+	 * others are cancelled and the failure is rethrown.
+	 */
+	private long runAll(int workers, String threadName, List<Callable<Long>> tasks)
+			throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+			Thread thread = new Thread(runnable, threadName);
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			List<Future<Long>> futures = new ArrayList<>(tasks.size());
+
+			for(Callable<Long> task : tasks) {
+				futures.add(executor.submit(task));
+			}
+
+			long total = 0;
+
+			for(Future<Long> future : futures) {
+				total += future.get();
+			}
+
+			return total;
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DbException("Interrupted while waiting for " + threadName + " workers.");
+		}
+		catch(ExecutionException e) {
+			if(e.getCause() instanceof IOException cause) {
+				throw cause;
+			}
+
+			if(e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+
+			throw new DbException(e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * An inclusive range of values of a table's range column.
+	 */
+	private static class KeyRange {
+		private final BackupTable table;
+		private final long from;
+		private final long to;
+
+		KeyRange(BackupTable table, long from, long to) {
+			this.table = table;
+			this.from = from;
+			this.to = to;
+		}
+	}
+}
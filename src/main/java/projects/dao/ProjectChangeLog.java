@@ -0,0 +1,147 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import provided.util.DaoBase;
+
+/**
+ * This class writes rows to the project change log. It is shared by the DAO classes that change
+ * project rows so that every write path records its changes the same way.
+ */
+class ProjectChangeLog extends DaoBase {
+	private static final String PROJECT_TABLE = "project";
+	private static final String PROJECT_CHANGE_LOG_TABLE = "project_change_log";
+
+	/**
+	 * Adds a row to the project change log. The connection is supplied by the caller so that the
+	 * change is recorded in the same transaction as the change itself. This makes the change log a
+	 * transactional outbox: a change is in the log if and only if it was committed. Caches use the
+	 * change log to find out which projects were modified while they were not looking, and the outbox
+	 * relay passes it on to downstream consumers.
+	 * 
+	 * @param conn The caller-supplied connection.
+	 * @param projectId The ID of the project that was changed.
+	 * @param changeType INSERT, UPDATE or DELETE.
+	 * @throws SQLException Thrown if the database driver encounters an error.
+	 */
+	void record(Connection conn, Integer projectId, String changeType) throws SQLException {
+		record(conn, List.of(projectId), changeType);
+	}
+
+	/**
+	 * Adds a change log row for each project with one multi-row INSERT (more for over
+	 * {@link #MAX_ROWS_PER_INSERT} projects). For an insert or update, the payload is the project row
+	 * as it is after the change, built as a JSON object by the database inside the caller's
+	 * transaction, and the rows are logged in project ID order. A delete has no payload.
+	 * 
+	 * The payloads are selected first and then inserted with a VALUES list rather than with INSERT
+	 * ... SELECT. InnoDB cannot tell how many rows an INSERT ... SELECT will add, so it reserves change
+	 * IDs for it in doubling blocks and throws away the ones it does not use. Every such hole looks
+	 * to the outbox relay like a transaction that has not committed yet, and holds up delivery until
+	 * the relay's gap timeout. A VALUES list of known length gets consecutive IDs.
+	 * 
+	 * @param conn The caller-supplied connection.
+	 * @param projectIds The IDs of the projects that were changed.
+	 * @param changeType INSERT, UPDATE or DELETE.
+	 * @throws SQLException Thrown if the database driver encounters an error.
+	 */
+	void record(Connection conn, Collection<Integer> projectIds, String changeType)
+			throws SQLException {
+		boolean deleted = "DELETE".equals(changeType);
+		List<Integer> ids = new ArrayList<>(projectIds);
+
+		for(int start = 0; start < ids.size(); start += MAX_ROWS_PER_INSERT) {
+			List<Integer> chunk = ids.subList(start, Math.min(start + MAX_ROWS_PER_INSERT, ids.size()));
+
+			if(deleted) {
+				insert(conn, changeType, chunk, null);
+			}
+			else {
+				List<Integer> changed = new ArrayList<>(chunk.size());
+				List<String> payloads = new ArrayList<>(chunk.size());
+
+				selectPayloads(conn, chunk, changed, payloads);
+
+				if(!changed.isEmpty()) {
+					insert(conn, changeType, changed, payloads);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the projects as JSON objects, in project ID order. A project that no longer exists is
+	 * left out.
+	 */
+	private void selectPayloads(Connection conn, List<Integer> projectIds, List<Integer> changed,
+			List<String> payloads) throws SQLException {
+		// @formatter:off
+		String sql = ""
+				+ "SELECT project_id, JSON_OBJECT("
+				+ "'projectId', project_id, "
+				+ "'projectName', project_name, "
+				+ "'estimatedHours', estimated_hours, "
+				+ "'actualHours', actual_hours, "
+				+ "'difficulty', difficulty, "
+				+ "'notes', notes, "
+				+ "'rowVersion', row_version) "
+				+ "FROM " + PROJECT_TABLE + " "
+				+ "WHERE project_id IN (" + placeholders(projectIds.size(), 1) + ") "
+				+ "ORDER BY project_id";
+		// @formatter:on
+
+		try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+			int parameterIndex = 1;
+
+			for(Integer projectId : projectIds) {
+				setParameter(stmt, parameterIndex++, projectId, Integer.class);
+			}
+
+			try(ResultSet rs = stmt.executeQuery()) {
+				while(rs.next()) {
+					changed.add(rs.getInt(1));
+					payloads.add(rs.getString(2));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Inserts one change log row per project.
+	 *
+	 * @param payloads The payload of each project, or null to insert rows without one.
+	 */
+	private void insert(Connection conn, String changeType, List<Integer> projectIds,
+			List<String> payloads) throws SQLException {
+		boolean withPayload = Objects.nonNull(payloads);
+
+		// @formatter:off
+		String sql = ""
+				+ "INSERT INTO " + PROJECT_CHANGE_LOG_TABLE + " "
+				+ (withPayload ? "(change_type, project_id, payload) " : "(change_type, project_id) ")
+				+ "VALUES "
+				+ placeholders(projectIds.size(), withPayload ? 3 : 2);
+		// @formatter:on
+
+		try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+			int parameterIndex = 1;
+
+			for(int pos = 0; pos < projectIds.size(); pos++) {
+				setParameter(stmt, parameterIndex++, changeType, String.class);
+				setParameter(stmt, parameterIndex++, projectIds.get(pos), Integer.class);
+
+				if(withPayload) {
+					setParameter(stmt, parameterIndex++, payloads.get(pos), String.class);
+				}
+			}
+
+			stmt.executeUpdate();
+		}
+	}
+}
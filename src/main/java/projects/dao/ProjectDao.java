@@ -5,24 +5,32 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import projects.entity.Category;
 import projects.entity.Material;
 import projects.entity.Project;
+import projects.entity.ProjectChange;
 import projects.entity.Step;
 import projects.exception.DbException;
+import projects.util.IntSet;
 import provided.util.DaoBase;
 
-public class ProjectDao extends DaoBase {
+public class ProjectDao extends DaoBase implements ProjectRepository {
 	private static final String CATEGORY_TABLE = "category";
 	private static final String MATERIAL_TABLE = "material";
 	private static final String PROJECT_TABLE = "project";
 	private static final String PROJECT_CATEGORY_TABLE = "project_category";
+	private static final String PROJECT_CHANGE_LOG_TABLE = "project_change_log";
 	private static final String STEP_TABLE = "step";
 
+	private final ProjectChangeLog changeLog = new ProjectChangeLog();
+
+	@Override
 	public Project insertProject(Project project) {
 	// @formatter:off
     String sql = ""
@@ -44,9 +52,11 @@ public class ProjectDao extends DaoBase {
 				stmt.executeUpdate();
 
 				Integer projectId = getLastInsertId(conn, PROJECT_TABLE);
+				changeLog.record(conn, projectId, "INSERT");
 				commitTransaction(conn);
 
 				project.setProjectId(projectId);
+				project.setRowVersion(1);
 				return project;
 			} catch (Exception e) {
 				rollbackTransaction(conn);
@@ -64,6 +74,7 @@ public class ProjectDao extends DaoBase {
 	   * @return The list of projects.
 	   * @throws DbException Thrown if a SQLException is thrown by the driver.
 	   */
+	  @Override
 	  public List<Project> fetchAllProjects() {
 	    String sql = "SELECT * FROM " + PROJECT_TABLE + " ORDER BY project_name";
 
@@ -103,6 +114,96 @@ public class ProjectDao extends DaoBase {
 	    }
 	  }
 
+	/**
+	 * This method returns the projects linked to the named category, ordered by project name. Like
+	 * {@link #fetchAllProjects()}, it does not retrieve materials, steps or categories.
+	 * 
+	 * @param categoryName The category name.
+	 * @return The list of projects.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	@Override
+	public List<Project> fetchProjectsByCategory(String categoryName) {
+		// @formatter:off
+		String sql = ""
+				+ "SELECT p.* FROM " + PROJECT_TABLE + " p "
+				+ "JOIN " + PROJECT_CATEGORY_TABLE + " pc USING (project_id) "
+				+ "JOIN " + CATEGORY_TABLE + " c USING (category_id) "
+				+ "WHERE c.category_name = ? "
+				+ "ORDER BY p.project_name";
+		// @formatter:on
+
+		try(Connection conn = DbConnection.getConnection()) {
+			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+				setParameter(stmt, 1, categoryName, String.class);
+
+				try(ResultSet rs = stmt.executeQuery()) {
+					List<Project> projects = new LinkedList<>();
+
+					while(rs.next()) {
+						projects.add(extract(rs, Project.class));
+					}
+
+					return projects;
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	/**
+	 * This method returns one page of projects by seeking past the last project of the previous page
+	 * on the (project_name, project_id) index, so no rows are read and thrown away. Like
+	 * {@link #fetchAllProjects()}, it does not retrieve materials, steps or categories.
+	 * 
+	 * @param afterName The name of the last project of the previous page, or null for the first page.
+	 * @param afterId The ID of the last project of the previous page.
+	 * @param limit The most projects returned.
+	 * @return The list of projects.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	@Override
+	public List<Project> fetchProjectsPage(String afterName, Integer afterId, int limit) {
+		ProjectRepository.checkPagePosition(afterName, afterId);
+		boolean firstPage = Objects.isNull(afterName);
+
+		// @formatter:off
+		String sql = ""
+				+ "SELECT * FROM " + PROJECT_TABLE + " "
+				+ (firstPage ? "" : "WHERE (project_name, project_id) > (?, ?) ")
+				+ "ORDER BY project_name, project_id LIMIT ?";
+		// @formatter:on
+
+		try(Connection conn = DbConnection.getConnection()) {
+			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+				int pos = 1;
+
+				if(!firstPage) {
+					setParameter(stmt, pos++, afterName, String.class);
+					setParameter(stmt, pos++, afterId, Integer.class);
+				}
+
+				setParameter(stmt, pos, limit, Integer.class);
+
+				try(ResultSet rs = stmt.executeQuery()) {
+					List<Project> projects = new LinkedList<>();
+
+					while(rs.next()) {
+						projects.add(extract(rs, Project.class));
+					}
+
+					return projects;
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	@Override
 	public Optional<Project> fetchProjectById(Integer projectId) {
 		String sql = "SELECT * FROM " + PROJECT_TABLE + " WHERE project_id = ?";
 		
@@ -163,6 +264,32 @@ public class ProjectDao extends DaoBase {
 			    }
 			  }
 
+	/**
+	 * This method reads the row version of a project from the primary key index, without loading the
+	 * project row's text columns or any of its materials, steps or categories.
+	 * 
+	 * @param projectId The project ID.
+	 * @return The row version, or an empty Optional if the project does not exist.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	@Override
+	public Optional<Integer> fetchProjectVersion(Integer projectId) {
+		String sql = "SELECT row_version FROM " + PROJECT_TABLE + " WHERE project_id = ?";
+
+		try(Connection conn = DbConnection.getConnection()) {
+			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+				setParameter(stmt, 1, projectId, Integer.class);
+
+				try(ResultSet rs = stmt.executeQuery()) {
+					return rs.next() ? Optional.of(rs.getInt(1)) : Optional.empty();
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
 			  /**
 			   * This method retrieves all the categories associated with the given project ID. Note the inner
 			   * join to join the category rows to the project_category join table. The join table is needed
@@ -260,6 +387,7 @@ public class ProjectDao extends DaoBase {
 			    }
 			  }
 
+			@Override
 			public boolean modifyProjectDetails(Project project) {
 				
 				//SQL statement to update project details where the project ID matches
@@ -270,7 +398,8 @@ public class ProjectDao extends DaoBase {
 						+ "estimated_hours = ?, "
 						+ "actual_hours = ?, "
 						+ "difficulty = ?, "
-						+ "notes = ? "
+						+ "notes = ?, "
+						+ "row_version = row_version + 1 "
 						+ "WHERE project_id = ?";
 				// @formatter:on 
 				
@@ -291,6 +420,11 @@ public class ProjectDao extends DaoBase {
 						
 						// Execute the update and get the number of rows affected
 						int rowsAffected = (int) stmt.executeUpdate();
+						
+						if(rowsAffected == 1) {
+							changeLog.record(conn, project.getProjectId(), "UPDATE");
+						}
+						
 						commitTransaction(conn);
 						
 						// Return true if exactly one row was updated; false otherwise
@@ -307,6 +441,7 @@ public class ProjectDao extends DaoBase {
 				}
 			}
 
+			@Override
 			public boolean deleteProject(Integer projectId) {
 				
 				// @formatter:off
@@ -323,6 +458,10 @@ public class ProjectDao extends DaoBase {
 					setParameter(stmt, 1, projectId, Integer.class);
 					
 					boolean deleted = stmt.executeUpdate() == 1;
+					
+					if(deleted) {
+						changeLog.record(conn, projectId, "DELETE");
+					}
 					// returns true to the service if successful and commits the transaction
 					commitTransaction(conn);
 					return deleted;
@@ -338,4 +477,312 @@ public class ProjectDao extends DaoBase {
 			}
 
 			}
+
+	/**
+	 * This method updates the details of many projects in one transaction using a JDBC batch. Unlike
+	 * {@link #modifyProjectDetails(Project)}, a null field leaves the column unchanged, so each project
+	 * only needs to carry the fields that changed. Projects that no longer exist are skipped.
+	 * 
+	 * The batch only saves round trips because {@link DbConnection} sets
+	 * {@code rewriteBatchedStatements=true}, which makes Connector/J send the updates together.
+	 * Without it, each project costs a round trip of its own.
+	 * 
+	 * @param projects The projects to update. Each must have a project ID.
+	 * @return The number of projects that were updated.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	@Override
+	public int modifyProjectDetailsBatch(Collection<Project> projects) {
+		// @formatter:off
+		String sql = ""
+				+ "UPDATE " + PROJECT_TABLE + " SET "
+				+ "project_name = COALESCE(?, project_name), "
+				+ "estimated_hours = COALESCE(?, estimated_hours), "
+				+ "actual_hours = COALESCE(?, actual_hours), "
+				+ "difficulty = COALESCE(?, difficulty), "
+				+ "notes = COALESCE(?, notes), "
+				+ "row_version = row_version + 1 "
+				+ "WHERE project_id = ?";
+		// @formatter:on
+
+		try(Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+
+			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+				for(Project project : projects) {
+					setParameter(stmt, 1, project.getProjectName(), String.class);
+					setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
+					setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
+					setParameter(stmt, 4, project.getDifficulty(), Integer.class);
+					setParameter(stmt, 5, project.getNotes(), String.class);
+					setParameter(stmt, 6, project.getProjectId(), Integer.class);
+					stmt.addBatch();
+				}
+
+				int[] rowsAffected = stmt.executeBatch();
+				List<Integer> updatedIds = new LinkedList<>();
+				int pos = 0;
+
+				for(Project project : projects) {
+					/*
+					 * Connector/J reports matched rows, so zero means the project no longer exists. A driver
+					 * that cannot tell returns SUCCESS_NO_INFO, which is counted as updated.
+					 */
+					if(rowsAffected[pos++] != 0) {
+						updatedIds.add(project.getProjectId());
+					}
+				}
+
+				changeLog.record(conn, updatedIds, "UPDATE");
+				commitTransaction(conn);
+
+				return updatedIds.size();
+			}
+			catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException("Unable to update project details.", e);
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException("Database error occured while updating projects.", e);
+		}
+	}
+
+	/**
+	 * This method adds to the actual hours of many projects in one transaction using a JDBC batch.
+	 * The addition is done by the database, so concurrent increments from other processes are not
+	 * lost. A project with no actual hours yet starts from zero. As with
+	 * {@link #modifyProjectDetailsBatch(Collection)}, the batch is sent in one go because
+	 * {@link DbConnection} sets {@code rewriteBatchedStatements=true}.
+	 * 
+	 * @param deltas The hours to add, keyed by project ID.
+	 * @return The number of projects that were updated.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	@Override
+	public int incrementActualHours(Map<Integer, BigDecimal> deltas) {
+		// @formatter:off
+		String sql = ""
+				+ "UPDATE " + PROJECT_TABLE + " SET "
+				+ "actual_hours = COALESCE(actual_hours, 0) + ?, "
+				+ "row_version = row_version + 1 "
+				+ "WHERE project_id = ?";
+		// @formatter:on
+
+		try(Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+
+			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+				for(Map.Entry<Integer, BigDecimal> delta : deltas.entrySet()) {
+					setParameter(stmt, 1, delta.getValue(), BigDecimal.class);
+					setParameter(stmt, 2, delta.getKey(), Integer.class);
+					stmt.addBatch();
+				}
+
+				int[] rowsAffected = stmt.executeBatch();
+				List<Integer> updatedIds = new LinkedList<>();
+				int pos = 0;
+
+				for(Integer projectId : deltas.keySet()) {
+					if(rowsAffected[pos++] != 0) {
+						updatedIds.add(projectId);
+					}
+				}
+
+				changeLog.record(conn, updatedIds, "UPDATE");
+				commitTransaction(conn);
+
+				return updatedIds.size();
+			}
+			catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException("Unable to add actual hours.", e);
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	/**
+	 * Returns the change log rows after the given change, oldest first.
+	 * 
+	 * @param changeId The last change that the caller has already seen.
+	 * @param limit The maximum number of rows to return.
+	 * @return The changes in change ID order.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	public List<ProjectChange> fetchChangesSince(long changeId, int limit) {
+		// @formatter:off
+		String sql = ""
+				+ "SELECT * FROM " + PROJECT_CHANGE_LOG_TABLE + " "
+				+ "WHERE change_id > ? "
+				+ "ORDER BY change_id "
+				+ "LIMIT ?";
+		// @formatter:on
+
+		try(Connection conn = DbConnection.getConnection()) {
+			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+				setParameter(stmt, 1, changeId, Long.class);
+				setParameter(stmt, 2, limit, Integer.class);
+
+				try(ResultSet rs = stmt.executeQuery()) {
+					List<ProjectChange> changes = new LinkedList<>();
+
+					while(rs.next()) {
+						changes.add(extract(rs, ProjectChange.class));
+					}
+
+					return changes;
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	/**
+	 * Returns the ID of the most recent row in the project change log that is at least the given age.
+	 * Change IDs are assigned when a row is inserted but become visible when its transaction commits,
+	 * so a transaction still open may yet commit a change with a lower ID than the latest one seen.
+	 * Every change up to the returned ID is visible unless a transaction has been open for longer
+	 * than the given age.
+	 * 
+	 * @param settleSeconds How old a change must be before no lower ID is expected to appear.
+	 * @return The change ID or zero if there is no change that old.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	public long fetchSettledChangeId(long settleSeconds) {
+		// @formatter:off
+		String sql = ""
+				+ "SELECT COALESCE(MAX(change_id), 0) FROM " + PROJECT_CHANGE_LOG_TABLE + " "
+				+ "WHERE changed_at < NOW() - INTERVAL ? SECOND";
+		// @formatter:on
+
+		try(Connection conn = DbConnection.getConnection()) {
+			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+				setParameter(stmt, 1, settleSeconds, Long.class);
+
+				try(ResultSet rs = stmt.executeQuery()) {
+					rs.next();
+					return rs.getLong(1);
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	/**
+	 * Returns the ID of the oldest row still in the project change log. Rows are only ever pruned from
+	 * the start of the log, so every change after this one is still there.
+	 * 
+	 * @return The oldest change ID or zero if the change log is empty.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	public long fetchOldestChangeId() {
+		String sql = "SELECT COALESCE(MIN(change_id), 0) FROM " + PROJECT_CHANGE_LOG_TABLE;
+
+		try(Connection conn = DbConnection.getConnection()) {
+			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+				try(ResultSet rs = stmt.executeQuery()) {
+					rs.next();
+					return rs.getLong(1);
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	/**
+	 * Deletes rows from the start of the project change log: those before the given change that are
+	 * also older than the retention period. The newest of the old rows and everything after it are
+	 * kept, so the log is always cut at one change ID and never emptied. Rows are deleted at most
+	 * {@code limit} at a time; call again until this returns zero.
+	 * 
+	 * @param beforeChangeId Rows with a lower change ID may be deleted, for example because they have
+	 *        been delivered by the outbox relay.
+	 * @param retentionSeconds Rows younger than this are kept.
+	 * @param limit The most rows deleted by this call.
+	 * @return The number of rows deleted.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	public int pruneChangesBefore(long beforeChangeId, long retentionSeconds, int limit) {
+		// @formatter:off
+		String cutoffSql = ""
+				+ "SELECT COALESCE(MAX(change_id), 0) FROM " + PROJECT_CHANGE_LOG_TABLE + " "
+				+ "WHERE change_id <= ? AND changed_at < NOW() - INTERVAL ? SECOND";
+		String deleteSql = ""
+				+ "DELETE FROM " + PROJECT_CHANGE_LOG_TABLE + " "
+				+ "WHERE change_id < ? "
+				+ "ORDER BY change_id "
+				+ "LIMIT ?";
+		// @formatter:on
+
+		try(Connection conn = DbConnection.getConnection()) {
+			long cutoff;
+
+			try(PreparedStatement stmt = conn.prepareStatement(cutoffSql)) {
+				setParameter(stmt, 1, beforeChangeId, Long.class);
+				setParameter(stmt, 2, retentionSeconds, Long.class);
+
+				try(ResultSet rs = stmt.executeQuery()) {
+					rs.next();
+					cutoff = rs.getLong(1);
+				}
+			}
+
+			if(cutoff == 0) {
+				return 0;
+			}
+
+			try(PreparedStatement stmt = conn.prepareStatement(deleteSql)) {
+				setParameter(stmt, 1, cutoff, Long.class);
+				setParameter(stmt, 2, limit, Integer.class);
+
+				return stmt.executeUpdate();
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	/**
+	 * Returns the IDs of all projects that were inserted, modified or deleted after the given change.
+	 * 
+	 * @param changeId The last change that the caller has already seen.
+	 * @return The IDs of the projects changed since then.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	public IntSet fetchProjectIdsChangedSince(long changeId) {
+		// @formatter:off
+		String sql = ""
+				+ "SELECT project_id FROM " + PROJECT_CHANGE_LOG_TABLE + " "
+				+ "WHERE change_id > ?";
+		// @formatter:on
+
+		try(Connection conn = DbConnection.getConnection()) {
+			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+				setParameter(stmt, 1, changeId, Long.class);
+
+				try(ResultSet rs = stmt.executeQuery()) {
+					IntSet projectIds = new IntSet();
+
+					while(rs.next()) {
+						projectIds.add(rs.getInt(1));
+					}
+
+					return projectIds;
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
 }
@@ -0,0 +1,217 @@
+package projects.dao;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.exception.DbException;
+import provided.util.DaoBase;
+
+/**
+ * This DAO reads every project with its materials, steps and categories without holding more than
+ * one project in memory. The project, material, step and category rows are read through four
+ * server-side cursors, each ordered by project ID, and merged as they arrive. All four cursors run
+ * in one read-only transaction with a consistent snapshot, so the children always match their
+ * projects even while other sessions are writing.
+ */
+public class ProjectExportDao extends DaoBase {
+	private static final String CATEGORY_TABLE = "category";
+	private static final String MATERIAL_TABLE = "material";
+	private static final String PROJECT_TABLE = "project";
+	private static final String PROJECT_CATEGORY_TABLE = "project_category";
+	private static final String STEP_TABLE = "step";
+
+	/**
+	 * Receives each project, with its children, in project ID order.
+	 */
+	public interface ProjectVisitor {
+		void visit(Project project) throws IOException;
+	}
+
+	/**
+	 * Reads all projects in project ID order and hands each one to the visitor. The project object
+	 * is not kept after the visitor returns.
+	 *
+	 * @param fetchSize The number of rows each cursor fetches from the server at a time.
+	 * @param visitor Receives each project.
+	 * @return The number of projects read.
+	 * @throws IOException Thrown if the visitor fails.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	public long readAllProjects(int fetchSize, ProjectVisitor visitor) throws IOException {
+		// @formatter:off
+		String projectSql = ""
+				+ "SELECT project_id, project_name, estimated_hours, actual_hours, difficulty, notes "
+				+ "FROM " + PROJECT_TABLE + " "
+				+ "ORDER BY project_id";
+		String materialSql = ""
+				+ "SELECT project_id, material_id, material_name, num_required, cost "
+				+ "FROM " + MATERIAL_TABLE + " "
+				+ "ORDER BY project_id, material_id";
+		String stepSql = ""
+				+ "SELECT project_id, step_id, step_text, step_order "
+				+ "FROM " + STEP_TABLE + " "
+				+ "ORDER BY project_id, step_order, step_id";
+		String categorySql = ""
+				+ "SELECT pc.project_id, c.category_id, c.category_name "
+				+ "FROM " + PROJECT_CATEGORY_TABLE + " pc "
+				+ "JOIN " + CATEGORY_TABLE + " c USING (category_id) "
+				+ "ORDER BY pc.project_id, c.category_id";
+		// @formatter:on
+
+		try(Connection conn = DbConnection.getCursorConnection()) {
+			startTransaction(conn);
+
+			try(Statement snapshot = conn.createStatement()) {
+				snapshot.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+			}
+
+			try(PreparedStatement projectStmt = cursor(conn, projectSql, fetchSize);
+					PreparedStatement materialStmt = cursor(conn, materialSql, fetchSize);
+					PreparedStatement stepStmt = cursor(conn, stepSql, fetchSize);
+					PreparedStatement categoryStmt = cursor(conn, categorySql, fetchSize)) {
+				try(ResultSet projects = projectStmt.executeQuery();
+						ResultSet materials = materialStmt.executeQuery();
+						ResultSet steps = stepStmt.executeQuery();
+						ResultSet categories = categoryStmt.executeQuery()) {
+					ChildCursor materialCursor = new ChildCursor(materials);
+					ChildCursor stepCursor = new ChildCursor(steps);
+					ChildCursor categoryCursor = new ChildCursor(categories);
+					long count = 0;
+
+					while(projects.next()) {
+						Project project = readProject(projects);
+						int projectId = project.getProjectId();
+
+						while(materialCursor.advanceTo(projectId)) {
+							project.getMaterials().add(readMaterial(materials));
+						}
+
+						while(stepCursor.advanceTo(projectId)) {
+							project.getSteps().add(readStep(steps));
+						}
+
+						while(categoryCursor.advanceTo(projectId)) {
+							project.getCategories().add(readCategory(categories));
+						}
+
+						visitor.visit(project);
+						count++;
+					}
+
+					commitTransaction(conn);
+					return count;
+				}
+			}
+			catch(IOException | RuntimeException | SQLException e) {
+				rollbackTransaction(conn);
+				throw e;
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	private PreparedStatement cursor(Connection conn, String sql, int fetchSize) throws SQLException {
+		PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+				ResultSet.CONCUR_READ_ONLY);
+
+		stmt.setFetchSize(fetchSize);
+		return stmt;
+	}
+
+	/*
+	 * The rows are read with plain JDBC calls rather than extract(), which looks up every field by
+	 * reflection on every row.
+	 */
+
+	private Project readProject(ResultSet rs) throws SQLException {
+		Project project = new Project();
+
+		project.setProjectId(rs.getInt(1));
+		project.setProjectName(rs.getString(2));
+		project.setEstimatedHours(rs.getBigDecimal(3));
+		project.setActualHours(rs.getBigDecimal(4));
+		project.setDifficulty(rs.getObject(5, Integer.class));
+		project.setNotes(rs.getString(6));
+
+		return project;
+	}
+
+	private Material readMaterial(ResultSet rs) throws SQLException {
+		Material material = new Material();
+
+		material.setProjectId(rs.getInt(1));
+		material.setMaterialId(rs.getInt(2));
+		material.setMaterialName(rs.getString(3));
+		material.setNumRequired(rs.getObject(4, Integer.class));
+		material.setCost(rs.getBigDecimal(5));
+
+		return material;
+	}
+
+	private Step readStep(ResultSet rs) throws SQLException {
+		Step step = new Step();
+
+		step.setProjectId(rs.getInt(1));
+		step.setStepId(rs.getInt(2));
+		step.setStepText(rs.getString(3));
+		step.setStepOrder(rs.getInt(4));
+
+		return step;
+	}
+
+	private Category readCategory(ResultSet rs) throws SQLException {
+		Category category = new Category();
+
+		category.setCategoryId(rs.getInt(2));
+		category.setCategoryName(rs.getString(3));
+
+		return category;
+	}
+
+	/**
+	 * A child result set ordered by project ID, whose first column is the project ID.
+	 */
+	private static class ChildCursor {
+		private final ResultSet rs;
+		private boolean positioned;
+		private boolean onRow;
+
+		ChildCursor(ResultSet rs) {
+			this.rs = rs;
+		}
+
+		/**
+		 * Moves to the next row of the given project, skipping rows of lower project IDs.
+		 *
+		 * @return {@code true} if the cursor is on a row of the project, which the caller must read
+		 *         before the next call. {@code false} if the project has no more rows; the cursor then
+		 *         stays on the first row of a later project.
+		 */
+		boolean advanceTo(int projectId) throws SQLException {
+			if(!positioned) {
+				onRow = rs.next();
+				positioned = true;
+			}
+
+			while(onRow && rs.getInt(1) < projectId) {
+				onRow = rs.next();
+			}
+
+			if(onRow && rs.getInt(1) == projectId) {
+				positioned = false;
+				return true;
+			}
+
+			return false;
+		}
+	}
+}
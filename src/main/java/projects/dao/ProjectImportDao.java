@@ -0,0 +1,309 @@
+package projects.dao;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.exception.DbException;
+import provided.util.DaoBase;
+
+/**
+ * This DAO writes many projects, with their materials, steps and categories, at once. Each table is
+ * written with multi-row INSERT statements instead of one statement per row, so a batch of
+ * thousands of rows costs a handful of round trips.
+ */
+public class ProjectImportDao extends DaoBase {
+	private static final String CATEGORY_TABLE = "category";
+	private static final String MATERIAL_TABLE = "material";
+	private static final String PROJECT_TABLE = "project";
+	private static final String PROJECT_CATEGORY_TABLE = "project_category";
+	private static final String PROJECT_IMPORT_TABLE = "project_import";
+	private static final String STEP_TABLE = "step";
+
+	private final ProjectChangeLog changeLog = new ProjectChangeLog();
+
+	/**
+	 * Returns the number of records of an import that have already been committed.
+	 *
+	 * @param importKey Identifies the import, normally a hash of the file being imported with its
+	 *        size and modification time.
+	 * @return The number of records committed, or zero if the import has not been started.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	public long fetchCheckpoint(String importKey) {
+		String sql = "SELECT records_committed FROM " + PROJECT_IMPORT_TABLE + " WHERE import_key = ?";
+
+		try(Connection conn = DbConnection.getConnection()) {
+			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+				setParameter(stmt, 1, importKey, String.class);
+
+				try(ResultSet rs = stmt.executeQuery()) {
+					return rs.next() ? rs.getLong(1) : 0;
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	/**
+	 * Inserts a batch of projects and all of their children in one transaction. Categories are
+	 * matched by name; a category that does not exist yet is created. The generated project IDs are
+	 * set on the project objects.
+	 *
+	 * If an import key is given, the import checkpoint is moved to {@code recordsCommitted} in the
+	 * same transaction, so a resumed import never inserts a record twice.
+	 *
+	 * @param projects The projects to insert.
+	 * @param importKey Identifies the import. This may be null if no checkpoint is wanted.
+	 * @param recordsCommitted The number of source records committed once this batch is in.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	public void insertProjects(List<Project> projects, String importKey, long recordsCommitted) {
+		try(Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+
+			try {
+				insertProjectRows(conn, projects);
+				insertMaterialRows(conn, projects);
+				insertStepRows(conn, projects);
+				insertCategoryRows(conn, projects);
+
+				List<Integer> projectIds = new ArrayList<>(projects.size());
+				projects.forEach(project -> projectIds.add(project.getProjectId()));
+				changeLog.record(conn, projectIds, "INSERT");
+
+				if(Objects.nonNull(importKey)) {
+					saveCheckpoint(conn, importKey, recordsCommitted);
+				}
+
+				commitTransaction(conn);
+			}
+			catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException("Unable to import projects.", e);
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	private void insertProjectRows(Connection conn, List<Project> projects) throws SQLException {
+		List<Object[]> rows = new ArrayList<>(projects.size());
+
+		for(Project project : projects) {
+			rows.add(new Object[] {project.getProjectName(), project.getEstimatedHours(),
+					project.getActualHours(), project.getDifficulty(), project.getNotes()});
+		}
+
+		List<Integer> keys = insertRows(conn, PROJECT_TABLE,
+				"project_name, estimated_hours, actual_hours, difficulty, notes",
+				new Class<?>[] {String.class, BigDecimal.class, BigDecimal.class, Integer.class,
+						String.class},
+				rows, true);
+
+		for(int pos = 0; pos < projects.size(); pos++) {
+			projects.get(pos).setProjectId(keys.get(pos));
+		}
+	}
+
+	private void insertMaterialRows(Connection conn, List<Project> projects) throws SQLException {
+		List<Object[]> rows = new ArrayList<>();
+
+		for(Project project : projects) {
+			for(Material material : project.getMaterials()) {
+				material.setProjectId(project.getProjectId());
+				rows.add(new Object[] {project.getProjectId(), material.getMaterialName(),
+						material.getNumRequired(), material.getCost()});
+			}
+		}
+
+		insertRows(conn, MATERIAL_TABLE, "project_id, material_name, num_required, cost",
+				new Class<?>[] {Integer.class, String.class, Integer.class, BigDecimal.class}, rows,
+				false);
+	}
+
+	private void insertStepRows(Connection conn, List<Project> projects) throws SQLException {
+		List<Object[]> rows = new ArrayList<>();
+
+		for(Project project : projects) {
+			int stepOrder = 1;
+
+			for(Step step : project.getSteps()) {
+				if(Objects.isNull(step.getStepOrder())) {
+					step.setStepOrder(stepOrder);
+				}
+
+				stepOrder = step.getStepOrder() + 1;
+				step.setProjectId(project.getProjectId());
+				rows.add(new Object[] {project.getProjectId(), step.getStepText(), step.getStepOrder()});
+			}
+		}
+
+		insertRows(conn, STEP_TABLE, "project_id, step_text, step_order",
+				new Class<?>[] {Integer.class, String.class, Integer.class}, rows, false);
+	}
+
+	/**
+	 * Looks up the IDs of the categories named in the batch, creates the ones that do not exist and
+	 * links them to their projects.
+	 *
+	 * Names are compared the way the database compares category_name: its collation
+	 * (utf8mb4_0900_ai_ci) ignores case and accents, so "Woodwork" and "WOODWORK" are one category.
+	 * The names are keyed with a {@link Collator} at primary strength, which makes the same
+	 * distinction. A category that is created is given the first spelling in the batch.
+	 */
+	private void insertCategoryRows(Connection conn, List<Project> projects) throws SQLException {
+		Collator collator = categoryCollator();
+		Map<CollationKey, String> names = new LinkedHashMap<>();
+
+		for(Project project : projects) {
+			for(Category category : project.getCategories()) {
+				names.putIfAbsent(collator.getCollationKey(category.getCategoryName()),
+						category.getCategoryName());
+			}
+		}
+
+		if(names.isEmpty()) {
+			return;
+		}
+
+		Map<CollationKey, Integer> categoryIds = fetchCategoryIds(conn, collator, names.values());
+		List<CollationKey> missing = new ArrayList<>();
+
+		for(CollationKey key : names.keySet()) {
+			if(!categoryIds.containsKey(key)) {
+				missing.add(key);
+			}
+		}
+
+		List<Object[]> categoryRows = new ArrayList<>(missing.size());
+		missing.forEach(key -> categoryRows.add(new Object[] {names.get(key)}));
+
+		List<Integer> keys = insertRows(conn, CATEGORY_TABLE, "category_name",
+				new Class<?>[] {String.class}, categoryRows, true);
+
+		for(int pos = 0; pos < missing.size(); pos++) {
+			categoryIds.put(missing.get(pos), keys.get(pos));
+		}
+
+		List<Object[]> linkRows = new ArrayList<>();
+
+		for(Project project : projects) {
+			Set<Integer> linked = new LinkedHashSet<>();
+
+			for(Category category : project.getCategories()) {
+				category.setCategoryId(
+						categoryIds.get(collator.getCollationKey(category.getCategoryName())));
+
+				/* The join table has a unique key, so a category named twice is linked once. */
+				if(linked.add(category.getCategoryId())) {
+					linkRows.add(new Object[] {project.getProjectId(), category.getCategoryId()});
+				}
+			}
+		}
+
+		insertRows(conn, PROJECT_CATEGORY_TABLE, "project_id, category_id",
+				new Class<?>[] {Integer.class, Integer.class}, linkRows, false);
+	}
+
+	/**
+	 * Returns a collator that treats two category names as equal when the category_name collation
+	 * does. Collators are not thread safe, so each batch gets its own.
+	 */
+	static Collator categoryCollator() {
+		Collator collator = Collator.getInstance(Locale.ROOT);
+
+		collator.setStrength(Collator.PRIMARY);
+		return collator;
+	}
+
+	private Map<CollationKey, Integer> fetchCategoryIds(Connection conn, Collator collator,
+			Collection<String> names) throws SQLException {
+		Map<CollationKey, Integer> categoryIds = new HashMap<>();
+		List<String> remaining = new ArrayList<>(names);
+
+		for(int start = 0; start < remaining.size(); start += MAX_ROWS_PER_INSERT) {
+			List<String> chunk = remaining.subList(start,
+					Math.min(start + MAX_ROWS_PER_INSERT, remaining.size()));
+
+			// @formatter:off
+			String sql = ""
+					+ "SELECT category_id, category_name FROM " + CATEGORY_TABLE + " "
+					+ "WHERE category_name IN (" + placeholders(chunk.size(), 1) + ")";
+			// @formatter:on
+
+			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+				for(int pos = 0; pos < chunk.size(); pos++) {
+					setParameter(stmt, pos + 1, chunk.get(pos), String.class);
+				}
+
+				try(ResultSet rs = stmt.executeQuery()) {
+					while(rs.next()) {
+						categoryIds.putIfAbsent(collator.getCollationKey(rs.getString(2)), rs.getInt(1));
+					}
+				}
+			}
+		}
+
+		return categoryIds;
+	}
+
+	/**
+	 * Removes the checkpoint of an import that has finished, so that importing the same file again
+	 * starts from its first record.
+	 *
+	 * @param importKey Identifies the import.
+	 * @throws DbException Thrown if a SQLException is thrown by the driver.
+	 */
+	public void deleteCheckpoint(String importKey) {
+		String sql = "DELETE FROM " + PROJECT_IMPORT_TABLE + " WHERE import_key = ?";
+
+		try(Connection conn = DbConnection.getConnection()) {
+			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+				setParameter(stmt, 1, importKey, String.class);
+				stmt.executeUpdate();
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	private void saveCheckpoint(Connection conn, String importKey, long recordsCommitted)
+			throws SQLException {
+		// @formatter:off
+		String sql = ""
+				+ "INSERT INTO " + PROJECT_IMPORT_TABLE + " "
+				+ "(import_key, records_committed) "
+				+ "VALUES "
+				+ "(?, ?) "
+				+ "ON DUPLICATE KEY UPDATE records_committed = VALUES(records_committed)";
+		// @formatter:on
+
+		try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+			setParameter(stmt, 1, importKey, String.class);
+			setParameter(stmt, 2, recordsCommitted, Long.class);
+			stmt.executeUpdate();
+		}
+	}
+}
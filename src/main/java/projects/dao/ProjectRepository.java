@@ -0,0 +1,125 @@
+package projects.dao;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import projects.entity.Project;
+
+/**
+ * The project operations used by the service layer. {@link ProjectDao} stores projects in MySQL;
+ * {@link InMemoryProjectRepository} keeps them in memory for embedded use and for benchmarks that
+ * should not depend on a database.
+ */
+public interface ProjectRepository {
+	/**
+	 * Inserts a project row.
+	 *
+	 * @param project The project to insert.
+	 * @return The same project with its generated project ID set.
+	 * @throws projects.exception.DbException Thrown if the project cannot be stored.
+	 */
+	Project insertProject(Project project);
+
+	/**
+	 * Returns every project, ordered by project name, without materials, steps or categories.
+	 *
+	 * @return The projects.
+	 */
+	List<Project> fetchAllProjects();
+
+	/**
+	 * Returns the projects in a category, ordered by project name, without materials, steps or
+	 * categories.
+	 *
+	 * @param categoryName The category name.
+	 * @return The projects. The list is empty if the category does not exist.
+	 */
+	List<Project> fetchProjectsByCategory(String categoryName);
+
+	/**
+	 * Returns one page of projects, ordered by project name and then project ID, without materials,
+	 * steps or categories. A page starts after the last project of the page before, so paging through
+	 * a large table costs the same for every page, and projects added or deleted meanwhile do not
+	 * shift the pages.
+	 *
+	 * @param afterName The name of the last project of the previous page, or null for the first page.
+	 * @param afterId The ID of the last project of the previous page. It must be given with a name,
+	 *        and is ignored for the first page.
+	 * @param limit The most projects returned.
+	 * @return The projects. A page shorter than the limit is the last one.
+	 * @throws IllegalArgumentException Thrown if {@code afterName} is given without {@code afterId}.
+	 *         A name alone does not say where the page starts among projects of the same name.
+	 */
+	List<Project> fetchProjectsPage(String afterName, Integer afterId, int limit);
+
+	/**
+	 * Returns a project with its materials, steps and categories.
+	 *
+	 * @param projectId The project ID.
+	 * @return The project, or an empty Optional if there is no project with the ID.
+	 */
+	Optional<Project> fetchProjectById(Integer projectId);
+
+	/**
+	 * Returns the row version of a project without loading the project. Every write that changes a
+	 * project adds one to its version, so a caller holding a project with the same version holds the
+	 * current project. Materials, steps and categories are only written with a new project, so the
+	 * version covers them too.
+	 *
+	 * @param projectId The project ID.
+	 * @return The version, or an empty Optional if there is no project with the ID.
+	 */
+	Optional<Integer> fetchProjectVersion(Integer projectId);
+
+	/**
+	 * Replaces the details of a project. A null field sets the column to null.
+	 *
+	 * @param project The project with its ID and new details.
+	 * @return {@code true} if the project exists and was updated.
+	 */
+	boolean modifyProjectDetails(Project project);
+
+	/**
+	 * Deletes a project and its materials, steps and category links.
+	 *
+	 * @param projectId The project ID.
+	 * @return {@code true} if the project existed.
+	 */
+	boolean deleteProject(Integer projectId);
+
+	/**
+	 * Updates the details of many projects at once. A null field leaves the column unchanged.
+	 * Projects that no longer exist are skipped.
+	 *
+	 * @param projects The projects to update. Each must have a project ID.
+	 * @return The number of projects that were updated.
+	 */
+	int modifyProjectDetailsBatch(Collection<Project> projects);
+
+	/**
+	 * Adds to the actual hours of many projects at once. A project with no actual hours yet starts
+	 * from zero.
+	 *
+	 * @param deltas The hours to add, keyed by project ID.
+	 * @return The number of projects that were updated.
+	 */
+	int incrementActualHours(Map<Integer, BigDecimal> deltas);
+
+	/**
+	 * Checks the page position passed to {@link #fetchProjectsPage(String, Integer, int)}, so every
+	 * implementation rejects the same arguments.
+	 *
+	 * @param afterName The name of the last project of the previous page, or null.
+	 * @param afterId The ID of the last project of the previous page.
+	 * @throws IllegalArgumentException Thrown if a name is given without an ID.
+	 */
+	static void checkPagePosition(String afterName, Integer afterId) {
+		if(Objects.nonNull(afterName) && Objects.isNull(afterId)) {
+			throw new IllegalArgumentException(
+					"A page that starts after a project name must also give the project ID.");
+		}
+	}
+}
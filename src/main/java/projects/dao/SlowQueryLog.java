@@ -0,0 +1,345 @@
+package projects.dao;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import projects.log.Logger;
+
+/**
+ * This class writes statements that take longer than a threshold to a rolling log file, together
+ * with their bind values and the MySQL execution plan. String bind values are redacted by default,
+ * because project names and notes may hold anything.
+ *
+ * Detection runs on the thread that executed the statement and costs one comparison for a fast
+ * statement. Everything else is kept off that thread and bounded, so that a database that has become
+ * slow for every query is not made slower by the log:
+ * <ul>
+ * <li>At most {@code maxPerMinute} entries are accepted per minute. Slow statements over the limit
+ * are only counted, and the count is written with the next entry.</li>
+ * <li>Accepted entries wait in a small queue for one background writer. Entries that do not fit are
+ * counted the same way.</li>
+ * <li>The EXPLAIN runs on the writer's own connection, straight from the driver so that it is not
+ * itself logged, with a five second timeout. Each SQL template is explained at most once per
+ * {@code explainIntervalMillis}.</li>
+ * </ul>
+ *
+ * The file is rolled when it passes {@code maxBytes}: slow-queries.log becomes slow-queries.log.1, and
+ * so on up to {@code maxFiles} old files.
+ */
+class SlowQueryLog implements StatementListener {
+	private static final Logger LOG = Logger.get(SlowQueryLog.class);
+
+	private static final int QUEUE_CAPACITY = 64;
+	private static final int EXPLAIN_TIMEOUT_SECONDS = 5;
+	private static final int MAX_EXPLAINED_TEMPLATES = 1000;
+
+	private final long thresholdNanos;
+	private final Path file;
+	private final long maxBytes;
+	private final int maxFiles;
+	private final boolean redact;
+	private final double maxPerMinute;
+	private final long explainIntervalMillis;
+
+	private final BlockingQueue<SlowQuery> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	private final AtomicLong suppressed = new AtomicLong();
+	private final Map<String, Long> lastExplainMillis = new HashMap<>();
+	private double tokens;
+	private long lastRefillNanos = System.nanoTime();
+
+	/**
+	 * Create the log and start its writer thread.
+	 *
+	 * @param thresholdMillis Statements that take at least this long are logged.
+	 * @param file The log file.
+	 * @param maxBytes The size at which the file is rolled.
+	 * @param maxFiles The number of rolled files kept.
+	 * @param redact Whether string bind values are replaced by their length.
+	 * @param maxPerMinute The most entries written per minute.
+	 * @param explainIntervalMillis The shortest time between two EXPLAINs of the same SQL.
+	 */
+	SlowQueryLog(long thresholdMillis, Path file, long maxBytes, int maxFiles, boolean redact,
+			int maxPerMinute, long explainIntervalMillis) {
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.file = file;
+		this.maxBytes = maxBytes;
+		this.maxFiles = maxFiles;
+		this.redact = redact;
+		this.maxPerMinute = maxPerMinute;
+		this.explainIntervalMillis = explainIntervalMillis;
+		this.tokens = maxPerMinute;
+
+		Thread writer = new Thread(this::writeEntries, "slow-query-log");
+
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Create the log from the {@code projects.slowQuery.*} system properties, or return null if
+	 * {@code projects.slowQuery.thresholdMillis} is negative.
+	 */
+	static SlowQueryLog fromSystemProperties() {
+		long thresholdMillis = Long.getLong("projects.slowQuery.thresholdMillis", 500);
+
+		if(thresholdMillis < 0) {
+			return null;
+		}
+
+		return new SlowQueryLog(thresholdMillis,
+				Path.of(System.getProperty("projects.slowQuery.file", "slow-queries.log")),
+				Long.getLong("projects.slowQuery.maxBytes", 10L << 20),
+				Integer.getInteger("projects.slowQuery.maxFiles", 5),
+				Boolean.parseBoolean(System.getProperty("projects.slowQuery.redact", "true")),
+				Integer.getInteger("projects.slowQuery.maxPerMinute", 30),
+				Long.getLong("projects.slowQuery.explainIntervalMillis", 60_000));
+	}
+
+	@Override
+	public void statementExecuted(String sql, Object[] parameters, int parameterCount, long nanos,
+			boolean success) {
+		if(nanos < thresholdNanos) {
+			return;
+		}
+
+		if(!tryAcquire()) {
+			suppressed.incrementAndGet();
+			return;
+		}
+
+		Object[] binds = Objects.isNull(parameters) ? new Object[0]
+				: Arrays.copyOf(parameters, parameterCount);
+		SlowQuery query = new SlowQuery(Instant.now(), Thread.currentThread().getName(), sql, binds,
+				nanos, success);
+
+		if(!queue.offer(query)) {
+			suppressed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Takes one token from a bucket that refills at maxPerMinute tokens per minute and holds at most
+	 * a minute's worth.
+	 */
+	private synchronized boolean tryAcquire() {
+		long now = System.nanoTime();
+
+		tokens = Math.min(maxPerMinute, tokens + (now - lastRefillNanos) * maxPerMinute / 60e9);
+		lastRefillNanos = now;
+
+		if(tokens < 1) {
+			return false;
+		}
+
+		tokens--;
+		return true;
+	}
+
+	private void writeEntries() {
+		while(true) {
+			SlowQuery query;
+
+			try {
+				query = queue.take();
+			}
+			catch(InterruptedException e) {
+				return;
+			}
+
+			try {
+				write(format(query, explain(query)));
+			}
+			catch(IOException | RuntimeException e) {
+				LOG.warn("Unable to write the slow query log", "file", file, "error", e.getMessage());
+			}
+		}
+	}
+
+	private String format(SlowQuery query, String plan) {
+		StringBuilder entry = new StringBuilder();
+
+		entry.append(query.time).append(' ')
+				.append(String.format(Locale.ROOT, "%.1f ms", query.nanos / 1e6))
+				.append(query.success ? "" : " FAILED").append(" thread=").append(query.thread)
+				.append(System.lineSeparator());
+		entry.append("SQL: ").append(query.sql).append(System.lineSeparator());
+		entry.append("Binds: ").append(formatBinds(query.binds)).append(System.lineSeparator());
+
+		if(Objects.nonNull(plan)) {
+			entry.append("EXPLAIN:").append(System.lineSeparator()).append(plan);
+		}
+
+		long skipped = suppressed.getAndSet(0);
+
+		if(skipped > 0) {
+			entry.append(skipped).append(" slow statements were not logged because of the rate limit.")
+					.append(System.lineSeparator());
+		}
+
+		return entry.append(System.lineSeparator()).toString();
+	}
+
+	private String formatBinds(Object[] binds) {
+		StringBuilder text = new StringBuilder("[");
+
+		for(int pos = 0; pos < binds.length; pos++) {
+			if(pos > 0) {
+				text.append(", ");
+			}
+
+			text.append(pos + 1).append('=').append(formatBind(binds[pos]));
+		}
+
+		return text.append(']').toString();
+	}
+
+	private String formatBind(Object value) {
+		if(Objects.isNull(value)) {
+			return "NULL";
+		}
+
+		if(value instanceof Number) {
+			return value.toString();
+		}
+
+		if(value instanceof String string) {
+			return redact ? "<" + string.length() + " chars>" : "'" + string + "'";
+		}
+
+		return redact ? "<" + value.getClass().getSimpleName() + ">" : value.toString();
+	}
+
+	/**
+	 * Runs EXPLAIN for the statement on a connection of its own, unless the statement cannot be
+	 * explained or the same SQL was explained recently.
+	 *
+	 * @return The plan, one row per line, or null if none was run.
+	 */
+	private String explain(SlowQuery query) {
+		String verb = query.sql.stripLeading().split("\\s+", 2)[0].toUpperCase(Locale.ROOT);
+
+		if(!verb.equals("SELECT") && !verb.equals("UPDATE") && !verb.equals("DELETE")
+				&& !verb.equals("INSERT") && !verb.equals("REPLACE")) {
+			return null;
+		}
+
+		long now = System.currentTimeMillis();
+		Long last = lastExplainMillis.get(query.sql);
+
+		if(Objects.nonNull(last) && now - last < explainIntervalMillis) {
+			return null;
+		}
+
+		if(lastExplainMillis.size() >= MAX_EXPLAINED_TEMPLATES) {
+			lastExplainMillis.clear();
+		}
+
+		lastExplainMillis.put(query.sql, now);
+
+		try(Connection conn = DbConnection.getUninstrumentedConnection();
+				PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + query.sql)) {
+			stmt.setQueryTimeout(EXPLAIN_TIMEOUT_SECONDS);
+
+			for(int pos = 0; pos < query.binds.length; pos++) {
+				stmt.setObject(pos + 1, query.binds[pos]);
+			}
+
+			try(ResultSet rs = stmt.executeQuery()) {
+				return formatPlan(rs);
+			}
+		}
+		catch(SQLException | RuntimeException e) {
+			return "  (EXPLAIN failed: " + e.getMessage() + ")" + System.lineSeparator();
+		}
+	}
+
+	private static String formatPlan(ResultSet rs) throws SQLException {
+		ResultSetMetaData meta = rs.getMetaData();
+		StringBuilder plan = new StringBuilder();
+
+		while(rs.next()) {
+			plan.append(' ');
+
+			for(int col = 1; col <= meta.getColumnCount(); col++) {
+				Object value = rs.getObject(col);
+
+				if(Objects.nonNull(value)) {
+					plan.append(' ').append(meta.getColumnLabel(col)).append('=').append(value);
+				}
+			}
+
+			plan.append(System.lineSeparator());
+		}
+
+		return plan.toString();
+	}
+
+	private void write(String entry) throws IOException {
+		if(Files.exists(file) && Files.size(file) >= maxBytes) {
+			roll();
+		}
+
+		try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			writer.write(entry);
+		}
+	}
+
+	private void roll() throws IOException {
+		Files.deleteIfExists(rolled(maxFiles));
+
+		for(int index = maxFiles - 1; index >= 1; index--) {
+			if(Files.exists(rolled(index))) {
+				Files.move(rolled(index), rolled(index + 1), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+
+		if(maxFiles > 0) {
+			Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+		}
+		else {
+			Files.delete(file);
+		}
+	}
+
+	private Path rolled(int index) {
+		return file.resolveSibling(file.getFileName() + "." + index);
+	}
+
+	private static class SlowQuery {
+		private final Instant time;
+		private final String thread;
+		private final String sql;
+		private final Object[] binds;
+		private final long nanos;
+		private final boolean success;
+
+		SlowQuery(Instant time, String thread, String sql, Object[] binds, long nanos, boolean success) {
+			this.time = time;
+			this.thread = thread;
+			this.sql = sql;
+			this.binds = binds;
+			this.nanos = nanos;
+			this.success = success;
+		}
+	}
+}
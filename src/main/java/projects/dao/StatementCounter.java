@@ -0,0 +1,118 @@
+package projects.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * This class counts the statements that a block of code executes on connections from
+ * {@link DbConnection}, so that the number of database round trips of an operation can be checked.
+ * Only statements executed by the calling thread are counted; work handed to background threads,
+ * such as buffered writes, is not. Counting blocks may be nested, and every enclosing block counts
+ * the statements of the blocks inside it.
+ *
+ * While no block is counting, the cost for each statement is one read of a volatile field.
+ */
+public final class StatementCounter {
+	private static final ThreadLocal<Count> CURRENT = new ThreadLocal<>();
+	private static volatile int activeCounts;
+
+	/* Reported to by DbConnection's instrumented connections. */
+	static final StatementListener LISTENER = (sql, parameters, parameterCount, nanos, success) -> {
+		if(activeCounts > 0) {
+			for(Count count = CURRENT.get(); Objects.nonNull(count); count = count.parent) {
+				count.sql.add(sql);
+			}
+		}
+	};
+
+	private StatementCounter() {
+	}
+
+	/**
+	 * Runs an action and returns the statements it executed.
+	 *
+	 * @param action The action.
+	 * @return The statements, in the order they were executed.
+	 */
+	public static StatementCount count(Runnable action) {
+		Count count = new Count(CURRENT.get());
+
+		CURRENT.set(count);
+		adjustActive(1);
+
+		try {
+			action.run();
+		}
+		finally {
+			adjustActive(-1);
+
+			if(Objects.isNull(count.parent)) {
+				CURRENT.remove();
+			}
+			else {
+				CURRENT.set(count.parent);
+			}
+		}
+
+		return new StatementCount(count.sql);
+	}
+
+	private static synchronized void adjustActive(int delta) {
+		activeCounts += delta;
+	}
+
+	/**
+	 * The statements executed inside one call to {@link StatementCounter#count(Runnable)}.
+	 */
+	public static class StatementCount {
+		private final List<String> sql;
+
+		StatementCount(List<String> sql) {
+			this.sql = Collections.unmodifiableList(sql);
+		}
+
+		/**
+		 * Returns the number of statements executed. A batch counts once, as it is one round trip.
+		 */
+		public int getStatements() {
+			return sql.size();
+		}
+
+		/**
+		 * Returns the number of statements that were SELECTs.
+		 */
+		public int getQueries() {
+			return (int)sql.stream().filter(text -> text.stripLeading().regionMatches(true, 0, "SELECT", 0, 6))
+					.count();
+		}
+
+		/**
+		 * Returns the SQL of each statement, in the order they were executed.
+		 */
+		public List<String> getSql() {
+			return sql;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder text = new StringBuilder().append(sql.size()).append(" statements:");
+
+			for(String statement : sql) {
+				text.append(System.lineSeparator()).append("  ").append(statement);
+			}
+
+			return text.toString();
+		}
+	}
+
+	private static class Count {
+		private final Count parent;
+		private final List<String> sql = new ArrayList<>();
+
+		Count(Count parent) {
+			this.parent = parent;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package projects.dao;
+
+/**
+ * Told about every statement executed on a connection from {@link DbConnection}. It is called on the
+ * thread that executed the statement, right after the driver returns, so it must be quick.
+ */
+interface StatementListener {
+	/**
+	 * Called after a statement has executed, whether or not it succeeded.
+	 *
+	 * @param sql The SQL template, or the SQL text of a plain statement.
+	 * @param parameters The bind values by position, starting at index 0 for parameter 1. The array
+	 *        is reused by the next execution, so copy anything that is kept. It may be null.
+	 * @param parameterCount The number of bind values.
+	 * @param nanos How long the driver took.
+	 * @param success Whether the driver returned normally.
+	 */
+	void statementExecuted(String sql, Object[] parameters, int parameterCount, long nanos,
+			boolean success);
+}
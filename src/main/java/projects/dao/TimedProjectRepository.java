@@ -0,0 +1,130 @@
+package projects.dao;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import projects.entity.Project;
+import projects.metrics.LatencyRecorder;
+import projects.metrics.OperationMetrics;
+import projects.trace.Span;
+import projects.trace.Tracer;
+
+/**
+ * This class records the latency of every call to another repository under the operation name
+ * {@code dao.<method>}, and traces each call as a span of the same name. Failed calls are recorded
+ * too, and counted as failures of the operation.
+ */
+public class TimedProjectRepository implements ProjectRepository {
+	private final ProjectRepository repository;
+	private final LatencyRecorder insertProject;
+	private final LatencyRecorder fetchAllProjects;
+	private final LatencyRecorder fetchProjectsByCategory;
+	private final LatencyRecorder fetchProjectsPage;
+	private final LatencyRecorder fetchProjectById;
+	private final LatencyRecorder fetchProjectVersion;
+	private final LatencyRecorder modifyProjectDetails;
+	private final LatencyRecorder deleteProject;
+	private final LatencyRecorder modifyProjectDetailsBatch;
+	private final LatencyRecorder incrementActualHours;
+
+	/**
+	 * Create the timed repository.
+	 *
+	 * @param repository The repository that does the work.
+	 * @param metrics Receives the latencies.
+	 */
+	public TimedProjectRepository(ProjectRepository repository, OperationMetrics metrics) {
+		this.repository = repository;
+		this.insertProject = metrics.recorder("dao.insertProject");
+		this.fetchAllProjects = metrics.recorder("dao.fetchAllProjects");
+		this.fetchProjectsByCategory = metrics.recorder("dao.fetchProjectsByCategory");
+		this.fetchProjectsPage = metrics.recorder("dao.fetchProjectsPage");
+		this.fetchProjectById = metrics.recorder("dao.fetchProjectById");
+		this.fetchProjectVersion = metrics.recorder("dao.fetchProjectVersion");
+		this.modifyProjectDetails = metrics.recorder("dao.modifyProjectDetails");
+		this.deleteProject = metrics.recorder("dao.deleteProject");
+		this.modifyProjectDetailsBatch = metrics.recorder("dao.modifyProjectDetailsBatch");
+		this.incrementActualHours = metrics.recorder("dao.incrementActualHours");
+	}
+
+	@Override
+	public Project insertProject(Project project) {
+		return timed(insertProject, "dao.insertProject", () -> repository.insertProject(project));
+	}
+
+	@Override
+	public List<Project> fetchAllProjects() {
+		return timed(fetchAllProjects, "dao.fetchAllProjects", repository::fetchAllProjects);
+	}
+
+	@Override
+	public List<Project> fetchProjectsByCategory(String categoryName) {
+		return timed(fetchProjectsByCategory, "dao.fetchProjectsByCategory",
+				() -> repository.fetchProjectsByCategory(categoryName));
+	}
+
+	@Override
+	public List<Project> fetchProjectsPage(String afterName, Integer afterId, int limit) {
+		return timed(fetchProjectsPage, "dao.fetchProjectsPage",
+				() -> repository.fetchProjectsPage(afterName, afterId, limit));
+	}
+
+	@Override
+	public Optional<Project> fetchProjectById(Integer projectId) {
+		return timed(fetchProjectById, "dao.fetchProjectById",
+				() -> repository.fetchProjectById(projectId));
+	}
+
+	@Override
+	public Optional<Integer> fetchProjectVersion(Integer projectId) {
+		return timed(fetchProjectVersion, "dao.fetchProjectVersion",
+				() -> repository.fetchProjectVersion(projectId));
+	}
+
+	@Override
+	public boolean modifyProjectDetails(Project project) {
+		return timed(modifyProjectDetails, "dao.modifyProjectDetails",
+				() -> repository.modifyProjectDetails(project));
+	}
+
+	@Override
+	public boolean deleteProject(Integer projectId) {
+		return timed(deleteProject, "dao.deleteProject", () -> repository.deleteProject(projectId));
+	}
+
+	@Override
+	public int modifyProjectDetailsBatch(Collection<Project> projects) {
+		return timed(modifyProjectDetailsBatch, "dao.modifyProjectDetailsBatch",
+				() -> repository.modifyProjectDetailsBatch(projects));
+	}
+
+	@Override
+	public int incrementActualHours(Map<Integer, BigDecimal> deltas) {
+		return timed(incrementActualHours, "dao.incrementActualHours",
+				() -> repository.incrementActualHours(deltas));
+	}
+
+	private static <T> T timed(LatencyRecorder recorder, String spanName, Supplier<T> call) {
+		long start = System.nanoTime();
+		boolean failed = true;
+
+		try(Span span = Tracer.startSpan(spanName)) {
+			T result = call.get();
+			failed = false;
+			return result;
+		}
+		finally {
+			long nanos = System.nanoTime() - start;
+
+			if(failed) {
+				recorder.recordFailure(nanos);
+			}
+			else {
+				recorder.record(nanos);
+			}
+		}
+	}
+}
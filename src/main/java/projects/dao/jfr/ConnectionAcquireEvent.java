@@ -0,0 +1,24 @@
+package projects.dao.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted by {@link projects.dao.DbConnection} for every connection it opens, including failed
+ * attempts.
+ */
+@Name("projects.dao.ConnectionAcquire")
+@Label("Connection Acquire")
+@Category({"Projects", "DAO"})
+@Description("Opening a database connection")
+public class ConnectionAcquireEvent extends Event {
+	@Label("Cursor Fetch")
+	@Description("Whether the connection reads results through server-side cursors")
+	public boolean cursorFetch;
+
+	@Label("Success")
+	public boolean success;
+}
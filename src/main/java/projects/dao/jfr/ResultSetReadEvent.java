@@ -0,0 +1,33 @@
+package projects.dao.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted when a result set from an instrumented connection is closed. The duration runs from when
+ * the result set was returned until it was closed, so it is the time spent fetching and mapping the
+ * rows.
+ */
+@Name("projects.dao.ResultSetRead")
+@Label("Result Set Read")
+@Category({"Projects", "DAO"})
+@Description("Fetching and mapping the rows of a query result")
+@StackTrace(false)
+public class ResultSetReadEvent extends Event {
+	@Label("SQL")
+	@Description("The SQL template, with ? for each parameter")
+	public String sql;
+
+	@Label("Row Count")
+	public long rowCount;
+
+	@Label("Bytes")
+	@Description("Approximate size of the column values read")
+	@DataAmount
+	public long bytes;
+}
@@ -0,0 +1,42 @@
+package projects.dao.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted for every statement execution on an instrumented connection. For a query the duration ends
+ * when the first rows are available; reading them is covered by {@link ResultSetReadEvent}.
+ */
+@Name("projects.dao.StatementExecute")
+@Label("Statement Execute")
+@Category({"Projects", "DAO"})
+@Description("Executing a SQL statement")
+public class StatementExecuteEvent extends Event {
+	@Label("SQL")
+	@Description("The SQL template, with ? for each parameter")
+	public String sql;
+
+	@Label("Method")
+	@Description("The JDBC method called, such as executeQuery or executeBatch")
+	public String method;
+
+	@Label("Row Count")
+	@Description("Rows changed by an update or batch, or -1 for a query")
+	public long rowCount;
+
+	@Label("Batch Size")
+	@Description("Statements in the batch, or 0 if it was not a batch")
+	public int batchSize;
+
+	@Label("Parameter Bytes")
+	@Description("Approximate size of the bound parameter values")
+	@DataAmount
+	public long bytes;
+
+	@Label("Success")
+	public boolean success;
+}
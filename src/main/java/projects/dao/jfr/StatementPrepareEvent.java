@@ -0,0 +1,22 @@
+package projects.dao.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted when a statement is prepared on an instrumented connection.
+ */
+@Name("projects.dao.StatementPrepare")
+@Label("Statement Prepare")
+@Category({"Projects", "DAO"})
+@Description("Preparing a SQL statement")
+@StackTrace(false)
+public class StatementPrepareEvent extends Event {
+	@Label("SQL")
+	@Description("The SQL template, with ? for each parameter")
+	public String sql;
+}
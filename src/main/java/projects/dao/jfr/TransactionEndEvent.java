@@ -0,0 +1,27 @@
+package projects.dao.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted for every commit and rollback on an instrumented connection.
+ */
+@Name("projects.dao.TransactionEnd")
+@Label("Transaction End")
+@Category({"Projects", "DAO"})
+@Description("Committing or rolling back a transaction")
+public class TransactionEndEvent extends Event {
+	@Label("Action")
+	@Description("commit or rollback")
+	public String action;
+
+	@Label("Statements")
+	@Description("Statements executed on the connection since the previous commit or rollback")
+	public int statementCount;
+
+	@Label("Success")
+	public boolean success;
+}
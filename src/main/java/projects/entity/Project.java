@@ -11,6 +11,7 @@ public class Project {
 	  private BigDecimal actualHours;
 	  private Integer difficulty;
 	  private String notes;
+	  private Integer rowVersion;
 
 	  private List<Material> materials = new LinkedList<>();
 	  private List<Step> steps = new LinkedList<>();
@@ -64,6 +65,19 @@ public class Project {
 	    this.notes = notes;
 	  }
 
+	  /**
+	   * Returns the row version, which starts at 1 and goes up by one every time the project is
+	   * changed. It is null if the version is not known, for example for a project that has not been
+	   * stored yet.
+	   */
+	  public Integer getRowVersion() {
+	    return rowVersion;
+	  }
+
+	  public void setRowVersion(Integer rowVersion) {
+	    this.rowVersion = rowVersion;
+	  }
+
 	  public List<Material> getMaterials() {
 	    return materials;
 	  }
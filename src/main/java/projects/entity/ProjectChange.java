@@ -0,0 +1,60 @@
+package projects.entity;
+
+import java.time.LocalDateTime;
+
+public class ProjectChange {
+	  private Long changeId;
+	  private Integer projectId;
+	  private String changeType;
+	  private LocalDateTime changedAt;
+	  private String payload;
+
+	  public Long getChangeId() {
+	    return changeId;
+	  }
+
+	  public void setChangeId(Long changeId) {
+	    this.changeId = changeId;
+	  }
+
+	  public Integer getProjectId() {
+	    return projectId;
+	  }
+
+	  public void setProjectId(Integer projectId) {
+	    this.projectId = projectId;
+	  }
+
+	  public String getChangeType() {
+	    return changeType;
+	  }
+
+	  public void setChangeType(String changeType) {
+	    this.changeType = changeType;
+	  }
+
+	  public LocalDateTime getChangedAt() {
+	    return changedAt;
+	  }
+
+	  public void setChangedAt(LocalDateTime changedAt) {
+	    this.changedAt = changedAt;
+	  }
+
+	  /**
+	   * Returns the project row after the change as a JSON object, or null for a delete.
+	   */
+	  public String getPayload() {
+	    return payload;
+	  }
+
+	  public void setPayload(String payload) {
+	    this.payload = payload;
+	  }
+
+	  @Override
+	  public String toString() {
+	    return "ID=" + changeId + ", projectId=" + projectId + ", changeType=" + changeType
+	        + ", changedAt=" + changedAt;
+	  }
+	}
@@ -0,0 +1,20 @@
+package projects.exception;
+
+/**
+ * Thrown when a database operation is rejected because too many operations are already in flight
+ * or waiting. The caller may retry later; nothing was sent to the database.
+ */
+public class ConcurrencyLimitException extends DbException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Create an exception with a message. The message is stored in the parent class.
+	 * 
+	 * @param message The message.
+	 */
+	public ConcurrencyLimitException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,759 @@
+package projects.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * This class reads JSON from UTF-8 bytes one token at a time, so a document is turned straight into
+ * entities without building maps and lists first. The bytes come from an {@link InputStream}, read
+ * through a buffer that is refilled as needed, or from a byte array or {@link ByteBuffer} that
+ * holds the whole input.
+ *
+ * Strings are decoded into a reusable char array, and a string of plain ASCII is copied straight
+ * from the input. A number with up to 18 digits is read as a long and a scale, so
+ * {@link #nextBigDecimal()} creates no String or BigInteger; longer numbers and numbers with an
+ * exponent are handed to the BigDecimal constructor.
+ *
+ * Commas and colons are checked and consumed by the reader. Several top-level values may follow
+ * one another, as in NDJSON; {@link #peek()} returns {@link Token#END_DOCUMENT} after the last one.
+ * Invalid JSON throws an {@link IllegalArgumentException} that gives the byte offset, and a stream
+ * that cannot be read throws an {@link UncheckedIOException}. A reader is not safe for use by more
+ * than one thread.
+ */
+public class JsonReader {
+	private static final int DEFAULT_BUFFER_SIZE = 8192;
+	private static final int MAX_DEPTH = 64;
+	private static final int MAX_FAST_DIGITS = 18;
+
+	/* What the reader is inside of, kept for each level of nesting. */
+	private static final int EMPTY_DOCUMENT = 0;
+	private static final int NONEMPTY_DOCUMENT = 1;
+	private static final int EMPTY_ARRAY = 2;
+	private static final int NONEMPTY_ARRAY = 3;
+	private static final int EMPTY_OBJECT = 4;
+	private static final int NONEMPTY_OBJECT = 5;
+	private static final int DANGLING_NAME = 6;
+
+	/**
+	 * The kinds of token the reader can be positioned at.
+	 */
+	public enum Token {
+		BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL,
+		END_DOCUMENT
+	}
+
+	private final InputStream in;
+	private byte[] buffer;
+	private int pos;
+	private int limit;
+	/* The input offset of buffer[0], for error messages. */
+	private long bufferOffset;
+
+	private final int[] stack = new int[MAX_DEPTH + 1];
+	private int depth;
+	private Token peeked;
+
+	private char[] chars = new char[64];
+
+	/* The last number read, as unscaled and scale when it fits in a long, or as text in chars. */
+	private boolean numberFits;
+	private long numberUnscaled;
+	private int numberScale;
+	private int numberLength;
+
+	/**
+	 * Create a reader that reads a stream through an 8 KB buffer.
+	 *
+	 * @param in The stream. It is not closed by the reader.
+	 */
+	public JsonReader(InputStream in) {
+		this(in, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Create a reader that reads a stream.
+	 *
+	 * @param in The stream. It is not closed by the reader.
+	 * @param bufferSize The number of bytes read from the stream at a time.
+	 */
+	public JsonReader(InputStream in, int bufferSize) {
+		this.in = Objects.requireNonNull(in);
+		this.buffer = new byte[Math.max(64, bufferSize)];
+	}
+
+	/**
+	 * Create a reader for part of a byte array. The array is read in place, so it must not change
+	 * while the reader is in use.
+	 *
+	 * @param bytes The array.
+	 * @param offset The index of the first byte.
+	 * @param length The number of bytes.
+	 */
+	public JsonReader(byte[] bytes, int offset, int length) {
+		Objects.checkFromIndexSize(offset, length, bytes.length);
+
+		this.in = null;
+		this.buffer = bytes;
+		this.pos = offset;
+		this.limit = offset + length;
+		this.bufferOffset = -offset;
+	}
+
+	/**
+	 * Create a reader for the bytes between a buffer's position and its limit. A heap buffer is read
+	 * in place; a direct buffer is copied. The buffer's position is not changed.
+	 *
+	 * @param source The buffer.
+	 */
+	public JsonReader(ByteBuffer source) {
+		this.in = null;
+
+		if(source.hasArray()) {
+			this.buffer = source.array();
+			this.pos = source.arrayOffset() + source.position();
+			this.limit = source.arrayOffset() + source.limit();
+			this.bufferOffset = -pos;
+		}
+		else {
+			this.buffer = new byte[source.remaining()];
+			source.get(source.position(), buffer);
+			this.limit = buffer.length;
+		}
+	}
+
+	/**
+	 * Returns the kind of the next token without consuming it.
+	 *
+	 * @return The token.
+	 * @throws IllegalArgumentException Thrown if the input is not valid JSON.
+	 */
+	public Token peek() {
+		if(Objects.nonNull(peeked)) {
+			return peeked;
+		}
+
+		int ch;
+
+		switch(stack[depth]) {
+			case EMPTY_DOCUMENT:
+				stack[depth] = NONEMPTY_DOCUMENT;
+				ch = nextNonWhitespace();
+				break;
+
+			case NONEMPTY_DOCUMENT:
+				ch = nextNonWhitespace();
+
+				if(ch < 0) {
+					return peeked = Token.END_DOCUMENT;
+				}
+
+				break;
+
+			case EMPTY_ARRAY:
+				stack[depth] = NONEMPTY_ARRAY;
+				ch = nextNonWhitespace();
+
+				if(ch == ']') {
+					return peeked = Token.END_ARRAY;
+				}
+
+				break;
+
+			case NONEMPTY_ARRAY:
+				ch = nextNonWhitespace();
+
+				if(ch == ']') {
+					return peeked = Token.END_ARRAY;
+				}
+
+				ch = consumeSeparator(ch, ',', "Expected ',' or ']'");
+				break;
+
+			case EMPTY_OBJECT:
+			case NONEMPTY_OBJECT:
+				ch = nextNonWhitespace();
+
+				if(ch == '}') {
+					return peeked = Token.END_OBJECT;
+				}
+
+				if(stack[depth] == NONEMPTY_OBJECT) {
+					ch = consumeSeparator(ch, ',', "Expected ',' or '}'");
+				}
+
+				if(ch != '"') {
+					throw error("Expected a property name");
+				}
+
+				stack[depth] = DANGLING_NAME;
+				return peeked = Token.NAME;
+
+			default:
+				ch = consumeSeparator(nextNonWhitespace(), ':', "Expected ':'");
+				stack[depth] = NONEMPTY_OBJECT;
+				break;
+		}
+
+		return peeked = valueToken(ch);
+	}
+
+	/**
+	 * Returns true if the current object or array has another element.
+	 */
+	public boolean hasNext() {
+		Token token = peek();
+		return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+	}
+
+	public void beginObject() {
+		open(Token.BEGIN_OBJECT, EMPTY_OBJECT);
+	}
+
+	public void endObject() {
+		close(Token.END_OBJECT);
+	}
+
+	public void beginArray() {
+		open(Token.BEGIN_ARRAY, EMPTY_ARRAY);
+	}
+
+	public void endArray() {
+		close(Token.END_ARRAY);
+	}
+
+	/**
+	 * Reads a property name.
+	 *
+	 * @return The name.
+	 */
+	public String nextName() {
+		expect(Token.NAME);
+		peeked = null;
+		return readString();
+	}
+
+	/**
+	 * Reads a string. A number or boolean is returned as its JSON text.
+	 *
+	 * @return The string.
+	 */
+	public String nextString() {
+		Token token = peek();
+
+		switch(token) {
+			case STRING:
+				peeked = null;
+				return readString();
+
+			case NUMBER:
+				readNumber();
+				return new String(chars, 0, numberLength);
+
+			case BOOLEAN:
+				return Boolean.toString(nextBoolean());
+
+			default:
+				throw error("Expected a string but was " + token);
+		}
+	}
+
+	public boolean nextBoolean() {
+		expect(Token.BOOLEAN);
+		peeked = null;
+
+		if(buffer[pos] == 't') {
+			readLiteral("true");
+			return true;
+		}
+
+		readLiteral("false");
+		return false;
+	}
+
+	public void nextNull() {
+		expect(Token.NULL);
+		peeked = null;
+		readLiteral("null");
+	}
+
+	/**
+	 * Reads a number as a decimal. A number of up to 18 digits without an exponent is read without
+	 * creating a String.
+	 *
+	 * @return The number.
+	 */
+	public BigDecimal nextBigDecimal() {
+		expect(Token.NUMBER);
+		readNumber();
+
+		if(numberFits) {
+			return BigDecimal.valueOf(numberUnscaled, numberScale);
+		}
+
+		try {
+			return new BigDecimal(chars, 0, numberLength);
+		}
+		catch(NumberFormatException e) {
+			throw error("Invalid number '" + new String(chars, 0, numberLength) + "'");
+		}
+	}
+
+	/**
+	 * Reads a whole number. A zero fraction, as in 3.0, is allowed.
+	 *
+	 * @return The number.
+	 */
+	public long nextLong() {
+		expect(Token.NUMBER);
+		readNumber();
+
+		if(numberFits && numberScale == 0) {
+			return numberUnscaled;
+		}
+
+		BigDecimal number = numberFits ? BigDecimal.valueOf(numberUnscaled, numberScale)
+				: new BigDecimal(chars, 0, numberLength);
+
+		try {
+			return number.longValueExact();
+		}
+		catch(ArithmeticException e) {
+			throw error("Expected a whole number but was " + number.toPlainString());
+		}
+	}
+
+	/**
+	 * Reads a whole number that fits in an int. A string holding the number is accepted too.
+	 *
+	 * @return The number.
+	 */
+	public int nextInt() {
+		if(peek() == Token.STRING) {
+			String text = nextString();
+
+			try {
+				return Integer.parseInt(text.strip());
+			}
+			catch(NumberFormatException e) {
+				throw error("Expected a whole number but was \"" + text + "\"");
+			}
+		}
+
+		long value = nextLong();
+
+		if(value != (int)value) {
+			throw error("The number " + value + " is too large");
+		}
+
+		return (int)value;
+	}
+
+	/**
+	 * Reads and discards the next value, with everything inside it, or the next property name and
+	 * its value.
+	 */
+	public void skipValue() {
+		Token token = peek();
+
+		switch(token) {
+			case BEGIN_OBJECT:
+				beginObject();
+
+				while(hasNext()) {
+					nextName();
+					skipValue();
+				}
+
+				endObject();
+				break;
+
+			case BEGIN_ARRAY:
+				beginArray();
+
+				while(hasNext()) {
+					skipValue();
+				}
+
+				endArray();
+				break;
+
+			case NAME:
+				nextName();
+				skipValue();
+				break;
+
+			case STRING:
+				nextString();
+				break;
+
+			case NUMBER:
+				readNumber();
+				break;
+
+			case BOOLEAN:
+				nextBoolean();
+				break;
+
+			case NULL:
+				nextNull();
+				break;
+
+			default:
+				throw error("Expected a value but was " + token);
+		}
+	}
+
+	private void open(Token token, int scope) {
+		expect(token);
+
+		if(depth == MAX_DEPTH) {
+			throw error("JSON nested deeper than " + MAX_DEPTH + " levels");
+		}
+
+		peeked = null;
+		pos++;
+		stack[++depth] = scope;
+	}
+
+	private void close(Token token) {
+		expect(token);
+		peeked = null;
+		pos++;
+		depth--;
+	}
+
+	private void expect(Token token) {
+		Token actual = peek();
+
+		if(actual != token) {
+			throw error("Expected " + token + " but was " + actual);
+		}
+	}
+
+	private Token valueToken(int ch) {
+		switch(ch) {
+			case '{':
+				return Token.BEGIN_OBJECT;
+
+			case '[':
+				return Token.BEGIN_ARRAY;
+
+			case '"':
+				return Token.STRING;
+
+			case 't':
+			case 'f':
+				return Token.BOOLEAN;
+
+			case 'n':
+				return Token.NULL;
+
+			case -1:
+				throw error("Unexpected end of JSON");
+
+			default:
+				if(ch == '-' || ch >= '0' && ch <= '9') {
+					return Token.NUMBER;
+				}
+
+				if(stack[depth] == NONEMPTY_ARRAY && ch == ']') {
+					throw error("Trailing comma");
+				}
+
+				throw error("Unexpected character '" + (char)ch + "'");
+		}
+	}
+
+	/**
+	 * Consumes a comma or colon at the current position and returns the character after it.
+	 */
+	private int consumeSeparator(int ch, char separator, String message) {
+		if(ch != separator) {
+			throw error(message);
+		}
+
+		pos++;
+		return nextNonWhitespace();
+	}
+
+	/**
+	 * Skips whitespace and returns the next byte without consuming it, or -1 at the end of the input.
+	 */
+	private int nextNonWhitespace() {
+		while(pos < limit || fill(1)) {
+			byte ch = buffer[pos];
+
+			if(ch != ' ' && ch != '\n' && ch != '\r' && ch != '\t') {
+				return ch & 0xFF;
+			}
+
+			pos++;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Reads the string that starts at the current position, which holds its opening quote.
+	 */
+	private String readString() {
+		pos++;
+
+		/* Most strings are plain ASCII and already in the buffer: copy them straight from it. */
+		for(int end = pos; end < limit; end++) {
+			byte ch = buffer[end];
+
+			if(ch == '"') {
+				String text = new String(buffer, pos, end - pos, StandardCharsets.ISO_8859_1);
+
+				pos = end + 1;
+				return text;
+			}
+
+			if(ch < 0x20 || ch == '\\') {
+				break;
+			}
+		}
+
+		int length = 0;
+
+		while(true) {
+			int ch = nextByte();
+
+			if(ch == '"') {
+				return new String(chars, 0, length);
+			}
+
+			if(length + 2 > chars.length) {
+				chars = Arrays.copyOf(chars, chars.length * 2);
+			}
+
+			if(ch == '\\') {
+				chars[length++] = readEscape();
+			}
+			else if(ch < 0x20) {
+				throw error("Unescaped control character in a string");
+			}
+			else if(ch < 0x80) {
+				chars[length++] = (char)ch;
+			}
+			else if(ch >= 0xC2 && ch < 0xE0) {
+				chars[length++] = (char)((ch & 0x1F) << 6 | continuation());
+			}
+			else if(ch >= 0xE0 && ch < 0xF0) {
+				int value = (ch & 0x0F) << 12 | continuation() << 6 | continuation();
+
+				if(value < 0x800 || Character.isSurrogate((char)value)) {
+					throw error("Invalid UTF-8");
+				}
+
+				chars[length++] = (char)value;
+			}
+			else if(ch >= 0xF0 && ch < 0xF5) {
+				int codePoint =
+						(ch & 0x07) << 18 | continuation() << 12 | continuation() << 6 | continuation();
+
+				if(codePoint < 0x10000 || codePoint > Character.MAX_CODE_POINT) {
+					throw error("Invalid UTF-8");
+				}
+
+				chars[length++] = Character.highSurrogate(codePoint);
+				chars[length++] = Character.lowSurrogate(codePoint);
+			}
+			else {
+				throw error("Invalid UTF-8");
+			}
+		}
+	}
+
+	private int continuation() {
+		int ch = nextByte();
+
+		if((ch & 0xC0) != 0x80) {
+			throw error("Invalid UTF-8");
+		}
+
+		return ch & 0x3F;
+	}
+
+	private char readEscape() {
+		int escaped = nextByte();
+
+		switch(escaped) {
+			case 'b':
+				return '\b';
+
+			case 'f':
+				return '\f';
+
+			case 'n':
+				return '\n';
+
+			case 'r':
+				return '\r';
+
+			case 't':
+				return '\t';
+
+			case '"':
+			case '\\':
+			case '/':
+				return (char)escaped;
+
+			case 'u':
+				int value = 0;
+
+				for(int digit = 0; digit < 4; digit++) {
+					int hex = Character.digit(nextByte(), 16);
+
+					if(hex < 0) {
+						throw error("Invalid unicode escape");
+					}
+
+					value = value << 4 | hex;
+				}
+
+				return (char)value;
+
+			default:
+				throw error("Invalid escape '\\" + (char)escaped + "'");
+		}
+	}
+
+	/**
+	 * Reads the number at the current position. It is kept as a long and a scale if it has at most
+	 * 18 digits and no exponent, and as text in the char array otherwise.
+	 */
+	private void readNumber() {
+		peeked = null;
+		numberLength = 0;
+
+		long unscaled = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean negative = false;
+		boolean fraction = false;
+		boolean exponent = false;
+		int ch;
+
+		while((ch = peekByte()) >= 0) {
+			if(ch >= '0' && ch <= '9') {
+				if(!exponent) {
+					/* Leading zeros add no digits, and 18 digits always fit in a long. */
+					if(unscaled != 0 || ch != '0') {
+						digits++;
+					}
+
+					unscaled = unscaled * 10 + (ch - '0');
+
+					if(fraction) {
+						scale++;
+					}
+				}
+			}
+			else if(ch == '.' && !fraction && !exponent) {
+				fraction = true;
+			}
+			else if(ch == '-' && numberLength == 0) {
+				negative = true;
+			}
+			else if(ch == 'e' || ch == 'E') {
+				exponent = true;
+			}
+			else if(!((ch == '+' || ch == '-') && exponent)) {
+				break;
+			}
+
+			if(numberLength == chars.length) {
+				chars = Arrays.copyOf(chars, chars.length * 2);
+			}
+
+			chars[numberLength++] = (char)ch;
+			pos++;
+		}
+
+		char last = chars[numberLength - 1];
+
+		if(last == '-' || last == '.' || last == '+' || last == 'e' || last == 'E') {
+			throw error("Invalid number '" + new String(chars, 0, numberLength) + "'");
+		}
+
+		numberFits = !exponent && digits <= MAX_FAST_DIGITS;
+		numberUnscaled = negative ? -unscaled : unscaled;
+		numberScale = scale;
+	}
+
+	private void readLiteral(String literal) {
+		if(!fill(literal.length())) {
+			throw error("Expected '" + literal + "'");
+		}
+
+		for(int index = 0; index < literal.length(); index++) {
+			if(buffer[pos + index] != literal.charAt(index)) {
+				throw error("Expected '" + literal + "'");
+			}
+		}
+
+		pos += literal.length();
+	}
+
+	private int peekByte() {
+		return pos < limit || fill(1) ? buffer[pos] & 0xFF : -1;
+	}
+
+	private int nextByte() {
+		if(pos == limit && !fill(1)) {
+			throw error("Unexpected end of JSON");
+		}
+
+		return buffer[pos++] & 0xFF;
+	}
+
+	/**
+	 * Makes sure the buffer holds at least the given number of bytes from the current position,
+	 * reading more from the stream if there is one.
+	 *
+	 * @return False if the input ends first.
+	 */
+	private boolean fill(int minimum) {
+		if(limit - pos >= minimum) {
+			return true;
+		}
+
+		if(Objects.isNull(in)) {
+			return false;
+		}
+
+		System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+		bufferOffset += pos;
+		limit -= pos;
+		pos = 0;
+
+		try {
+			while(limit < minimum) {
+				int read = in.read(buffer, limit, buffer.length - limit);
+
+				if(read < 0) {
+					return false;
+				}
+
+				limit += read;
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return true;
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at byte " + (bufferOffset + pos));
+	}
+}
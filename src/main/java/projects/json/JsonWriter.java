@@ -0,0 +1,492 @@
+package projects.json;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * This class writes JSON as UTF-8 bytes to an {@link OutputStream} or a {@link ByteBuffer}.
+ * Values are encoded straight into the writer's own byte buffer, which is passed on when it fills
+ * up and on {@link #flush()}; there is no {@link java.io.Writer}, no intermediate String and no
+ * per-value allocation for names, strings, integers and most decimals. Commas are added by the
+ * writer.
+ *
+ * Property names that are written again and again should be made once as a {@link Name}, which
+ * holds the encoded name and colon. A {@link BigDecimal} whose unscaled value has up to 15 digits
+ * and whose scale is 0 to 15, such as a DECIMAL(7, 2) column, is written from its digits without
+ * creating a String or a BigInteger; other decimals fall back to
+ * {@link BigDecimal#toPlainString()}.
+ *
+ * Several top-level values may be written one after another, for example one per line with
+ * {@link #newLine()} for NDJSON. If the stream cannot be written, the method that filled the buffer
+ * throws an {@link UncheckedIOException}. A writer is not safe for use by more than one thread.
+ */
+public class JsonWriter implements Flushable {
+	private static final int DEFAULT_BUFFER_SIZE = 8192;
+	private static final int MAX_DEPTH = 64;
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] MIN_LONG =
+			Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+	/* Powers of ten that are exact as doubles, for the fast BigDecimal path. */
+	private static final int MAX_FAST_SCALE = 15;
+	private static final long[] LONG_POWERS_OF_TEN = new long[MAX_FAST_SCALE + 1];
+	private static final double[] DOUBLE_POWERS_OF_TEN = new double[MAX_FAST_SCALE + 1];
+	private static final double MAX_FAST_UNSCALED = 0x1p50;
+
+	static {
+		long power = 1;
+
+		for(int scale = 0; scale <= MAX_FAST_SCALE; scale++) {
+			LONG_POWERS_OF_TEN[scale] = power;
+			DOUBLE_POWERS_OF_TEN[scale] = power;
+			power *= 10;
+		}
+	}
+
+	private final OutputStream out;
+	private final ByteBuffer target;
+	private final byte[] buffer;
+	private int pos;
+
+	/* Whether the container at each depth already holds a value, so the next one needs a comma. */
+	private final boolean[] hasValue = new boolean[MAX_DEPTH + 1];
+	private int depth;
+	private boolean afterName;
+
+	/**
+	 * Create a writer that writes to a stream through an 8 KB buffer.
+	 *
+	 * @param out The stream. It is not flushed or closed by the writer.
+	 */
+	public JsonWriter(OutputStream out) {
+		this(out, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Create a writer that writes to a stream.
+	 *
+	 * @param out The stream. It is not flushed or closed by the writer.
+	 * @param bufferSize The number of bytes collected before they are written to the stream.
+	 */
+	public JsonWriter(OutputStream out, int bufferSize) {
+		this.out = Objects.requireNonNull(out);
+		this.target = null;
+		this.buffer = new byte[Math.max(64, bufferSize)];
+	}
+
+	/**
+	 * Create a writer that puts the bytes into a buffer, starting at its position. Call
+	 * {@link #flush()} when done.
+	 *
+	 * @param target The buffer. A {@link java.nio.BufferOverflowException} is thrown if it fills up.
+	 */
+	public JsonWriter(ByteBuffer target) {
+		this.out = null;
+		this.target = Objects.requireNonNull(target);
+		this.buffer = new byte[DEFAULT_BUFFER_SIZE];
+	}
+
+	/**
+	 * A property name, encoded once with its quotes and the colon that follows it.
+	 */
+	public static final class Name {
+		private final byte[] bytes;
+
+		private Name(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Encodes a property name.
+		 *
+		 * @param name The name.
+		 * @return The encoded name.
+		 */
+		public static Name of(String name) {
+			JsonWriter encoder = new JsonWriter(OutputStream.nullOutputStream(), name.length() * 6 + 8);
+
+			encoder.writeString(name);
+			encoder.buffer[encoder.pos++] = ':';
+
+			byte[] bytes = new byte[encoder.pos];
+
+			System.arraycopy(encoder.buffer, 0, bytes, 0, encoder.pos);
+			return new Name(bytes);
+		}
+	}
+
+	public JsonWriter beginObject() {
+		return open('{');
+	}
+
+	public JsonWriter endObject() {
+		return close('}');
+	}
+
+	public JsonWriter beginArray() {
+		return open('[');
+	}
+
+	public JsonWriter endArray() {
+		return close(']');
+	}
+
+	/**
+	 * Writes a property name. The next call must write its value.
+	 *
+	 * @param name The encoded name.
+	 * @return This writer.
+	 */
+	public JsonWriter name(Name name) {
+		beforeName();
+		writeBytes(name.bytes);
+		afterName = true;
+		return this;
+	}
+
+	/**
+	 * Writes a property name that is not known in advance.
+	 *
+	 * @param name The name.
+	 * @return This writer.
+	 */
+	public JsonWriter name(String name) {
+		beforeName();
+		writeString(name);
+		ensure(1);
+		buffer[pos++] = ':';
+		afterName = true;
+		return this;
+	}
+
+	public JsonWriter nullValue() {
+		beforeValue();
+		writeBytes(NULL);
+		return this;
+	}
+
+	public JsonWriter value(boolean value) {
+		beforeValue();
+		writeBytes(value ? TRUE : FALSE);
+		return this;
+	}
+
+	public JsonWriter value(long value) {
+		beforeValue();
+		writeLong(value);
+		return this;
+	}
+
+	/**
+	 * Writes an integer, or null.
+	 */
+	public JsonWriter value(Integer value) {
+		return Objects.isNull(value) ? nullValue() : value(value.longValue());
+	}
+
+	/**
+	 * Writes a string, or null.
+	 */
+	public JsonWriter value(String value) {
+		if(Objects.isNull(value)) {
+			return nullValue();
+		}
+
+		beforeValue();
+		writeString(value);
+		return this;
+	}
+
+	/**
+	 * Writes a decimal in plain notation, never with an exponent, or null.
+	 */
+	public JsonWriter value(BigDecimal value) {
+		if(Objects.isNull(value)) {
+			return nullValue();
+		}
+
+		beforeValue();
+
+		int scale = value.scale();
+
+		if(scale >= 0 && scale <= MAX_FAST_SCALE) {
+			/*
+			 * doubleValue() divides the unscaled value by a power of ten without allocating when both are
+			 * exact doubles. Multiplying back is then off by less than a quarter while the result is below
+			 * 2^50, so rounding recovers the unscaled value exactly.
+			 */
+			double unscaled = value.doubleValue() * DOUBLE_POWERS_OF_TEN[scale];
+
+			if(Math.abs(unscaled) < MAX_FAST_UNSCALED) {
+				writeDecimal(Math.round(unscaled), scale);
+				return this;
+			}
+		}
+
+		writeAscii(value.toPlainString());
+		return this;
+	}
+
+	/**
+	 * Writes a line break between top-level values.
+	 *
+	 * @return This writer.
+	 */
+	public JsonWriter newLine() {
+		ensure(1);
+		buffer[pos++] = '\n';
+		return this;
+	}
+
+	/**
+	 * Passes the buffered bytes on to the stream or the buffer. The stream itself is not flushed.
+	 *
+	 * @throws UncheckedIOException Thrown if the stream cannot be written.
+	 */
+	@Override
+	public void flush() {
+		drain();
+	}
+
+	private JsonWriter open(char bracket) {
+		if(depth == MAX_DEPTH) {
+			throw new IllegalStateException("JSON nested deeper than " + MAX_DEPTH + " levels");
+		}
+
+		beforeValue();
+		ensure(1);
+		buffer[pos++] = (byte)bracket;
+		hasValue[++depth] = false;
+		return this;
+	}
+
+	private JsonWriter close(char bracket) {
+		if(depth == 0) {
+			throw new IllegalStateException("No JSON object or array is open");
+		}
+
+		depth--;
+		ensure(1);
+		buffer[pos++] = (byte)bracket;
+		return this;
+	}
+
+	private void beforeName() {
+		if(hasValue[depth]) {
+			ensure(1);
+			buffer[pos++] = ',';
+		}
+
+		hasValue[depth] = true;
+	}
+
+	private void beforeValue() {
+		if(afterName) {
+			afterName = false;
+			return;
+		}
+
+		if(depth > 0) {
+			beforeName();
+		}
+	}
+
+	/**
+	 * Writes a quoted string, escaping quotes, backslashes, control characters and unpaired
+	 * surrogates, and encoding everything else as UTF-8.
+	 */
+	private void writeString(String text) {
+		ensure(1);
+		buffer[pos++] = '"';
+
+		for(int index = 0; index < text.length(); index++) {
+			char ch = text.charAt(index);
+
+			/* The longest encoding of one char is a six byte \\u escape. */
+			if(pos > buffer.length - 6) {
+				drain();
+			}
+
+			if(ch < 0x80) {
+				if(ch >= 0x20 && ch != '"' && ch != '\\') {
+					buffer[pos++] = (byte)ch;
+				}
+				else {
+					writeEscape(ch);
+				}
+			}
+			else if(ch < 0x800) {
+				buffer[pos++] = (byte)(0xC0 | ch >> 6);
+				buffer[pos++] = (byte)(0x80 | ch & 0x3F);
+			}
+			else if(Character.isHighSurrogate(ch) && index + 1 < text.length()
+					&& Character.isLowSurrogate(text.charAt(index + 1))) {
+				int codePoint = Character.toCodePoint(ch, text.charAt(++index));
+
+				buffer[pos++] = (byte)(0xF0 | codePoint >> 18);
+				buffer[pos++] = (byte)(0x80 | codePoint >> 12 & 0x3F);
+				buffer[pos++] = (byte)(0x80 | codePoint >> 6 & 0x3F);
+				buffer[pos++] = (byte)(0x80 | codePoint & 0x3F);
+			}
+			else if(Character.isSurrogate(ch)) {
+				writeEscape(ch);
+			}
+			else {
+				buffer[pos++] = (byte)(0xE0 | ch >> 12);
+				buffer[pos++] = (byte)(0x80 | ch >> 6 & 0x3F);
+				buffer[pos++] = (byte)(0x80 | ch & 0x3F);
+			}
+		}
+
+		ensure(1);
+		buffer[pos++] = '"';
+	}
+
+	private void writeEscape(char ch) {
+		buffer[pos++] = '\\';
+
+		switch(ch) {
+			case '"' -> buffer[pos++] = '"';
+			case '\\' -> buffer[pos++] = '\\';
+			case '\n' -> buffer[pos++] = 'n';
+			case '\r' -> buffer[pos++] = 'r';
+			case '\t' -> buffer[pos++] = 't';
+			default -> {
+				buffer[pos++] = 'u';
+				buffer[pos++] = HEX[ch >> 12 & 0xF];
+				buffer[pos++] = HEX[ch >> 8 & 0xF];
+				buffer[pos++] = HEX[ch >> 4 & 0xF];
+				buffer[pos++] = HEX[ch & 0xF];
+			}
+		}
+	}
+
+	private void writeLong(long value) {
+		if(value == Long.MIN_VALUE) {
+			writeBytes(MIN_LONG);
+			return;
+		}
+
+		ensure(20);
+
+		if(value < 0) {
+			buffer[pos++] = '-';
+			value = -value;
+		}
+
+		writeDigits(value, digitCount(value));
+	}
+
+	/**
+	 * Writes unscaled / 10^scale in plain notation, for example 1250 with scale 2 as 12.50.
+	 */
+	private void writeDecimal(long unscaled, int scale) {
+		if(scale == 0) {
+			writeLong(unscaled);
+			return;
+		}
+
+		ensure(40);
+
+		if(unscaled < 0) {
+			buffer[pos++] = '-';
+			unscaled = -unscaled;
+		}
+
+		long power = LONG_POWERS_OF_TEN[scale];
+
+		writeDigits(unscaled / power, digitCount(unscaled / power));
+		buffer[pos++] = '.';
+		writeDigits(unscaled % power, scale);
+	}
+
+	/**
+	 * Writes a non-negative number as exactly the given number of digits, with leading zeros.
+	 */
+	private void writeDigits(long value, int digits) {
+		int end = pos + digits;
+
+		for(int index = end - 1; index >= pos; index--) {
+			buffer[index] = (byte)('0' + value % 10);
+			value /= 10;
+		}
+
+		pos = end;
+	}
+
+	private static int digitCount(long value) {
+		int digits = 1;
+
+		while(value >= 10) {
+			value /= 10;
+			digits++;
+		}
+
+		return digits;
+	}
+
+	private void writeAscii(String text) {
+		if(text.length() > buffer.length) {
+			writeBytes(text.getBytes(StandardCharsets.US_ASCII));
+			return;
+		}
+
+		ensure(text.length());
+
+		for(int index = 0; index < text.length(); index++) {
+			buffer[pos++] = (byte)text.charAt(index);
+		}
+	}
+
+	private void writeBytes(byte[] bytes) {
+		if(bytes.length > buffer.length - pos) {
+			drain();
+
+			if(bytes.length > buffer.length) {
+				passOn(bytes, bytes.length);
+				return;
+			}
+		}
+
+		System.arraycopy(bytes, 0, buffer, pos, bytes.length);
+		pos += bytes.length;
+	}
+
+	private void ensure(int bytes) {
+		if(bytes > buffer.length - pos) {
+			drain();
+		}
+	}
+
+	private void drain() {
+		passOn(buffer, pos);
+		pos = 0;
+	}
+
+	private void passOn(byte[] bytes, int length) {
+		if(length == 0) {
+			return;
+		}
+
+		if(Objects.nonNull(target)) {
+			target.put(bytes, 0, length);
+			return;
+		}
+
+		try {
+			out.write(bytes, 0, length);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,279 @@
+package projects.json;
+
+import java.math.BigDecimal;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.json.JsonReader.Token;
+import projects.json.JsonWriter.Name;
+
+/**
+ * This class writes and reads a {@link Project} with its materials, steps and categories as one
+ * JSON object, the format of the NDJSON export and import and of the REST API:
+ *
+ * <pre>
+ * {"projectId":1,"projectName":"Shelf","estimatedHours":4.50,"actualHours":null,"difficulty":2,
+ *  "notes":null,"materials":[{"materialId":1,"materialName":"Pine board","numRequired":3,
+ *  "cost":12.99}],"steps":[{"stepId":1,"stepText":"Cut","stepOrder":1}],
+ *  "categories":[{"categoryId":1,"categoryName":"Woodwork"}]}
+ * </pre>
+ *
+ * Writing goes straight from the entity getters to a {@link JsonWriter} with property names encoded
+ * once, so it allocates nothing per field. Reading fills the entities from a {@link JsonReader} as
+ * the tokens arrive. Properties the reader does not know are skipped, a missing list is read as an
+ * empty one, and a category may also be given as a plain name.
+ */
+public class ProjectJsonCodec {
+	private static final Name PROJECT_ID = Name.of("projectId");
+	private static final Name PROJECT_NAME = Name.of("projectName");
+	private static final Name ESTIMATED_HOURS = Name.of("estimatedHours");
+	private static final Name ACTUAL_HOURS = Name.of("actualHours");
+	private static final Name DIFFICULTY = Name.of("difficulty");
+	private static final Name NOTES = Name.of("notes");
+	private static final Name MATERIALS = Name.of("materials");
+	private static final Name MATERIAL_ID = Name.of("materialId");
+	private static final Name MATERIAL_NAME = Name.of("materialName");
+	private static final Name NUM_REQUIRED = Name.of("numRequired");
+	private static final Name COST = Name.of("cost");
+	private static final Name STEPS = Name.of("steps");
+	private static final Name STEP_ID = Name.of("stepId");
+	private static final Name STEP_TEXT = Name.of("stepText");
+	private static final Name STEP_ORDER = Name.of("stepOrder");
+	private static final Name CATEGORIES = Name.of("categories");
+	private static final Name CATEGORY_ID = Name.of("categoryId");
+	private static final Name CATEGORY_NAME = Name.of("categoryName");
+
+	private ProjectJsonCodec() {
+	}
+
+	/**
+	 * Writes a project as one JSON object.
+	 *
+	 * @param project The project.
+	 * @param out The writer.
+	 */
+	public static void writeProject(Project project, JsonWriter out) {
+		out.beginObject();
+		out.name(PROJECT_ID).value(project.getProjectId());
+		out.name(PROJECT_NAME).value(project.getProjectName());
+		out.name(ESTIMATED_HOURS).value(project.getEstimatedHours());
+		out.name(ACTUAL_HOURS).value(project.getActualHours());
+		out.name(DIFFICULTY).value(project.getDifficulty());
+		out.name(NOTES).value(project.getNotes());
+
+		out.name(MATERIALS).beginArray();
+
+		for(Material material : project.getMaterials()) {
+			writeMaterial(material, out);
+		}
+
+		out.endArray();
+		out.name(STEPS).beginArray();
+
+		for(Step step : project.getSteps()) {
+			writeStep(step, out);
+		}
+
+		out.endArray();
+		out.name(CATEGORIES).beginArray();
+
+		for(Category category : project.getCategories()) {
+			writeCategory(category, out);
+		}
+
+		out.endArray();
+		out.endObject();
+	}
+
+	public static void writeMaterial(Material material, JsonWriter out) {
+		out.beginObject();
+		out.name(MATERIAL_ID).value(material.getMaterialId());
+		out.name(MATERIAL_NAME).value(material.getMaterialName());
+		out.name(NUM_REQUIRED).value(material.getNumRequired());
+		out.name(COST).value(material.getCost());
+		out.endObject();
+	}
+
+	public static void writeStep(Step step, JsonWriter out) {
+		out.beginObject();
+		out.name(STEP_ID).value(step.getStepId());
+		out.name(STEP_TEXT).value(step.getStepText());
+		out.name(STEP_ORDER).value(step.getStepOrder());
+		out.endObject();
+	}
+
+	public static void writeCategory(Category category, JsonWriter out) {
+		out.beginObject();
+		out.name(CATEGORY_ID).value(category.getCategoryId());
+		out.name(CATEGORY_NAME).value(category.getCategoryName());
+		out.endObject();
+	}
+
+	/**
+	 * Reads a project written by {@link #writeProject(Project, JsonWriter)}, row IDs included.
+	 *
+	 * @param in The reader, positioned at the start of the object.
+	 * @return The project.
+	 * @throws IllegalArgumentException Thrown if the JSON is not valid or a value has the wrong type.
+	 */
+	public static Project readProject(JsonReader in) {
+		Project project = new Project();
+
+		in.beginObject();
+
+		while(in.hasNext()) {
+			switch(in.nextName()) {
+				case "projectId" -> project.setProjectId(readInteger(in));
+				case "projectName" -> project.setProjectName(readString(in));
+				case "estimatedHours" -> project.setEstimatedHours(readDecimal(in));
+				case "actualHours" -> project.setActualHours(readDecimal(in));
+				case "difficulty" -> project.setDifficulty(readInteger(in));
+				case "notes" -> project.setNotes(readString(in));
+
+				case "materials" -> {
+					if(beginList(in)) {
+						while(in.hasNext()) {
+							project.getMaterials().add(readMaterial(in));
+						}
+
+						in.endArray();
+					}
+				}
+
+				case "steps" -> {
+					if(beginList(in)) {
+						while(in.hasNext()) {
+							project.getSteps().add(readStep(in));
+						}
+
+						in.endArray();
+					}
+				}
+
+				case "categories" -> {
+					if(beginList(in)) {
+						while(in.hasNext()) {
+							project.getCategories().add(readCategory(in));
+						}
+
+						in.endArray();
+					}
+				}
+
+				default -> in.skipValue();
+			}
+		}
+
+		in.endObject();
+
+		return project;
+	}
+
+	public static Material readMaterial(JsonReader in) {
+		Material material = new Material();
+
+		in.beginObject();
+
+		while(in.hasNext()) {
+			switch(in.nextName()) {
+				case "materialId" -> material.setMaterialId(readInteger(in));
+				case "materialName" -> material.setMaterialName(readString(in));
+				case "numRequired" -> material.setNumRequired(readInteger(in));
+				case "cost" -> material.setCost(readDecimal(in));
+				default -> in.skipValue();
+			}
+		}
+
+		in.endObject();
+
+		return material;
+	}
+
+	public static Step readStep(JsonReader in) {
+		Step step = new Step();
+
+		in.beginObject();
+
+		while(in.hasNext()) {
+			switch(in.nextName()) {
+				case "stepId" -> step.setStepId(readInteger(in));
+				case "stepText" -> step.setStepText(readString(in));
+				case "stepOrder" -> step.setStepOrder(readInteger(in));
+				default -> in.skipValue();
+			}
+		}
+
+		in.endObject();
+
+		return step;
+	}
+
+	/**
+	 * Reads a category given as an object or as a plain name.
+	 */
+	public static Category readCategory(JsonReader in) {
+		Category category = new Category();
+
+		if(in.peek() != Token.BEGIN_OBJECT) {
+			category.setCategoryName(readString(in));
+			return category;
+		}
+
+		in.beginObject();
+
+		while(in.hasNext()) {
+			switch(in.nextName()) {
+				case "categoryId" -> category.setCategoryId(readInteger(in));
+				case "categoryName" -> category.setCategoryName(readString(in));
+				default -> in.skipValue();
+			}
+		}
+
+		in.endObject();
+
+		return category;
+	}
+
+	/**
+	 * Begins an array, or consumes a null in its place.
+	 *
+	 * @return False if the value was null.
+	 */
+	private static boolean beginList(JsonReader in) {
+		if(in.peek() == Token.NULL) {
+			in.nextNull();
+			return false;
+		}
+
+		in.beginArray();
+		return true;
+	}
+
+	private static String readString(JsonReader in) {
+		if(in.peek() == Token.NULL) {
+			in.nextNull();
+			return null;
+		}
+
+		return in.nextString();
+	}
+
+	private static Integer readInteger(JsonReader in) {
+		if(in.peek() == Token.NULL) {
+			in.nextNull();
+			return null;
+		}
+
+		return in.nextInt();
+	}
+
+	private static BigDecimal readDecimal(JsonReader in) {
+		if(in.peek() == Token.NULL) {
+			in.nextNull();
+			return null;
+		}
+
+		return in.nextBigDecimal();
+	}
+}
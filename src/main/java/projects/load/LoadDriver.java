@@ -0,0 +1,372 @@
+package projects.load;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.random.RandomGenerator;
+import projects.dao.InMemoryProjectRepository;
+import projects.entity.Project;
+import projects.metrics.LatencyHistogram;
+import projects.service.ProjectService;
+
+/**
+ * This class drives a mix of {@link ProjectService} operations at the service and reports the
+ * throughput and the p50, p99 and p999 latency of each operation. Projects are picked with a Zipfian
+ * distribution over a shuffled list of the project IDs, so a few projects take most of the traffic
+ * without those projects all being the oldest ones.
+ *
+ * Two workload models are supported. In the closed model a fixed number of clients each issue an
+ * operation, wait for it, pause for the think time and repeat, so the offered load falls when the
+ * service slows down. In the open model operations arrive at a fixed average rate with exponentially
+ * distributed gaps, whether or not earlier operations have finished. Each open-model latency is
+ * measured from the moment the operation was due to start, not from when it was actually started, so
+ * that a stall in the service is reported rather than hidden (coordinated omission). Every operation
+ * runs on its own virtual thread.
+ *
+ * Run it with {@code java projects.load.LoadDriver} and these system properties:
+ * <ul>
+ * <li>{@code projects.load.mix}: operation weights, for example
+ * {@code read=80,category=5,update=10,increment=5} (the default). See {@link LoadOperation}.</li>
+ * <li>{@code projects.load.model}: {@code closed} (the default) or {@code open},</li>
+ * <li>{@code projects.load.clients}: closed-model clients (16),</li>
+ * <li>{@code projects.load.thinkMillis}: closed-model pause between operations (0),</li>
+ * <li>{@code projects.load.rate}: open-model operations per second (1000),</li>
+ * <li>{@code projects.load.maxInFlight}: open-model operations running at once before new arrivals are
+ * dropped and counted (10,000),</li>
+ * <li>{@code projects.load.warmupSeconds} and {@code projects.load.seconds}: the unrecorded warmup
+ * and the measured run (10 and 60),</li>
+ * <li>{@code projects.load.projectTheta}: the Zipfian skew of the project popularity (0.99),</li>
+ * <li>{@code projects.load.seed}: the seed for the project shuffle (42).</li>
+ * </ul>
+ * With {@code projects.repository=memory} the driver first fills an in-memory repository with
+ * {@code projects.generate.projects} projects (10,000 here) from {@link ProjectDataGenerator};
+ * otherwise it loads the project IDs from MySQL.
+ */
+public class LoadDriver {
+	private static final String DEFAULT_MIX = "read=80,category=5,update=10,increment=5";
+
+	/**
+	 * How operations are issued.
+	 */
+	public enum Model {
+		/** A fixed number of clients, each waiting for its previous operation. */
+		CLOSED,
+		/** Arrivals at a fixed average rate, independent of completions. */
+		OPEN
+	}
+
+	private final ProjectService projectService;
+	private final int[] projectIds;
+	private final ZipfianGenerator projectPicker;
+	private final ZipfianGenerator categoryPicker;
+	private final LoadOperation[] operations;
+	private final int[] cumulativeWeights;
+	private final Map<LoadOperation, LatencyHistogram> latencies = new EnumMap<>(LoadOperation.class);
+	private final Map<LoadOperation, LongAdder> errors = new EnumMap<>(LoadOperation.class);
+	private final LongAdder dropped = new LongAdder();
+
+	private volatile boolean running;
+	private volatile boolean measuring;
+
+	/**
+	 * Create a driver.
+	 *
+	 * @param projectService The service to drive.
+	 * @param projectIds The IDs of the projects to read and update. They are shuffled with the seed
+	 *        before popularity ranks are assigned.
+	 * @param categories The number of categories, named as {@link ProjectDataGenerator} names them.
+	 * @param mix The weight of each operation. Operations that are missing or weigh zero are not run.
+	 * @param projectTheta The Zipfian skew of the project and category popularity.
+	 * @param seed The seed for the project shuffle.
+	 */
+	public LoadDriver(ProjectService projectService, int[] projectIds, int categories,
+			Map<LoadOperation, Integer> mix, double projectTheta, long seed) {
+		if(projectIds.length == 0) {
+			throw new IllegalArgumentException("There are no projects to drive load against.");
+		}
+
+		this.projectService = projectService;
+		this.projectIds = projectIds.clone();
+		this.projectPicker = new ZipfianGenerator(projectIds.length, projectTheta);
+		this.categoryPicker = new ZipfianGenerator(Math.max(1, categories), projectTheta);
+
+		SplittableRandom random = new SplittableRandom(seed);
+
+		for(int pos = this.projectIds.length - 1; pos > 0; pos--) {
+			int other = random.nextInt(pos + 1);
+			int id = this.projectIds[pos];
+
+			this.projectIds[pos] = this.projectIds[other];
+			this.projectIds[other] = id;
+		}
+
+		List<LoadOperation> weighted = new ArrayList<>();
+		List<Integer> cumulative = new ArrayList<>();
+		int total = 0;
+
+		for(LoadOperation operation : LoadOperation.values()) {
+			int weight = mix.getOrDefault(operation, 0);
+
+			if(weight < 0) {
+				throw new IllegalArgumentException("The weight of " + operation + " is negative.");
+			}
+
+			if(weight > 0) {
+				total += weight;
+				weighted.add(operation);
+				cumulative.add(total);
+			}
+
+			latencies.put(operation, new LatencyHistogram());
+			errors.put(operation, new LongAdder());
+		}
+
+		if(weighted.isEmpty()) {
+			throw new IllegalArgumentException("The operation mix is empty.");
+		}
+
+		this.operations = weighted.toArray(LoadOperation[]::new);
+		this.cumulativeWeights = cumulative.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	ProjectService getProjectService() {
+		return projectService;
+	}
+
+	int pickProjectId(RandomGenerator random) {
+		return projectIds[(int)projectPicker.next(random)];
+	}
+
+	String pickCategoryName(RandomGenerator random) {
+		return "Category " + (categoryPicker.next(random) + 1);
+	}
+
+	/**
+	 * Parses an operation mix such as {@code read=80,update=20}. Operation names are not case
+	 * sensitive.
+	 *
+	 * @param mix The mix.
+	 * @return The weight of each operation named.
+	 */
+	public static Map<LoadOperation, Integer> parseMix(String mix) {
+		Map<LoadOperation, Integer> weights = new EnumMap<>(LoadOperation.class);
+
+		for(String entry : mix.split(",")) {
+			String[] parts = entry.split("=");
+
+			if(parts.length != 2) {
+				throw new IllegalArgumentException("Invalid operation mix entry \"" + entry + "\".");
+			}
+
+			weights.put(LoadOperation.valueOf(parts[0].trim().toUpperCase()),
+					Integer.parseInt(parts[1].trim()));
+		}
+
+		return weights;
+	}
+
+	/**
+	 * Runs the load and prints a report. Latencies and errors are only counted after the warmup.
+	 *
+	 * @param model The workload model.
+	 * @param clients The number of closed-model clients.
+	 * @param thinkMillis The closed-model pause between operations.
+	 * @param rate The open-model arrivals per second.
+	 * @param maxInFlight The most open-model operations running at once.
+	 * @param warmupSeconds Seconds to run before counting.
+	 * @param seconds Seconds to count.
+	 */
+	public void run(Model model, int clients, long thinkMillis, double rate, int maxInFlight,
+			long warmupSeconds, long seconds) {
+		long start = System.nanoTime();
+		long measureStart = start + warmupSeconds * 1_000_000_000L;
+		long end = measureStart + seconds * 1_000_000_000L;
+
+		running = true;
+		measuring = warmupSeconds <= 0;
+
+		try(ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			if(model == Model.CLOSED) {
+				for(int client = 0; client < clients; client++) {
+					executor.execute(() -> runClient(thinkMillis));
+				}
+
+				waitUntil(measureStart);
+				measuring = true;
+				waitUntil(end);
+				running = false;
+			}
+			else {
+				runArrivals(executor, rate, maxInFlight, measureStart, end);
+			}
+		}
+
+		long elapsed = Math.max(1, System.nanoTime() - Math.max(start, measureStart));
+
+		report(model, elapsed);
+	}
+
+	private void runClient(long thinkMillis) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+
+		while(running) {
+			LoadOperation operation = pickOperation(random);
+			long start = System.nanoTime();
+
+			execute(operation, random, start);
+
+			if(thinkMillis > 0) {
+				LockSupport.parkNanos(thinkMillis * 1_000_000);
+			}
+		}
+	}
+
+	/**
+	 * Issues operations at exponentially distributed intervals. When the schedule falls behind, the
+	 * operations that are due are issued at once, each keeping its scheduled start time.
+	 */
+	private void runArrivals(ExecutorService executor, double rate, int maxInFlight, long measureStart,
+			long end) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Semaphore inFlight = new Semaphore(maxInFlight);
+		double meanGapNanos = 1_000_000_000 / rate;
+		long due = System.nanoTime();
+
+		while(due < end) {
+			waitUntil(due);
+
+			if(!measuring && due >= measureStart) {
+				measuring = true;
+			}
+
+			LoadOperation operation = pickOperation(random);
+			long scheduled = due;
+
+			if(inFlight.tryAcquire()) {
+				executor.execute(() -> {
+					try {
+						execute(operation, ThreadLocalRandom.current(), scheduled);
+					}
+					finally {
+						inFlight.release();
+					}
+				});
+			}
+			else if(measuring) {
+				dropped.increment();
+			}
+
+			due += (long)(-Math.log(1 - random.nextDouble()) * meanGapNanos);
+		}
+
+		running = false;
+	}
+
+	private void execute(LoadOperation operation, RandomGenerator random, long start) {
+		try {
+			operation.run(this, random);
+
+			if(measuring) {
+				latencies.get(operation).record(System.nanoTime() - start);
+			}
+		}
+		catch(RuntimeException e) {
+			if(measuring) {
+				errors.get(operation).increment();
+			}
+		}
+	}
+
+	private LoadOperation pickOperation(RandomGenerator random) {
+		int ticket = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+
+		for(int pos = 0; pos < cumulativeWeights.length; pos++) {
+			if(ticket < cumulativeWeights[pos]) {
+				return operations[pos];
+			}
+		}
+
+		return operations[operations.length - 1];
+	}
+
+	private static void waitUntil(long deadline) {
+		long remaining;
+
+		while((remaining = deadline - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(remaining);
+		}
+	}
+
+	private void report(Model model, long elapsedNanos) {
+		double seconds = elapsedNanos / 1e9;
+
+		System.out.println();
+		System.out.printf("%s model, %.1f s measured, %,d projects%n", model, seconds, projectIds.length);
+		System.out.printf("%-10s %10s %8s %10s %9s %9s %9s %9s%n", "Operation", "Count", "Errors", "Ops/s",
+				"p50 ms", "p99 ms", "p999 ms", "max ms");
+
+		for(LoadOperation operation : operations) {
+			LatencyHistogram histogram = latencies.get(operation);
+
+			System.out.printf("%-10s %,10d %,8d %,10.1f %9.3f %9.3f %9.3f %9.3f%n", operation,
+					histogram.getCount(), errors.get(operation).sum(), histogram.getCount() / seconds,
+					millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+					millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMax()));
+		}
+
+		if(model == Model.OPEN) {
+			System.out.printf("Dropped arrivals: %,d%n", dropped.sum());
+		}
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+
+	/**
+	 * Runs the driver. See the class comment for the system properties.
+	 *
+	 * @param args Unused.
+	 */
+	public static void main(String[] args) {
+		ProjectService projectService;
+		int[] projectIds;
+
+		if("memory".equals(System.getProperty("projects.repository"))) {
+			InMemoryProjectRepository repository = new InMemoryProjectRepository();
+			long count = Long.getLong("projects.generate.projects", 10_000);
+
+			ProjectDataGenerator.fromSystemProperties().generateInto(count, repository);
+			projectService = ProjectService.create(repository);
+		}
+		else {
+			projectService = ProjectService.create();
+		}
+
+		projectIds = projectService.fetchAllProjects().stream().mapToInt(Project::getProjectId).toArray();
+
+		LoadDriver driver = new LoadDriver(projectService, projectIds,
+				Integer.getInteger("projects.generate.categories", 100),
+				parseMix(System.getProperty("projects.load.mix", DEFAULT_MIX)),
+				Double.parseDouble(System.getProperty("projects.load.projectTheta", "0.99")),
+				Long.getLong("projects.load.seed", 42));
+
+		driver.run(Model.valueOf(System.getProperty("projects.load.model", "closed").toUpperCase()),
+				Integer.getInteger("projects.load.clients", 16),
+				Long.getLong("projects.load.thinkMillis", 0),
+				Double.parseDouble(System.getProperty("projects.load.rate", "1000")),
+				Integer.getInteger("projects.load.maxInFlight", 10_000),
+				Long.getLong("projects.load.warmupSeconds", 10),
+				Long.getLong("projects.load.seconds", 60));
+
+		System.exit(0);
+	}
+}
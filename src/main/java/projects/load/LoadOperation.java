@@ -0,0 +1,78 @@
+package projects.load;
+
+import java.math.BigDecimal;
+import java.util.random.RandomGenerator;
+import projects.entity.Project;
+import projects.service.ProjectService;
+
+/**
+ * The {@link ProjectService} operations that {@link LoadDriver} can issue. Projects and categories are
+ * picked by the driver's popularity distributions.
+ */
+public enum LoadOperation {
+	/** {@link ProjectService#fetchProjectById(Integer)} of a popular project. */
+	READ {
+		@Override
+		void run(LoadDriver driver, RandomGenerator random) {
+			driver.getProjectService().fetchProjectById(driver.pickProjectId(random));
+		}
+	},
+
+	/** {@link ProjectService#fetchProjectsByCategory(String)} of a popular category. */
+	CATEGORY {
+		@Override
+		void run(LoadDriver driver, RandomGenerator random) {
+			driver.getProjectService().fetchProjectsByCategory(driver.pickCategoryName(random));
+		}
+	},
+
+	/** {@link ProjectService#fetchAllProjects()}. This reads every project, so keep its share small. */
+	LIST {
+		@Override
+		void run(LoadDriver driver, RandomGenerator random) {
+			driver.getProjectService().fetchAllProjects();
+		}
+	},
+
+	/** {@link ProjectService#modifyProjectDetails(Project)} of a popular project. */
+	UPDATE {
+		@Override
+		void run(LoadDriver driver, RandomGenerator random) {
+			int projectId = driver.pickProjectId(random);
+			Project project = new Project();
+
+			project.setProjectId(projectId);
+			project.setProjectName("Load test project " + projectId);
+			project.setEstimatedHours(BigDecimal.valueOf(random.nextInt(100, 20000), 2));
+			project.setActualHours(BigDecimal.valueOf(random.nextInt(100, 25000), 2));
+			project.setDifficulty(random.nextInt(1, 6));
+			project.setNotes("Updated by the load driver");
+
+			driver.getProjectService().modifyProjectDetails(project);
+		}
+	},
+
+	/** {@link ProjectService#incrementActualHours(Integer, BigDecimal)} of a popular project. */
+	INCREMENT {
+		@Override
+		void run(LoadDriver driver, RandomGenerator random) {
+			driver.getProjectService().incrementActualHours(driver.pickProjectId(random),
+					BigDecimal.valueOf(25, 2));
+		}
+	},
+
+	/** {@link ProjectService#addProject(Project)} of a new project with no details. */
+	INSERT {
+		@Override
+		void run(LoadDriver driver, RandomGenerator random) {
+			Project project = new Project();
+
+			project.setProjectName("Load test insert " + random.nextInt(1_000_000));
+			project.setDifficulty(random.nextInt(1, 6));
+
+			driver.getProjectService().addProject(project);
+		}
+	};
+
+	abstract void run(LoadDriver driver, RandomGenerator random);
+}
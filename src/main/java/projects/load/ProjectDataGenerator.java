@@ -0,0 +1,237 @@
+package projects.load;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import projects.dao.ProjectImportDao;
+import projects.dao.ProjectRepository;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.exception.DbException;
+
+/**
+ * This class fills the projects schema with synthetic projects for capacity planning. Each project
+ * gets a uniformly distributed number of materials and steps and one to three categories. The
+ * categories are picked with a Zipfian distribution, so a few categories hold most of the projects
+ * as they do in real data. The same seed always produces the same projects.
+ *
+ * Projects are generated on a background thread while the caller writes the previous batch. When
+ * writing to MySQL, each batch is one transaction of multi-row inserts through
+ * {@link ProjectImportDao#insertProjects(List, String, long)}.
+ *
+ * Run it with {@code java projects.load.ProjectDataGenerator} and these system properties:
+ * <ul>
+ * <li>{@code projects.generate.projects}: the number of projects (1,000,000),</li>
+ * <li>{@code projects.generate.minChildren} and {@code projects.generate.maxChildren}: the range of
+ * the number of materials and of steps per project (5 to 50),</li>
+ * <li>{@code projects.generate.categories}: the number of distinct categories (100),</li>
+ * <li>{@code projects.generate.categoryTheta}: the Zipfian skew of the categories (0.99),</li>
+ * <li>{@code projects.generate.batchSize}: projects per transaction (500),</li>
+ * <li>{@code projects.generate.seed}: the random seed (42).</li>
+ * </ul>
+ */
+public class ProjectDataGenerator {
+	private static final String[] VERBS = {"Build", "Repair", "Paint", "Install", "Refinish", "Plant"};
+	private static final String[] THINGS = {"bookcase", "deck", "fence", "shed", "cabinet", "garden",
+			"workbench", "birdhouse", "bench", "shelf"};
+
+	private final int minChildren;
+	private final int maxChildren;
+	private final int categories;
+	private final ZipfianGenerator categoryPicker;
+	private final long seed;
+
+	/**
+	 * Create a generator.
+	 *
+	 * @param minChildren The fewest materials, and the fewest steps, of a project.
+	 * @param maxChildren The most materials, and the most steps, of a project.
+	 * @param categories The number of distinct categories.
+	 * @param categoryTheta The Zipfian skew of the category popularity.
+	 * @param seed The random seed.
+	 */
+	public ProjectDataGenerator(int minChildren, int maxChildren, int categories,
+			double categoryTheta, long seed) {
+		if(minChildren < 0 || maxChildren < minChildren) {
+			throw new IllegalArgumentException("Invalid child range " + minChildren + " to " + maxChildren);
+		}
+
+		this.minChildren = minChildren;
+		this.maxChildren = maxChildren;
+		this.categories = categories;
+		this.categoryPicker = new ZipfianGenerator(categories, categoryTheta);
+		this.seed = seed;
+	}
+
+	/**
+	 * Create a generator from the {@code projects.generate.*} system properties.
+	 */
+	public static ProjectDataGenerator fromSystemProperties() {
+		return new ProjectDataGenerator(Integer.getInteger("projects.generate.minChildren", 5),
+				Integer.getInteger("projects.generate.maxChildren", 50),
+				Integer.getInteger("projects.generate.categories", 100),
+				Double.parseDouble(System.getProperty("projects.generate.categoryTheta", "0.99")),
+				Long.getLong("projects.generate.seed", 42));
+	}
+
+	/**
+	 * Generates projects and passes them to the writer in batches. Generation runs one batch ahead of
+	 * the writer on a background thread.
+	 *
+	 * @param count The number of projects.
+	 * @param batchSize The number of projects in each batch.
+	 * @param writer Stores a batch. It is called on the caller's thread.
+	 * @return The number of projects generated.
+	 */
+	public long generate(long count, int batchSize, Consumer<List<Project>> writer) {
+		BlockingQueue<List<Project>> batches = new ArrayBlockingQueue<>(2);
+		Thread producer = new Thread(() -> produce(count, batchSize, batches), "project-generator");
+
+		producer.setDaemon(true);
+		producer.start();
+
+		long written = 0;
+
+		try {
+			while(written < count) {
+				List<Project> batch = batches.poll(100, TimeUnit.MILLISECONDS);
+
+				if(Objects.isNull(batch)) {
+					if(!producer.isAlive()) {
+						throw new IllegalStateException("The project generator thread stopped early.");
+					}
+
+					continue;
+				}
+
+				writer.accept(batch);
+				written += batch.size();
+			}
+
+			return written;
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DbException("Interrupted while generating projects.");
+		}
+		finally {
+			producer.interrupt();
+		}
+	}
+
+	/**
+	 * Stores generated projects in a repository, one at a time. The in-memory repository keeps the
+	 * materials, steps and categories of each project.
+	 *
+	 * @param count The number of projects.
+	 * @param repository The repository.
+	 * @return The number of projects generated.
+	 */
+	public long generateInto(long count, ProjectRepository repository) {
+		return generate(count, 1000, batch -> batch.forEach(repository::insertProject));
+	}
+
+	private void produce(long count, int batchSize, BlockingQueue<List<Project>> batches) {
+		SplittableRandom random = new SplittableRandom(seed);
+
+		try {
+			for(long start = 0; start < count; start += batchSize) {
+				int size = (int)Math.min(batchSize, count - start);
+				List<Project> batch = new ArrayList<>(size);
+
+				for(int pos = 0; pos < size; pos++) {
+					batch.add(generateProject(random, start + pos + 1));
+				}
+
+				batches.put(batch);
+			}
+		}
+		catch(InterruptedException e) {
+			/* The writer failed or finished; stop generating. */
+		}
+	}
+
+	private Project generateProject(SplittableRandom random, long number) {
+		Project project = new Project();
+		String thing = THINGS[random.nextInt(THINGS.length)];
+
+		project.setProjectName(VERBS[random.nextInt(VERBS.length)] + " a " + thing + " #" + number);
+		project.setEstimatedHours(hours(random, 1, 200));
+		project.setActualHours(random.nextInt(3) == 0 ? null : hours(random, 1, 250));
+		project.setDifficulty(random.nextInt(1, 6));
+		project.setNotes("Generated " + thing + " project " + number);
+
+		int materials = random.nextInt(minChildren, maxChildren + 1);
+
+		for(int pos = 1; pos <= materials; pos++) {
+			Material material = new Material();
+
+			material.setMaterialName(thing + " material " + pos);
+			material.setNumRequired(random.nextInt(1, 25));
+			material.setCost(hours(random, 0, 500));
+			project.getMaterials().add(material);
+		}
+
+		int steps = random.nextInt(minChildren, maxChildren + 1);
+
+		for(int pos = 1; pos <= steps; pos++) {
+			Step step = new Step();
+
+			step.setStepText("Step " + pos + ": work on the " + thing);
+			step.setStepOrder(pos);
+			project.getSteps().add(step);
+		}
+
+		int categoryCount = Math.min(categories, random.nextInt(1, 4));
+
+		while(project.getCategories().size() < categoryCount) {
+			String name = "Category " + (categoryPicker.next(random) + 1);
+			boolean duplicate = project.getCategories().stream()
+					.anyMatch(category -> category.getCategoryName().equals(name));
+
+			if(!duplicate) {
+				Category category = new Category();
+
+				category.setCategoryName(name);
+				project.getCategories().add(category);
+			}
+		}
+
+		return project;
+	}
+
+	/**
+	 * Returns a random DECIMAL(7, 2) value between the bounds, in quarter hours.
+	 */
+	private static BigDecimal hours(SplittableRandom random, int min, int max) {
+		return BigDecimal.valueOf(random.nextLong(min * 4L, max * 4L + 1) * 25, 2);
+	}
+
+	/**
+	 * Fills the MySQL projects schema. See the class comment for the system properties.
+	 *
+	 * @param args Unused.
+	 */
+	public static void main(String[] args) {
+		long count = Long.getLong("projects.generate.projects", 1_000_000);
+		int batchSize = Integer.getInteger("projects.generate.batchSize", 500);
+		ProjectImportDao importDao = new ProjectImportDao();
+		long start = System.nanoTime();
+
+		long written = fromSystemProperties().generate(count, batchSize,
+				batch -> importDao.insertProjects(batch, null, 0));
+
+		long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+		System.out.println("Generated " + written + " projects in " + millis + " ms ("
+				+ written * 1000 / millis + " projects/s).");
+	}
+}
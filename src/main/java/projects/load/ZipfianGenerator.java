@@ -0,0 +1,78 @@
+package projects.load;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * This class picks ranks from 0 to n - 1 with a Zipfian distribution: rank 0 is the most popular,
+ * and the popularity of rank k falls off as 1 / (k + 1)^theta. It uses the method of Gray et al.,
+ * "Quickly Generating Billion-Record Synthetic Databases", which needs one pass over n when the
+ * generator is created and then a constant amount of work per pick.
+ *
+ * The generator holds no mutable state, so one instance may be shared by any number of threads, each
+ * supplying its own random source.
+ */
+public class ZipfianGenerator {
+	private final long items;
+	private final double zetan;
+	private final double alpha;
+	private final double eta;
+	private final double halfPowTheta;
+
+	/**
+	 * Create a generator.
+	 *
+	 * @param items The number of ranks.
+	 * @param theta The skew, greater than 0 and less than 1. Higher is more skewed; YCSB uses 0.99.
+	 */
+	public ZipfianGenerator(long items, double theta) {
+		if(items < 1) {
+			throw new IllegalArgumentException("There must be at least one item.");
+		}
+
+		if(theta <= 0 || theta >= 1) {
+			throw new IllegalArgumentException("theta must be between 0 and 1, exclusive.");
+		}
+
+		this.items = items;
+		this.zetan = zeta(items, theta);
+		this.alpha = 1 / (1 - theta);
+		this.halfPowTheta = Math.pow(0.5, theta);
+		this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta(2, theta) / zetan);
+	}
+
+	public long getItems() {
+		return items;
+	}
+
+	/**
+	 * Returns the next rank.
+	 *
+	 * @param random The random source.
+	 * @return A rank from 0 to items - 1.
+	 */
+	public long next(RandomGenerator random) {
+		double u = random.nextDouble();
+		double uz = u * zetan;
+
+		if(uz < 1) {
+			return 0;
+		}
+
+		if(uz < 1 + halfPowTheta) {
+			return Math.min(1, items - 1);
+		}
+
+		long rank = (long)(items * Math.pow(eta * u - eta + 1, alpha));
+		return Math.min(rank, items - 1);
+	}
+
+	private static double zeta(long n, double theta) {
+		double sum = 0;
+
+		for(long i = 1; i <= n; i++) {
+			sum += 1 / Math.pow(i, theta);
+		}
+
+		return sum;
+	}
+}
@@ -0,0 +1,8 @@
+package projects.log;
+
+/**
+ * The severity of a log event. A logger writes the events at or above its level.
+ */
+public enum Level {
+	TRACE, DEBUG, INFO, WARN, ERROR, OFF;
+}
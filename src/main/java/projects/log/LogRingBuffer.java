@@ -0,0 +1,97 @@
+package projects.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is a bounded queue of log events for any number of producers and one consumer, after
+ * Dmitry Vyukov's bounded MPMC queue. Each slot carries a sequence number that tells a producer
+ * whether the slot is free for its turn and tells the consumer whether the slot has been filled. A
+ * producer claims a turn with one compare-and-set on the tail and never waits: if the slot for its
+ * turn has not been emptied yet, the buffer is full and {@link #offer(Object)} returns false.
+ */
+class LogRingBuffer<E> {
+	private final E[] events;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong();
+	private long head;
+
+	/**
+	 * Create the buffer.
+	 *
+	 * @param capacity The number of events held. It is rounded up to a power of two.
+	 */
+	LogRingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+
+		@SuppressWarnings("unchecked")
+		E[] slots = (E[])new Object[size];
+
+		this.events = slots;
+		this.sequences = new AtomicLongArray(size);
+		this.mask = size - 1;
+
+		for(int index = 0; index < size; index++) {
+			sequences.set(index, index);
+		}
+	}
+
+	/**
+	 * Adds an event unless the buffer is full. Safe to call from any thread.
+	 *
+	 * @return True if the event was added.
+	 */
+	boolean offer(E event) {
+		long turn = tail.get();
+
+		while(true) {
+			int index = (int)turn & mask;
+			long difference = sequences.get(index) - turn;
+
+			if(difference == 0) {
+				if(tail.compareAndSet(turn, turn + 1)) {
+					events[index] = event;
+					sequences.set(index, turn + 1);
+					return true;
+				}
+
+				turn = tail.get();
+			}
+			else if(difference < 0) {
+				return false;
+			}
+			else {
+				turn = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of events added since the buffer was created.
+	 */
+	long getOfferedCount() {
+		return tail.get();
+	}
+
+	/**
+	 * Removes the oldest event. Only the writer thread may call this.
+	 *
+	 * @return The event, or null if the buffer is empty or the next event is still being added.
+	 */
+	E poll() {
+		int index = (int)head & mask;
+
+		if(sequences.get(index) != head + 1) {
+			return null;
+		}
+
+		E event = events[index];
+
+		events[index] = null;
+		sequences.set(index, head + events.length);
+		head++;
+
+		return event;
+	}
+}
@@ -0,0 +1,222 @@
+package projects.log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class moves log events from the logging threads to the log output. A logging thread only
+ * captures the event and adds it to a {@link LogRingBuffer}; it never formats, never takes a lock
+ * and never does I/O. If the buffer is full the event is dropped and counted, and the count is
+ * written with the next event that gets through.
+ *
+ * One daemon thread, "log-writer", formats the events and writes them to the file named by
+ * {@code projects.log.file}, or to standard error if there is none. When the buffer is empty it
+ * flushes its output and sleeps for a millisecond at a time, or 20 once it has been idle for a while.
+ * The output is flushed once more when the JVM shuts down.
+ *
+ * Each event is one line: the time, the level, the logger, the thread, the message and then the
+ * fields as {@code key=value} pairs. A stack trace follows on its own lines.
+ */
+final class LogWriter {
+	private static final int BUFFER_SIZE = Integer.getInteger("projects.log.bufferSize", 8192);
+	private static final String FILE = System.getProperty("projects.log.file");
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final long LONG_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+	private static final int LONG_IDLE_ROUNDS = 100;
+
+	private static final LogRingBuffer<Event> BUFFER = new LogRingBuffer<>(BUFFER_SIZE);
+	private static final LongAdder DROPPED = new LongAdder();
+	private static volatile long flushedCount;
+	private static final Thread WRITER = new Thread(LogWriter::writeEvents, "log-writer");
+
+	static {
+		WRITER.setDaemon(true);
+		WRITER.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(2000), "log-flush"));
+	}
+
+	private LogWriter() {
+	}
+
+	/**
+	 * Hands an event to the writer thread, or drops it if the buffer is full.
+	 */
+	static void offer(Level level, String logger, String message, Object[] fields, Throwable thrown) {
+		if(!BUFFER.offer(new Event(level, logger, message, fields, thrown))) {
+			DROPPED.increment();
+		}
+	}
+
+	/**
+	 * Waits until every event offered so far has been written and flushed, or until the timeout.
+	 *
+	 * @param timeoutMillis The longest time to wait.
+	 */
+	static void flush(long timeoutMillis) {
+		long target = BUFFER.getOfferedCount();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		while(flushedCount < target && System.nanoTime() < deadline) {
+			LockSupport.unpark(WRITER);
+			LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+		}
+	}
+
+	private static void writeEvents() {
+		Writer out = openOutput();
+		long written = 0;
+		int idleRounds = 0;
+		boolean dirty = false;
+
+		while(true) {
+			Event event = BUFFER.poll();
+
+			try {
+				if(Objects.isNull(event)) {
+					if(dirty) {
+						out.flush();
+						dirty = false;
+					}
+
+					flushedCount = written;
+					LockSupport.parkNanos(++idleRounds < LONG_IDLE_ROUNDS ? IDLE_PARK_NANOS : LONG_IDLE_PARK_NANOS);
+					continue;
+				}
+
+				idleRounds = 0;
+
+				long dropped = DROPPED.sumThenReset();
+
+				if(dropped > 0) {
+					out.write(format(new Event(Level.WARN, LogWriter.class.getName(),
+							"Log events were dropped because the log buffer was full",
+							new Object[] {"count", dropped}, null)));
+				}
+
+				out.write(format(event));
+				dirty = true;
+			}
+			catch(IOException | RuntimeException e) {
+				/* The log has nowhere else to go. Keep the thread alive and the events moving. */
+				dirty = false;
+			}
+
+			if(Objects.nonNull(event)) {
+				written++;
+			}
+		}
+	}
+
+	private static Writer openOutput() {
+		if(Objects.nonNull(FILE)) {
+			try {
+				return Files.newBufferedWriter(Path.of(FILE), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+						StandardOpenOption.APPEND);
+			}
+			catch(IOException e) {
+				System.err.println("Unable to open log file " + FILE + ". Logging to standard error: "
+						+ e.getMessage());
+			}
+		}
+
+		return new BufferedWriter(new OutputStreamWriter(System.err, StandardCharsets.UTF_8));
+	}
+
+	private static String format(Event event) {
+		StringBuilder line = new StringBuilder(128);
+
+		line.append(Instant.ofEpochMilli(event.timeMillis)).append(' ')
+				.append(String.format("%-5s", event.level)).append(' ').append(event.logger)
+				.append(" [").append(event.thread).append("] ").append(event.message);
+
+		Object[] fields = event.fields;
+
+		for(int index = 0; index + 1 < fields.length; index += 2) {
+			line.append(' ').append(fields[index]).append('=');
+			appendValue(line, fields[index + 1]);
+		}
+
+		line.append(System.lineSeparator());
+
+		if(Objects.nonNull(event.thrown)) {
+			StringWriter trace = new StringWriter();
+
+			event.thrown.printStackTrace(new PrintWriter(trace));
+			line.append(trace);
+		}
+
+		return line.toString();
+	}
+
+	/**
+	 * Appends a field value, quoted if it is empty or holds a space, a quote or an equals sign.
+	 */
+	private static void appendValue(StringBuilder line, Object value) {
+		String text = String.valueOf(value);
+		boolean quote = text.isEmpty();
+
+		for(int pos = 0; pos < text.length() && !quote; pos++) {
+			char c = text.charAt(pos);
+			quote = c <= ' ' || c == '"' || c == '=';
+		}
+
+		if(!quote) {
+			line.append(text);
+			return;
+		}
+
+		line.append('"');
+
+		for(int pos = 0; pos < text.length(); pos++) {
+			char c = text.charAt(pos);
+
+			switch(c) {
+				case '"' -> line.append("\\\"");
+				case '\\' -> line.append("\\\\");
+				case '\n' -> line.append("\\n");
+				case '\r' -> line.append("\\r");
+				case '\t' -> line.append("\\t");
+				default -> line.append(c);
+			}
+		}
+
+		line.append('"');
+	}
+
+	/**
+	 * One log event as captured on the logging thread. Field values are turned into text on the
+	 * writer thread, so they should not change after they are logged.
+	 */
+	private static class Event {
+		private final long timeMillis;
+		private final Level level;
+		private final String logger;
+		private final String thread;
+		private final String message;
+		private final Object[] fields;
+		private final Throwable thrown;
+
+		Event(Level level, String logger, String message, Object[] fields, Throwable thrown) {
+			this.timeMillis = System.currentTimeMillis();
+			this.level = level;
+			this.logger = logger;
+			this.thread = Thread.currentThread().getName();
+			this.message = message;
+			this.fields = fields;
+			this.thrown = thrown;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package projects.log;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * This class writes structured log events for one class. An event is a message plus any number of
+ * fields given as name and value pairs; a {@link Throwable} after the last pair is logged as the
+ * cause, for example
+ *
+ * <pre>
+ * LOG.warn("Unable to write the slow query log", "file", file, e);
+ * </pre>
+ *
+ * Events below the logger's level cost one comparison. Other events are handed to a background
+ * writer without locking or I/O on the calling thread; see {@link LogWriter}. The fields array and
+ * any boxing still happen before the call, so guard events on hot paths with
+ * {@link #isEnabled(Level)}, and thin out very frequent ones with a {@link Sampler}.
+ *
+ * The level is {@code projects.log.level} (INFO by default), or
+ * {@code projects.log.level.<class name>} for one class.
+ */
+public final class Logger {
+	private static final Level DEFAULT_LEVEL = parseLevel(System.getProperty("projects.log.level"), Level.INFO);
+
+	private final String name;
+	private final Level level;
+
+	private Logger(String name, Level level) {
+		this.name = name;
+		this.level = level;
+	}
+
+	/**
+	 * Returns the logger of a class.
+	 *
+	 * @param type The class.
+	 * @return The logger.
+	 */
+	public static Logger get(Class<?> type) {
+		String name = type.getName();
+		return new Logger(name, parseLevel(System.getProperty("projects.log.level." + name), DEFAULT_LEVEL));
+	}
+
+	/**
+	 * Returns true if events at the given level are logged.
+	 */
+	public boolean isEnabled(Level eventLevel) {
+		return eventLevel.compareTo(level) >= 0 && eventLevel != Level.OFF;
+	}
+
+	public void trace(String message, Object... fields) {
+		log(Level.TRACE, message, fields);
+	}
+
+	public void debug(String message, Object... fields) {
+		log(Level.DEBUG, message, fields);
+	}
+
+	public void info(String message, Object... fields) {
+		log(Level.INFO, message, fields);
+	}
+
+	public void warn(String message, Object... fields) {
+		log(Level.WARN, message, fields);
+	}
+
+	public void error(String message, Object... fields) {
+		log(Level.ERROR, message, fields);
+	}
+
+	/**
+	 * Logs an event if the level is enabled.
+	 *
+	 * @param eventLevel The level of the event.
+	 * @param message The message.
+	 * @param fields Field names and values, optionally followed by a Throwable.
+	 */
+	public void log(Level eventLevel, String message, Object... fields) {
+		if(!isEnabled(eventLevel)) {
+			return;
+		}
+
+		Throwable thrown = null;
+
+		if(fields.length % 2 == 1 && fields[fields.length - 1] instanceof Throwable cause) {
+			thrown = cause;
+		}
+
+		LogWriter.offer(eventLevel, name, message, fields, thrown);
+	}
+
+	/**
+	 * Waits until every event logged so far has been written, or until the timeout. Use it before
+	 * output that must appear after the log, such as a prompt.
+	 *
+	 * @param timeoutMillis The longest time to wait.
+	 */
+	public static void flush(long timeoutMillis) {
+		LogWriter.flush(timeoutMillis);
+	}
+
+	private static Level parseLevel(String text, Level defaultLevel) {
+		if(Objects.isNull(text)) {
+			return defaultLevel;
+		}
+
+		try {
+			return Level.valueOf(text.trim().toUpperCase(Locale.ROOT));
+		}
+		catch(IllegalArgumentException e) {
+			return defaultLevel;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package projects.log;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class decides which occurrences of a high-frequency event are logged. Each occurrence is
+ * logged with a fixed probability, drawn from the calling thread's own random generator, so sampling
+ * shares no state between threads. The number of occurrences that were not logged is kept, so that a
+ * logged event can say how many it stands for.
+ */
+public class Sampler {
+	private final double rate;
+	private final LongAdder skipped = new LongAdder();
+
+	/**
+	 * Create a sampler.
+	 *
+	 * @param rate The share of occurrences to log, from 0 (none) to 1 (all).
+	 */
+	public Sampler(double rate) {
+		this.rate = rate;
+	}
+
+	/**
+	 * Decides whether this occurrence is logged.
+	 *
+	 * @return True if it should be logged.
+	 */
+	public boolean sample() {
+		if(rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate)) {
+			return true;
+		}
+
+		skipped.increment();
+		return false;
+	}
+
+	/**
+	 * Returns the number of occurrences that were not logged since the last call, and starts counting
+	 * again.
+	 */
+	public long takeSkipped() {
+		return skipped.sumThenReset();
+	}
+}
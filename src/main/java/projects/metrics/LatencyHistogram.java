@@ -0,0 +1,155 @@
+package projects.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class counts latencies in log-linear buckets, so percentiles can be read at any time with a
+ * fixed amount of memory. Each power of two is split into {@link #HALF_SUB_BUCKETS} buckets, so a
+ * reported value is never more than about 1.6% above the true one, from nanoseconds up to the
+ * largest long. Values below {@link #SUB_BUCKETS} are counted exactly.
+ *
+ * Recording is lock free and may be done from any number of threads at once. Reads taken while
+ * values are being recorded see each value either fully or not at all, but a percentile and the
+ * count read separately may disagree by the values recorded in between.
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	private static final int MAX_SHIFT = 63 - SUB_BUCKET_BITS;
+	private static final int BUCKET_COUNT = (MAX_SHIFT + 1) * HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Counts one value. Negative values are counted as zero.
+	 *
+	 * @param value The value, normally a latency in nanoseconds.
+	 */
+	public void record(long value) {
+		long clamped = Math.max(0, value);
+
+		counts.incrementAndGet(bucketIndex(clamped));
+		count.increment();
+		sum.add(clamped);
+
+		if(clamped > max.get()) {
+			max.accumulateAndGet(clamped, Math::max);
+		}
+	}
+
+	/**
+	 * Adds every value counted by another histogram to this one.
+	 *
+	 * @param other The other histogram.
+	 */
+	public void add(LatencyHistogram other) {
+		for(int index = 0; index < BUCKET_COUNT; index++) {
+			long bucketCount = other.counts.get(index);
+
+			if(bucketCount != 0) {
+				counts.addAndGet(index, bucketCount);
+			}
+		}
+
+		count.add(other.count.sum());
+		sum.add(other.sum.sum());
+		max.accumulateAndGet(other.max.get(), Math::max);
+	}
+
+	/**
+	 * Throws away every value counted so far.
+	 */
+	public void reset() {
+		for(int index = 0; index < BUCKET_COUNT; index++) {
+			counts.set(index, 0);
+		}
+
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getSum() {
+		return sum.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the mean of the counted values, or 0 if there are none.
+	 */
+	public double getMean() {
+		long total = count.sum();
+		return total == 0 ? 0 : (double)sum.sum() / total;
+	}
+
+	/**
+	 * Returns the value at the given percentile: the highest value in the bucket that holds it, but
+	 * never more than the largest value counted.
+	 *
+	 * @param percentile The percentile, from 0 to 100. For example, 99.9 for the p999 value.
+	 * @return The value, or 0 if nothing has been counted.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+
+		for(int index = 0; index < BUCKET_COUNT; index++) {
+			total += counts.get(index);
+		}
+
+		if(total == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long)Math.ceil(total * Math.min(100, percentile) / 100));
+		long seen = 0;
+
+		for(int index = 0; index < BUCKET_COUNT; index++) {
+			seen += counts.get(index);
+
+			if(seen >= rank) {
+				return Math.min(highestValueInBucket(index), max.get());
+			}
+		}
+
+		return max.get();
+	}
+
+	/**
+	 * Values below SUB_BUCKETS map to their own bucket. Larger values keep their top SUB_BUCKET_BITS
+	 * bits, which lie between HALF_SUB_BUCKETS and SUB_BUCKETS, and each shift moves on by half a
+	 * bucket row, so the indexes run on without gaps.
+	 */
+	private static int bucketIndex(long value) {
+		if(value < SUB_BUCKETS) {
+			return (int)value;
+		}
+
+		int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * HALF_SUB_BUCKETS + (int)(value >>> shift);
+	}
+
+	private static long highestValueInBucket(int index) {
+		if(index < SUB_BUCKETS) {
+			return index;
+		}
+
+		int shift = index / HALF_SUB_BUCKETS - 1;
+		long mantissa = index - (long)shift * HALF_SUB_BUCKETS;
+		long next = (mantissa + 1) << shift;
+
+		return next < 0 ? Long.MAX_VALUE : next - 1;
+	}
+}
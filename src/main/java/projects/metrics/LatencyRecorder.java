@@ -0,0 +1,110 @@
+package projects.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class records latencies into one of two histograms and lets a reader take away everything
+ * recorded since its last read without stopping the writers. Recording never blocks and never
+ * allocates, so it can sit on every service and DAO call.
+ *
+ * The hand-over uses the writer-reader phaser of HdrHistogram's Recorder. A writer counts itself in
+ * on a start epoch before it records and out on one of two end epochs afterwards. The reader swaps
+ * the active histogram, flips the start epoch between its positive and negative range, and waits
+ * until every writer that started before the flip has counted itself out. After that no writer can
+ * still be recording into the old histogram.
+ */
+public class LatencyRecorder {
+	private final AtomicLong startEpoch = new AtomicLong();
+	private final AtomicLong evenEndEpoch = new AtomicLong();
+	private final AtomicLong oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+	private final ReentrantLock readerLock = new ReentrantLock();
+	private final LongAdder failures = new LongAdder();
+
+	private volatile LatencyHistogram active = new LatencyHistogram();
+	private LatencyHistogram inactive = new LatencyHistogram();
+
+	/**
+	 * Records one latency.
+	 *
+	 * @param nanos The latency in nanoseconds.
+	 */
+	public void record(long nanos) {
+		long epoch = startEpoch.getAndIncrement();
+
+		try {
+			active.record(nanos);
+		}
+		finally {
+			if(epoch < 0) {
+				oddEndEpoch.getAndIncrement();
+			}
+			else {
+				evenEndEpoch.getAndIncrement();
+			}
+		}
+	}
+
+	/**
+	 * Records the latency of a call that failed. It is counted with the other latencies and also
+	 * added to the failure count.
+	 *
+	 * @param nanos The latency in nanoseconds.
+	 */
+	public void recordFailure(long nanos) {
+		failures.increment();
+		record(nanos);
+	}
+
+	/**
+	 * Returns the number of failed calls recorded since the recorder was created.
+	 */
+	public long getFailures() {
+		return failures.sum();
+	}
+
+	/**
+	 * Adds every latency recorded since the previous call to the given histogram and starts a new
+	 * interval. Only one reader runs at a time.
+	 *
+	 * @param target The histogram that receives the interval.
+	 */
+	public void drainInto(LatencyHistogram target) {
+		readerLock.lock();
+
+		try {
+			LatencyHistogram finished = active;
+
+			inactive.reset();
+			active = inactive;
+			inactive = finished;
+
+			flipPhase();
+
+			target.add(finished);
+		}
+		finally {
+			readerLock.unlock();
+		}
+	}
+
+	/**
+	 * Moves the start epoch to the other range and waits for the writers that entered the old range
+	 * to leave it.
+	 */
+	private void flipPhase() {
+		boolean nextPhaseOdd = startEpoch.get() >= 0;
+		long initialStart = nextPhaseOdd ? Long.MIN_VALUE : 0;
+
+		(nextPhaseOdd ? oddEndEpoch : evenEndEpoch).set(initialStart);
+
+		long startAtFlip = startEpoch.getAndSet(initialStart);
+		AtomicLong endEpoch = nextPhaseOdd ? evenEndEpoch : oddEndEpoch;
+
+		while(endEpoch.get() != startAtFlip) {
+			LockSupport.parkNanos(10_000);
+		}
+	}
+}
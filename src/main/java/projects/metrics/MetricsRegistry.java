@@ -0,0 +1,266 @@
+package projects.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * This class holds the metrics that are served to Prometheus and writes them in the Prometheus text
+ * format. Nothing is computed until a scrape asks for it:
+ * <ul>
+ * <li>Counters and up-down gauges owned by the registry are {@link LongAdder}s. An update adds to
+ * one stripe of the adder, so threads updating the same metric do not fight over one cache line.
+ * A scrape adds up the stripes.</li>
+ * <li>Values that are already kept elsewhere, such as the limiter's in-flight count or the cache's
+ * hit count, are registered as callbacks and read during the scrape.</li>
+ * <li>The operations of an {@link OperationMetrics} are written as one summary. Its count and sum
+ * cover everything up to the last metrics interval, and its quantiles cover that interval only.
+ * Its failure counts are always current, and an operation's failure count is only written once it
+ * has failed. Only callers that use {@link LatencyRecorder#recordFailure(long)}, such as the timed
+ * repository, count failures.</li>
+ * </ul>
+ *
+ * Labels are given as name and value pairs, for example {@code "operation", "fetchProjectById"}.
+ */
+public class MetricsRegistry {
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+	private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+	private final List<OperationMetrics> operationMetrics = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Returns a counter, creating it the first time.
+	 *
+	 * @param name The metric name. It should end in {@code _total}.
+	 * @param help The description written with the metric.
+	 * @param labels Label names and values.
+	 * @return The counter. Only ever add to it.
+	 */
+	public LongAdder counter(String name, String help, String... labels) {
+		return family(name, "counter", help).adder(labels);
+	}
+
+	/**
+	 * Returns an up-down gauge, creating it the first time.
+	 *
+	 * @param name The metric name.
+	 * @param help The description written with the metric.
+	 * @param labels Label names and values.
+	 * @return The gauge. Increment and decrement it as the measured amount changes.
+	 */
+	public LongAdder gauge(String name, String help, String... labels) {
+		return family(name, "gauge", help).adder(labels);
+	}
+
+	/**
+	 * Registers a counter whose value is read from elsewhere during each scrape.
+	 *
+	 * @param name The metric name. It should end in {@code _total}.
+	 * @param help The description written with the metric.
+	 * @param value Returns the current count. It must never go down.
+	 * @param labels Label names and values.
+	 */
+	public void counter(String name, String help, DoubleSupplier value, String... labels) {
+		family(name, "counter", help).samples.put(formatLabels(labels), value);
+	}
+
+	/**
+	 * Registers a gauge whose value is read from elsewhere during each scrape.
+	 *
+	 * @param name The metric name.
+	 * @param help The description written with the metric.
+	 * @param value Returns the current value.
+	 * @param labels Label names and values.
+	 */
+	public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+		family(name, "gauge", help).samples.put(formatLabels(labels), value);
+	}
+
+	/**
+	 * Registers the latency statistics of a set of operations. Each operation name, such as
+	 * {@code dao.fetchProjectById}, becomes the labels {@code layer="dao"} and
+	 * {@code operation="fetchProjectById"} of {@code projects_operation_duration_seconds} and
+	 * {@code projects_operation_failures_total}.
+	 *
+	 * @param metrics The operation metrics.
+	 */
+	public void register(OperationMetrics metrics) {
+		operationMetrics.add(metrics);
+	}
+
+	/**
+	 * Writes every metric in the Prometheus text format, version 0.0.4.
+	 *
+	 * @param out Receives the metrics.
+	 * @throws IOException Thrown if the metrics cannot be written.
+	 */
+	public void writeTo(Writer out) throws IOException {
+		for(Family family : families.values()) {
+			writeHeader(out, family.name, family.type, family.help);
+
+			for(Map.Entry<String, DoubleSupplier> sample : family.samples.entrySet()) {
+				writeSample(out, family.name, sample.getKey(), sample.getValue().getAsDouble());
+			}
+		}
+
+		if(operationMetrics.isEmpty()) {
+			return;
+		}
+
+		writeHeader(out, "projects_operation_duration_seconds", "summary",
+				"Latency of service and DAO operations.");
+
+		for(OperationMetrics metrics : operationMetrics) {
+			Map<String, OperationStats> lastInterval = new HashMap<>();
+
+			for(OperationStats stats : metrics.getLastInterval()) {
+				lastInterval.put(stats.getOperation(), stats);
+			}
+
+			for(OperationStats total : metrics.getTotals()) {
+				String operation = total.getOperation();
+				String labels = operationLabels(operation);
+				OperationStats interval = lastInterval.get(operation);
+
+				if(Objects.nonNull(interval) && interval.getCount() > 0) {
+					long[] values = {interval.getP50(), interval.getP90(), interval.getP99(), interval.getP999()};
+
+					for(int index = 0; index < QUANTILES.length; index++) {
+						writeSample(out, "projects_operation_duration_seconds",
+								operationLabels(operation, "quantile", Double.toString(QUANTILES[index])),
+								values[index] / 1e9);
+					}
+				}
+
+				writeSample(out, "projects_operation_duration_seconds_sum", labels, total.getSum() / 1e9);
+				writeSample(out, "projects_operation_duration_seconds_count", labels, total.getCount());
+			}
+		}
+
+		writeHeader(out, "projects_operation_failures_total", "counter",
+				"Operations that threw an exception.");
+
+		for(OperationMetrics metrics : operationMetrics) {
+			for(Map.Entry<String, Long> failures : metrics.getFailures().entrySet()) {
+				if(failures.getValue() == 0) {
+					continue;
+				}
+
+				writeSample(out, "projects_operation_failures_total", operationLabels(failures.getKey()),
+						failures.getValue());
+			}
+		}
+	}
+
+	private Family family(String name, String type, String help) {
+		Family family = families.computeIfAbsent(name, key -> new Family(name, type, help));
+
+		if(!family.type.equals(type)) {
+			throw new IllegalArgumentException(name + " is already registered as a " + family.type + ".");
+		}
+
+		return family;
+	}
+
+	/**
+	 * Splits an operation name into its layer and operation labels and appends any further labels.
+	 */
+	private static String operationLabels(String operation, String... extra) {
+		int dot = operation.indexOf('.');
+		String[] labels = {"layer", dot < 0 ? "" : operation.substring(0, dot), "operation",
+				operation.substring(dot + 1)};
+		String[] all = Arrays.copyOf(labels, labels.length + extra.length);
+
+		System.arraycopy(extra, 0, all, labels.length, extra.length);
+		return formatLabels(all);
+	}
+
+	private static String formatLabels(String... labels) {
+		if(labels.length % 2 != 0) {
+			throw new IllegalArgumentException("Labels must be name and value pairs.");
+		}
+
+		if(labels.length == 0) {
+			return "";
+		}
+
+		StringBuilder text = new StringBuilder("{");
+
+		for(int index = 0; index < labels.length; index += 2) {
+			if(index > 0) {
+				text.append(',');
+			}
+
+			text.append(labels[index]).append("=\"");
+
+			for(char c : labels[index + 1].toCharArray()) {
+				switch(c) {
+					case '\\' -> text.append("\\\\");
+					case '"' -> text.append("\\\"");
+					case '\n' -> text.append("\\n");
+					default -> text.append(c);
+				}
+			}
+
+			text.append('"');
+		}
+
+		return text.append('}').toString();
+	}
+
+	private static void writeHeader(Writer out, String name, String type, String help) throws IOException {
+		out.write("# HELP " + name + " " + help.replace("\\", "\\\\").replace("\n", "\\n") + "\n");
+		out.write("# TYPE " + name + " " + type + "\n");
+	}
+
+	private static void writeSample(Writer out, String name, String labels, double value)
+			throws IOException {
+		out.write(name);
+		out.write(labels);
+		out.write(' ');
+
+		if(Double.isInfinite(value)) {
+			out.write(value > 0 ? "+Inf" : "-Inf");
+		}
+		else if(value == Math.rint(value) && Math.abs(value) < 1e15) {
+			out.write(Long.toString((long)value));
+		}
+		else {
+			out.write(Double.toString(value));
+		}
+
+		out.write('\n');
+	}
+
+	private static class Family {
+		private final String name;
+		private final String type;
+		private final String help;
+		private final Map<String, DoubleSupplier> samples = new ConcurrentSkipListMap<>();
+		private final Map<String, LongAdder> adders = new ConcurrentSkipListMap<>();
+
+		Family(String name, String type, String help) {
+			this.name = name;
+			this.type = type;
+			this.help = help;
+		}
+
+		LongAdder adder(String... labels) {
+			String key = formatLabels(labels);
+
+			return adders.computeIfAbsent(key, unused -> {
+				LongAdder adder = new LongAdder();
+				samples.put(key, adder::sum);
+				return adder;
+			});
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package projects.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * This class serves a {@link MetricsRegistry} at {@code /metrics} for Prometheus to scrape, using the
+ * HTTP server built into the JDK. Scrapes are handled one at a time on a single daemon thread, so a
+ * misbehaving scraper cannot take more than one core away from the application.
+ *
+ * The server's own dispatcher thread keeps the JVM running, so the server must be closed.
+ */
+public class MetricsServer implements AutoCloseable {
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private final MetricsRegistry registry;
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	/**
+	 * Create the server and start listening.
+	 *
+	 * @param registry The metrics to serve.
+	 * @param port The port to listen on, or 0 for any free port.
+	 * @throws IOException Thrown if the port cannot be bound.
+	 */
+	public MetricsServer(MetricsRegistry registry, int port) throws IOException {
+		this.registry = registry;
+		this.server = HttpServer.create(new InetSocketAddress(port), 0);
+		this.executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "metrics-http");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		server.createContext("/metrics", this::handle);
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * Returns the port the server is listening on.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Stops the server. A scrape in progress gets up to a second to finish.
+	 */
+	@Override
+	public void close() {
+		server.stop(1);
+		executor.shutdown();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try(exchange) {
+			if(!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+				exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+
+			/* Render first, so that a failing metric turns into a 500 rather than a truncated body. */
+			StringWriter text = new StringWriter(8192);
+
+			try {
+				registry.writeTo(text);
+			}
+			catch(RuntimeException e) {
+				exchange.sendResponseHeaders(500, -1);
+				return;
+			}
+
+			byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+			boolean head = "HEAD".equals(exchange.getRequestMethod());
+
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			exchange.sendResponseHeaders(200, head ? -1 : body.length);
+
+			if(!head) {
+				try(OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			}
+		}
+	}
+}
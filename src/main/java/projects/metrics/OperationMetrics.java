@@ -0,0 +1,178 @@
+package projects.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import projects.log.Logger;
+
+/**
+ * This class keeps a latency recorder for each named operation and turns them into interval
+ * statistics on a fixed schedule. Callers look up their recorder once and keep it, so timing a call
+ * costs two clock reads and a {@link LatencyRecorder#record(long)}, with no lookup and no allocation.
+ *
+ * Every interval the recorders are drained. The statistics of the interval are kept for display and,
+ * if a dump file is configured, appended to it as one JSON line per operation. Each interval is also
+ * added to a running total for the operation.
+ */
+public class OperationMetrics implements AutoCloseable {
+	private static final Logger LOG = Logger.get(OperationMetrics.class);
+
+	private final Map<String, Operation> operations = new ConcurrentSkipListMap<>();
+	private final Path dumpFile;
+	private final long intervalMillis;
+	private final ScheduledExecutorService snapshotter;
+	private final long startMillis = System.currentTimeMillis();
+	private long intervalStartMillis = startMillis;
+	private volatile List<OperationStats> lastInterval = List.of();
+
+	/**
+	 * Create the metrics. Interval snapshots are only taken once {@link #start()} is called.
+	 *
+	 * @param intervalMillis The length of each interval.
+	 * @param dumpFile The file that each interval is appended to, or null for none.
+	 */
+	public OperationMetrics(long intervalMillis, Path dumpFile) {
+		this.dumpFile = dumpFile;
+		this.intervalMillis = intervalMillis;
+		this.snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "operation-metrics");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts taking interval snapshots. This is kept out of the constructor so that the snapshot
+	 * thread never sees a partly constructed object.
+	 */
+	public void start() {
+		snapshotter.scheduleAtFixedRate(this::snapshotQuietly, intervalMillis, intervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns the recorder of an operation, creating it the first time.
+	 *
+	 * @param name The operation name, such as {@code service.fetchProjectById}.
+	 * @return The recorder.
+	 */
+	public LatencyRecorder recorder(String name) {
+		return operations.computeIfAbsent(name, key -> new Operation()).recorder;
+	}
+
+	/**
+	 * Ends the current interval.
+	 *
+	 * @return The statistics of each operation over the interval that just ended.
+	 */
+	public synchronized List<OperationStats> snapshot() {
+		long endMillis = System.currentTimeMillis();
+		List<OperationStats> stats = new ArrayList<>(operations.size());
+
+		operations.forEach((name, operation) -> {
+			operation.interval.reset();
+			operation.recorder.drainInto(operation.interval);
+			operation.total.add(operation.interval);
+			stats.add(new OperationStats(name, intervalStartMillis, endMillis, operation.interval));
+		});
+
+		intervalStartMillis = endMillis;
+		lastInterval = List.copyOf(stats);
+
+		if(Objects.nonNull(dumpFile)) {
+			append(stats);
+		}
+
+		return lastInterval;
+	}
+
+	/**
+	 * Returns the statistics of the last interval that ended.
+	 */
+	public List<OperationStats> getLastInterval() {
+		return lastInterval;
+	}
+
+	/**
+	 * Returns the statistics of each operation from the start up to the end of the last interval.
+	 */
+	public synchronized List<OperationStats> getTotals() {
+		List<OperationStats> stats = new ArrayList<>(operations.size());
+
+		operations.forEach((name, operation) -> stats.add(
+				new OperationStats(name, startMillis, intervalStartMillis, operation.total)));
+
+		return stats;
+	}
+
+	/**
+	 * Returns the number of failed calls of each operation since the start. Unlike the latency
+	 * statistics, the counts are read from the recorders and are always current.
+	 */
+	public Map<String, Long> getFailures() {
+		Map<String, Long> failures = new LinkedHashMap<>();
+
+		operations.forEach((name, operation) -> failures.put(name, operation.recorder.getFailures()));
+
+		return failures;
+	}
+
+	/**
+	 * Stops the snapshots and ends the current interval, so the dump file has every call.
+	 */
+	@Override
+	public void close() {
+		snapshotter.shutdown();
+
+		try {
+			snapshotter.awaitTermination(10, TimeUnit.SECONDS);
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		snapshot();
+	}
+
+	private void snapshotQuietly() {
+		try {
+			snapshot();
+		}
+		catch(RuntimeException e) {
+			LOG.warn("Unable to take a metrics snapshot", e);
+		}
+	}
+
+	private void append(List<OperationStats> stats) {
+		try(BufferedWriter writer = Files.newBufferedWriter(dumpFile, StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			for(OperationStats operationStats : stats) {
+				if(operationStats.getCount() > 0) {
+					writer.write(operationStats.toJson());
+					writer.newLine();
+				}
+			}
+		}
+		catch(IOException e) {
+			LOG.warn("Unable to write metrics", "file", dumpFile, "error", e.getMessage());
+		}
+	}
+
+	private static class Operation {
+		private final LatencyRecorder recorder = new LatencyRecorder();
+		private final LatencyHistogram interval = new LatencyHistogram();
+		private final LatencyHistogram total = new LatencyHistogram();
+	}
+}
@@ -0,0 +1,118 @@
+package projects.metrics;
+
+import java.util.Locale;
+
+/**
+ * The latency of one operation over one interval, or over everything recorded so far. Latencies are
+ * in nanoseconds.
+ */
+public class OperationStats {
+	private final String operation;
+	private final long startMillis;
+	private final long endMillis;
+	private final long count;
+	private final long sum;
+	private final double mean;
+	private final long p50;
+	private final long p90;
+	private final long p99;
+	private final long p999;
+	private final long max;
+
+	/**
+	 * Reads the statistics of a histogram.
+	 *
+	 * @param operation The operation name, such as {@code service.fetchProjectById}.
+	 * @param startMillis The start of the interval, in epoch milliseconds.
+	 * @param endMillis The end of the interval, in epoch milliseconds.
+	 * @param histogram The latencies recorded in the interval.
+	 */
+	OperationStats(String operation, long startMillis, long endMillis, LatencyHistogram histogram) {
+		this.operation = operation;
+		this.startMillis = startMillis;
+		this.endMillis = endMillis;
+		this.count = histogram.getCount();
+		this.sum = histogram.getSum();
+		this.mean = histogram.getMean();
+		this.p50 = histogram.getValueAtPercentile(50);
+		this.p90 = histogram.getValueAtPercentile(90);
+		this.p99 = histogram.getValueAtPercentile(99);
+		this.p999 = histogram.getValueAtPercentile(99.9);
+		this.max = histogram.getMax();
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	public long getStartMillis() {
+		return startMillis;
+	}
+
+	public long getEndMillis() {
+		return endMillis;
+	}
+
+	/**
+	 * Returns the number of calls that finished in the interval.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the total of the recorded latencies.
+	 */
+	public long getSum() {
+		return sum;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	public long getP50() {
+		return p50;
+	}
+
+	public long getP90() {
+		return p90;
+	}
+
+	public long getP99() {
+		return p99;
+	}
+
+	public long getP999() {
+		return p999;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the calls per second over the interval.
+	 */
+	public double getRate() {
+		long millis = endMillis - startMillis;
+		return millis <= 0 ? 0 : count * 1000.0 / millis;
+	}
+
+	/**
+	 * Returns the statistics as one line of JSON. Operation names are plain identifiers, so they need
+	 * no escaping.
+	 */
+	public String toJson() {
+		return String.format(Locale.ROOT,
+				"{\"operation\":\"%s\",\"startMillis\":%d,\"endMillis\":%d,\"count\":%d,\"meanNanos\":%.0f,"
+						+ "\"p50Nanos\":%d,\"p90Nanos\":%d,\"p99Nanos\":%d,\"p999Nanos\":%d,\"maxNanos\":%d}",
+				operation, startMillis, endMillis, count, mean, p50, p90, p99, p999, max);
+	}
+
+	@Override
+	public String toString() {
+		return "OperationStats [operation=" + operation + ", count=" + count + ", p50=" + p50 + ", p99="
+				+ p99 + ", p999=" + p999 + ", max=" + max + "]";
+	}
+}
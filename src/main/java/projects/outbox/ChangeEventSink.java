@@ -0,0 +1,30 @@
+package projects.outbox;
+
+import java.io.IOException;
+import java.util.List;
+import projects.entity.ProjectChange;
+
+/**
+ * A destination for project change events read from the outbox by {@link OutboxRelay}. A sink
+ * remembers the last change it has durably accepted, so the relay can resume after a restart.
+ * Delivery is at least once: after a crash, the last batch may be delivered again.
+ */
+public interface ChangeEventSink extends AutoCloseable {
+
+	/**
+	 * Returns the change ID of the last event that was durably delivered, or zero if none.
+	 */
+	long lastDeliveredChangeId();
+
+	/**
+	 * Delivers a batch of events in change ID order. When this returns, the batch must be durable
+	 * and {@link #lastDeliveredChangeId()} must return the ID of the last event in it.
+	 * 
+	 * @param changes The events.
+	 * @throws IOException Thrown if the events could not be delivered. The relay retries them.
+	 */
+	void deliver(List<ProjectChange> changes) throws IOException;
+
+	@Override
+	void close() throws IOException;
+}
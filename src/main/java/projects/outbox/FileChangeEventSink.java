@@ -0,0 +1,88 @@
+package projects.outbox;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import projects.entity.ProjectChange;
+
+/**
+ * This sink appends change events to a local file, one JSON object per line (NDJSON):
+ * 
+ * <pre>
+ * {"changeId":7,"projectId":3,"changeType":"UPDATE","changedAt":"2024-05-01T10:15:30","payload":{...}}
+ * </pre>
+ * 
+ * The change ID of the last event written is kept in a file next to it with an ".offset" suffix.
+ * The offset is only advanced after the events have been forced to disk.
+ */
+public class FileChangeEventSink implements ChangeEventSink {
+	private final FileChannel channel;
+	private final Writer writer;
+	private final Path offsetFile;
+	private long lastDeliveredChangeId;
+
+	/**
+	 * Opens the event file for appending, creating it if needed.
+	 * 
+	 * @param file The event file.
+	 * @throws IOException Thrown if the file or its offset file cannot be opened.
+	 */
+	public FileChangeEventSink(Path file) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		this.writer = new BufferedWriter(
+				new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+		this.offsetFile = file.resolveSibling(file.getFileName() + ".offset");
+
+		if(Files.exists(offsetFile)) {
+			lastDeliveredChangeId = Long.parseLong(Files.readString(offsetFile).trim());
+		}
+	}
+
+	@Override
+	public long lastDeliveredChangeId() {
+		return lastDeliveredChangeId;
+	}
+
+	@Override
+	public void deliver(List<ProjectChange> changes) throws IOException {
+		for(ProjectChange change : changes) {
+			writer.write("{\"changeId\":" + change.getChangeId());
+			writer.write(",\"projectId\":" + change.getProjectId());
+			writer.write(",\"changeType\":\"" + change.getChangeType() + "\"");
+			writer.write(",\"changedAt\":\"" + change.getChangedAt() + "\"");
+
+			/* The payload was built by the database with JSON_OBJECT, so it is already valid JSON. */
+			writer.write(",\"payload\":");
+			writer.write(Objects.isNull(change.getPayload()) ? "null" : change.getPayload());
+			writer.write("}\n");
+		}
+
+		writer.flush();
+		channel.force(false);
+
+		long changeId = changes.get(changes.size() - 1).getChangeId();
+		Path tempFile = offsetFile.resolveSibling(offsetFile.getFileName() + ".tmp");
+
+		Files.writeString(tempFile, Long.toString(changeId));
+		Files.move(tempFile, offsetFile, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+
+		lastDeliveredChangeId = changeId;
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+}
@@ -0,0 +1,177 @@
+package projects.outbox;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import projects.dao.ProjectDao;
+import projects.entity.ProjectChange;
+import projects.exception.DbException;
+import projects.log.Logger;
+
+/**
+ * This class reads the project change log (the outbox) in change ID order and hands each batch to a
+ * {@link ChangeEventSink}. Downstream consumers get every committed insert, update and delete
+ * without having to scan the project table.
+ *
+ * Change IDs are assigned when a row is inserted, but transactions may commit in a different
+ * order. A change with a lower ID can therefore become visible after a higher one. To avoid skipping
+ * it, the relay stops at a gap in the IDs and waits for it to fill. A gap that is still there after
+ * {@code gapTimeoutMillis} is taken to be a rolled-back transaction and passed over. The change log
+ * writes its rows with VALUES lists, which get consecutive IDs, so gaps are rare.
+ *
+ * Delivered changes are pruned from the start of the change log once they are older than
+ * {@code retentionMillis}, so the log does not grow forever. The retention lets the warm cache of a
+ * restarted service catch up on the changes it missed. Pruning runs at most once a minute.
+ */
+public class OutboxRelay implements AutoCloseable {
+	private static final Logger LOG = Logger.get(OutboxRelay.class);
+	private static final long PRUNE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+	private final ProjectDao projectDao;
+	private final ChangeEventSink sink;
+	private final int batchSize;
+	private final long gapTimeoutNanos;
+	private final long pollMillis;
+	private final long retentionSeconds;
+	private final ScheduledExecutorService poller;
+
+	private long gapSeenAt;
+	private long prunedAt;
+
+	/**
+	 * Create a relay. The outbox is only polled once {@link #start()} is called.
+	 *
+	 * @param projectDao The DAO used to read the change log.
+	 * @param sink The destination for the events.
+	 * @param batchSize The maximum number of events read and delivered at once.
+	 * @param pollMillis How long to wait before polling again once the outbox has been drained.
+	 * @param gapTimeoutMillis How long to wait for a missing change ID before skipping it.
+	 * @param retentionMillis How long delivered changes are kept in the change log.
+	 */
+	public OutboxRelay(ProjectDao projectDao, ChangeEventSink sink, int batchSize, long pollMillis,
+			long gapTimeoutMillis, long retentionMillis) {
+		this.projectDao = projectDao;
+		this.sink = sink;
+		this.batchSize = batchSize;
+		this.pollMillis = pollMillis;
+		this.gapTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(gapTimeoutMillis);
+		this.retentionSeconds = TimeUnit.MILLISECONDS.toSeconds(retentionMillis);
+		this.prunedAt = System.nanoTime() - PRUNE_INTERVAL_NANOS;
+		this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "outbox-relay");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts polling the outbox. This is kept out of the constructor so that the poller thread never
+	 * sees a partly constructed relay.
+	 */
+	public void start() {
+		poller.scheduleWithFixedDelay(this::relayQuietly, 0, pollMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Delivers batches until the outbox has nothing more that can be delivered, then prunes what was
+	 * delivered and has passed the retention period if the last pruning was long enough ago.
+	 *
+	 * @throws IOException Thrown if the sink fails.
+	 * @throws DbException Thrown if the change log cannot be read or pruned.
+	 */
+	void relay() throws IOException {
+		while(true) {
+			long lastChangeId = sink.lastDeliveredChangeId();
+			List<ProjectChange> changes = projectDao.fetchChangesSince(lastChangeId, batchSize);
+			int deliverable = countContiguous(lastChangeId, changes);
+
+			if(deliverable > 0) {
+				sink.deliver(changes.subList(0, deliverable));
+			}
+
+			if(deliverable == 0 || deliverable < changes.size()) {
+				break;
+			}
+		}
+
+		if(System.nanoTime() - prunedAt >= PRUNE_INTERVAL_NANOS) {
+			prune();
+			prunedAt = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Deletes delivered changes older than the retention period, a batch at a time.
+	 */
+	private void prune() {
+		long lastChangeId = sink.lastDeliveredChangeId();
+
+		while(projectDao.pruneChangesBefore(lastChangeId, retentionSeconds, batchSize) == batchSize) {
+			/* Keep going until a partial batch shows that nothing more is old enough. */
+		}
+	}
+
+	/**
+	 * Stops polling and closes the sink.
+	 */
+	@Override
+	public void close() {
+		poller.shutdown();
+
+		try {
+			poller.awaitTermination(10, TimeUnit.SECONDS);
+			sink.close();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch(IOException e) {
+			LOG.warn("Unable to close the change event sink", "error", e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns how many changes from the start of the list can be delivered without skipping over a
+	 * change ID that may still be committed.
+	 */
+	private int countContiguous(long lastChangeId, List<ProjectChange> changes) {
+		long expected = lastChangeId + 1;
+		int count = 0;
+
+		for(ProjectChange change : changes) {
+			if(change.getChangeId() != expected && !gapTimedOut()) {
+				break;
+			}
+
+			gapSeenAt = 0;
+			expected = change.getChangeId() + 1;
+			count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Starts the gap timer the first time a gap is seen and reports whether it has expired.
+	 */
+	private boolean gapTimedOut() {
+		long now = System.nanoTime();
+
+		if(gapSeenAt == 0) {
+			gapSeenAt = now;
+		}
+
+		return now - gapSeenAt >= gapTimeoutNanos;
+	}
+
+	private void relayQuietly() {
+		try {
+			relay();
+		}
+		catch(IOException | DbException e) {
+			LOG.warn("Unable to relay project changes. They will be retried", "error", e);
+		}
+	}
+}
@@ -0,0 +1,495 @@
+package projects.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import projects.bulk.ProjectRecordParser;
+import projects.dao.InMemoryProjectRepository;
+import projects.entity.Project;
+import projects.exception.ConcurrencyLimitException;
+import projects.json.JsonWriter;
+import projects.json.JsonWriter.Name;
+import projects.json.ProjectJsonCodec;
+import projects.load.ProjectDataGenerator;
+import projects.log.Logger;
+import projects.metrics.MetricsServer;
+import projects.service.ProjectService;
+import projects.trace.Span;
+import projects.trace.Tracer;
+
+/**
+ * This class serves {@link ProjectService} as a JSON API over HTTP, using the server built into the
+ * JDK. Each request runs on its own virtual thread, so a request waiting on the database holds no
+ * platform thread and thousands of clients can be connected at once. Connections are kept alive
+ * between requests: every response has a length or is chunked, and the server is told to keep up to
+ * {@code projects.rest.maxIdleConnections} idle connections open.
+ *
+ * <ul>
+ * <li>{@code GET /projects?limit=100&cursor=...} returns one page of projects, without materials,
+ * steps or categories, as {@code {"projects":[...],"nextCursor":"..."}}. Pass nextCursor back to
+ * get the next page; it is null on the last page. Pages are read by keyset, so every page costs the
+ * same.</li>
+ * <li>{@code GET /projects?stream=true} streams every project as one JSON array. The projects are
+ * read and written a page at a time, so the server never holds the whole list.</li>
+ * <li>{@code GET /projects/{id}} returns a project with its materials, steps and categories. The
+ * response carries the project's row version as its ETag. A request whose If-None-Match names the
+ * current version gets 304 Not Modified after a version lookup alone, so a client polling a project
+ * that has not changed never causes the project to be loaded or written out.</li>
+ * <li>{@code POST /projects} creates a project and returns it with its ID, status 201.</li>
+ * <li>{@code PUT /projects/{id}} replaces the details of a project, status 204. With write-behind
+ * enabled the update is only queued, so a PUT to a missing project also gets 204 and the update is
+ * dropped when the buffer is flushed.</li>
+ * <li>{@code DELETE /projects/{id}} deletes a project, status 204.</li>
+ * </ul>
+ * Projects are read and written in the JSON format of the NDJSON export and import. Errors are
+ * returned as {@code {"error":"..."}} with status 400 for bad input, 404 for a missing project, 503
+ * when the DAO concurrency limiter turns the request away and 500 otherwise.
+ */
+public class ProjectRestServer implements AutoCloseable {
+	private static final Logger LOG = Logger.get(ProjectRestServer.class);
+
+	private static final int DEFAULT_PAGE_SIZE = 100;
+	private static final int MAX_PAGE_SIZE = 1000;
+	private static final int STREAM_PAGE_SIZE = 1000;
+	private static final int MAX_BODY_BYTES = 1 << 20;
+	private static final String JSON = "application/json; charset=utf-8";
+	private static final Name PROJECTS = Name.of("projects");
+	private static final Name NEXT_CURSOR = Name.of("nextCursor");
+	private static final Name ERROR = Name.of("error");
+
+	static {
+		/*
+		 * The JDK server closes connections beyond this many idle ones, which defeats keep-alive for a
+		 * large number of clients. It is read once, when the first server is created.
+		 */
+		if(Objects.isNull(System.getProperty("sun.net.httpserver.maxIdleConnections"))) {
+			System.setProperty("sun.net.httpserver.maxIdleConnections",
+					System.getProperty("projects.rest.maxIdleConnections", "10000"));
+		}
+
+		/*
+		 * The server writes the headers and the body separately. With Nagle's algorithm on, the body
+		 * waits for the client's delayed ACK of the headers, about 40 ms on every kept-alive request.
+		 */
+		if(Objects.isNull(System.getProperty("sun.net.httpserver.nodelay"))) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+
+	private final ProjectService projectService;
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+	/**
+	 * Create the server and start listening.
+	 *
+	 * @param projectService The service behind the API.
+	 * @param port The port to listen on, or 0 for any free port.
+	 * @param backlog The number of connections the operating system queues before they are accepted.
+	 * @throws IOException Thrown if the port cannot be bound.
+	 */
+	public ProjectRestServer(ProjectService projectService, int port, int backlog) throws IOException {
+		this.projectService = projectService;
+		this.server = HttpServer.create(new InetSocketAddress(port), backlog);
+
+		server.createContext("/projects", this::handle);
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * Returns the port the server is listening on.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Stops accepting requests. Requests in progress get up to a second to finish.
+	 */
+	@Override
+	public void close() {
+		server.stop(1);
+		executor.shutdown();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String method = exchange.getRequestMethod();
+		String path = exchange.getRequestURI().getPath();
+
+		Span span = Tracer.startSpan("http." + method, path);
+
+		try {
+			Integer projectId = parseProjectId(path);
+
+			if(Objects.isNull(projectId)) {
+				switch(method) {
+					case "GET" -> listProjects(exchange);
+					case "POST" -> createProject(exchange);
+					default -> sendError(exchange, 405, "Use GET or POST on /projects.");
+				}
+			}
+			else {
+				switch(method) {
+					case "GET" -> getProject(exchange, projectId);
+					case "PUT" -> updateProject(exchange, projectId);
+					case "DELETE" -> deleteProject(exchange, projectId);
+					default -> sendError(exchange, 405, "Use GET, PUT or DELETE on /projects/{id}.");
+				}
+			}
+		}
+		catch(IllegalArgumentException e) {
+			sendError(exchange, 400, e.getMessage());
+		}
+		catch(NoSuchElementException e) {
+			sendError(exchange, 404, e.getMessage());
+		}
+		catch(ConcurrencyLimitException e) {
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			sendError(exchange, 503, e.getMessage());
+		}
+		catch(IOException | UncheckedIOException e) {
+			/* The client went away. There is no one to tell. */
+			LOG.debug("Unable to answer a request", "method", method, "path", path, "error",
+					e.getMessage());
+		}
+		catch(RuntimeException e) {
+			LOG.warn("Request failed", "method", method, "path", path, e);
+			sendError(exchange, 500, "The request failed: " + e.getMessage());
+		}
+		finally {
+			exchange.close();
+			span.close();
+		}
+	}
+
+	/**
+	 * Returns the project ID in a /projects/{id} path, or null for /projects.
+	 *
+	 * @throws NoSuchElementException Thrown for any other path.
+	 */
+	private static Integer parseProjectId(String path) {
+		String rest = path.substring("/projects".length());
+
+		if(rest.isEmpty() || rest.equals("/")) {
+			return null;
+		}
+
+		if(!rest.startsWith("/")) {
+			throw new NoSuchElementException("No such resource: " + path);
+		}
+
+		try {
+			return Integer.valueOf(rest.substring(1));
+		}
+		catch(NumberFormatException e) {
+			throw new NoSuchElementException("No such resource: " + path);
+		}
+	}
+
+	private void listProjects(HttpExchange exchange) throws IOException {
+		Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+		if(Boolean.parseBoolean(query.get("stream"))) {
+			streamProjects(exchange);
+			return;
+		}
+
+		int limit = DEFAULT_PAGE_SIZE;
+
+		if(query.containsKey("limit")) {
+			limit = Integer.parseInt(query.get("limit"));
+
+			if(limit < 1 || limit > MAX_PAGE_SIZE) {
+				throw new IllegalArgumentException(
+						"The limit must be from 1 to " + MAX_PAGE_SIZE + ".");
+			}
+		}
+
+		String afterName = null;
+		Integer afterId = null;
+		String cursor = query.get("cursor");
+
+		if(Objects.nonNull(cursor) && !cursor.isEmpty()) {
+			String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			int colon = decoded.indexOf(':');
+
+			if(colon < 0) {
+				throw new IllegalArgumentException("Invalid cursor.");
+			}
+
+			afterId = Integer.valueOf(decoded.substring(0, colon));
+			afterName = decoded.substring(colon + 1);
+		}
+
+		List<Project> projects = projectService.fetchProjectsPage(afterName, afterId, limit);
+		ByteArrayOutputStream body = new ByteArrayOutputStream(1024 + projects.size() * 256);
+		JsonWriter json = new JsonWriter(body);
+
+		json.beginObject().name(PROJECTS).beginArray();
+		writeProjects(projects, json);
+		json.endArray().name(NEXT_CURSOR);
+
+		if(projects.size() < limit) {
+			json.nullValue();
+		}
+		else {
+			Project last = projects.get(projects.size() - 1);
+			String next = last.getProjectId() + ":" + last.getProjectName();
+
+			json.value(Base64.getUrlEncoder().withoutPadding()
+					.encodeToString(next.getBytes(StandardCharsets.UTF_8)));
+		}
+
+		json.endObject().newLine().flush();
+		send(exchange, 200, body);
+	}
+
+	/**
+	 * Writes every project as one JSON array with chunked transfer encoding, a page at a time. Each
+	 * page is flushed to the client before the next one is read.
+	 */
+	private void streamProjects(HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", JSON);
+		exchange.sendResponseHeaders(200, 0);
+
+		try(OutputStream out = exchange.getResponseBody()) {
+			JsonWriter json = new JsonWriter(out, 1 << 16);
+			String afterName = null;
+			Integer afterId = null;
+
+			json.beginArray();
+
+			while(true) {
+				List<Project> page =
+						projectService.fetchProjectsPage(afterName, afterId, STREAM_PAGE_SIZE);
+
+				writeProjects(page, json);
+				json.flush();
+				out.flush();
+
+				if(page.size() < STREAM_PAGE_SIZE) {
+					break;
+				}
+
+				Project last = page.get(page.size() - 1);
+
+				afterName = last.getProjectName();
+				afterId = last.getProjectId();
+			}
+
+			json.endArray().newLine().flush();
+		}
+	}
+
+	private static void writeProjects(List<Project> projects, JsonWriter json) {
+		for(Project project : projects) {
+			ProjectJsonCodec.writeProject(project, json);
+		}
+	}
+
+	private void getProject(HttpExchange exchange, Integer projectId) throws IOException {
+		String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+
+		if(Objects.nonNull(ifNoneMatch)) {
+			Integer version = projectService.fetchProjectVersion(projectId);
+
+			if(Objects.nonNull(version) && matchesETag(ifNoneMatch, eTag(version))) {
+				exchange.getResponseHeaders().set("ETag", eTag(version));
+				exchange.sendResponseHeaders(304, -1);
+				return;
+			}
+		}
+
+		sendProject(exchange, 200, projectService.fetchProjectById(projectId));
+	}
+
+	private static String eTag(int rowVersion) {
+		return "\"" + rowVersion + "\"";
+	}
+
+	/**
+	 * Returns true if an If-None-Match header names the tag. The header is a list of tags or "*", and
+	 * If-None-Match compares tags weakly, so a W/ prefix is ignored.
+	 */
+	private static boolean matchesETag(String ifNoneMatch, String eTag) {
+		for(String candidate : ifNoneMatch.split(",")) {
+			String tag = candidate.trim();
+
+			if(tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+
+			if(tag.equals("*") || tag.equals(eTag)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void createProject(HttpExchange exchange) throws IOException {
+		Project project = ProjectRecordParser.parseProject(readBody(exchange));
+
+		project = projectService.addProject(project);
+
+		exchange.getResponseHeaders().set("Location", "/projects/" + project.getProjectId());
+		sendProject(exchange, 201, project);
+	}
+
+	private void updateProject(HttpExchange exchange, Integer projectId) throws IOException {
+		Project project = ProjectRecordParser.parseProject(readBody(exchange));
+
+		/* The update reports a missing project itself, as a NoSuchElementException and so a 404. */
+		project.setProjectId(projectId);
+		projectService.modifyProjectDetails(project);
+		exchange.sendResponseHeaders(204, -1);
+	}
+
+	private void deleteProject(HttpExchange exchange, Integer projectId) throws IOException {
+		projectService.deleteProject(projectId);
+		exchange.sendResponseHeaders(204, -1);
+	}
+
+	private static byte[] readBody(HttpExchange exchange) throws IOException {
+		try(InputStream in = exchange.getRequestBody()) {
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+
+			while((read = in.read(buffer)) >= 0) {
+				if(body.size() + read > MAX_BODY_BYTES) {
+					throw new IllegalArgumentException(
+							"The request body is larger than " + MAX_BODY_BYTES + " bytes.");
+				}
+
+				body.write(buffer, 0, read);
+			}
+
+			return body.toByteArray();
+		}
+	}
+
+	private static void sendProject(HttpExchange exchange, int status, Project project)
+			throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+		JsonWriter json = new JsonWriter(body, 1024);
+
+		if(Objects.nonNull(project.getRowVersion())) {
+			exchange.getResponseHeaders().set("ETag", eTag(project.getRowVersion()));
+		}
+
+		ProjectJsonCodec.writeProject(project, json);
+		json.newLine().flush();
+		send(exchange, status, body);
+	}
+
+	private static void sendError(HttpExchange exchange, int status, String message) {
+		ByteArrayOutputStream body = new ByteArrayOutputStream(128);
+		JsonWriter json = new JsonWriter(body, 256);
+
+		json.beginObject().name(ERROR).value(String.valueOf(message)).endObject().newLine().flush();
+
+		try {
+			send(exchange, status, body);
+		}
+		catch(IOException e) {
+			/* The response was already started or the client went away. */
+		}
+	}
+
+	private static void send(HttpExchange exchange, int status, ByteArrayOutputStream body)
+			throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", JSON);
+		exchange.sendResponseHeaders(status, body.size());
+
+		try(OutputStream out = exchange.getResponseBody()) {
+			body.writeTo(out);
+		}
+	}
+
+	private static Map<String, String> parseQuery(String rawQuery) {
+		Map<String, String> query = new HashMap<>();
+
+		if(Objects.isNull(rawQuery)) {
+			return query;
+		}
+
+		for(String pair : rawQuery.split("&")) {
+			int equals = pair.indexOf('=');
+
+			if(equals > 0) {
+				query.put(decode(pair.substring(0, equals)), decode(pair.substring(equals + 1)));
+			}
+			else if(!pair.isEmpty()) {
+				query.put(decode(pair), "");
+			}
+		}
+
+		return query;
+	}
+
+	private static String decode(String text) {
+		return URLDecoder.decode(text, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Runs the server until the JVM is stopped. System properties:
+	 * <ul>
+	 * <li>{@code projects.rest.port}: the port (8080),</li>
+	 * <li>{@code projects.rest.backlog}: the accept backlog (4096),</li>
+	 * <li>{@code projects.repository}: {@code memory} to serve an in-memory repository filled with
+	 * {@code projects.generate.projects} generated projects (10,000 here) instead of MySQL,</li>
+	 * <li>{@code projects.metrics.port}: also serve Prometheus metrics on this port.</li>
+	 * </ul>
+	 *
+	 * @param args Unused.
+	 * @throws IOException Thrown if a port cannot be bound.
+	 */
+	public static void main(String[] args) throws IOException {
+		ProjectService projectService;
+
+		if("memory".equals(System.getProperty("projects.repository"))) {
+			InMemoryProjectRepository repository = new InMemoryProjectRepository();
+
+			ProjectDataGenerator.fromSystemProperties()
+					.generateInto(Long.getLong("projects.generate.projects", 10_000), repository);
+			projectService = ProjectService.create(repository);
+		}
+		else {
+			projectService = ProjectService.create();
+		}
+
+		ProjectRestServer server = new ProjectRestServer(projectService,
+				Integer.getInteger("projects.rest.port", 8080),
+				Integer.getInteger("projects.rest.backlog", 4096));
+		int metricsPort = Integer.getInteger("projects.metrics.port", -1);
+		MetricsServer metricsServer = metricsPort < 0 ? null
+				: new MetricsServer(projectService.getMetricsRegistry(), metricsPort);
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.close();
+
+			if(Objects.nonNull(metricsServer)) {
+				metricsServer.close();
+			}
+		}, "rest-shutdown"));
+
+		LOG.info("Serving projects", "url", "http://localhost:" + server.getPort() + "/projects");
+	}
+}
@@ -0,0 +1,309 @@
+package projects.rest;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import projects.dao.InMemoryProjectRepository;
+import projects.json.JsonReader;
+import projects.load.ProjectDataGenerator;
+import projects.metrics.LatencyHistogram;
+import projects.service.ProjectService;
+
+/**
+ * This class shows that {@link ProjectRestServer} holds thousands of client connections at once. It
+ * opens every connection first, on its own virtual thread, and waits until all of them are open.
+ * Only then does each connection send its requests, one after another over the same kept-alive
+ * socket, so every connection stays open for the whole run. A response that closes the connection
+ * counts as an error.
+ *
+ * Run it with {@code java projects.rest.RestLoadTest} and these system properties:
+ * <ul>
+ * <li>{@code projects.rest.load.url}: the server to test, for example
+ * {@code http://localhost:8080}. Without it an in-process server is started on an in-memory
+ * repository with {@code projects.generate.projects} generated projects (10,000 here).</li>
+ * <li>{@code projects.rest.load.connections}: the connections held at once (2,000),</li>
+ * <li>{@code projects.rest.load.requestsPerConnection}: the GET /projects/{id} requests sent on
+ * each connection (20).</li>
+ * </ul>
+ * The operating system must allow two open files per connection when the server is in-process; see
+ * {@code ulimit -n}.
+ */
+public class RestLoadTest {
+	private static final int CONNECT_TIMEOUT_MILLIS = 30_000;
+
+	private final String host;
+	private final int port;
+	private final int[] projectIds;
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private final LongAdder errors = new LongAdder();
+	private final AtomicInteger openConnections = new AtomicInteger();
+	private final AtomicInteger maxOpenConnections = new AtomicInteger();
+
+	/**
+	 * Create the test.
+	 *
+	 * @param host The server host.
+	 * @param port The server port.
+	 * @param projectIds The IDs of the projects to request.
+	 */
+	public RestLoadTest(String host, int port, int[] projectIds) {
+		if(projectIds.length == 0) {
+			throw new IllegalArgumentException("There are no projects to request.");
+		}
+
+		this.host = host;
+		this.port = port;
+		this.projectIds = projectIds.clone();
+	}
+
+	/**
+	 * Runs the test and prints a report.
+	 *
+	 * @param connections The connections to hold at once.
+	 * @param requestsPerConnection The requests to send on each connection.
+	 */
+	public void run(int connections, int requestsPerConnection) {
+		CountDownLatch connected = new CountDownLatch(connections);
+		long start;
+		long elapsed;
+
+		try(ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for(int client = 0; client < connections; client++) {
+				executor.execute(() -> runConnection(connected, requestsPerConnection));
+			}
+
+			try {
+				connected.await();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			start = System.nanoTime();
+		}
+
+		elapsed = Math.max(1, System.nanoTime() - start);
+		report(connections, elapsed);
+	}
+
+	private void runConnection(CountDownLatch connected, int requests) {
+		Socket socket = new Socket();
+		boolean counted = false;
+
+		try(socket) {
+			socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+			maxOpenConnections.accumulateAndGet(openConnections.incrementAndGet(), Math::max);
+			counted = true;
+			connected.countDown();
+			connected.await();
+
+			OutputStream out = socket.getOutputStream();
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+
+			for(int request = 0; request < requests; request++) {
+				int projectId = projectIds[random.nextInt(projectIds.length)];
+				long requestStart = System.nanoTime();
+
+				out.write(("GET /projects/" + projectId + " HTTP/1.1\r\nHost: " + host
+						+ "\r\nConnection: keep-alive\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+				out.flush();
+
+				if(!readResponse(in)) {
+					errors.add(requests - request);
+					return;
+				}
+
+				latencies.record(System.nanoTime() - requestStart);
+			}
+		}
+		catch(IOException e) {
+			errors.increment();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			if(counted) {
+				openConnections.decrementAndGet();
+			}
+			else {
+				connected.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Reads one response with a Content-Length body.
+	 *
+	 * @return True if the status was 200 and the server left the connection open.
+	 * @throws IOException Thrown if the connection fails or the response is not one this test sends
+	 *         for.
+	 */
+	private static boolean readResponse(InputStream in) throws IOException {
+		String statusLine = readLine(in);
+		int contentLength = -1;
+		boolean keepAlive = true;
+		String header;
+
+		while(!(header = readLine(in)).isEmpty()) {
+			int colon = header.indexOf(':');
+
+			if(colon < 0) {
+				continue;
+			}
+
+			String name = header.substring(0, colon).trim();
+			String value = header.substring(colon + 1).trim();
+
+			if(name.equalsIgnoreCase("Content-Length")) {
+				contentLength = Integer.parseInt(value);
+			}
+			else if(name.equalsIgnoreCase("Connection") && value.equalsIgnoreCase("close")) {
+				keepAlive = false;
+			}
+		}
+
+		if(contentLength < 0) {
+			throw new IOException("The response has no Content-Length: " + statusLine);
+		}
+
+		in.skipNBytes(contentLength);
+
+		return statusLine.startsWith("HTTP/1.1 200") && keepAlive;
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+		int ch;
+
+		while((ch = in.read()) != '\n') {
+			if(ch < 0) {
+				throw new IOException("The server closed the connection.");
+			}
+
+			if(ch != '\r') {
+				line.write(ch);
+			}
+		}
+
+		return line.toString(StandardCharsets.US_ASCII);
+	}
+
+	private void report(int connections, long elapsedNanos) {
+		double seconds = elapsedNanos / 1e9;
+
+		System.out.println();
+		System.out.printf("%,d connections, %,d held open at once, %.1f s, %,d projects%n", connections,
+				maxOpenConnections.get(), seconds, projectIds.length);
+		System.out.printf("%10s %8s %10s %9s %9s %9s %9s%n", "Requests", "Errors", "Req/s", "p50 ms",
+				"p99 ms", "p999 ms", "max ms");
+		System.out.printf("%,10d %,8d %,10.1f %9.3f %9.3f %9.3f %9.3f%n", latencies.getCount(),
+				errors.sum(), latencies.getCount() / seconds, millis(latencies.getValueAtPercentile(50)),
+				millis(latencies.getValueAtPercentile(99)), millis(latencies.getValueAtPercentile(99.9)),
+				millis(latencies.getMax()));
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+
+	/**
+	 * Reads the IDs of the first thousand projects through the API.
+	 */
+	private static int[] fetchProjectIds(String baseUrl) throws IOException {
+		URL url = URI.create(baseUrl + "/projects?limit=1000").toURL();
+		IntStream.Builder projectIds = IntStream.builder();
+
+		try(InputStream in = url.openStream()) {
+			JsonReader page = new JsonReader(in);
+
+			page.beginObject();
+
+			while(page.hasNext()) {
+				if(!page.nextName().equals("projects")) {
+					page.skipValue();
+					continue;
+				}
+
+				page.beginArray();
+
+				while(page.hasNext()) {
+					page.beginObject();
+
+					while(page.hasNext()) {
+						if(page.nextName().equals("projectId")) {
+							projectIds.add(page.nextInt());
+						}
+						else {
+							page.skipValue();
+						}
+					}
+
+					page.endObject();
+				}
+
+				page.endArray();
+			}
+
+			page.endObject();
+		}
+
+		return projectIds.build().toArray();
+	}
+
+	/**
+	 * Runs the test. See the class comment for the system properties.
+	 *
+	 * @param args Unused.
+	 * @throws IOException Thrown if the server cannot be started or reached.
+	 */
+	public static void main(String[] args) throws IOException {
+		String baseUrl = System.getProperty("projects.rest.load.url");
+		ProjectService service = null;
+		ProjectRestServer server = null;
+
+		if(Objects.isNull(baseUrl)) {
+			InMemoryProjectRepository repository = new InMemoryProjectRepository();
+
+			ProjectDataGenerator.fromSystemProperties()
+					.generateInto(Long.getLong("projects.generate.projects", 10_000), repository);
+			service = ProjectService.create(repository);
+			server = new ProjectRestServer(service, 0,
+					Integer.getInteger("projects.rest.backlog", 4096));
+			baseUrl = "http://localhost:" + server.getPort();
+		}
+
+		try {
+			URI uri = URI.create(baseUrl);
+			RestLoadTest test = new RestLoadTest(uri.getHost(), uri.getPort() < 0 ? 80 : uri.getPort(),
+					fetchProjectIds(baseUrl));
+
+			test.run(Integer.getInteger("projects.rest.load.connections", 2000),
+					Integer.getInteger("projects.rest.load.requestsPerConnection", 20));
+		}
+		finally {
+			if(Objects.nonNull(server)) {
+				server.close();
+				service.close();
+			}
+		}
+
+		System.exit(0);
+	}
+}
@@ -0,0 +1,409 @@
+package projects.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import projects.log.Logger;
+import projects.util.IntObjectMap;
+import projects.util.IntSet;
+
+/**
+ * This class adds up increments to project actual hours in memory and periodically writes the
+ * totals to the database. Hours are kept as a whole number of hundredths (the scale of the
+ * actual_hours column), so adding an increment is a long addition rather than a
+ * {@link BigDecimal} allocation.
+ *
+ * Increments are spread over a number of stripes, each with its own lock and its own map of project
+ * ID to running total. A thread always uses the same stripe, so threads on different cores rarely
+ * contend with each other. A flush swaps out the map of every stripe and adds the totals together.
+ *
+ * If the write of a flush fails because the database is unavailable, the totals are added back and
+ * retried by the next flush. If it fails for any other reason, the totals are written one project at
+ * a time so that one bad project does not hold back the others. A total that keeps failing on its
+ * own is dropped after {@code maxAttempts} flushes and counted in {@link #getDroppedTotals()}.
+ *
+ * A write that sets the actual hours of a project outright must not be overtaken by increments made
+ * before it. Such writes go through {@link #supersede(int, Supplier)}, which fences off that one
+ * project: it waits only if a flush is writing the project, and flushes leave the project's new
+ * increments alone until the write is done. Writes to other projects and flushes carry on.
+ */
+class ActualHoursAccumulator implements AutoCloseable {
+	private static final Logger LOG = Logger.get(ActualHoursAccumulator.class);
+
+	private final Consumer<Map<Integer, BigDecimal>> writer;
+	private final Stripe[] stripes;
+	private final int stripeMask;
+	private final ReentrantLock flushLock = new ReentrantLock();
+
+	/* Guards the fences and the projects being written, and signals the end of each flush write. */
+	private final ReentrantLock fenceLock = new ReentrantLock();
+	private final Condition written = fenceLock.newCondition();
+	private final IntObjectMap<int[]> fences = new IntObjectMap<>();
+	private final IntSet writing = new IntSet();
+	private final ScheduledExecutorService flusher;
+	private final long flushMillis;
+	private final FailedWriteTracker failures;
+
+	/**
+	 * Create an accumulator. The totals are only written on a schedule once {@link #start()} is
+	 * called.
+	 *
+	 * @param writer Adds each total to the actual hours of its project in the database.
+	 * @param flushMillis How often the totals are written.
+	 * @param maxAttempts The number of times a total may fail on its own before it is dropped.
+	 */
+	ActualHoursAccumulator(Consumer<Map<Integer, BigDecimal>> writer, long flushMillis,
+			int maxAttempts) {
+		this.writer = writer;
+		this.flushMillis = flushMillis;
+		this.failures = new FailedWriteTracker(maxAttempts);
+
+		int numStripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+
+		this.stripes = new Stripe[numStripes];
+		this.stripeMask = numStripes - 1;
+
+		for(int pos = 0; pos < numStripes; pos++) {
+			stripes[pos] = new Stripe();
+		}
+
+		this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "actual-hours-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts writing the totals every {@code flushMillis}. This is kept out of the constructor so
+	 * that the flusher thread never sees a partly constructed accumulator.
+	 */
+	void start() {
+		flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Adds hours to the running total of a project.
+	 *
+	 * @param projectId The project ID.
+	 * @param hundredths The number of hours times 100. It may be negative.
+	 */
+	void add(int projectId, long hundredths) {
+		long threadId = Thread.currentThread().threadId();
+		Stripe stripe = stripes[(int)(threadId ^ (threadId >>> 16)) & stripeMask];
+
+		stripe.lock.lock();
+
+		try {
+			long[] total = stripe.totals.get(projectId);
+
+			if(Objects.isNull(total)) {
+				total = new long[1];
+				stripe.totals.put(projectId, total);
+			}
+
+			total[0] = Math.addExact(total[0], hundredths);
+		}
+		finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Throws away the running total of a project and runs an action that sets the project's actual
+	 * hours. Increments made before the action are overwritten by it, so they must neither be written
+	 * later nor be in the middle of being written while the action runs. This method waits only for a
+	 * flush that is writing this project; the action itself runs without holding any lock, and
+	 * increments made while it runs are kept until it returns.
+	 *
+	 * @param <T> The type of the action's result.
+	 * @param projectId The project ID.
+	 * @param action Writes or buffers the new actual hours.
+	 * @return The result of the action.
+	 */
+	<T> T supersede(int projectId, Supplier<T> action) {
+		fenceLock.lock();
+
+		try {
+			int[] fence = fences.get(projectId);
+
+			if(Objects.isNull(fence)) {
+				fence = new int[1];
+				fences.put(projectId, fence);
+			}
+
+			fence[0]++;
+
+			/* A failed write adds its total back before the flush ends, so remove after waiting. */
+			while(writing.contains(projectId)) {
+				written.awaitUninterruptibly();
+			}
+
+			for(Stripe stripe : stripes) {
+				stripe.lock.lock();
+
+				try {
+					stripe.totals.remove(projectId);
+				}
+				finally {
+					stripe.lock.unlock();
+				}
+			}
+		}
+		finally {
+			fenceLock.unlock();
+		}
+
+		try {
+			return action.get();
+		}
+		finally {
+			fenceLock.lock();
+
+			try {
+				if(--fences.get(projectId)[0] == 0) {
+					fences.remove(projectId);
+				}
+			}
+			finally {
+				fenceLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Writes all running totals and waits until they are committed.
+	 *
+	 * @throws projects.exception.DbException Thrown if some totals could not be written. They are
+	 *         added back and retried by the next flush, unless they have failed too often and were
+	 *         dropped.
+	 */
+	void flush() {
+		flushLock.lock();
+
+		try {
+			Map<Integer, long[]> totals = drain();
+
+			try {
+				Map<Integer, BigDecimal> deltas = new LinkedHashMap<>();
+
+				totals.forEach((projectId, total) -> {
+					if(total[0] != 0) {
+						deltas.put(projectId, BigDecimal.valueOf(total[0], 2));
+					}
+				});
+
+				if(!deltas.isEmpty()) {
+					write(deltas, totals);
+				}
+			}
+			finally {
+				fenceLock.lock();
+
+				try {
+					writing.clear();
+					written.signalAll();
+				}
+				finally {
+					fenceLock.unlock();
+				}
+			}
+		}
+		finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes the totals of one flush, falling back to one project at a time if the batch fails.
+	 */
+	private void write(Map<Integer, BigDecimal> deltas, Map<Integer, long[]> totals) {
+		long dropped = failures.getDropped();
+
+		try {
+			writer.accept(deltas);
+		}
+		catch(RuntimeException e) {
+			boolean retrying = FailedWriteTracker.isTransient(e)
+					? addBack(deltas.keySet(), totals)
+					: writeEach(deltas, totals);
+
+			if(retrying || failures.getDropped() != dropped) {
+				throw e;
+			}
+
+			return;
+		}
+
+		for(Integer projectId : deltas.keySet()) {
+			failures.written(projectId);
+		}
+	}
+
+	/**
+	 * Returns the number of project totals dropped because they kept failing.
+	 */
+	long getDroppedTotals() {
+		return failures.getDropped();
+	}
+
+	/**
+	 * Stops the background flusher and writes the remaining totals.
+	 */
+	@Override
+	public void close() {
+		flusher.shutdown();
+
+		try {
+			flusher.awaitTermination(10, TimeUnit.SECONDS);
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		flush();
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		}
+		catch(RuntimeException e) {
+			LOG.warn("Unable to flush actual hours. They will be retried", "error", e);
+		}
+	}
+
+	/**
+	 * Writes the totals of a failed flush one project at a time. A total that fails on its own is
+	 * added back, unless it has failed too often, in which case it is dropped. Once the database
+	 * itself fails, the totals not yet written are all added back.
+	 *
+	 * @return {@code true} if any total was added back.
+	 */
+	private boolean writeEach(Map<Integer, BigDecimal> deltas, Map<Integer, long[]> totals) {
+		List<Integer> projectIds = new ArrayList<>(deltas.keySet());
+		boolean retrying = false;
+
+		for(int pos = 0; pos < projectIds.size(); pos++) {
+			Integer projectId = projectIds.get(pos);
+
+			try {
+				writer.accept(Map.of(projectId, deltas.get(projectId)));
+				failures.written(projectId);
+			}
+			catch(RuntimeException e) {
+				if(FailedWriteTracker.isTransient(e)) {
+					return addBack(projectIds.subList(pos, projectIds.size()), totals);
+				}
+
+				if(failures.failed(projectId)) {
+					LOG.error("Dropping actual hours that keep failing", "projectId", projectId,
+							"hours", deltas.get(projectId), "error", e.getMessage());
+				}
+				else {
+					add(projectId, totals.get(projectId)[0]);
+					retrying = true;
+				}
+			}
+		}
+
+		return retrying;
+	}
+
+	/**
+	 * Adds the totals of the given projects back to the running totals.
+	 *
+	 * @return {@code true} if there were any.
+	 */
+	private boolean addBack(Collection<Integer> projectIds, Map<Integer, long[]> totals) {
+		for(Integer projectId : projectIds) {
+			add(projectId, totals.get(projectId)[0]);
+		}
+
+		return !projectIds.isEmpty();
+	}
+
+	/**
+	 * Takes the totals out of every stripe and adds them up per project. The totals of fenced projects
+	 * stay where they are, and the projects taken are marked as being written.
+	 */
+	private Map<Integer, long[]> drain() {
+		IntObjectMap<long[]> combined = new IntObjectMap<>();
+
+		fenceLock.lock();
+
+		try {
+			for(Stripe stripe : stripes) {
+				IntObjectMap<long[]> totals;
+
+				stripe.lock.lock();
+
+				try {
+					totals = takeUnfenced(stripe);
+				}
+				finally {
+					stripe.lock.unlock();
+				}
+
+				totals.forEach((projectId, total) -> {
+					long[] sum = combined.get(projectId);
+
+					if(Objects.isNull(sum)) {
+						combined.put(projectId, total);
+						writing.add(projectId);
+					}
+					else {
+						sum[0] = Math.addExact(sum[0], total[0]);
+					}
+				});
+			}
+		}
+		finally {
+			fenceLock.unlock();
+		}
+
+		Map<Integer, long[]> result = new LinkedHashMap<>();
+		combined.forEach(result::put);
+
+		return result;
+	}
+
+	/**
+	 * Replaces the totals of a stripe with those of the fenced projects and returns the rest. The
+	 * caller holds the stripe lock and the fence lock.
+	 */
+	private IntObjectMap<long[]> takeUnfenced(Stripe stripe) {
+		IntObjectMap<long[]> totals = stripe.totals;
+		IntObjectMap<long[]> kept = new IntObjectMap<>();
+
+		if(!fences.isEmpty()) {
+			totals.forEach((projectId, total) -> {
+				if(fences.containsKey(projectId)) {
+					kept.put(projectId, total);
+				}
+			});
+
+			kept.forEach((projectId, total) -> totals.remove(projectId));
+		}
+
+		stripe.totals = kept;
+		return totals;
+	}
+
+	private static class Stripe {
+		private final ReentrantLock lock = new ReentrantLock();
+		private IntObjectMap<long[]> totals = new IntObjectMap<>();
+	}
+}
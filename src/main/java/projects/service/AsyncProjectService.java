@@ -0,0 +1,125 @@
+package projects.service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import projects.entity.Project;
+import projects.trace.Tracer;
+
+/**
+ * This class is an asynchronous front end for {@link ProjectService}. Each call runs on its own
+ * virtual thread and returns a {@link CompletableFuture}, so callers can fan out requests without
+ * tying up platform threads while JDBC blocks.
+ *
+ * Virtual threads are cheap, but database connections are not. A semaphore limits how many calls
+ * may be inside the service at the same time. Calls beyond the limit wait (on their virtual thread)
+ * for a permit.
+ */
+public class AsyncProjectService implements AutoCloseable {
+	/* Maximum concurrent calls into the service. Override with -Dprojects.async.maxConcurrency=... */
+	private static final int DEFAULT_MAX_CONCURRENCY =
+			Integer.getInteger("projects.async.maxConcurrency", 16);
+
+	private final ProjectService projectService;
+	private final Semaphore permits;
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+	/**
+	 * Create an asynchronous front end with the default concurrency limit.
+	 *
+	 * @param projectService The service that does the work.
+	 */
+	public AsyncProjectService(ProjectService projectService) {
+		this(projectService, DEFAULT_MAX_CONCURRENCY);
+	}
+
+	/**
+	 * Create an asynchronous front end.
+	 *
+	 * @param projectService The service that does the work.
+	 * @param maxConcurrency The maximum number of calls that may run in the service at once.
+	 */
+	public AsyncProjectService(ProjectService projectService, int maxConcurrency) {
+		this.projectService = projectService;
+		this.permits = new Semaphore(maxConcurrency, true);
+	}
+
+	/**
+	 * See {@link ProjectService#addProject(Project)}.
+	 */
+	public CompletableFuture<Project> addProject(Project project) {
+		return submit(() -> projectService.addProject(project));
+	}
+
+	/**
+	 * See {@link ProjectService#fetchAllProjects()}.
+	 */
+	public CompletableFuture<List<Project>> fetchAllProjects() {
+		return submit(projectService::fetchAllProjects);
+	}
+
+	/**
+	 * See {@link ProjectService#fetchProjectById(Integer)}. The future completes exceptionally with
+	 * a {@link java.util.NoSuchElementException} if the project does not exist.
+	 */
+	public CompletableFuture<Project> fetchProjectById(Integer projectId) {
+		return submit(() -> projectService.fetchProjectById(projectId));
+	}
+
+	/**
+	 * See {@link ProjectService#modifyProjectDetails(Project)}.
+	 */
+	public CompletableFuture<Void> modifyProjectDetails(Project project) {
+		return submit(() -> {
+			projectService.modifyProjectDetails(project);
+			return null;
+		});
+	}
+
+	/**
+	 * See {@link ProjectService#deleteProject(Integer)}.
+	 */
+	public CompletableFuture<Void> deleteProject(Integer projectId) {
+		return submit(() -> {
+			projectService.deleteProject(projectId);
+			return null;
+		});
+	}
+
+	/**
+	 * Stops accepting new calls. Calls that were already submitted are allowed to finish.
+	 */
+	@Override
+	public void close() {
+		executor.close();
+	}
+
+	/**
+	 * Runs the call on a new virtual thread once a permit is available. The call keeps the caller's
+	 * current trace span as its parent.
+	 */
+	private <T> CompletableFuture<T> submit(Supplier<T> call) {
+		Supplier<T> traced = Tracer.wrap(call);
+
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				permits.acquire();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CompletionException(e);
+			}
+
+			try {
+				return traced.get();
+			}
+			finally {
+				permits.release();
+			}
+		}, executor);
+	}
+}
@@ -0,0 +1,85 @@
+package projects.service;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import projects.dao.ConcurrencyLimiter;
+import projects.exception.ConcurrencyLimitException;
+import projects.util.IntObjectMap;
+
+/**
+ * This class counts how often a buffered write to each project has failed on its own, so that a row
+ * the database will never accept (a poison row) is dropped after a number of attempts instead of
+ * being retried forever and blocking every write buffered with it.
+ *
+ * Only failures that belong to the row count. A failure that points at the database being
+ * unavailable or overloaded, see {@link #isTransient(RuntimeException)}, is retried without limit,
+ * so nothing is dropped during an outage.
+ *
+ * This class is not thread safe. The buffers that use it call it while holding their flush lock.
+ */
+class FailedWriteTracker {
+	private final int maxAttempts;
+	private final IntObjectMap<int[]> attempts = new IntObjectMap<>();
+	private final LongAdder dropped = new LongAdder();
+
+	/**
+	 * Create a tracker.
+	 *
+	 * @param maxAttempts The number of failed attempts after which a row is dropped.
+	 */
+	FailedWriteTracker(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Tells whether a write failed because of the database rather than the rows written, so the
+	 * write should be retried as it is.
+	 *
+	 * @param failure The exception thrown by the write.
+	 */
+	static boolean isTransient(RuntimeException failure) {
+		return failure instanceof ConcurrencyLimitException || ConcurrencyLimiter.isCongestion(failure);
+	}
+
+	/**
+	 * Records that the write of a project's row failed on its own.
+	 *
+	 * @param projectId The project ID.
+	 * @return {@code true} if the row has now failed {@code maxAttempts} times and must be dropped.
+	 *         It is then counted in {@link #getDropped()} and forgotten.
+	 */
+	boolean failed(int projectId) {
+		int[] count = attempts.get(projectId);
+
+		if(Objects.isNull(count)) {
+			count = new int[1];
+			attempts.put(projectId, count);
+		}
+
+		if(++count[0] < maxAttempts) {
+			return false;
+		}
+
+		attempts.remove(projectId);
+		dropped.increment();
+		return true;
+	}
+
+	/**
+	 * Records that the row of a project was written, which resets its failure count.
+	 *
+	 * @param projectId The project ID.
+	 */
+	void written(int projectId) {
+		if(attempts.size() > 0) {
+			attempts.remove(projectId);
+		}
+	}
+
+	/**
+	 * Returns the number of rows dropped since the tracker was created.
+	 */
+	long getDropped() {
+		return dropped.sum();
+	}
+}
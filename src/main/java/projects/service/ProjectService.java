@@ -1,21 +1,422 @@
 package projects.service;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import projects.backup.ProjectBackup;
+import projects.bulk.ImportResult;
+import projects.bulk.ProjectExporter;
+import projects.bulk.ProjectImporter;
+import projects.cache.OffHeapProjectCache;
+import projects.cache.WarmCacheSnapshot;
+import projects.dao.BackupTable;
+import projects.dao.ConcurrencyLimiter;
 import projects.dao.DbConnection;
+import projects.dao.ProjectBackupDao;
 import projects.dao.ProjectDao;
+import projects.dao.ProjectExportDao;
+import projects.dao.ProjectImportDao;
+import projects.dao.ProjectRepository;
+import projects.dao.TimedProjectRepository;
 import projects.entity.Project;
 import projects.exception.DbException;
+import projects.log.Logger;
+import projects.metrics.LatencyRecorder;
+import projects.metrics.MetricsRegistry;
+import projects.metrics.OperationMetrics;
+import projects.outbox.FileChangeEventSink;
+import projects.outbox.OutboxRelay;
+import projects.trace.Span;
+import projects.trace.Tracer;
 
 
 public class ProjectService {
-	  private ProjectDao projectDao = new ProjectDao();
+	  private static final Logger LOG = Logger.get(ProjectService.class);
+
+	  /* Off-heap capacity of the project cache. Override with -Dprojects.cache.offHeapBytes=... */
+	  private static final long CACHE_BYTES = Long.getLong("projects.cache.offHeapBytes", 64L << 20);
+
+	  /* File used to keep the project cache across restarts. Set with -Dprojects.cache.warmFile=... */
+	  private static final String WARM_CACHE_FILE = System.getProperty("projects.cache.warmFile");
+
+	  /*
+	   * How long a transaction may stay open and still have its changes caught by the warm cache. Changes
+	   * younger than this are applied to the snapshot again on the next restart.
+	   */
+	  private static final long WARM_CACHE_SETTLE_MILLIS =
+			  Long.getLong("projects.cache.warmSettleMillis", TimeUnit.MINUTES.toMillis(5));
+
+	  /*
+	   * Buffer project detail updates and write them in batches. Enable with -Dprojects.writeBehind=true
+	   * An update that fails on its own maxAttempts times is dropped.
+	   */
+	  private static final boolean WRITE_BEHIND = Boolean.getBoolean("projects.writeBehind");
+	  private static final int WRITE_BEHIND_BATCH = Integer.getInteger("projects.writeBehind.maxBatch", 500);
+	  private static final long WRITE_BEHIND_MILLIS = Long.getLong("projects.writeBehind.flushMillis", 1000);
+	  private static final int WRITE_BEHIND_ATTEMPTS =
+			  Integer.getInteger("projects.writeBehind.maxAttempts", 5);
+
+	  /* How often accumulated actual hours increments are written, and how often one may fail. */
+	  private static final long HOURS_FLUSH_MILLIS = Long.getLong("projects.hours.flushMillis", 1000);
+	  private static final int HOURS_ATTEMPTS = Integer.getInteger("projects.hours.maxAttempts", 5);
+
+	  /* File that project change events are relayed to. Set with -Dprojects.outbox.file=... */
+	  private static final String OUTBOX_FILE = System.getProperty("projects.outbox.file");
+
+	  /*
+	   * Outbox relay tuning: events per batch, poll interval, how long a hole in the change IDs is
+	   * waited for, and how long delivered changes stay in the change log.
+	   */
+	  private static final int OUTBOX_BATCH = Integer.getInteger("projects.outbox.batchSize", 500);
+	  private static final long OUTBOX_POLL_MILLIS = Long.getLong("projects.outbox.pollMillis", 1000);
+	  private static final long OUTBOX_GAP_TIMEOUT_MILLIS =
+			  Long.getLong("projects.outbox.gapTimeoutMillis", 5000);
+	  private static final long OUTBOX_RETENTION_MILLIS =
+			  Long.getLong("projects.outbox.retentionMillis", TimeUnit.DAYS.toMillis(7));
+
+	  /* Bulk import tuning: records per transaction, parser threads and chunks queued for the writer. */
+	  private static final int IMPORT_COMMIT_SIZE = Integer.getInteger("projects.import.commitSize", 1000);
+	  private static final int IMPORT_PARSER_THREADS = Integer.getInteger("projects.import.parserThreads",
+			  Runtime.getRuntime().availableProcessors());
+	  private static final int IMPORT_QUEUE_CAPACITY = Integer.getInteger("projects.import.queueCapacity",
+			  IMPORT_PARSER_THREADS * 2);
+
+	  /* Rows fetched from the server at a time by each export cursor. */
+	  private static final int EXPORT_FETCH_SIZE = Integer.getInteger("projects.export.fetchSize", 1000);
+
+	  /* Backup and restore tuning: connections used in parallel and rows per backup block. */
+	  private static final int BACKUP_WORKERS = Integer.getInteger("projects.backup.workers",
+			  Runtime.getRuntime().availableProcessors());
+	  private static final int BACKUP_BLOCK_ROWS = Integer.getInteger("projects.backup.blockRows", 1000);
+
+	  /* Latency statistics interval, and the file each interval is appended to as JSON lines. */
+	  private static final long METRICS_INTERVAL_MILLIS = Long.getLong("projects.metrics.intervalMillis", 10_000);
+	  private static final String METRICS_DUMP_FILE = System.getProperty("projects.metrics.dumpFile");
+
+	  private final OperationMetrics metrics = new OperationMetrics(METRICS_INTERVAL_MILLIS,
+			  Objects.isNull(METRICS_DUMP_FILE) ? null : Path.of(METRICS_DUMP_FILE));
+	  private final ProjectRepository projectRepository;
+
+	  /* The MySQL DAO when the repository is one. The change log it reads is not part of the repository. */
+	  private ProjectDao projectDao;
+	  private ProjectImportDao projectImportDao = new ProjectImportDao();
+	  private ProjectExportDao projectExportDao = new ProjectExportDao();
+	  private ProjectBackupDao projectBackupDao = new ProjectBackupDao();
+	  private ConcurrencyLimiter daoLimiter = new ConcurrencyLimiter();
+	  private OffHeapProjectCache projectCache = new OffHeapProjectCache(CACHE_BYTES);
+	  private volatile WarmCacheSnapshot warmCache;
+	  private long cacheChangeId = -1;
+	  private ProjectUpdateBuffer updateBuffer;
+	  private OutboxRelay outboxRelay;
+	  private ActualHoursAccumulator hoursAccumulator =
+			  new ActualHoursAccumulator(this::writeActualHours, HOURS_FLUSH_MILLIS, HOURS_ATTEMPTS);
+	  private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+	  /* Looked up once so that timing a call does no map lookup. */
+	  private final LatencyRecorder addProjectTimer = metrics.recorder("service.addProject");
+	  private final LatencyRecorder fetchAllProjectsTimer = metrics.recorder("service.fetchAllProjects");
+	  private final LatencyRecorder fetchProjectsByCategoryTimer =
+			  metrics.recorder("service.fetchProjectsByCategory");
+	  private final LatencyRecorder fetchProjectsPageTimer = metrics.recorder("service.fetchProjectsPage");
+	  private final LatencyRecorder fetchProjectByIdTimer = metrics.recorder("service.fetchProjectById");
+	  private final LatencyRecorder fetchProjectVersionTimer =
+			  metrics.recorder("service.fetchProjectVersion");
+	  private final LatencyRecorder modifyProjectDetailsTimer =
+			  metrics.recorder("service.modifyProjectDetails");
+	  private final LatencyRecorder deleteProjectTimer = metrics.recorder("service.deleteProject");
+	  private final LatencyRecorder incrementActualHoursTimer =
+			  metrics.recorder("service.incrementActualHours");
+	  private final LatencyRecorder importProjectsTimer = metrics.recorder("service.importProjects");
+	  private final LatencyRecorder exportProjectsTimer = metrics.recorder("service.exportProjects");
+	  private final LatencyRecorder backupDatabaseTimer = metrics.recorder("service.backupDatabase");
+	  private final LatencyRecorder restoreDatabaseTimer = metrics.recorder("service.restoreDatabase");
+	  private final LatencyRecorder flushTimer = metrics.recorder("service.flush");
+
+	  /* Runs close() if the JVM exits first. Removed by close() so a closed service can be collected. */
+	  private Thread shutdownHook;
+	  private final AtomicBoolean closed = new AtomicBoolean();
+
+	  /**
+	   * Creates and starts the service. If a warm cache file is configured, the snapshot written at the
+	   * last shutdown is mapped into memory. If write-behind is enabled, project detail updates are
+	   * buffered. If an outbox file is configured, committed project changes are relayed to it as
+	   * NDJSON events. {@link #close()} is run when the JVM shuts down, unless it was called before, so
+	   * nothing buffered is lost.
+	   * 
+	   * @return The service.
+	   */
+	  public static ProjectService create() {
+		  return create(new ProjectDao());
+	  }
+
+	  /**
+	   * Creates and starts the service on top of the given repository. The warm cache and the outbox
+	   * read the project change log, so they are only started when the repository is a
+	   * {@link ProjectDao}. Import, export, backup and restore always use the MySQL database. Every call
+	   * to the repository and to the public methods of the service is timed; see {@link #getMetrics()}.
+	   * 
+	   * @param projectRepository Stores the projects.
+	   * @return The service.
+	   */
+	  public static ProjectService create(ProjectRepository projectRepository) {
+		  ProjectService service = new ProjectService(projectRepository);
+
+		  service.start();
+		  return service;
+	  }
+
+	  private ProjectService(ProjectRepository projectRepository) {
+		  this.projectRepository = new TimedProjectRepository(projectRepository, metrics);
+
+		  if(projectRepository instanceof ProjectDao dao) {
+			  projectDao = dao;
+		  }
+
+		  if(Objects.nonNull(WARM_CACHE_FILE) && Objects.nonNull(projectDao)) {
+			  loadWarmCache(Path.of(WARM_CACHE_FILE));
+		  }
+
+		  if(WRITE_BEHIND) {
+			  updateBuffer = new ProjectUpdateBuffer(this::writeBufferedUpdates, WRITE_BEHIND_BATCH,
+					  WRITE_BEHIND_MILLIS, WRITE_BEHIND_ATTEMPTS);
+		  }
+
+		  if(Objects.nonNull(OUTBOX_FILE) && Objects.nonNull(projectDao)) {
+			  openOutboxRelay(Path.of(OUTBOX_FILE));
+		  }
+
+		  registerMetrics();
+	  }
+
+	  /**
+	   * Starts the background threads and registers the shutdown hook. Each of them can call back into
+	   * the service, so this is only done once the constructor has finished.
+	   */
+	  private void start() {
+		  metrics.start();
+		  hoursAccumulator.start();
+
+		  if(Objects.nonNull(updateBuffer)) {
+			  updateBuffer.start();
+		  }
+
+		  if(Objects.nonNull(outboxRelay)) {
+			  outboxRelay.start();
+		  }
+
+		  shutdownHook = new Thread(this::close, "project-service-shutdown");
+		  Runtime.getRuntime().addShutdownHook(shutdownHook);
+	  }
+
+	  /**
+	   * Returns the limiter that caps in-flight DAO operations. Its limit, queue depth and rejection
+	   * count are exposed for monitoring.
+	   * 
+	   * @return The DAO concurrency limiter.
+	   */
+	  public ConcurrencyLimiter getDaoLimiter() {
+		  return daoLimiter;
+	  }
+
+	  /**
+	   * Returns the latency statistics of the service methods, named {@code service.<method>}, and of
+	   * the repository methods, named {@code dao.<method>}.
+	   * 
+	   * @return The operation metrics.
+	   */
+	  public OperationMetrics getMetrics() {
+		  return metrics;
+	  }
+
+	  /**
+	   * Returns the registry of the metrics served to Prometheus: the latency and failures of the
+	   * service and repository methods, the DAO concurrency limiter, the project caches and the database
+	   * connections.
+	   * 
+	   * @return The metrics registry.
+	   */
+	  public MetricsRegistry getMetricsRegistry() {
+		  return metricsRegistry;
+	  }
+
+	  /**
+	   * Registers the metrics that are read at scrape time. There is no connection pool; each DAO
+	   * operation opens its own connection, so the limiter's in-flight count is the occupancy of the
+	   * database and the open connection count follows it.
+	   */
+	  private void registerMetrics() {
+		  metricsRegistry.register(metrics);
+
+		  metricsRegistry.gauge("projects_limiter_limit", "Current limit on in-flight DAO operations.",
+				  daoLimiter::getLimit);
+		  metricsRegistry.gauge("projects_limiter_in_flight", "DAO operations running.",
+				  daoLimiter::getInFlight);
+		  metricsRegistry.gauge("projects_limiter_queue_depth", "DAO operations waiting for a slot.",
+				  daoLimiter::getQueueDepth);
+		  metricsRegistry.counter("projects_limiter_rejections_total",
+				  "DAO operations rejected by the limiter.", daoLimiter::getRejections);
+
+		  metricsRegistry.gauge("projects_db_connections_open", "Database connections currently open.",
+				  DbConnection::getOpenConnections);
+		  metricsRegistry.counter("projects_db_connections_opened_total", "Database connections opened.",
+				  DbConnection::getConnectionsOpened);
+		  metricsRegistry.counter("projects_db_connect_failures_total",
+				  "Attempts to open a database connection that failed.", DbConnection::getConnectFailures);
+		  metricsRegistry.counter("projects_db_connect_seconds_total",
+				  "Time spent opening database connections.", () -> DbConnection.getConnectNanos() / 1e9);
+
+		  metricsRegistry.counter("projects_hours_dropped_total",
+				  "Actual hours increments dropped after failing too often.",
+				  hoursAccumulator::getDroppedTotals);
+
+		  if(Objects.nonNull(updateBuffer)) {
+			  metricsRegistry.counter("projects_write_behind_dropped_total",
+					  "Buffered project updates dropped after failing too often.",
+					  updateBuffer::getDroppedUpdates);
+		  }
+
+		  metricsRegistry.counter("projects_cache_requests_total", "Project cache lookups.",
+				  projectCache::getHits, "cache", "offheap", "result", "hit");
+		  metricsRegistry.counter("projects_cache_requests_total", "Project cache lookups.",
+				  projectCache::getMisses, "cache", "offheap", "result", "miss");
+		  metricsRegistry.counter("projects_cache_evictions_total", "Projects evicted from the cache.",
+				  projectCache::getEvictions, "cache", "offheap");
+		  metricsRegistry.gauge("projects_cache_entries", "Projects held in the cache.",
+				  projectCache::size, "cache", "offheap");
+		  metricsRegistry.gauge("projects_cache_hit_ratio", "Share of cache lookups that were hits.",
+				  () -> {
+					  long hits = projectCache.getHits();
+					  long lookups = hits + projectCache.getMisses();
+					  return lookups == 0 ? 0 : (double)hits / lookups;
+				  }, "cache", "offheap");
+	  }
+
+	  /**
+	   * Maps the warm cache snapshot and throws away every project that was changed after the snapshot
+	   * was written. The change ID the next snapshot will be written with is read first, so that any
+	   * change made while the cache is in use is caught on the next restart. It is the newest change
+	   * older than {@link #WARM_CACHE_SETTLE_MILLIS}, not the newest change: a transaction still open
+	   * may commit a lower change ID than the newest one later, and would otherwise be missed. A
+	   * snapshot that cannot be read for any reason is ignored.
+	   * 
+	   * @param file The snapshot file.
+	   */
+	  private void loadWarmCache(Path file) {
+		  try {
+			  cacheChangeId = projectDao
+					  .fetchSettledChangeId(TimeUnit.MILLISECONDS.toSeconds(WARM_CACHE_SETTLE_MILLIS));
+		  }
+		  catch(DbException e) {
+			  LOG.warn("Unable to read the project change log. The warm cache is disabled", "error",
+					  e.getMessage());
+			  return;
+		  }
+
+		  if(!Files.exists(file)) {
+			  return;
+		  }
+
+		  try {
+			  WarmCacheSnapshot snapshot = WarmCacheSnapshot.open(file);
+			  long oldestChangeId = projectDao.fetchOldestChangeId();
+
+			  /* The outbox relay prunes old changes. Those made after the snapshot must all be there. */
+			  if(oldestChangeId == 0 ? snapshot.getChangeId() != 0
+					  : oldestChangeId > snapshot.getChangeId() + 1) {
+				  LOG.warn("Ignoring the warm cache. The change log no longer goes back to it", "file",
+						  file, "changeId", snapshot.getChangeId(), "oldestChangeId", oldestChangeId);
+				  return;
+			  }
+
+			  for(int projectId : projectDao.fetchProjectIdsChangedSince(snapshot.getChangeId()).toArray()) {
+				  snapshot.invalidate(projectId);
+			  }
+
+			  warmCache = snapshot;
+		  }
+		  catch(IOException | RuntimeException e) {
+			  LOG.warn("Ignoring the warm cache", "file", file, "error", e);
+		  }
+	  }
+
+	  /**
+	   * Opens the relay of the project change log to a local NDJSON file. It is started by
+	   * {@link #start()}.
+	   * 
+	   * @param file The event file.
+	   */
+	  private void openOutboxRelay(Path file) {
+		  try {
+			  outboxRelay = new OutboxRelay(projectDao, new FileChangeEventSink(file), OUTBOX_BATCH,
+					  OUTBOX_POLL_MILLIS, OUTBOX_GAP_TIMEOUT_MILLIS, OUTBOX_RETENTION_MILLIS);
+		  }
+		  catch(IOException e) {
+			  LOG.warn("Unable to open the outbox file", "file", file, "error", e.getMessage());
+		  }
+	  }
+
+	  /**
+	   * Writes any buffered project updates and actual hours increments to the database and then
+	   * writes the project cache to the warm cache file, if one is configured. The background threads
+	   * of the service are stopped and its shutdown hook is removed. This is also called from the
+	   * shutdown hook; calls after the first do nothing.
+	   */
+	  public void close() {
+		  if(!closed.compareAndSet(false, true)) {
+			  return;
+		  }
+
+		  try {
+			  Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		  }
+		  catch(IllegalStateException e) {
+			  /* The JVM is shutting down, so this is the hook itself running. */
+		  }
+
+		  if(Objects.nonNull(updateBuffer)) {
+			  try {
+				  updateBuffer.close();
+			  }
+			  catch(DbException e) {
+				  LOG.error("Unable to write buffered project updates", "error", e.getMessage());
+			  }
+		  }
+
+		  try {
+			  hoursAccumulator.close();
+		  }
+		  catch(DbException e) {
+			  LOG.error("Unable to write actual hours increments", "error", e.getMessage());
+		  }
+
+		  if(Objects.nonNull(outboxRelay)) {
+			  outboxRelay.close();
+		  }
+
+		  metrics.close();
+
+		  if(Objects.isNull(WARM_CACHE_FILE) || cacheChangeId < 0) {
+			  return;
+		  }
+
+		  try {
+			  WarmCacheSnapshot.write(Path.of(WARM_CACHE_FILE), cacheChangeId, projectCache, warmCache);
+		  }
+		  catch(IOException e) {
+			  LOG.warn("Unable to write the warm cache", "file", WARM_CACHE_FILE, "error", e.getMessage());
+		  }
+	  }
 	  /**
 	   * This method simply calls the DAO class to insert a project row.
 	   * 
@@ -23,7 +424,14 @@ public class ProjectService {
 	   * @return The Project object with the newly generated primary key value.
 	   */
 	  public Project addProject(Project project) {
-	    return projectDao.insertProject(project);
+		  long start = System.nanoTime();
+
+		  try(Span span = Tracer.startSpan("service.addProject")) {
+			  return daoLimiter.call(() -> projectRepository.insertProject(project));
+		  }
+		  finally {
+			  addProjectTimer.record(System.nanoTime() - start);
+		  }
 	  }
 	  /**
 	   * This method calls the project DAO to retrieve all project rows without accompanying details
@@ -32,75 +440,201 @@ public class ProjectService {
 	   * @return A list of project records.
 	   */
 	public List<Project> fetchAllProjects() {
-		String sql = ("SELECT * FROM project ORDER BY project_name");
-		List<Project> projects = new ArrayList<>();
-		
-		try(Connection conn = DbConnection.getConnection()){
-			//c. start a new transaction
-			conn.setAutoCommit(false);
-			
-			try(PreparedStatement stmt = conn.prepareStatement(sql)){
-				
-				// e. Inner try-with-resources for ResultSet
-				try(ResultSet rs = stmt.executeQuery()){
-					while(rs.next()) {
-						Project project = new Project();
-						
-						project.setActualHours(rs.getBigDecimal("actual_hours"));
-						project.setDifficulty(rs.getObject("difficulty", Integer.class));
-						project.setEstimatedHours(rs.getBigDecimal("estimated_hours"));
-						project.setNotes(rs.getString("notes"));
-						project.setProjectId(rs.getObject("project_id", Integer.class));
-						project.setProjectName(rs.getString("project_name"));
-						
-						projects.add(project);
-						
-					}
-
-		                // Commit after successful execution
-		                conn.commit();
-		            }
-
-		        } catch (Exception e) {
-		            // d. Rollback and throw DbException
-		            conn.rollback();
-		            throw new DbException("Error fetching projects", e);
-		        }
-
-		    } catch (SQLException e) {
-		        // b. Catch SQLException and rethrow as DbException
-		        throw new DbException("Unable to establish connection", e);
-		    }
-
-		    return projects;
+		long start = System.nanoTime();
+
+		try(Span span = Tracer.startSpan("service.fetchAllProjects")) {
+			return daoLimiter.call(projectRepository::fetchAllProjects);
+		}
+		finally {
+			fetchAllProjectsTimer.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * This method calls the project repository to retrieve the projects in a category, ordered by
+	 * name, without accompanying details (materials, steps and categories).
+	 * 
+	 * @param categoryName The category name.
+	 * @return A list of project records. It is empty if the category does not exist.
+	 */
+	public List<Project> fetchProjectsByCategory(String categoryName) {
+		long start = System.nanoTime();
+
+		try(Span span = Tracer.startSpan("service.fetchProjectsByCategory")) {
+			return daoLimiter.call(() -> projectRepository.fetchProjectsByCategory(categoryName));
+		}
+		finally {
+			fetchProjectsByCategoryTimer.record(System.nanoTime() - start);
 		}
+	}
+
+	/**
+	 * This method calls the project repository to retrieve one page of projects, ordered by name and
+	 * then ID, without accompanying details. Pass the name and ID of the last project of a page to get
+	 * the next one.
+	 * 
+	 * @param afterName The name of the last project of the previous page, or null for the first page.
+	 * @param afterId The ID of the last project of the previous page.
+	 * @param limit The most projects returned.
+	 * @return A list of project records. A list shorter than the limit is the last page.
+	 * @throws IllegalArgumentException Thrown if afterName is given without afterId.
+	 */
+	public List<Project> fetchProjectsPage(String afterName, Integer afterId, int limit) {
+		long start = System.nanoTime();
+
+		try(Span span = Tracer.startSpan("service.fetchProjectsPage")) {
+			return daoLimiter.call(() -> projectRepository.fetchProjectsPage(afterName, afterId, limit));
+		}
+		finally {
+			fetchProjectsPageTimer.record(System.nanoTime() - start);
+		}
+	}
 	  /**
 	   * This method calls the project DAO to get all project details, including materials, steps, and
-	   * categories. If the project ID is invalid, it throws an exception.
+	   * categories. If the project ID is invalid, it throws an exception. Projects are served from the
+	   * off-heap project cache when possible, then from the warm cache snapshot. A project found in the
+	   * snapshot or loaded from the DAO is added to the cache.
 	   * 
 	   * @param projectId The project ID.
 	   * @return A Project object if successful.
 	   * @throws NoSuchElementException Thrown if the project with the given ID does not exist.
 	   */
 	public Project fetchProjectById(Integer projectId) {
-	    return projectDao.fetchProjectById(projectId)
+		long start = System.nanoTime();
+
+		try(Span span = Tracer.startSpan("service.fetchProjectById")) {
+			return fetchProjectThroughCaches(projectId);
+		}
+		finally {
+			fetchProjectByIdTimer.record(System.nanoTime() - start);
+		}
+	}
+
+	private Project fetchProjectThroughCaches(Integer projectId) {
+		Optional<Project> cached = projectCache.get(projectId);
+
+		if(cached.isPresent()) {
+			return withPendingUpdates(cached.get());
+		}
+
+		/*
+		 * Read before the snapshot or the DAO, so that a copy loaded before a concurrent write is not
+		 * put in the cache after the write has invalidated it.
+		 */
+		long epoch = projectCache.epoch(projectId);
+		WarmCacheSnapshot snapshot = warmCache;
+
+		if(Objects.nonNull(snapshot)) {
+			Optional<Project> warm = snapshot.get(projectId);
+
+			if(warm.isPresent()) {
+				/* Promote the project so that it is kept in the next snapshot. */
+				if(projectCache.put(warm.get(), epoch)) {
+					snapshot.invalidate(projectId);
+				}
+
+				return withPendingUpdates(warm.get());
+			}
+		}
+
+	    Project project = daoLimiter.call(() -> projectRepository.fetchProjectById(projectId))
 	        .orElseThrow(() -> new NoSuchElementException(
 	            "Project with project ID=" + projectId + " does not exist."
 	        ));
+
+	    projectCache.put(project, epoch);
+	    return withPendingUpdates(project);
+	}
+
+	/**
+	 * This method returns the row version of a project, the version that {@link #fetchProjectById}
+	 * would return, without loading the project's materials, steps and categories. A cached project
+	 * answers from the cache, which reads the version from the encoded project without decoding the
+	 * rest; otherwise the version alone is read from the DAO with one primary key lookup. A project
+	 * found only in the warm cache snapshot is not promoted, since the caller has not asked for it.
+	 * 
+	 * @param projectId The project ID.
+	 * @return The row version, or null if an update to the project is waiting in the write-behind
+	 *         buffer, so the version of what {@link #fetchProjectById} returns is not known yet.
+	 * @throws NoSuchElementException Thrown if the project with the given ID does not exist.
+	 */
+	public Integer fetchProjectVersion(Integer projectId) {
+		long start = System.nanoTime();
+
+		try(Span span = Tracer.startSpan("service.fetchProjectVersion")) {
+			if(Objects.nonNull(updateBuffer) && updateBuffer.hasPending(projectId)) {
+				return null;
+			}
+
+			Optional<Integer> cached = projectCache.getRowVersion(projectId);
+			WarmCacheSnapshot snapshot = warmCache;
+
+			if(cached.isEmpty() && Objects.nonNull(snapshot)) {
+				cached = snapshot.getRowVersion(projectId);
+			}
+
+			if(cached.isPresent()) {
+				return cached.get();
+			}
+
+			return daoLimiter.call(() -> projectRepository.fetchProjectVersion(projectId))
+					.orElseThrow(() -> new NoSuchElementException(
+							"Project with project ID=" + projectId + " does not exist."));
+		}
+		finally {
+			fetchProjectVersionTimer.record(System.nanoTime() - start);
+		}
 	}
 	
 	/**
 	 * Attempts to update the details of an existing project in the database.
 	 * 
+	 * In write-behind mode the update is only added to the update buffer and the method returns
+	 * immediately. Null fields then leave the stored value unchanged, and an update to a project that
+	 * does not exist is dropped when the buffer is flushed instead of throwing an exception. Call
+	 * {@link #flush()} to make sure the update has reached the database.
+	 * 
 	 * @param project The project object containing the updated data.
+	 * @throws NoSuchElementException Thrown if the project does not exist. The update itself finds
+	 *         that out, so a project deleted between a lookup and the update cannot be missed.
 	 */
 	public void modifyProjectDetails(Project project) {
+		long start = System.nanoTime();
+
+		try(Span span = Tracer.startSpan("service.modifyProjectDetails")) {
+			writeProjectDetails(project);
+		}
+		finally {
+			modifyProjectDetailsTimer.record(System.nanoTime() - start);
+		}
+	}
+
+	private void writeProjectDetails(Project project) {
+		if(Objects.nonNull(updateBuffer)) {
+			/* A buffered update that sets the actual hours replaces any increments made before it. */
+			if(Objects.nonNull(project.getActualHours())) {
+				hoursAccumulator.supersede(project.getProjectId(), () -> {
+					updateBuffer.enqueue(project);
+					return null;
+				});
+			}
+			else {
+				updateBuffer.enqueue(project);
+			}
+
+			return;
+		}
+
 		  // Call the DAO method to perform the update and capture the result
-		boolean updated = projectDao.modifyProjectDetails(project);
+		/* The update always sets the actual hours, so it replaces any increments made before it. */
+		boolean updated = hoursAccumulator.supersede(project.getProjectId(),
+				() -> daoLimiter.call(() -> projectRepository.modifyProjectDetails(project)));
+		invalidateCachedProject(project.getProjectId());
 		
 		// If the update failed (e.g., the project ID doesn't exist), throw an exception
 		if(!updated) {
-			throw new DbException("Project with ID=" + project.getProjectId() + "does not exist.");
+			throw new NoSuchElementException(
+					"Project with project ID=" + project.getProjectId() + " does not exist.");
 		}
 		
 	}
@@ -109,15 +643,238 @@ public class ProjectService {
 	 * Attempts to delete a project from the database based on the given project ID.
 	 * 
 	 * @param projectId The ID of the project to delete.
+	 * @throws NoSuchElementException Thrown if the project does not exist.
 	 */
 	public void deleteProject(Integer projectId) {
-		// Call the DAO method to delete the project and check if it succeeded
-		if(!projectDao.deleteProject(projectId)) {
-			throw new DbException("Project with ID=" + projectId + " does not exist.");
+		long start = System.nanoTime();
+
+		try(Span span = Tracer.startSpan("service.deleteProject")) {
+			if(Objects.nonNull(updateBuffer)) {
+				updateBuffer.discard(projectId);
+			}
+
+			// Call the DAO method to delete the project and check if it succeeded
+			boolean deleted = daoLimiter.call(() -> projectRepository.deleteProject(projectId));
+			invalidateCachedProject(projectId);
+
+			if(!deleted) {
+				throw new NoSuchElementException(
+						"Project with project ID=" + projectId + " does not exist.");
+			}
+		}
+		finally {
+			deleteProjectTimer.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Adds hours to the actual hours of a project. The increment is added to an in-memory total and
+	 * written, together with any other increments for the project, on the next flush. The database
+	 * does the addition, so increments are never lost to a concurrent read-modify-write. Increments
+	 * are not visible to {@link #fetchProjectById(Integer)} until they are flushed.
+	 * 
+	 * In write-behind mode, an increment to a project whose buffered update sets the actual hours is
+	 * added to that update instead, so the update cannot overwrite it when the two are flushed.
+	 * 
+	 * @param projectId The project ID.
+	 * @param delta The hours to add. It is rounded to two decimal places. It may be negative.
+	 */
+	public void incrementActualHours(Integer projectId, BigDecimal delta) {
+		long start = System.nanoTime();
+
+		try(Span span = Tracer.startSpan("service.incrementActualHours")) {
+			BigDecimal rounded = delta.setScale(2, RoundingMode.HALF_UP);
+
+			if(Objects.nonNull(updateBuffer) && updateBuffer.addToActualHours(projectId, rounded)) {
+				return;
+			}
+
+			hoursAccumulator.add(projectId, rounded.unscaledValue().longValueExact());
+		}
+		finally {
+			incrementActualHoursTimer.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Loads projects, with their materials, steps and categories, from an NDJSON or CSV file. The
+	 * projects are written in transactions of {@code projects.import.commitSize} records. If an
+	 * earlier import of the same file failed, the records it committed are skipped.
+	 * 
+	 * @param file The file to import. See {@link ProjectImporter} for the formats.
+	 * @return The number of records skipped and imported.
+	 * @throws IOException Thrown if the file cannot be read.
+	 * @throws DbException Thrown if a record is not valid or cannot be written.
+	 */
+	public ImportResult importProjects(Path file) throws IOException {
+		long start = System.nanoTime();
+		ProjectImporter importer = new ProjectImporter(projectImportDao, IMPORT_COMMIT_SIZE,
+				IMPORT_PARSER_THREADS, IMPORT_QUEUE_CAPACITY);
+
+		try(Span span = Tracer.startSpan("service.importProjects")) {
+			return importer.importFile(file);
+		}
+		finally {
+			importProjectsTimer.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Writes every project, with its materials, steps and categories, to an NDJSON or CSV file. The
+	 * projects are streamed from the database, so any number of them can be exported. Buffered updates
+	 * are flushed first so the export includes them.
+	 * 
+	 * The export does not go through the DAO concurrency limiter. It holds one connection for as long
+	 * as it runs, and its latency would otherwise look like congestion to the limiter.
+	 * 
+	 * @param file The file to write. See {@link ProjectExporter} for the formats.
+	 * @return The number of projects exported.
+	 * @throws IOException Thrown if the file cannot be written.
+	 * @throws DbException Thrown if the projects cannot be read.
+	 */
+	public long exportProjects(Path file) throws IOException {
+		long start = System.nanoTime();
+
+		try(Span span = Tracer.startSpan("service.exportProjects")) {
+			flush();
+
+			return new ProjectExporter(projectExportDao, EXPORT_FETCH_SIZE).exportFile(file);
+		}
+		finally {
+			exportProjectsTimer.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Backs up the project tables to a binary file from one consistent snapshot, reading them over
+	 * {@code projects.backup.workers} connections in parallel. Buffered updates are flushed first so
+	 * the backup includes them.
+	 * 
+	 * @param file The backup file.
+	 * @return The number of rows backed up.
+	 * @throws IOException Thrown if the file cannot be written.
+	 * @throws DbException Thrown if the tables cannot be read.
+	 */
+	public long backupDatabase(Path file) throws IOException {
+		long start = System.nanoTime();
+
+		try(Span span = Tracer.startSpan("service.backupDatabase")) {
+			flush();
+
+			return newProjectBackup().backup(file);
+		}
+		finally {
+			backupDatabaseTimer.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Replaces the contents of the given tables with a backup. Buffered updates are written before
+	 * the restore, and every cached project is dropped after it. The restored rows are not added to
+	 * the project change log. Every project gets a new row version, so ETags issued before the
+	 * restore no longer match.
+	 * 
+	 * @param file The backup file.
+	 * @param tables The tables to restore.
+	 * @return The number of rows restored.
+	 * @throws IOException Thrown if the file cannot be read or is corrupt.
+	 * @throws DbException Thrown if the rows cannot be written.
+	 */
+	public long restoreDatabase(Path file, Set<BackupTable> tables) throws IOException {
+		long start = System.nanoTime();
+
+		flush();
+
+		try(Span span = Tracer.startSpan("service.restoreDatabase")) {
+			return newProjectBackup().restore(file, tables);
+		}
+		finally {
+			projectCache.clear();
+			warmCache = null;
+			restoreDatabaseTimer.record(System.nanoTime() - start);
+		}
+	}
+
+	private ProjectBackup newProjectBackup() {
+		return new ProjectBackup(projectBackupDao, BACKUP_WORKERS, BACKUP_BLOCK_ROWS);
+	}
+
+	/**
+	 * Writes all buffered project detail updates and actual hours increments and waits until they are
+	 * committed. Callers that need read-after-write call this first. Detail updates are written before
+	 * increments.
+	 * 
+	 * @throws DbException Thrown if the updates could not be written. They are kept and retried.
+	 */
+	public void flush() {
+		long start = System.nanoTime();
+
+		try(Span span = Tracer.startSpan("service.flush")) {
+			if(Objects.nonNull(updateBuffer)) {
+				updateBuffer.flush();
+			}
+
+			hoursAccumulator.flush();
+		}
+		finally {
+			flushTimer.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Writes one batch of accumulated actual hours increments and drops the old copies from the
+	 * caches.
+	 * 
+	 * @param deltas The hours to add, keyed by project ID.
+	 */
+	private void writeActualHours(Map<Integer, BigDecimal> deltas) {
+		daoLimiter.call(() -> projectRepository.incrementActualHours(deltas));
+
+		for(Integer projectId : deltas.keySet()) {
+			invalidateCachedProject(projectId);
+		}
+	}
+
+	/**
+	 * Writes one batch of merged updates from the update buffer and drops the old copies from the
+	 * caches.
+	 * 
+	 * @param batch The merged updates.
+	 */
+	private void writeBufferedUpdates(List<Project> batch) {
+		daoLimiter.call(() -> projectRepository.modifyProjectDetailsBatch(batch));
+
+		for(Project project : batch) {
+			invalidateCachedProject(project.getProjectId());
 		}
-		
-		
 	}
 
+	/**
+	 * Lays any buffered, not yet written, updates over a project so callers see their own writes.
+	 * 
+	 * @param project The project as stored in the database or a cache.
+	 * @return The same project object.
+	 */
+	private Project withPendingUpdates(Project project) {
+		if(Objects.nonNull(updateBuffer)) {
+			updateBuffer.applyPending(project);
+		}
+
+		return project;
+	}
 
+	/**
+	 * Removes a project from every cache tier after it has been modified or deleted.
+	 * 
+	 * @param projectId The project ID.
+	 */
+	private void invalidateCachedProject(Integer projectId) {
+		projectCache.invalidate(projectId);
+
+		WarmCacheSnapshot snapshot = warmCache;
+
+		if(Objects.nonNull(snapshot)) {
+			snapshot.invalidate(projectId);
+		}
+	}
 }
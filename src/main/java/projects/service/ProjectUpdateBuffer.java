@@ -0,0 +1,407 @@
+package projects.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import projects.entity.Project;
+import projects.log.Logger;
+import projects.util.IntObjectMap;
+
+/**
+ * This class holds project detail updates in memory and writes them to the database in batches.
+ * Updates to the same project are merged field by field: a field that is not null in a later update
+ * replaces the value from an earlier one, so a project that is updated many times between flushes
+ * costs a single UPDATE. Because of this, a null field in a buffered update means "leave the column
+ * as it is" rather than "set the column to NULL".
+ *
+ * Pending updates are flushed when {@code maxBatchSize} projects are waiting, every
+ * {@code flushMillis} milliseconds, when {@link #flush()} is called and when the buffer is closed.
+ * A batch that is being written stays visible to {@link #applyPending(Project)} and
+ * {@link #hasPending(Integer)} until the writer returns, so a reader never sees the old row between
+ * the batch leaving the buffer and the caches being invalidated.
+ *
+ * If a batch fails because the database is unavailable, it is put back (under any newer updates)
+ * and retried by the next flush. If it fails for any other reason, its updates are written one at a
+ * time so that a single bad row does not hold back the others. An update that keeps failing on its
+ * own is dropped after {@code maxAttempts} flushes and counted in {@link #getDroppedUpdates()}.
+ */
+class ProjectUpdateBuffer implements AutoCloseable {
+	private static final Logger LOG = Logger.get(ProjectUpdateBuffer.class);
+
+	private final Consumer<List<Project>> writer;
+	private final int maxBatchSize;
+	private final long flushMillis;
+	private final ScheduledExecutorService flusher;
+
+	private final ReentrantLock pendingLock = new ReentrantLock();
+	private final ReentrantLock flushLock = new ReentrantLock();
+	private final FailedWriteTracker failures;
+	private IntObjectMap<Project> pending = new IntObjectMap<>();
+	private IntObjectMap<Project> inFlight = new IntObjectMap<>();
+	private boolean flushRequested;
+
+	/**
+	 * Create a buffer. Updates are only flushed on a schedule once {@link #start()} is called; a full
+	 * batch is flushed either way.
+	 *
+	 * @param writer Writes a batch of merged updates to the database.
+	 * @param maxBatchSize The number of pending projects that triggers a flush.
+	 * @param flushMillis The longest time an update waits before it is flushed.
+	 * @param maxAttempts The number of times an update may fail on its own before it is dropped.
+	 */
+	ProjectUpdateBuffer(Consumer<List<Project>> writer, int maxBatchSize, long flushMillis,
+			int maxAttempts) {
+		this.writer = writer;
+		this.maxBatchSize = maxBatchSize;
+		this.flushMillis = flushMillis;
+		this.failures = new FailedWriteTracker(maxAttempts);
+		this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "project-update-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts flushing every {@code flushMillis}. This is kept out of the constructor so that the
+	 * flusher thread never sees a partly constructed buffer.
+	 */
+	void start() {
+		flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Adds an update to the buffer. The project object is copied, so the caller may keep using it.
+	 *
+	 * @param project The project with its ID and the fields to change.
+	 */
+	void enqueue(Project project) {
+		boolean requestFlush;
+
+		pendingLock.lock();
+
+		try {
+			Project merged = pending.get(project.getProjectId());
+
+			if(Objects.isNull(merged)) {
+				merged = new Project();
+				merged.setProjectId(project.getProjectId());
+				pending.put(project.getProjectId(), merged);
+			}
+
+			overlay(merged, project);
+
+			requestFlush = pending.size() >= maxBatchSize && !flushRequested;
+			flushRequested |= requestFlush;
+		}
+		finally {
+			pendingLock.unlock();
+		}
+
+		if(requestFlush) {
+			flusher.execute(this::flushQuietly);
+		}
+	}
+
+	/**
+	 * Copies any pending or in-flight field values for the project onto the given object, so a
+	 * caller reading the project sees its own writes before they are committed. The row version of
+	 * the result is not known until the update is written, so it is cleared.
+	 *
+	 * @param project A project loaded from the database or a cache.
+	 */
+	void applyPending(Project project) {
+		pendingLock.lock();
+
+		try {
+			Project writing = inFlight.get(project.getProjectId());
+			Project update = pending.get(project.getProjectId());
+
+			if(Objects.nonNull(writing)) {
+				overlay(project, writing);
+				project.setRowVersion(null);
+			}
+
+			if(Objects.nonNull(update)) {
+				overlay(project, update);
+				project.setRowVersion(null);
+			}
+		}
+		finally {
+			pendingLock.unlock();
+		}
+	}
+
+	/**
+	 * Adds hours to the actual hours of a pending or in-flight update that sets them, so that the
+	 * increment lands on top of the value the update writes instead of being overwritten by it. If
+	 * only the in-flight update sets the hours, the sum goes into a new pending update, which is
+	 * written after it.
+	 *
+	 * @param projectId The project ID.
+	 * @param delta The hours to add.
+	 * @return {@code false} if no buffered update sets the project's actual hours, in which case
+	 *         nothing was changed.
+	 */
+	boolean addToActualHours(Integer projectId, BigDecimal delta) {
+		pendingLock.lock();
+
+		try {
+			Project update = pending.get(projectId);
+
+			if(Objects.nonNull(update) && Objects.nonNull(update.getActualHours())) {
+				update.setActualHours(update.getActualHours().add(delta));
+				return true;
+			}
+
+			Project writing = inFlight.get(projectId);
+
+			if(Objects.isNull(writing) || Objects.isNull(writing.getActualHours())) {
+				return false;
+			}
+
+			if(Objects.isNull(update)) {
+				update = new Project();
+				update.setProjectId(projectId);
+				pending.put(projectId, update);
+			}
+
+			update.setActualHours(writing.getActualHours().add(delta));
+			return true;
+		}
+		finally {
+			pendingLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns true if an update to the project is waiting to be written or is being written.
+	 *
+	 * @param projectId The project ID.
+	 */
+	boolean hasPending(Integer projectId) {
+		pendingLock.lock();
+
+		try {
+			return pending.containsKey(projectId) || inFlight.containsKey(projectId);
+		}
+		finally {
+			pendingLock.unlock();
+		}
+	}
+
+	/**
+	 * Drops any pending update for the project. This is called when the project is deleted.
+	 *
+	 * @param projectId The project ID.
+	 */
+	void discard(Integer projectId) {
+		pendingLock.lock();
+
+		try {
+			pending.remove(projectId);
+		}
+		finally {
+			pendingLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes all pending updates and waits until they are committed.
+	 *
+	 * @throws projects.exception.DbException Thrown if some updates could not be written. They stay in
+	 *         the buffer and will be retried, unless they have failed too often and were dropped.
+	 */
+	void flush() {
+		flushLock.lock();
+
+		try {
+			List<Project> batch = drain();
+
+			if(batch.isEmpty()) {
+				return;
+			}
+
+			List<Project> retry = new ArrayList<>();
+			long dropped = failures.getDropped();
+			RuntimeException failure = null;
+
+			try {
+				writer.accept(batch);
+
+				for(Project project : batch) {
+					failures.written(project.getProjectId());
+				}
+			}
+			catch(RuntimeException e) {
+				failure = e;
+
+				if(FailedWriteTracker.isTransient(e)) {
+					retry.addAll(batch);
+				}
+				else {
+					writeEach(batch, retry);
+				}
+			}
+			finally {
+				settle(retry);
+			}
+
+			/* Succeed if writing the rows one at a time got every one of them through. */
+			if(Objects.nonNull(failure) && (!retry.isEmpty() || failures.getDropped() != dropped)) {
+				throw failure;
+			}
+		}
+		finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of updates dropped because they kept failing.
+	 */
+	long getDroppedUpdates() {
+		return failures.getDropped();
+	}
+
+	/**
+	 * Stops the background flusher and writes everything that is still pending.
+	 */
+	@Override
+	public void close() {
+		flusher.shutdown();
+
+		try {
+			flusher.awaitTermination(10, TimeUnit.SECONDS);
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		flush();
+	}
+
+	/**
+	 * Runs a flush on the background thread. Failures are reported and retried on the next tick.
+	 */
+	private void flushQuietly() {
+		try {
+			flush();
+		}
+		catch(RuntimeException e) {
+			LOG.warn("Unable to flush project updates. They will be retried", "error", e);
+		}
+	}
+
+	/**
+	 * Takes the pending updates out of the buffer. They are kept as in-flight until
+	 * {@link #settle(List)} is called.
+	 */
+	private List<Project> drain() {
+		pendingLock.lock();
+
+		try {
+			List<Project> batch = new ArrayList<>(pending.size());
+
+			for(Project project : pending.values()) {
+				batch.add(project);
+			}
+
+			inFlight = pending;
+			pending = new IntObjectMap<>();
+			flushRequested = false;
+
+			return batch;
+		}
+		finally {
+			pendingLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes the updates of a failed batch one at a time. Updates that fail on their own are added to
+	 * {@code retry}, unless they have failed too often, in which case they are dropped. Once the
+	 * database itself fails, the updates not yet written are all added to {@code retry}.
+	 */
+	private void writeEach(List<Project> batch, List<Project> retry) {
+		for(int pos = 0; pos < batch.size(); pos++) {
+			Project project = batch.get(pos);
+
+			try {
+				writer.accept(List.of(project));
+				failures.written(project.getProjectId());
+			}
+			catch(RuntimeException e) {
+				if(FailedWriteTracker.isTransient(e)) {
+					retry.addAll(batch.subList(pos, batch.size()));
+					return;
+				}
+
+				if(failures.failed(project.getProjectId())) {
+					LOG.error("Dropping a project update that keeps failing", "projectId",
+							project.getProjectId(), "error", e.getMessage());
+				}
+				else {
+					retry.add(project);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Ends a flush: the updates to retry are put back, under any updates that arrived since the batch
+	 * was drained, and the batch stops being in flight.
+	 */
+	private void settle(List<Project> retry) {
+		pendingLock.lock();
+
+		try {
+			for(Project failed : retry) {
+				Project newer = pending.get(failed.getProjectId());
+
+				if(Objects.nonNull(newer)) {
+					overlay(failed, newer);
+				}
+
+				pending.put(failed.getProjectId(), failed);
+			}
+
+			inFlight = new IntObjectMap<>();
+		}
+		finally {
+			pendingLock.unlock();
+		}
+	}
+
+	/**
+	 * Copies each non-null detail field of the update onto the target.
+	 */
+	private static void overlay(Project target, Project update) {
+		if(Objects.nonNull(update.getProjectName())) {
+			target.setProjectName(update.getProjectName());
+		}
+
+		if(Objects.nonNull(update.getEstimatedHours())) {
+			target.setEstimatedHours(update.getEstimatedHours());
+		}
+
+		if(Objects.nonNull(update.getActualHours())) {
+			target.setActualHours(update.getActualHours());
+		}
+
+		if(Objects.nonNull(update.getDifficulty())) {
+			target.setDifficulty(update.getDifficulty());
+		}
+
+		if(Objects.nonNull(update.getNotes())) {
+			target.setNotes(update.getNotes());
+		}
+	}
+}
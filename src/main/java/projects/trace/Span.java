@@ -0,0 +1,113 @@
+package projects.trace;
+
+import java.util.Objects;
+
+/**
+ * One timed step of a traced operation. A span is started with {@link Tracer#startSpan(String)},
+ * becomes the parent of the spans started on the same thread until it is closed, and is kept in the
+ * trace buffer once it is closed. Use it in a try-with-resources block.
+ *
+ * When tracing is off, {@link Tracer} hands out a single inert span, so an untraced call allocates
+ * nothing.
+ */
+public class Span implements AutoCloseable {
+	static final Span NOOP = new Span(null, 0, 0, null, null);
+
+	private final Span parent;
+	private final long traceId;
+	private final long spanId;
+	private final String name;
+	private final long startNanos;
+	private final long threadId;
+	private final String threadName;
+	private String detail;
+	private long durationNanos = -1;
+
+	Span(Span parent, long traceId, long spanId, String name, String detail) {
+		this.parent = parent;
+		this.traceId = traceId;
+		this.spanId = spanId;
+		this.name = name;
+		this.detail = detail;
+		this.startNanos = System.nanoTime();
+
+		Thread thread = Thread.currentThread();
+
+		this.threadId = thread.threadId();
+		/* Virtual threads are unnamed by default. */
+		this.threadName = thread.getName().isEmpty() ? "virtual-" + threadId : thread.getName();
+	}
+
+	/**
+	 * Adds or replaces the free-text detail of the span, such as the SQL of a statement.
+	 *
+	 * @param detail The detail.
+	 * @return This span.
+	 */
+	public Span detail(String detail) {
+		if(this != NOOP) {
+			this.detail = detail;
+		}
+
+		return this;
+	}
+
+	/**
+	 * Ends the span and makes its parent the current span again.
+	 */
+	@Override
+	public void close() {
+		if(this == NOOP || durationNanos >= 0) {
+			return;
+		}
+
+		durationNanos = System.nanoTime() - startNanos;
+		Tracer.finish(this);
+	}
+
+	Span getParent() {
+		return parent;
+	}
+
+	public long getTraceId() {
+		return traceId;
+	}
+
+	public long getSpanId() {
+		return spanId;
+	}
+
+	/**
+	 * Returns the span ID of the parent, or 0 for the root span of a trace.
+	 */
+	public long getParentSpanId() {
+		return Objects.isNull(parent) ? 0 : parent.spanId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getDetail() {
+		return detail;
+	}
+
+	public long getStartNanos() {
+		return startNanos;
+	}
+
+	/**
+	 * Returns how long the span ran, or -1 while it is still open.
+	 */
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+	public long getThreadId() {
+		return threadId;
+	}
+
+	public String getThreadName() {
+		return threadName;
+	}
+}
@@ -0,0 +1,326 @@
+package projects.trace;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * This class is a minimal in-process tracer. A span started while another is open on the same thread
+ * becomes its child, so one user action produces a tree such as app, service, dao, connection and
+ * statement spans. Work handed to another thread, including a virtual thread, keeps its place in the
+ * tree when the task is wrapped with {@link #wrap(Supplier)} or {@link #wrap(Runnable)}.
+ *
+ * Closed spans go into a ring buffer that keeps the most recent {@code projects.trace.bufferSize}
+ * spans (10,000), overwriting the oldest. {@link #dump(Path)} writes the buffer in the Chrome trace
+ * event format, which chrome://tracing, Perfetto and speedscope open directly.
+ *
+ * Tracing is off unless {@code -Dprojects.trace.enabled=true} is set or {@link #setEnabled(boolean)}
+ * is called. While it is off every span is the same inert object.
+ */
+public final class Tracer {
+	private static final int BUFFER_SIZE = Integer.getInteger("projects.trace.bufferSize", 10_000);
+
+	private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+	private static final AtomicLong NEXT_ID = new AtomicLong(1);
+	private static final AtomicReferenceArray<Span> BUFFER = new AtomicReferenceArray<>(BUFFER_SIZE);
+	private static final AtomicLong FINISHED = new AtomicLong();
+
+	/* Lines up System.nanoTime() with wall-clock time for the dump. */
+	private static final long EPOCH_MICROS_AT_START = System.currentTimeMillis() * 1000;
+	private static final long NANOS_AT_START = System.nanoTime();
+
+	private static volatile boolean enabled = Boolean.getBoolean("projects.trace.enabled");
+
+	private Tracer() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Turns tracing on or off. Spans that are already open still finish normally.
+	 *
+	 * @param enabled Whether new spans are recorded.
+	 */
+	public static void setEnabled(boolean enabled) {
+		Tracer.enabled = enabled;
+	}
+
+	/**
+	 * Starts a span as a child of the current span on this thread, or as the root of a new trace.
+	 *
+	 * @param name The span name, such as {@code service.fetchProjectById}.
+	 * @return The span, which is now the current span.
+	 */
+	public static Span startSpan(String name) {
+		return startSpan(name, null);
+	}
+
+	/**
+	 * Starts a span with a detail, such as the SQL of a statement.
+	 *
+	 * @param name The span name.
+	 * @param detail Free text shown with the span.
+	 * @return The span, which is now the current span.
+	 */
+	public static Span startSpan(String name, String detail) {
+		if(!enabled) {
+			return Span.NOOP;
+		}
+
+		Span parent = CURRENT.get();
+		long spanId = NEXT_ID.getAndIncrement();
+		long traceId = Objects.isNull(parent) ? spanId : parent.getTraceId();
+		Span span = new Span(parent, traceId, spanId, name, detail);
+
+		CURRENT.set(span);
+		return span;
+	}
+
+	/**
+	 * Called when a span closes. It is kept in the buffer and its parent becomes current again. If
+	 * spans were closed out of order, the current span is left alone.
+	 */
+	static void finish(Span span) {
+		if(CURRENT.get() == span) {
+			if(Objects.isNull(span.getParent())) {
+				CURRENT.remove();
+			}
+			else {
+				CURRENT.set(span.getParent());
+			}
+		}
+
+		long slot = FINISHED.getAndIncrement();
+		BUFFER.set((int)(slot % BUFFER_SIZE), span);
+	}
+
+	/**
+	 * Returns a task that runs the given one with the span that is current now as its parent, on
+	 * whatever thread it ends up running.
+	 *
+	 * @param <T> The result type.
+	 * @param task The task.
+	 * @return The wrapped task, or the task itself if there is no current span.
+	 */
+	public static <T> Supplier<T> wrap(Supplier<T> task) {
+		Span parent = CURRENT.get();
+
+		if(Objects.isNull(parent)) {
+			return task;
+		}
+
+		return () -> {
+			Span previous = CURRENT.get();
+
+			CURRENT.set(parent);
+
+			try {
+				return task.get();
+			}
+			finally {
+				restore(previous);
+			}
+		};
+	}
+
+	/**
+	 * Returns a task that runs the given one with the span that is current now as its parent.
+	 *
+	 * @param task The task.
+	 * @return The wrapped task, or the task itself if there is no current span.
+	 */
+	public static Runnable wrap(Runnable task) {
+		Span parent = CURRENT.get();
+
+		if(Objects.isNull(parent)) {
+			return task;
+		}
+
+		return () -> {
+			Span previous = CURRENT.get();
+
+			CURRENT.set(parent);
+
+			try {
+				task.run();
+			}
+			finally {
+				restore(previous);
+			}
+		};
+	}
+
+	/**
+	 * Returns a task that runs the given one with the span that is current now as its parent.
+	 *
+	 * @param <T> The result type.
+	 * @param task The task.
+	 * @return The wrapped task, or the task itself if there is no current span.
+	 */
+	public static <T> Callable<T> wrap(Callable<T> task) {
+		Span parent = CURRENT.get();
+
+		if(Objects.isNull(parent)) {
+			return task;
+		}
+
+		return () -> {
+			Span previous = CURRENT.get();
+
+			CURRENT.set(parent);
+
+			try {
+				return task.call();
+			}
+			finally {
+				restore(previous);
+			}
+		};
+	}
+
+	private static void restore(Span previous) {
+		if(Objects.isNull(previous)) {
+			CURRENT.remove();
+		}
+		else {
+			CURRENT.set(previous);
+		}
+	}
+
+	/**
+	 * Returns the closed spans still in the buffer, oldest first.
+	 */
+	public static List<Span> getFinishedSpans() {
+		long end = FINISHED.get();
+		long start = Math.max(0, end - BUFFER_SIZE);
+		List<Span> spans = new ArrayList<>((int)(end - start));
+
+		for(long slot = start; slot < end; slot++) {
+			Span span = BUFFER.get((int)(slot % BUFFER_SIZE));
+
+			if(Objects.nonNull(span)) {
+				spans.add(span);
+			}
+		}
+
+		return spans;
+	}
+
+	/**
+	 * Writes the closed spans in the buffer to a file in the Chrome trace event format: one complete
+	 * ("X") event per span, with times in microseconds, plus a thread name for each thread.
+	 *
+	 * @param file The file to write.
+	 * @return The number of spans written.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	public static int dump(Path file) throws IOException {
+		List<Span> spans = getFinishedSpans();
+		Map<Long, String> threadNames = new HashMap<>();
+
+		try(BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+
+			boolean first = true;
+
+			for(Span span : spans) {
+				if(!first) {
+					out.write(',');
+				}
+
+				first = false;
+				threadNames.putIfAbsent(span.getThreadId(), span.getThreadName());
+
+				out.write("\n{\"name\":");
+				writeJsonString(span.getName(), out);
+				out.write(",\"cat\":");
+				writeJsonString(category(span.getName()), out);
+				out.write(",\"ph\":\"X\",\"pid\":1,\"tid\":" + span.getThreadId());
+				out.write(",\"ts\":" + toEpochMicros(span.getStartNanos()));
+				out.write(",\"dur\":" + String.format(Locale.ROOT, "%.3f", span.getDurationNanos() / 1000.0));
+				out.write(",\"args\":{\"traceId\":" + span.getTraceId() + ",\"spanId\":" + span.getSpanId()
+						+ ",\"parentSpanId\":" + span.getParentSpanId());
+
+				if(Objects.nonNull(span.getDetail())) {
+					out.write(",\"detail\":");
+					writeJsonString(span.getDetail(), out);
+				}
+
+				out.write("}}");
+			}
+
+			for(Map.Entry<Long, String> thread : threadNames.entrySet()) {
+				if(!first) {
+					out.write(',');
+				}
+
+				first = false;
+				out.write("\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.getKey()
+						+ ",\"args\":{\"name\":");
+				writeJsonString(thread.getValue(), out);
+				out.write("}}");
+			}
+
+			out.write("\n]}\n");
+		}
+
+		return spans.size();
+	}
+
+	private static long toEpochMicros(long nanos) {
+		return EPOCH_MICROS_AT_START + (nanos - NANOS_AT_START) / 1000;
+	}
+
+	/**
+	 * Returns the part of a span name before the first dot, such as "service", which trace viewers
+	 * use to group and color events.
+	 */
+	private static String category(String name) {
+		int dot = name.indexOf('.');
+		return dot < 0 ? name : name.substring(0, dot);
+	}
+
+	private static void writeJsonString(String text, Writer out) throws IOException {
+		out.write('"');
+
+		for(int pos = 0; pos < text.length(); pos++) {
+			char ch = text.charAt(pos);
+
+			switch(ch) {
+				case '"':
+					out.write("\\\"");
+					break;
+
+				case '\\':
+					out.write("\\\\");
+					break;
+
+				default:
+					if(ch < 0x20) {
+						out.write(String.format("\\u%04x", (int)ch));
+					}
+					else {
+						out.write(ch);
+					}
+					break;
+			}
+		}
+
+		out.write('"');
+	}
+}
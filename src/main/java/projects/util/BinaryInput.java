@@ -0,0 +1,136 @@
+package projects.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A read cursor over values written by {@link BinaryOutput}. It keeps its own position and only does
+ * absolute reads, so the underlying buffer is never modified and may be shared between threads.
+ */
+public class BinaryInput {
+	private final ByteBuffer buffer;
+	private int position;
+
+	/**
+	 * @param buffer The buffer holding the encoded bytes.
+	 * @param offset The index of the first byte to read.
+	 */
+	public BinaryInput(ByteBuffer buffer, int offset) {
+		this.buffer = buffer;
+		this.position = offset;
+	}
+
+	public long readVarLong() {
+		long value = 0;
+		int shift = 0;
+		byte b;
+
+		do {
+			b = buffer.get(position++);
+			value |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		} while((b & 0x80) != 0);
+
+		return value;
+	}
+
+	public Integer readInteger() {
+		long encoded = readVarLong();
+		return encoded == 0 ? null : (int)unZigZag(encoded - 1);
+	}
+
+	public String readString() {
+		long encoded = readVarLong();
+
+		if(encoded == 0) {
+			return null;
+		}
+
+		return new String(readBytes((int)(encoded - 1)), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Moves past a string without decoding it.
+	 */
+	public void skipString() {
+		long encoded = readVarLong();
+
+		if(encoded != 0) {
+			position += (int)(encoded - 1);
+		}
+	}
+
+	/**
+	 * @throws IllegalStateException Thrown if the decimal tag is not known.
+	 */
+	public BigDecimal readDecimal() {
+		byte tag = buffer.get(position++);
+
+		switch(tag) {
+			case BinaryOutput.DECIMAL_NULL:
+				return null;
+
+			case BinaryOutput.DECIMAL_LONG:
+				int scale = (int)unZigZag(readVarLong());
+				return BigDecimal.valueOf(unZigZag(readVarLong()), scale);
+
+			case BinaryOutput.DECIMAL_BIG:
+				int bigScale = (int)unZigZag(readVarLong());
+				byte[] magnitude = readBytes((int)readVarLong());
+				return new BigDecimal(new BigInteger(magnitude), bigScale);
+
+			default:
+				throw new IllegalStateException("Unknown decimal tag " + tag);
+		}
+	}
+
+	/**
+	 * Moves past a decimal without decoding it.
+	 *
+	 * @throws IllegalStateException Thrown if the decimal tag is not known.
+	 */
+	public void skipDecimal() {
+		byte tag = buffer.get(position++);
+
+		switch(tag) {
+			case BinaryOutput.DECIMAL_NULL:
+				break;
+
+			case BinaryOutput.DECIMAL_LONG:
+				readVarLong();
+				readVarLong();
+				break;
+
+			case BinaryOutput.DECIMAL_BIG:
+				readVarLong();
+				int magnitudeLength = (int)readVarLong();
+				position += magnitudeLength;
+				break;
+
+			default:
+				throw new IllegalStateException("Unknown decimal tag " + tag);
+		}
+	}
+
+	/**
+	 * Returns the index of the next byte to read.
+	 */
+	public int position() {
+		return position;
+	}
+
+	private byte[] readBytes(int count) {
+		byte[] target = new byte[count];
+
+		buffer.get(position, target);
+		position += count;
+
+		return target;
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,121 @@
+package projects.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A growable byte array for compact binary encodings. The value formats are:
+ * <ul>
+ * <li>Integers are zig-zag encoded variable length values. A zero means null, so the value is
+ * shifted up by one.</li>
+ * <li>Strings are a variable length byte count (plus one, zero means null) followed by UTF-8
+ * bytes.</li>
+ * <li>Decimals are a tag byte (0 = null, 1 = unscaled value fits in a long, 2 = big) followed by
+ * the scale and the unscaled value.</li>
+ * </ul>
+ * {@link BinaryInput} reads them back.
+ */
+public class BinaryOutput {
+	static final int DECIMAL_NULL = 0;
+	static final int DECIMAL_LONG = 1;
+	static final int DECIMAL_BIG = 2;
+
+	private byte[] bytes;
+	private int length;
+
+	public BinaryOutput() {
+		this(256);
+	}
+
+	/**
+	 * @param initialCapacity The number of bytes to allocate up front.
+	 */
+	public BinaryOutput(int initialCapacity) {
+		this.bytes = new byte[Math.max(16, initialCapacity)];
+	}
+
+	/**
+	 * Writes an unsigned variable length value, seven bits per byte.
+	 */
+	public void writeVarLong(long value) {
+		ensureCapacity(10);
+
+		while((value & ~0x7FL) != 0) {
+			bytes[length++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		bytes[length++] = (byte)value;
+	}
+
+	public void writeInteger(Integer value) {
+		writeVarLong(Objects.isNull(value) ? 0 : zigZag(value) + 1);
+	}
+
+	public void writeString(String value) {
+		if(Objects.isNull(value)) {
+			writeVarLong(0);
+			return;
+		}
+
+		byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+
+		writeVarLong(utf8.length + 1L);
+		writeBytes(utf8);
+	}
+
+	public void writeDecimal(BigDecimal value) {
+		ensureCapacity(1);
+
+		if(Objects.isNull(value)) {
+			bytes[length++] = DECIMAL_NULL;
+			return;
+		}
+
+		BigInteger unscaled = value.unscaledValue();
+
+		if(unscaled.bitLength() < Long.SIZE) {
+			bytes[length++] = DECIMAL_LONG;
+			writeVarLong(zigZag(value.scale()));
+			writeVarLong(zigZag(unscaled.longValue()));
+		}
+		else {
+			byte[] magnitude = unscaled.toByteArray();
+
+			bytes[length++] = DECIMAL_BIG;
+			writeVarLong(zigZag(value.scale()));
+			writeVarLong(magnitude.length);
+			writeBytes(magnitude);
+		}
+	}
+
+	/**
+	 * Returns the number of bytes written.
+	 */
+	public int size() {
+		return length;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(bytes, length);
+	}
+
+	private void writeBytes(byte[] source) {
+		ensureCapacity(source.length);
+		System.arraycopy(source, 0, bytes, length, source.length);
+		length += source.length;
+	}
+
+	private void ensureCapacity(int extra) {
+		if(length + extra > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+		}
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+}
@@ -0,0 +1,29 @@
+package projects.util;
+
+/**
+ * Hashing helpers shared by the primitive int collections.
+ */
+class IntHashing {
+	private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+	/**
+	 * Spreads the bits of a key so that sequential IDs do not cluster in neighbouring slots. This is
+	 * Fibonacci hashing: the high bits of the product are folded into the low bits that index the
+	 * table.
+	 */
+	static int mix(int key) {
+		int hash = key * GOLDEN_RATIO;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Returns the power-of-two table size needed to hold the expected number of entries at the given
+	 * load factor.
+	 */
+	static int tableSize(int expectedSize, float loadFactor, int minCapacity) {
+		long needed = (long)Math.ceil(Math.max(expectedSize, 1) / (double)loadFactor);
+		int size = Math.max(minCapacity, Integer.highestOneBit((int)Math.min(needed, 1 << 30)));
+
+		return size < needed ? size << 1 : size;
+	}
+}
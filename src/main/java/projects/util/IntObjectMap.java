@@ -0,0 +1,265 @@
+package projects.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A hash map from primitive int keys to object values. Keys and values are kept in two parallel
+ * arrays using open addressing with linear probing, so there is no boxed {@link Integer} and no
+ * {@code HashMap.Node} per entry. Removal shifts the following entries back instead of leaving
+ * tombstones, so lookups never slow down as entries come and go.
+ *
+ * Null values are not allowed; a null value marks an empty slot. This class is not thread safe.
+ *
+ * @param <V> The value type.
+ */
+public class IntObjectMap<V> {
+	private static final int MIN_CAPACITY = 8;
+	private static final float LOAD_FACTOR = 0.6f;
+
+	private int[] keys;
+	private Object[] values;
+	private int mask;
+	private int size;
+	private int resizeAt;
+
+	/**
+	 * Create an empty map.
+	 */
+	public IntObjectMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * Create a map that can hold the given number of entries without resizing.
+	 *
+	 * @param expectedSize The number of entries expected.
+	 */
+	public IntObjectMap(int expectedSize) {
+		allocate(IntHashing.tableSize(expectedSize, LOAD_FACTOR, MIN_CAPACITY));
+	}
+
+	/**
+	 * Returns the value mapped to the key.
+	 *
+	 * @param key The key.
+	 * @return The value or {@code null} if the key is not in the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		for(int slot = IntHashing.mix(key) & mask;; slot = (slot + 1) & mask) {
+			Object value = values[slot];
+
+			if(Objects.isNull(value)) {
+				return null;
+			}
+
+			if(keys[slot] == key) {
+				return (V)value;
+			}
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the key is in the map.
+	 */
+	public boolean containsKey(int key) {
+		return Objects.nonNull(get(key));
+	}
+
+	/**
+	 * Maps the key to the value, replacing any existing value.
+	 *
+	 * @param key The key.
+	 * @param value The value. It must not be null.
+	 * @return The previous value or {@code null} if there was none.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		Objects.requireNonNull(value, "value");
+
+		int slot = IntHashing.mix(key) & mask;
+
+		while(Objects.nonNull(values[slot])) {
+			if(keys[slot] == key) {
+				V previous = (V)values[slot];
+				values[slot] = value;
+				return previous;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = key;
+		values[slot] = value;
+
+		if(++size > resizeAt) {
+			rehash(keys.length * 2);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Removes the key from the map.
+	 *
+	 * @param key The key.
+	 * @return The value that was removed or {@code null} if the key was not in the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		for(int slot = IntHashing.mix(key) & mask;; slot = (slot + 1) & mask) {
+			Object value = values[slot];
+
+			if(Objects.isNull(value)) {
+				return null;
+			}
+
+			if(keys[slot] == key) {
+				shiftBack(slot);
+				size--;
+				return (V)value;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of entries.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns {@code true} if the map has no entries.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * Calls the consumer for each entry. The map must not be modified while this runs.
+	 *
+	 * @param consumer Receives each key and value.
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(IntObjectConsumer<? super V> consumer) {
+		for(int slot = 0; slot < values.length; slot++) {
+			if(Objects.nonNull(values[slot])) {
+				consumer.accept(keys[slot], (V)values[slot]);
+			}
+		}
+	}
+
+	/**
+	 * Returns a view of the values. The map must not be modified while the view is iterated.
+	 */
+	public Iterable<V> values() {
+		return ValueIterator::new;
+	}
+
+	/**
+	 * Fills the hole left by a removed entry by moving back any following entry that would
+	 * otherwise no longer be reachable from its home slot.
+	 */
+	private void shiftBack(int hole) {
+		int slot = hole;
+
+		while(true) {
+			slot = (slot + 1) & mask;
+
+			if(Objects.isNull(values[slot])) {
+				break;
+			}
+
+			int home = IntHashing.mix(keys[slot]) & mask;
+
+			/* Move the entry if its home slot is not cyclically between the hole and the slot. */
+			if(((slot - home) & mask) >= ((slot - hole) & mask)) {
+				keys[hole] = keys[slot];
+				values[hole] = values[slot];
+				hole = slot;
+			}
+		}
+
+		values[hole] = null;
+	}
+
+	private void rehash(int newCapacity) {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+
+		allocate(newCapacity);
+
+		for(int slot = 0; slot < oldValues.length; slot++) {
+			if(Objects.nonNull(oldValues[slot])) {
+				int newSlot = IntHashing.mix(oldKeys[slot]) & mask;
+
+				while(Objects.nonNull(values[newSlot])) {
+					newSlot = (newSlot + 1) & mask;
+				}
+
+				keys[newSlot] = oldKeys[slot];
+				values[newSlot] = oldValues[slot];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+		resizeAt = (int)(capacity * LOAD_FACTOR);
+	}
+
+	/**
+	 * Receives the entries of the map from {@link IntObjectMap#forEach(IntObjectConsumer)}.
+	 *
+	 * @param <V> The value type.
+	 */
+	@FunctionalInterface
+	public interface IntObjectConsumer<V> {
+		void accept(int key, V value);
+	}
+
+	private class ValueIterator implements Iterator<V> {
+		private int slot = advance(0);
+
+		@Override
+		public boolean hasNext() {
+			return slot < values.length;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public V next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			V value = (V)values[slot];
+			slot = advance(slot + 1);
+			return value;
+		}
+
+		private int advance(int from) {
+			int next = from;
+
+			while(next < values.length && Objects.isNull(values[next])) {
+				next++;
+			}
+
+			return next;
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package projects.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash set of primitive ints. Keys are stored in a single int array using open addressing with
+ * linear probing, so there is no boxed {@link Integer} and no {@code HashMap.Node} per element.
+ * Zero marks an empty slot, so the key zero itself is tracked with a separate flag.
+ *
+ * This class is not thread safe.
+ */
+public class IntSet {
+	private static final int MIN_CAPACITY = 8;
+	private static final float LOAD_FACTOR = 0.6f;
+	private static final int EMPTY = 0;
+
+	private int[] keys;
+	private int mask;
+	private int size;
+	private int resizeAt;
+	private boolean hasZero;
+
+	/**
+	 * Create an empty set.
+	 */
+	public IntSet() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * Create a set that can hold the given number of elements without resizing.
+	 *
+	 * @param expectedSize The number of elements expected.
+	 */
+	public IntSet(int expectedSize) {
+		allocate(IntHashing.tableSize(expectedSize, LOAD_FACTOR, MIN_CAPACITY));
+	}
+
+	/**
+	 * Adds the key to the set.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key was added, {@code false} if it was already in the set.
+	 */
+	public boolean add(int key) {
+		if(key == EMPTY) {
+			if(hasZero) {
+				return false;
+			}
+
+			hasZero = true;
+			size++;
+			return true;
+		}
+
+		int slot = IntHashing.mix(key) & mask;
+
+		while(keys[slot] != EMPTY) {
+			if(keys[slot] == key) {
+				return false;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = key;
+
+		if(++size > resizeAt) {
+			rehash(keys.length * 2);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns {@code true} if the key is in the set.
+	 */
+	public boolean contains(int key) {
+		if(key == EMPTY) {
+			return hasZero;
+		}
+
+		for(int slot = IntHashing.mix(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if(keys[slot] == key) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Removes the key from the set.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key was in the set.
+	 */
+	public boolean remove(int key) {
+		if(key == EMPTY) {
+			if(!hasZero) {
+				return false;
+			}
+
+			hasZero = false;
+			size--;
+			return true;
+		}
+
+		for(int slot = IntHashing.mix(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if(keys[slot] == key) {
+				shiftBack(slot);
+				size--;
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the number of elements.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns {@code true} if the set has no elements.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all elements.
+	 */
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		hasZero = false;
+		size = 0;
+	}
+
+	/**
+	 * Returns the elements in an array, in no particular order.
+	 */
+	public int[] toArray() {
+		int[] result = new int[size];
+		int pos = 0;
+
+		if(hasZero) {
+			result[pos++] = EMPTY;
+		}
+
+		for(int key : keys) {
+			if(key != EMPTY) {
+				result[pos++] = key;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Fills the hole left by a removed key by moving back any following key that would otherwise no
+	 * longer be reachable from its home slot.
+	 */
+	private void shiftBack(int hole) {
+		int slot = hole;
+
+		while(true) {
+			slot = (slot + 1) & mask;
+
+			if(keys[slot] == EMPTY) {
+				break;
+			}
+
+			int home = IntHashing.mix(keys[slot]) & mask;
+
+			/* Move the key if its home slot is not cyclically between the hole and the slot. */
+			if(((slot - home) & mask) >= ((slot - hole) & mask)) {
+				keys[hole] = keys[slot];
+				hole = slot;
+			}
+		}
+
+		keys[hole] = EMPTY;
+	}
+
+	private void rehash(int newCapacity) {
+		int[] oldKeys = keys;
+
+		allocate(newCapacity);
+
+		for(int key : oldKeys) {
+			if(key != EMPTY) {
+				int slot = IntHashing.mix(key) & mask;
+
+				while(keys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+
+				keys[slot] = key;
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		mask = capacity - 1;
+		resizeAt = (int)(capacity * LOAD_FACTOR);
+	}
+}
@@ -13,9 +13,14 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 public abstract class DaoBase {
+	  /* Keeps each multi-row statement well below MySQL's default max_allowed_packet. */
+	  protected static final int MAX_ROWS_PER_INSERT = 1000;
+
 	  /**
 	   * This starts a MySQL transaction. Normally MySQL starts a transaction before every request and
 	   * commits it after each request. By turning auto-commit off, the transaction is only committed
@@ -84,6 +89,10 @@ public abstract class DaoBase {
 	          stmt.setInt(parameterIndex, (Integer)value);
 	          break;
 
+	        case Types.BIGINT:
+	          stmt.setLong(parameterIndex, (Long)value);
+	          break;
+
 	        case Types.OTHER:
 	          stmt.setObject(parameterIndex, value);
 	          break;
@@ -109,6 +118,10 @@ public abstract class DaoBase {
 	      return Types.INTEGER;
 	    }
 
+	    if(Long.class.equals(classType)) {
+	      return Types.BIGINT;
+	    }
+
 	    if(String.class.equals(classType)) {
 	      return Types.VARCHAR;
 	    }
@@ -223,6 +236,10 @@ public abstract class DaoBase {
 	   * @return A populated class.
 	   */
 	  protected <T> T extract(ResultSet rs, Class<T> classType) {
+	    RowMappingEvent event = new RowMappingEvent();
+
+	    event.begin();
+
 	    try {
 	    	/* Obtain the constructor and create an object of the correct type. */
 	      Constructor<T> con = classType.getConstructor();
@@ -274,6 +291,7 @@ public abstract class DaoBase {
 	          
 	       // Assign the converted or original field value to the object's field using reflection
 	          field.set(obj, fieldValue);
+	          event.columnCount++;
 	        }
 	      }
 
@@ -283,15 +301,89 @@ public abstract class DaoBase {
 	    catch(Exception e) {
 	      throw new DaoException("Unable to create object of type " + classType.getName(), e);
 	    }
+	    finally {
+	      event.end();
+
+	      if(event.shouldCommit()) {
+	        event.entityClass = classType;
+	        event.commit();
+	      }
+	    }
+	  }
+
+	  /**
+	   * Inserts rows with as few multi-row INSERT statements as possible.
+	   *
+	   * @param conn The caller-supplied connection.
+	   * @param table The table name.
+	   * @param columns The column list, comma separated.
+	   * @param types The Java type of each column, used by {@link #setParameter}.
+	   * @param rows The column values of each row.
+	   * @param returnKeys Whether to return the generated primary keys.
+	   * @return The generated keys in row order, or an empty list if none were requested.
+	   * @throws SQLException Thrown if the database driver encounters an error.
+	   */
+	  protected List<Integer> insertRows(Connection conn, String table, String columns,
+	      Class<?>[] types, List<Object[]> rows, boolean returnKeys) throws SQLException {
+	    List<Integer> keys = new ArrayList<>(returnKeys ? rows.size() : 0);
+
+	    for(int start = 0; start < rows.size(); start += MAX_ROWS_PER_INSERT) {
+	      List<Object[]> chunk = rows.subList(start, Math.min(start + MAX_ROWS_PER_INSERT, rows.size()));
+	      String sql = "INSERT INTO " + table + " (" + columns + ") VALUES "
+	          + placeholders(chunk.size(), types.length);
+	      int autoKeys = returnKeys ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS;
+
+	      try(PreparedStatement stmt = conn.prepareStatement(sql, autoKeys)) {
+	        int parameterIndex = 1;
+
+	        for(Object[] row : chunk) {
+	          for(int col = 0; col < types.length; col++) {
+	            setParameter(stmt, parameterIndex++, row[col], types[col]);
+	          }
+	        }
+
+	        stmt.executeUpdate();
+
+	        if(returnKeys) {
+	          try(ResultSet rs = stmt.getGeneratedKeys()) {
+	            while(rs.next()) {
+	              keys.add(rs.getInt(1));
+	            }
+	          }
+	        }
+	      }
+	    }
+
+	    return keys;
+	  }
+
+	  /**
+	   * Returns the VALUES placeholder list for the given number of rows and columns. With one column
+	   * per row, the result is a plain list suitable for an IN clause.
+	   */
+	  protected String placeholders(int numRows, int numColumns) {
+	    String row = numColumns == 1 ? "?" : "(" + "?, ".repeat(numColumns - 1) + "?)";
+	    StringBuilder builder = new StringBuilder(numRows * (row.length() + 2));
+
+	    for(int pos = 0; pos < numRows; pos++) {
+	      if(pos > 0) {
+	        builder.append(", ");
+	      }
+
+	      builder.append(row);
+	    }
+
+	    return builder.toString();
 	  }
 
 	  /**
-	   * This converts a camel case value (rowInsertTime) to snake case (row_insert_time).
+	   * This converts a camel case value (rowInsertTime) to snake case (row_insert_time). It is package
+	   * private so that it can be benchmarked on its own.
 	   * 
 	   * @param identifier The name in camel case to convert.
 	   * @return The name converted to snake case.
 	   */
-	  private String camelCaseToSnakeCase(String identifier) {
+	  String camelCaseToSnakeCase(String identifier) {
 	    StringBuilder nameBuilder = new StringBuilder();
 
 	    for(char ch : identifier.toCharArray()) {
@@ -0,0 +1,29 @@
+package provided.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Emitted by {@link DaoBase#extract} for a row that took unusually long to map to an entity. Rows are
+ * mapped far too often to record every one; the time spent mapping a whole result is in the
+ * projects.dao.ResultSetRead event.
+ */
+@Name("projects.dao.RowMapping")
+@Label("Row Mapping")
+@Category({"Projects", "DAO"})
+@Description("Mapping one result set row to an entity by reflection")
+@StackTrace(false)
+@Threshold("100 us")
+public class RowMappingEvent extends Event {
+	@Label("Entity Class")
+	public Class<?> entityClass;
+
+	@Label("Columns")
+	@Description("Fields that were found in the result set")
+	public int columnCount;
+}
@@ -1,3 +1,5 @@
+DROP TABLE IF EXISTS project_import;
+DROP TABLE IF EXISTS project_change_log;
 DROP TABLE IF EXISTS project_category;
 DROP TABLE IF EXISTS material;
 DROP TABLE IF EXISTS step;
@@ -11,7 +13,9 @@ CREATE TABLE project (
   actual_hours DECIMAL(7, 2),
   difficulty INT,
   notes TEXT,
-  PRIMARY KEY (project_id)
+  row_version INT NOT NULL DEFAULT 1,
+  PRIMARY KEY (project_id),
+  KEY (project_name, project_id)
 );
 
 CREATE TABLE category (
@@ -45,4 +49,20 @@ CREATE TABLE project_category (
   FOREIGN KEY (project_id) REFERENCES project (project_id) ON DELETE CASCADE,
   FOREIGN KEY (category_id) REFERENCES category (category_id) ON DELETE CASCADE,
   UNIQUE KEY (project_id, category_id)
+);
+
+CREATE TABLE project_change_log (
+  change_id BIGINT AUTO_INCREMENT NOT NULL,
+  project_id INT NOT NULL,
+  change_type VARCHAR(16) NOT NULL,
+  changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  payload JSON,
+  PRIMARY KEY (change_id),
+  KEY (project_id)
+);
+
+CREATE TABLE project_import (
+  import_key CHAR(64) NOT NULL,
+  records_committed BIGINT NOT NULL,
+  PRIMARY KEY (import_key)
 );
\ No newline at end of file
@@ -0,0 +1,150 @@
+package projects.backup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import projects.dao.BackupTable;
+import projects.dao.ProjectBackupDao;
+import projects.dao.QueryAssertions;
+import projects.dao.TestDatabase;
+import projects.dao.fake.FakeResult;
+
+class ProjectBackupTest {
+	/* The first block header: the table ID, row count, length and checksum, after the file header. */
+	private static final int FIRST_ROW_COUNT = BackupFileWriter.HEADER_BYTES + 1;
+	private static final int FIRST_LENGTH = FIRST_ROW_COUNT + 4;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void readsTheBlocksOfTheSelectedTablesOnceVerified() throws IOException {
+		Path file = writeBackup();
+
+		try(BackupFileReader reader = new BackupFileReader(file, Set.of(BackupTable.CATEGORY))) {
+			assertThrows(IllegalStateException.class, reader::next);
+
+			reader.verify();
+
+			assertEquals("Woodwork", reader.next().getRows().get(0)[1]);
+			assertEquals(3, reader.next().getRows().get(0)[0]);
+			assertNull(reader.next());
+		}
+	}
+
+	@Test
+	void raisesEveryRowVersionAboveAnyHeldBeforeTheRestore() throws IOException {
+		Path file = writeBackup();
+		List<Object> inserted = Collections.synchronizedList(new ArrayList<>());
+		List<Object> raisedBy = new ArrayList<>();
+
+		TestDatabase.create()
+				.onSql("SELECT COALESCE(MAX(row_version), 0) FROM project",
+						parameters -> FakeResult.rows(List.of("COALESCE(MAX(row_version), 0)"),
+								List.<Object[]>of(new Object[] {41L})))
+				.onSql("SET FOREIGN_KEY_CHECKS = 0", parameters -> FakeResult.updateCount(0))
+				.onSql("TRUNCATE TABLE category", parameters -> FakeResult.updateCount(0))
+				.onSqlPrefix("INSERT INTO category ", parameters -> {
+					inserted.addAll(parameters);
+					return FakeResult.updateCount(parameters.size() / 2);
+				})
+				.onSql("UPDATE project SET row_version = row_version + ?", parameters -> {
+					raisedBy.addAll(parameters);
+					return FakeResult.updateCount(0);
+				});
+
+		assertEquals(2, new ProjectBackup(new ProjectBackupDao(), 2, 10).restore(file,
+				EnumSet.of(BackupTable.CATEGORY)));
+		assertEquals(4, inserted.size());
+		assertEquals(List.of(41L), raisedBy);
+	}
+
+	@Test
+	void rejectsACorruptLastBlockBeforeTouchingAnyTable() throws IOException {
+		Path file = writeBackup();
+		long size = Files.size(file);
+
+		/* The last byte before the end block belongs to the step block, which is not restored. */
+		overwrite(file, size - BackupFileWriter.BLOCK_HEADER_BYTES - 1, new byte[] {0x55});
+		restoreFails(file, "Checksum mismatch in a step block.");
+	}
+
+	@Test
+	void rejectsAFileWithoutItsEndBlock() throws IOException {
+		Path file = writeBackup();
+
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(Files.size(file) - BackupFileWriter.BLOCK_HEADER_BYTES);
+		}
+
+		restoreFails(file, "The backup file is incomplete.");
+	}
+
+	@Test
+	void rejectsABlockLengthBeyondTheLimitWithoutAllocatingIt() throws IOException {
+		Path file = writeBackup();
+
+		overwrite(file, FIRST_LENGTH, ByteBuffer.allocate(4).putInt(Integer.MAX_VALUE).array());
+		restoreFails(file,
+				"A category block has a corrupt header: 1 rows in " + Integer.MAX_VALUE + " bytes.");
+	}
+
+	@Test
+	void rejectsABlockHoldingFewerRowsThanItsHeaderSays() throws IOException {
+		Path file = writeBackup();
+
+		/* The checksum covers only the payload, so it still matches. */
+		overwrite(file, FIRST_ROW_COUNT, ByteBuffer.allocate(4).putInt(2).array());
+		restoreFails(file, "A category block does not hold the 2 rows its header says it does.");
+	}
+
+	private void restoreFails(Path file, String message) {
+		TestDatabase.create();
+
+		ProjectBackup backup = new ProjectBackup(new ProjectBackupDao(), 2, 10);
+
+		/* The file is checked on the calling thread, before the workers empty any table. */
+		QueryAssertions.assertExactQueries(0, () -> {
+			IOException e = assertThrows(IOException.class,
+					() -> backup.restore(file, EnumSet.of(BackupTable.CATEGORY)));
+
+			assertEquals(message, e.getMessage());
+		});
+	}
+
+	private Path writeBackup() throws IOException {
+		Path file = dir.resolve("projects.bak");
+
+		try(BackupFileWriter writer = new BackupFileWriter(file)) {
+			writer.writeBlock(BackupTable.CATEGORY, List.<Object[]>of(new Object[] {1, "Woodwork"}));
+			writer.writeBlock(BackupTable.CATEGORY, List.<Object[]>of(new Object[] {3, "Outdoor"}));
+			writer.writeBlock(BackupTable.STEP, List.<Object[]>of(new Object[] {1, 1, "Cut", 1}));
+			writer.finish();
+		}
+
+		return file;
+	}
+
+	private static void overwrite(Path file, long position, byte[] bytes) {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(bytes), position);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
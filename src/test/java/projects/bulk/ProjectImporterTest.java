@@ -0,0 +1,184 @@
+package projects.bulk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import projects.dao.ProjectImportDao;
+import projects.entity.Project;
+import projects.exception.DbException;
+
+class ProjectImporterTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	void writesNdjsonChunksInFileOrderAndClearsTheCheckpoint() throws IOException {
+		Path file = ndjson("projects.ndjson", 1, 25);
+		RecordingImportDao dao = new RecordingImportDao();
+
+		ImportResult result = new ProjectImporter(dao, 4, 3, 2).importFile(file);
+
+		assertEquals(0, result.getRecordsSkipped());
+		assertEquals(25, result.getRecordsImported());
+		assertEquals(names(1, 25), dao.projectNames());
+		assertEquals(List.of(4L, 8L, 12L, 16L, 20L, 24L, 25L), dao.recordsThrough);
+		assertTrue(dao.checkpoints.isEmpty());
+
+		Project first = dao.projects.get(0);
+		assertEquals(2, first.getMaterials().size());
+		assertEquals("Woodwork", first.getCategories().get(0).getCategoryName());
+	}
+
+	@Test
+	void groupsCsvChildLinesAndQuotedLineBreaksIntoTheirProject() throws IOException {
+		Path file = dir.resolve("projects.csv");
+
+		Files.writeString(file, String.join("\n",
+				"# exported projects",
+				"project,Shelf,4.50,,2,\"Two lines",
+				"of notes\"",
+				"material,Pine board,3,12.99",
+				"step,Cut,1",
+				"",
+				"category,Woodwork",
+				"project,Bench,8,,3,",
+				"step,Sand,1"), StandardCharsets.UTF_8);
+
+		RecordingImportDao dao = new RecordingImportDao();
+
+		new ProjectImporter(dao, 1, 2, 1).importFile(file);
+
+		assertEquals(List.of("Shelf", "Bench"), dao.projectNames());
+		assertEquals("Two lines\nof notes", dao.projects.get(0).getNotes());
+		assertEquals(1, dao.projects.get(0).getMaterials().size());
+		assertEquals(1, dao.projects.get(0).getCategories().size());
+		assertEquals("Sand", dao.projects.get(1).getSteps().get(0).getStepText());
+	}
+
+	@Test
+	void resumesAfterTheLastCommittedChunk() throws IOException {
+		Path file = ndjson("projects.ndjson", 1, 10);
+		RecordingImportDao dao = new RecordingImportDao();
+
+		dao.failAfterChunks = 2;
+		assertThrows(DbException.class, () -> new ProjectImporter(dao, 3, 2, 2).importFile(file));
+		assertEquals(names(1, 6), dao.projectNames());
+		assertEquals(Map.of(ProjectImporter.importKey(file), 6L), dao.checkpoints);
+
+		dao.failAfterChunks = Integer.MAX_VALUE;
+		ImportResult result = new ProjectImporter(dao, 3, 2, 2).importFile(file);
+
+		assertEquals(6, result.getRecordsSkipped());
+		assertEquals(4, result.getRecordsImported());
+		assertEquals(names(1, 10), dao.projectNames());
+		assertTrue(dao.checkpoints.isEmpty());
+	}
+
+	@Test
+	void aChangedFileDoesNotResumeFromAnOldCheckpoint() throws IOException {
+		Path file = ndjson("projects.ndjson", 1, 4);
+		RecordingImportDao dao = new RecordingImportDao();
+
+		dao.checkpoints.put(ProjectImporter.importKey(file), 4L);
+		Files.writeString(file, line(5), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+		ImportResult result = new ProjectImporter(dao, 10, 1, 1).importFile(file);
+
+		assertEquals(0, result.getRecordsSkipped());
+		assertEquals(5, result.getRecordsImported());
+	}
+
+	@Test
+	void theImportKeyFitsItsColumnWhateverThePathLength() throws IOException {
+		Path deep = Files.createDirectories(dir.resolve("d".repeat(200)).resolve("e".repeat(200)));
+		Path file = Files.copy(ndjson("projects.ndjson", 1, 1), deep.resolve("projects.ndjson"));
+		String key = ProjectImporter.importKey(file);
+
+		assertEquals(64, key.length());
+		assertNotEquals(key, ProjectImporter.importKey(dir.resolve("projects.ndjson")));
+	}
+
+	@Test
+	void anInvalidRecordFailsAfterTheChunksBeforeIt() throws IOException {
+		Path file = ndjson("projects.ndjson", 1, 6);
+
+		Files.writeString(file, "{\"projectName\": }\n", StandardCharsets.UTF_8,
+				StandardOpenOption.APPEND);
+
+		RecordingImportDao dao = new RecordingImportDao();
+		DbException e = assertThrows(DbException.class,
+				() -> new ProjectImporter(dao, 3, 4, 4).importFile(file));
+
+		assertTrue(e.getMessage().contains("line 7"), e.getMessage());
+		assertEquals(names(1, 6), dao.projectNames());
+	}
+
+	private Path ndjson(String name, int first, int last) throws IOException {
+		Path file = dir.resolve(name);
+		StringBuilder text = new StringBuilder();
+
+		IntStream.rangeClosed(first, last).forEach(pos -> text.append(line(pos)));
+		Files.writeString(file, text, StandardCharsets.UTF_8);
+
+		return file;
+	}
+
+	private static String line(int pos) {
+		return "{\"projectName\":\"Project " + pos + "\",\"estimatedHours\":4.5,\"difficulty\":2,"
+				+ "\"materials\":[{\"materialName\":\"Board\",\"numRequired\":2,\"cost\":1.25},"
+				+ "{\"materialName\":\"Screw\",\"numRequired\":8,\"cost\":0.10}],"
+				+ "\"steps\":[{\"stepText\":\"Cut\"}],\"categories\":[\"Woodwork\"]}\n";
+	}
+
+	private static List<String> names(int first, int last) {
+		return IntStream.rangeClosed(first, last).mapToObj(pos -> "Project " + pos).toList();
+	}
+
+	/**
+	 * Keeps the written projects and the checkpoints in memory, and can fail part way through.
+	 */
+	private static class RecordingImportDao extends ProjectImportDao {
+		private final List<Project> projects = new ArrayList<>();
+		private final List<Long> recordsThrough = new ArrayList<>();
+		private final Map<String, Long> checkpoints = new HashMap<>();
+		private int failAfterChunks = Integer.MAX_VALUE;
+
+		@Override
+		public long fetchCheckpoint(String importKey) {
+			return checkpoints.getOrDefault(importKey, 0L);
+		}
+
+		@Override
+		public void insertProjects(List<Project> chunk, String importKey, long recordsCommitted) {
+			if(recordsThrough.size() >= failAfterChunks) {
+				throw new DbException("Lost the connection");
+			}
+
+			projects.addAll(chunk);
+			recordsThrough.add(recordsCommitted);
+			checkpoints.put(importKey, recordsCommitted);
+		}
+
+		@Override
+		public void deleteCheckpoint(String importKey) {
+			checkpoints.remove(importKey);
+		}
+
+		List<String> projectNames() {
+			return projects.stream().map(Project::getProjectName).toList();
+		}
+	}
+}
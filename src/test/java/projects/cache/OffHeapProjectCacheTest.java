@@ -0,0 +1,90 @@
+package projects.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import projects.entity.Project;
+
+class OffHeapProjectCacheTest {
+	private static final int SLAB_SIZE = 4096;
+
+	@Test
+	void refusesAProjectInvalidatedWhileItWasLoaded() {
+		OffHeapProjectCache cache = new OffHeapProjectCache(SLAB_SIZE * 4, SLAB_SIZE);
+		long epoch = cache.epoch(7);
+
+		/* A writer updates project 7 while the reader is still loading the old copy. */
+		cache.invalidate(7);
+
+		assertFalse(cache.put(project(7, "old"), epoch));
+		assertTrue(cache.get(7).isEmpty());
+
+		assertTrue(cache.put(project(7, "new"), cache.epoch(7)));
+		assertEquals("new", cache.get(7).orElseThrow().getNotes());
+	}
+
+	@Test
+	void clearRefusesEveryLoadInProgress() {
+		OffHeapProjectCache cache = new OffHeapProjectCache(SLAB_SIZE * 4, SLAB_SIZE);
+		long epoch = cache.epoch(1);
+
+		cache.clear();
+
+		assertFalse(cache.put(project(1, "old"), epoch));
+	}
+
+	@Test
+	void cachesANewSizeClassOnceEverySlabIsCarved() {
+		OffHeapProjectCache cache = new OffHeapProjectCache(SLAB_SIZE * 2, SLAB_SIZE);
+
+		/* Far more small projects than fit, so both slabs are carved for the small size class. */
+		for(int projectId = 1; projectId <= 500; projectId++) {
+			assertTrue(cache.put(project(projectId, "n"), cache.epoch(projectId)));
+		}
+
+		assertEquals(SLAB_SIZE * 2, cache.reservedBytes());
+
+		Project large = project(1000, "x".repeat(SLAB_SIZE / 2));
+
+		assertTrue(cache.put(large, cache.epoch(1000)));
+		assertEquals(large.getNotes(), cache.get(1000).orElseThrow().getNotes());
+
+		/* The small projects in the other slab are still cached, and can still be added. */
+		assertTrue(cache.size() > 1);
+		assertTrue(cache.put(project(2000, "n"), cache.epoch(2000)));
+		assertTrue(cache.get(1000).isPresent());
+	}
+
+	@Test
+	void readsTheRowVersionWithoutDecodingTheProject() {
+		OffHeapProjectCache cache = new OffHeapProjectCache(SLAB_SIZE * 4, SLAB_SIZE);
+		Project project = project(3, "notes ".repeat(50));
+
+		project.setEstimatedHours(new BigDecimal("12.50"));
+		project.setActualHours(new BigDecimal("98765432109876543210.5"));
+		project.setRowVersion(17);
+
+		assertTrue(cache.put(project, cache.epoch(3)));
+		assertEquals(Optional.of(17), cache.getRowVersion(3));
+		assertEquals(Optional.empty(), cache.getRowVersion(4));
+
+		project.setRowVersion(null);
+		cache.invalidate(3);
+
+		assertTrue(cache.put(project, cache.epoch(3)));
+		assertEquals(Optional.empty(), cache.getRowVersion(3));
+	}
+
+	private static Project project(int projectId, String notes) {
+		Project project = new Project();
+
+		project.setProjectId(projectId);
+		project.setProjectName("Project " + projectId);
+		project.setNotes(notes);
+
+		return project;
+	}
+}
@@ -0,0 +1,106 @@
+package projects.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import projects.entity.Project;
+
+class WarmCacheSnapshotTest {
+	private static final int SLAB_SIZE = 4096;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void servesTheProjectsItWasWrittenWith() throws IOException {
+		Path file = writeSnapshot();
+		WarmCacheSnapshot snapshot = WarmCacheSnapshot.open(file);
+
+		assertEquals(42, snapshot.getChangeId());
+		assertEquals(3, snapshot.size());
+		assertEquals("Project 2", snapshot.get(2).orElseThrow().getProjectName());
+		assertEquals(Optional.of(5), snapshot.getRowVersion(3));
+		assertTrue(snapshot.get(4).isEmpty());
+	}
+
+	@Test
+	void rejectsAFileWithAChangedIndexOrHeader() throws IOException {
+		Path file = writeSnapshot();
+
+		/* The last byte of the file belongs to the index. */
+		overwrite(file, Files.size(file) - 1, (byte)0x7F);
+		assertThrows(IOException.class, () -> WarmCacheSnapshot.open(file));
+
+		Path other = writeSnapshot();
+
+		/* The low byte of the change ID. */
+		overwrite(other, 15, (byte)0x7F);
+		assertThrows(IOException.class, () -> WarmCacheSnapshot.open(other));
+	}
+
+	@Test
+	void rejectsATruncatedFile() throws IOException {
+		Path file = writeSnapshot();
+
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(Files.size(file) - 1);
+		}
+
+		assertThrows(IOException.class, () -> WarmCacheSnapshot.open(file));
+	}
+
+	@Test
+	void dropsAProjectThatCannotBeDecoded() throws IOException {
+		Path file = writeSnapshot();
+
+		/* The first project follows the 32 byte header and its length. Break its format version. */
+		overwrite(file, 32 + 4, (byte)0x7F);
+
+		WarmCacheSnapshot snapshot = WarmCacheSnapshot.open(file);
+		long unreadable = IntStream.rangeClosed(1, 3)
+				.filter(projectId -> snapshot.get(projectId).isEmpty())
+				.count();
+
+		assertEquals(1, unreadable);
+		assertEquals(2, snapshot.size());
+	}
+
+	private Path writeSnapshot() throws IOException {
+		OffHeapProjectCache cache = new OffHeapProjectCache(SLAB_SIZE * 4, SLAB_SIZE);
+
+		for(int projectId = 1; projectId <= 3; projectId++) {
+			cache.put(project(projectId), cache.epoch(projectId));
+		}
+
+		Path file = Files.createTempFile(dir, "warm", ".cache");
+
+		WarmCacheSnapshot.write(file, 42, cache, null);
+		return file;
+	}
+
+	private static Project project(int projectId) {
+		Project project = new Project();
+
+		project.setProjectId(projectId);
+		project.setProjectName("Project " + projectId);
+		project.setRowVersion(projectId + 2);
+
+		return project;
+	}
+
+	private static void overwrite(Path file, long position, byte value) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] {value}), position);
+		}
+	}
+}
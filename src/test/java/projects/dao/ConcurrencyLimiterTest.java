@@ -0,0 +1,59 @@
+package projects.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Test;
+import projects.exception.DbException;
+
+class ConcurrencyLimiterTest {
+	@Test
+	void classifiesCongestionThroughTheDbExceptionWrapper() {
+		assertTrue(ConcurrencyLimiter.isCongestion(new DbException(new SQLTimeoutException())));
+		assertTrue(ConcurrencyLimiter.isCongestion(new DbException(new SQLTransientException())));
+		assertTrue(ConcurrencyLimiter.isCongestion(
+				new DbException(new SQLNonTransientConnectionException("Too many connections"))));
+		assertTrue(ConcurrencyLimiter.isCongestion(
+				new DbException(new SQLException("Communications link failure", "08S01"))));
+
+		assertFalse(ConcurrencyLimiter.isCongestion(
+				new DbException(new SQLIntegrityConstraintViolationException("Duplicate entry"))));
+		assertFalse(ConcurrencyLimiter.isCongestion(new DbException("Project does not exist")));
+		assertFalse(ConcurrencyLimiter.isCongestion(new NoSuchElementException()));
+	}
+
+	@Test
+	void otherFailuresLeaveTheLimitAlone() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 64, 16, 1000);
+
+		for(int call = 0; call < 100; call++) {
+			assertThrows(DbException.class, () -> limiter.call(() -> {
+				throw new DbException(new SQLIntegrityConstraintViolationException("Duplicate entry"));
+			}));
+		}
+
+		assertEquals(10, limiter.getLimit());
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	void congestionCutsTheLimit() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 64, 16, 1000);
+
+		for(int call = 0; call < 100; call++) {
+			assertThrows(DbException.class, () -> limiter.call(() -> {
+				throw new DbException(new SQLTimeoutException("Query timed out"));
+			}));
+		}
+
+		assertTrue(limiter.getLimit() < 10);
+		assertEquals(0, limiter.getInFlight());
+	}
+}
@@ -0,0 +1,61 @@
+package projects.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import projects.dao.fake.FakeDatabase;
+import projects.dao.fake.FakeProjectTables;
+import projects.entity.Project;
+
+class ProjectDaoBatchTest {
+	private static final int BATCH = 50;
+
+	@Test
+	void connectionsAskTheDriverToRewriteBatches() {
+		FakeDatabase database = TestDatabase.create(new FakeProjectTables(100, 1, 1, 1, 5));
+
+		new ProjectDao().fetchProjectById(1);
+
+		assertTrue(database.getLastUrl().contains("rewriteBatchedStatements=true"),
+				database.getLastUrl());
+	}
+
+	@Test
+	void detailUpdatesAreOneBatchPerTransaction() {
+		FakeDatabase database = TestDatabase.create(new FakeProjectTables(100, 1, 1, 1, 5));
+		ProjectDao dao = new ProjectDao();
+		List<Project> updates = new ArrayList<>();
+
+		for(int projectId = 1; projectId <= BATCH; projectId++) {
+			Project update = new Project();
+
+			update.setProjectId(projectId);
+			update.setNotes("Updated " + projectId);
+			updates.add(update);
+		}
+
+		/* One batch for the updates, then the change log payloads and their insert. */
+		QueryAssertions.assertExactQueries(3,
+				() -> assertEquals(BATCH, dao.modifyProjectDetailsBatch(updates)));
+		assertEquals(1, database.getCommitCount());
+	}
+
+	@Test
+	void hourIncrementsAreOneBatchPerTransaction() {
+		TestDatabase.create(new FakeProjectTables(100, 1, 1, 1, 5));
+		ProjectDao dao = new ProjectDao();
+		Map<Integer, BigDecimal> deltas = new LinkedHashMap<>();
+
+		for(int projectId = 1; projectId <= BATCH; projectId++) {
+			deltas.put(projectId, new BigDecimal("1.25"));
+		}
+
+		QueryAssertions.assertExactQueries(3,
+				() -> assertEquals(BATCH, dao.incrementActualHours(deltas)));
+	}
+}
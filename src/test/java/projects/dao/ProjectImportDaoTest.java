@@ -0,0 +1,101 @@
+package projects.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import projects.dao.fake.FakeDatabase;
+import projects.dao.fake.FakeResult;
+import projects.entity.Category;
+import projects.entity.Project;
+
+class ProjectImportDaoTest {
+	private static final List<String> CATEGORY_COLUMNS = List.of("category_id", "category_name");
+
+	@Test
+	void matchesCategoryNamesTheWayTheCollationDoes() {
+		FakeDatabase database = TestDatabase.create();
+		List<Object> createdCategories = new ArrayList<>();
+		List<Object> links = new ArrayList<>();
+
+		database
+				.onSqlPrefix("SELECT category_id, category_name FROM category WHERE category_name IN (",
+						parameters -> FakeResult.rows(CATEGORY_COLUMNS,
+								List.<Object[]>of(new Object[] {7, "Woodwork"})))
+				.onSqlPrefix("INSERT INTO project (", parameters -> keys(parameters.size() / 5, 100))
+				.onSqlPrefix("INSERT INTO category (", parameters -> {
+					createdCategories.addAll(parameters);
+					return keys(parameters.size(), 50);
+				})
+				.onSqlPrefix("INSERT INTO project_category (", parameters -> {
+					links.addAll(parameters);
+					return FakeResult.updateCount(parameters.size() / 2);
+				})
+				.onSqlPrefix("SELECT project_id, JSON_OBJECT(", ProjectImportDaoTest::payloads)
+				.onSqlPrefix("INSERT INTO project_change_log ", parameters -> FakeResult.updateCount(2))
+				.onSqlPrefix("INSERT INTO project_import ", parameters -> FakeResult.updateCount(1));
+
+		List<Project> projects = List.of(project("Shelf", "WOODWORK", "Outdoor"),
+				project("Bench", "woodwork", "outdoor", "Wóodwork"));
+
+		new ProjectImportDao().insertProjects(projects, "import", 2);
+
+		/* Only "Outdoor" is new, and it is created once with its first spelling. */
+		assertEquals(List.of("Outdoor"), createdCategories);
+		assertEquals(List.of(100, 7, 100, 50, 101, 7, 101, 50), links);
+		assertEquals(7, projects.get(1).getCategories().get(2).getCategoryId());
+	}
+
+	@Test
+	void logsEveryProjectOfAChunkWithOneStatement() {
+		FakeDatabase database = TestDatabase.create();
+		List<List<Object>> changeLogInserts = new ArrayList<>();
+
+		database
+				.onSqlPrefix("INSERT INTO project (", parameters -> keys(parameters.size() / 5, 1))
+				.onSqlPrefix("SELECT project_id, JSON_OBJECT(", ProjectImportDaoTest::payloads)
+				.onSqlPrefix("INSERT INTO project_change_log ", parameters -> {
+					changeLogInserts.add(parameters);
+					return FakeResult.updateCount(parameters.size() / 3);
+				});
+
+		List<Project> projects = IntStream.rangeClosed(1, 200).mapToObj(pos -> project("P" + pos))
+				.toList();
+
+		/* The projects, then the change log payloads and their insert, each in one statement. */
+		QueryAssertions.assertExactQueries(3,
+				() -> new ProjectImportDao().insertProjects(projects, null, 0));
+
+		/* One VALUES row of type, project and payload for each project. */
+		assertEquals(1, changeLogInserts.size());
+		assertEquals("INSERT", changeLogInserts.get(0).get(0));
+		assertEquals(600, changeLogInserts.get(0).size());
+		assertEquals(200, changeLogInserts.get(0).get(598));
+	}
+
+	private static Project project(String name, String... categories) {
+		Project project = new Project();
+
+		project.setProjectName(name);
+
+		for(String categoryName : categories) {
+			Category category = new Category();
+
+			category.setCategoryName(categoryName);
+			project.getCategories().add(category);
+		}
+
+		return project;
+	}
+
+	private static FakeResult keys(int count, int first) {
+		return FakeResult.updateCount(count,
+				IntStream.range(first, first + count).boxed().toList());
+	}
+
+	private static FakeResult payloads(List<Object> projectIds) {
+		return FakeResult.rows(List.of("project_id", "payload"),
+				projectIds.stream().map(projectId -> new Object[] {projectId, "{}"}).toList());
+	}
+}
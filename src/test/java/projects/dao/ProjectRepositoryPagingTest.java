@@ -0,0 +1,63 @@
+package projects.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import projects.dao.fake.FakeProjectTables;
+import projects.entity.Project;
+
+class ProjectRepositoryPagingTest {
+	@Test
+	void everyRepositoryRejectsANameWithoutAnId() {
+		TestDatabase.create(new FakeProjectTables(10, 0, 0, 0, 1));
+
+		List<ProjectRepository> repositories = List.of(new InMemoryProjectRepository(), new ProjectDao());
+
+		for(ProjectRepository repository : repositories) {
+			assertThrows(IllegalArgumentException.class,
+					() -> repository.fetchProjectsPage("Shelf", null, 10),
+					repository.getClass().getName());
+		}
+	}
+
+	@Test
+	void pagesThroughProjectsThatShareANameExactlyOnce() {
+		InMemoryProjectRepository repository = new InMemoryProjectRepository();
+		List<Integer> expected = new ArrayList<>();
+
+		for(int pos = 0; pos < 7; pos++) {
+			Project project = new Project();
+
+			project.setProjectName(pos < 5 ? "Shelf" : "Bench");
+			project.setEstimatedHours(BigDecimal.ONE);
+			project.setDifficulty(1);
+			repository.insertProject(project);
+		}
+
+		repository.fetchProjectsPage(null, null, 100)
+				.forEach(project -> expected.add(project.getProjectId()));
+
+		List<Integer> paged = new ArrayList<>();
+		String afterName = null;
+		Integer afterId = null;
+
+		while(true) {
+			List<Project> page = repository.fetchProjectsPage(afterName, afterId, 2);
+
+			page.forEach(project -> paged.add(project.getProjectId()));
+
+			if(page.size() < 2) {
+				break;
+			}
+
+			afterName = page.get(1).getProjectName();
+			afterId = page.get(1).getProjectId();
+		}
+
+		assertEquals(7, expected.size());
+		assertEquals(expected, paged);
+	}
+}
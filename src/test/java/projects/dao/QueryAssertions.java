@@ -0,0 +1,58 @@
+package projects.dao;
+
+import projects.dao.StatementCounter.StatementCount;
+
+/**
+ * Statement budgets for tests and benchmarks. Wrap an operation in {@link #assertQueries(int, Runnable)}
+ * to fail as soon as a change makes it issue more statements than it should, for example when a
+ * child fetch turns into one query per row:
+ *
+ * <pre>
+ * QueryAssertions.assertQueries(4, () -&gt; projectService.fetchProjectById(projectId));
+ * </pre>
+ *
+ * Only statements run by the calling thread on connections from {@link DbConnection} are counted, and
+ * the connections must be instrumented, which they are unless projects.db.instrument is false. Use the
+ * fake JDBC driver in {@link projects.dao.fake} to run the operations without a database.
+ */
+public final class QueryAssertions {
+	private QueryAssertions() {
+	}
+
+	/**
+	 * Runs an action and fails if it executed more than the given number of statements.
+	 *
+	 * @param max The most statements the action may execute.
+	 * @param action The action.
+	 * @return The statements the action executed.
+	 * @throws AssertionError Thrown if the action executed too many statements. The message lists
+	 *         them.
+	 */
+	public static StatementCount assertQueries(int max, Runnable action) {
+		StatementCount count = StatementCounter.count(action);
+
+		if(count.getStatements() > max) {
+			throw new AssertionError("Expected at most " + max + " statements but there were " + count);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Runs an action and fails unless it executed exactly the given number of statements.
+	 *
+	 * @param expected The number of statements the action must execute.
+	 * @param action The action.
+	 * @return The statements the action executed.
+	 * @throws AssertionError Thrown if the count differs. The message lists the statements.
+	 */
+	public static StatementCount assertExactQueries(int expected, Runnable action) {
+		StatementCount count = StatementCounter.count(action);
+
+		if(count.getStatements() != expected) {
+			throw new AssertionError("Expected " + expected + " statements but there were " + count);
+		}
+
+		return count;
+	}
+}
@@ -0,0 +1,39 @@
+package projects.dao;
+
+import projects.dao.fake.FakeDatabase;
+import projects.dao.fake.FakeProjectTables;
+
+/**
+ * Points {@link DbConnection} at a fake database for tests. DbConnection reads its URL once, so
+ * every test uses the same database name; creating a database replaces the previous one under that
+ * name, which gives each test fresh handlers and counters.
+ */
+public final class TestDatabase {
+	private static final String NAME = "projects-test";
+
+	private TestDatabase() {
+	}
+
+	/**
+	 * Creates an empty fake database, with no statement handlers, and makes it the one DbConnection
+	 * connects to.
+	 *
+	 * @return The database.
+	 */
+	public static FakeDatabase create() {
+		FakeDatabase database = new FakeDatabase(NAME);
+
+		System.setProperty("projects.db.url", database.getUrl());
+		return database;
+	}
+
+	/**
+	 * Creates a fake database serving the given tables and makes it the one DbConnection connects to.
+	 *
+	 * @param tables The project tables.
+	 * @return The database.
+	 */
+	public static FakeDatabase create(FakeProjectTables tables) {
+		return tables.install(create());
+	}
+}
@@ -0,0 +1,389 @@
+package projects.dao.fake;
+
+import java.math.BigInteger;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * A connection to a {@link FakeDatabase}. It supports what the DAOs use: plain and prepared
+ * statements, generated keys, {@code SELECT LAST_INSERT_ID()} and manual transactions. Everything
+ * else throws {@link SQLFeatureNotSupportedException}.
+ *
+ * Like a MySQL connection, it is meant to be used by one thread at a time.
+ */
+public class FakeConnection implements Connection {
+	private static final String LAST_INSERT_ID = "SELECT LAST_INSERT_ID()";
+
+	private final FakeDatabase database;
+	private boolean autoCommit = true;
+	private boolean closed;
+	private long lastInsertId;
+
+	FakeConnection(FakeDatabase database) {
+		this.database = database;
+	}
+
+	public FakeDatabase getDatabase() {
+		return database;
+	}
+
+	/**
+	 * Runs a statement for one of this connection's statements and remembers the first generated key
+	 * for {@code SELECT LAST_INSERT_ID()}.
+	 */
+	FakeResult execute(String sql, List<Object> parameters) throws SQLException {
+		checkOpen();
+
+		if(sql.startsWith(LAST_INSERT_ID)) {
+			database.statement();
+			return FakeResult.rows(List.of("LAST_INSERT_ID()"),
+					List.<Object[]>of(new Object[] {BigInteger.valueOf(lastInsertId)}));
+		}
+
+		FakeResult result = database.execute(sql, parameters);
+
+		if(!result.getGeneratedKeys().isEmpty()) {
+			lastInsertId = result.getGeneratedKeys().get(0);
+		}
+
+		return result;
+	}
+
+	private void checkOpen() throws SQLException {
+		if(closed) {
+			throw new SQLException("The connection is closed.", "08003");
+		}
+	}
+
+	@Override
+	public Statement createStatement() throws SQLException {
+		checkOpen();
+		return new FakePreparedStatement(this, null, Statement.NO_GENERATED_KEYS);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql) throws SQLException {
+		return prepareStatement(sql, Statement.NO_GENERATED_KEYS);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys)
+			throws SQLException {
+		checkOpen();
+		return new FakePreparedStatement(this, sql, autoGeneratedKeys);
+	}
+
+	@Override
+	public void setAutoCommit(boolean autoCommit) throws SQLException {
+		checkOpen();
+
+		if(this.autoCommit != autoCommit) {
+			/* Connector/J sends SET autocommit to the server, so this is a round trip. */
+			database.roundTrip();
+			this.autoCommit = autoCommit;
+		}
+	}
+
+	@Override
+	public boolean getAutoCommit() throws SQLException {
+		checkOpen();
+		return autoCommit;
+	}
+
+	@Override
+	public void commit() throws SQLException {
+		checkOpen();
+
+		if(autoCommit) {
+			throw new SQLException("Can't call commit when autocommit=true", "08003");
+		}
+
+		database.commit();
+	}
+
+	@Override
+	public void rollback() throws SQLException {
+		checkOpen();
+
+		if(autoCommit) {
+			throw new SQLException("Can't call rollback when autocommit=true", "08003");
+		}
+
+		database.rollback();
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+	}
+
+	@Override
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public boolean isValid(int timeout) {
+		return !closed;
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if(iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+
+		throw new SQLException("Not a wrapper for " + iface.getName());
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) {
+		return iface.isInstance(this);
+	}
+
+	/* The rest of the interface is not used by the DAOs. */
+
+	@Override
+	public void abort(Executor executor) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public Blob createBlob() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public Clob createClob() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public NClob createNClob() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public SQLXML createSQLXML() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public Statement createStatement(int resultSetType, int resultSetConcurrency,
+			int resultSetHoldability)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public Statement createStatement(int resultSetType, int resultSetConcurrency)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public String getCatalog() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public Properties getClientInfo() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public String getClientInfo(String name) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public int getHoldability() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public DatabaseMetaData getMetaData() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public int getNetworkTimeout() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public String getSchema() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public int getTransactionIsolation() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public Map<String, Class<?>> getTypeMap() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public boolean isReadOnly() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public String nativeSQL(String sql) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency,
+			int resultSetHoldability)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, String[] columnNames)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int resultSetType,
+			int resultSetConcurrency, int resultSetHoldability)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+			throws SQLException {
+		if(resultSetType != ResultSet.TYPE_FORWARD_ONLY
+				|| resultSetConcurrency != ResultSet.CONCUR_READ_ONLY) {
+			throw new SQLFeatureNotSupportedException();
+		}
+
+		return prepareStatement(sql);
+	}
+
+	@Override
+	public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void rollback(Savepoint savepoint) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setCatalog(String catalog) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setClientInfo(String name, String value) throws SQLClientInfoException {
+		throw new SQLClientInfoException();
+	}
+
+	@Override
+	public void setClientInfo(Properties properties) throws SQLClientInfoException {
+		throw new SQLClientInfoException();
+	}
+
+	@Override
+	public void setHoldability(int holdability) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setReadOnly(boolean readOnly) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public Savepoint setSavepoint() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public Savepoint setSavepoint(String name) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setSchema(String schema) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setTransactionIsolation(int level) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+}
@@ -0,0 +1,236 @@
+package projects.dao.fake;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An in-process stand-in for the MySQL server. Each SQL string the code under test issues is mapped
+ * to a handler that returns canned or generated rows, so DAO code can be run and profiled with no
+ * network and no server. SQL that has no handler fails with an SQLException, so a change to a DAO's
+ * SQL shows up at once instead of silently measuring nothing.
+ *
+ * Round trips to the server can be given a simulated latency. Opening a connection, running a
+ * statement and committing or rolling back each wait for their configured time. Short waits spin so
+ * that they stay accurate to a microsecond or so; longer ones park the thread, as a real socket read
+ * would.
+ *
+ * A database is reached through {@link FakeDriver} with the URL returned by {@link #getUrl()}. Set
+ * {@code -Dprojects.db.url} to that URL before the first connection is opened to point
+ * {@link projects.dao.DbConnection} at it.
+ */
+public class FakeDatabase {
+	/* Waits shorter than this spin instead of parking, since parking overshoots by tens of micros. */
+	private static final long SPIN_NANOS = 100_000;
+
+	/**
+	 * Runs one statement.
+	 */
+	@FunctionalInterface
+	public interface StatementHandler {
+		/**
+		 * @param parameters The bound parameter values in order. A null parameter is null.
+		 * @return The result.
+		 * @throws SQLException Thrown to simulate a server error.
+		 */
+		FakeResult execute(List<Object> parameters) throws SQLException;
+	}
+
+	private final String name;
+	private final Map<String, StatementHandler> handlers = new ConcurrentHashMap<>();
+	private final List<Map.Entry<String, StatementHandler>> prefixHandlers =
+			new CopyOnWriteArrayList<>();
+
+	private volatile long connectNanos;
+	private volatile long statementNanos;
+	private volatile long commitNanos;
+	private volatile String lastUrl;
+
+	private final LongAdder connections = new LongAdder();
+	private final LongAdder statements = new LongAdder();
+	private final LongAdder commits = new LongAdder();
+	private final LongAdder rollbacks = new LongAdder();
+
+	/**
+	 * Creates a database and registers it with {@link FakeDriver}. A database registered earlier
+	 * under the same name is replaced.
+	 *
+	 * @param name The name used in the URL.
+	 */
+	public FakeDatabase(String name) {
+		this.name = name;
+		FakeDriver.register(this);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the JDBC URL of this database.
+	 */
+	public String getUrl() {
+		return FakeDriver.URL_PREFIX + name + "?";
+	}
+
+	/**
+	 * Serves a statement whose SQL is exactly the given string.
+	 *
+	 * @param sql The SQL.
+	 * @param handler Runs the statement.
+	 * @return This database.
+	 */
+	public FakeDatabase onSql(String sql, StatementHandler handler) {
+		handlers.put(sql, handler);
+		return this;
+	}
+
+	/**
+	 * Serves statements whose SQL starts with the given string. This is for SQL that is built with a
+	 * varying number of placeholders, such as multi-row inserts. Exact matches are tried first, then
+	 * prefixes in the order they were added.
+	 *
+	 * @param prefix The start of the SQL.
+	 * @param handler Runs the statement.
+	 * @return This database.
+	 */
+	public FakeDatabase onSqlPrefix(String prefix, StatementHandler handler) {
+		prefixHandlers.add(Map.entry(prefix, handler));
+		return this;
+	}
+
+	/**
+	 * Sets the time taken to open a connection.
+	 */
+	public FakeDatabase withConnectLatency(Duration latency) {
+		connectNanos = latency.toNanos();
+		return this;
+	}
+
+	/**
+	 * Sets the time taken by each statement execution, including each statement of a batch.
+	 */
+	public FakeDatabase withStatementLatency(Duration latency) {
+		statementNanos = latency.toNanos();
+		return this;
+	}
+
+	/**
+	 * Sets the time taken by a commit or rollback.
+	 */
+	public FakeDatabase withCommitLatency(Duration latency) {
+		commitNanos = latency.toNanos();
+		return this;
+	}
+
+	public long getConnectionCount() {
+		return connections.sum();
+	}
+
+	public long getStatementCount() {
+		return statements.sum();
+	}
+
+	public long getCommitCount() {
+		return commits.sum();
+	}
+
+	public long getRollbackCount() {
+		return rollbacks.sum();
+	}
+
+	/**
+	 * Returns the URL, with its connection parameters, of the last connection opened, or null if
+	 * there has been none.
+	 */
+	public String getLastUrl() {
+		return lastUrl;
+	}
+
+	/**
+	 * Sets all counters back to zero.
+	 */
+	public void resetCounts() {
+		connections.reset();
+		statements.reset();
+		commits.reset();
+		rollbacks.reset();
+	}
+
+	void connect(String url) {
+		lastUrl = url;
+		connections.increment();
+		simulateLatency(connectNanos);
+	}
+
+	void commit() {
+		commits.increment();
+		simulateLatency(commitNanos);
+	}
+
+	void rollback() {
+		rollbacks.increment();
+		simulateLatency(commitNanos);
+	}
+
+	/**
+	 * Counts a statement that the driver answers itself and waits for its round trip.
+	 */
+	void statement() {
+		statements.increment();
+		roundTrip();
+	}
+
+	/**
+	 * Waits for a round trip that is not a statement, such as changing the auto-commit mode.
+	 */
+	void roundTrip() {
+		simulateLatency(statementNanos);
+	}
+
+	FakeResult execute(String sql, List<Object> parameters) throws SQLException {
+		statement();
+
+		StatementHandler handler = handlers.get(sql);
+
+		if(Objects.isNull(handler)) {
+			for(Map.Entry<String, StatementHandler> entry : prefixHandlers) {
+				if(sql.startsWith(entry.getKey())) {
+					handler = entry.getValue();
+					break;
+				}
+			}
+		}
+
+		if(Objects.isNull(handler)) {
+			throw new SQLException("The fake database " + name + " has no handler for SQL: " + sql,
+					"42000");
+		}
+
+		return handler.execute(parameters);
+	}
+
+	private static void simulateLatency(long nanos) {
+		if(nanos <= 0) {
+			return;
+		}
+
+		long deadline = System.nanoTime() + nanos;
+		long remaining;
+
+		while((remaining = deadline - System.nanoTime()) > 0) {
+			if(remaining > SPIN_NANOS) {
+				LockSupport.parkNanos(remaining - SPIN_NANOS);
+			}
+			else {
+				Thread.onSpinWait();
+			}
+		}
+	}
+}
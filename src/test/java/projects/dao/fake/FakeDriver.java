@@ -0,0 +1,96 @@
+package projects.dao.fake;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * A JDBC driver for {@link FakeDatabase} instances. URLs have the form
+ * {@code jdbc:fake:<name>?<parameters>}; parameters are accepted and ignored so that code which
+ * appends MySQL connection options keeps working. The driver registers itself with
+ * {@link DriverManager} when the first database is created.
+ */
+public class FakeDriver implements Driver {
+	static final String URL_PREFIX = "jdbc:fake:";
+
+	private static final Map<String, FakeDatabase> DATABASES = new ConcurrentHashMap<>();
+
+	static {
+		try {
+			DriverManager.registerDriver(new FakeDriver());
+		}
+		catch(SQLException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	static void register(FakeDatabase database) {
+		DATABASES.put(database.getName(), database);
+	}
+
+	@Override
+	public Connection connect(String url, Properties info) throws SQLException {
+		if(!acceptsURL(url)) {
+			/* DriverManager offers every URL to every driver; null means "not mine". */
+			return null;
+		}
+
+		String name = url.substring(URL_PREFIX.length());
+		int end = name.indexOf('?');
+
+		if(end < 0) {
+			end = name.indexOf('&');
+		}
+
+		if(end >= 0) {
+			name = name.substring(0, end);
+		}
+
+		FakeDatabase database = DATABASES.get(name);
+
+		if(Objects.isNull(database)) {
+			throw new SQLException("No fake database is registered as " + name, "08001");
+		}
+
+		database.connect(url);
+		return new FakeConnection(database);
+	}
+
+	@Override
+	public boolean acceptsURL(String url) {
+		return Objects.nonNull(url) && url.startsWith(URL_PREFIX);
+	}
+
+	@Override
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+		return new DriverPropertyInfo[0];
+	}
+
+	@Override
+	public int getMajorVersion() {
+		return 1;
+	}
+
+	@Override
+	public int getMinorVersion() {
+		return 0;
+	}
+
+	@Override
+	public boolean jdbcCompliant() {
+		return false;
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+}
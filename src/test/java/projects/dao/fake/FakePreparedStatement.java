@@ -0,0 +1,689 @@
+package projects.dao.fake;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A statement on a {@link FakeConnection}. One class serves as both a plain statement, whose SQL is
+ * passed to each execute call, and a prepared statement. Parameters are collected into a list that
+ * is handed to the {@link FakeDatabase} handler for the SQL; batches run the handler once per
+ * parameter set. Methods the DAOs do not use throw {@link SQLFeatureNotSupportedException}.
+ */
+public class FakePreparedStatement implements PreparedStatement {
+	private final FakeConnection connection;
+	private final String sql;
+	private final boolean returnKeys;
+
+	private Object[] parameters = new Object[8];
+	private int parameterCount;
+	private List<List<Object>> batch;
+	private FakeResult result;
+	private FakeResultSet resultSet;
+	private int fetchSize;
+	private int queryTimeout;
+	private boolean closed;
+
+	FakePreparedStatement(FakeConnection connection, String sql, int autoGeneratedKeys) {
+		this.connection = connection;
+		this.sql = sql;
+		this.returnKeys = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS;
+	}
+
+	private void setValue(int parameterIndex, Object value) throws SQLException {
+		checkOpen();
+
+		if(parameterIndex < 1) {
+			throw new SQLException("Parameter index out of range (" + parameterIndex + " < 1).", "S1009");
+		}
+
+		if(parameterIndex > parameters.length) {
+			parameters = Arrays.copyOf(parameters, Math.max(parameterIndex, parameters.length * 2));
+		}
+
+		parameters[parameterIndex - 1] = value;
+		parameterCount = Math.max(parameterCount, parameterIndex);
+	}
+
+	private List<Object> boundParameters() {
+		return Arrays.asList(Arrays.copyOf(parameters, parameterCount));
+	}
+
+	private void checkOpen() throws SQLException {
+		if(closed) {
+			throw new SQLException("The statement is closed.", "S1009");
+		}
+	}
+
+	private String preparedSql() throws SQLException {
+		if(Objects.isNull(sql)) {
+			throw new SQLException("A plain statement must be given its SQL when it is executed.", "S1009");
+		}
+
+		return sql;
+	}
+
+	private FakeResult run(String statementSql, List<Object> statementParameters)
+			throws SQLException {
+		checkOpen();
+		closeResultSet();
+
+		result = connection.execute(statementSql, statementParameters);
+
+		if(result.isQuery()) {
+			resultSet = new FakeResultSet(this, result);
+		}
+
+		return result;
+	}
+
+	private void closeResultSet() {
+		if(Objects.nonNull(resultSet)) {
+			resultSet.close();
+			resultSet = null;
+		}
+	}
+
+	private ResultSet query(String statementSql, List<Object> statementParameters)
+			throws SQLException {
+		if(!run(statementSql, statementParameters).isQuery()) {
+			throw new SQLException("The statement did not return a result set.", "S1009");
+		}
+
+		return resultSet;
+	}
+
+	private int update(String statementSql, List<Object> statementParameters) throws SQLException {
+		FakeResult updateResult = run(statementSql, statementParameters);
+
+		if(updateResult.isQuery()) {
+			throw new SQLException("Can not issue executeUpdate() for SELECTs", "S1009");
+		}
+
+		return updateResult.getUpdateCount();
+	}
+
+	@Override
+	public ResultSet executeQuery() throws SQLException {
+		return query(preparedSql(), boundParameters());
+	}
+
+	@Override
+	public int executeUpdate() throws SQLException {
+		return update(preparedSql(), boundParameters());
+	}
+
+	@Override
+	public boolean execute() throws SQLException {
+		return run(preparedSql(), boundParameters()).isQuery();
+	}
+
+	@Override
+	public ResultSet executeQuery(String sql) throws SQLException {
+		return query(sql, List.of());
+	}
+
+	@Override
+	public int executeUpdate(String sql) throws SQLException {
+		return update(sql, List.of());
+	}
+
+	@Override
+	public boolean execute(String sql) throws SQLException {
+		return run(sql, List.of()).isQuery();
+	}
+
+	@Override
+	public void addBatch() throws SQLException {
+		checkOpen();
+
+		if(Objects.isNull(batch)) {
+			batch = new ArrayList<>();
+		}
+
+		batch.add(boundParameters());
+	}
+
+	@Override
+	public void clearBatch() {
+		batch = null;
+	}
+
+	/**
+	 * Runs the handler once per parameter set. Generated keys from all of the statements are
+	 * returned together by {@link #getGeneratedKeys()}.
+	 */
+	@Override
+	public int[] executeBatch() throws SQLException {
+		String batchSql = preparedSql();
+		List<List<Object>> sets = Objects.isNull(batch) ? List.of() : batch;
+		int[] counts = new int[sets.size()];
+		List<Integer> keys = new ArrayList<>();
+		int total = 0;
+
+		batch = null;
+
+		for(int pos = 0; pos < counts.length; pos++) {
+			FakeResult setResult = run(batchSql, sets.get(pos));
+
+			counts[pos] = setResult.getUpdateCount();
+			total += Math.max(0, counts[pos]);
+			keys.addAll(setResult.getGeneratedKeys());
+		}
+
+		result = FakeResult.updateCount(total, keys);
+		return counts;
+	}
+
+	@Override
+	public ResultSet getGeneratedKeys() throws SQLException {
+		checkOpen();
+
+		if(!returnKeys) {
+			throw new SQLException("Generated keys not requested. You need to specify "
+					+ "Statement.RETURN_GENERATED_KEYS to Statement.executeUpdate(), "
+					+ "Statement.executeLargeUpdate() or Connection.prepareStatement().", "S1009");
+		}
+
+		List<Object[]> rows = new ArrayList<>();
+
+		if(Objects.nonNull(result)) {
+			for(Integer key : result.getGeneratedKeys()) {
+				rows.add(new Object[] {key.longValue()});
+			}
+		}
+
+		return new FakeResultSet(this, FakeResult.rows(List.of("GENERATED_KEY"), rows));
+	}
+
+	@Override
+	public ResultSet getResultSet() {
+		return resultSet;
+	}
+
+	@Override
+	public int getUpdateCount() {
+		return Objects.isNull(result) || result.isQuery() ? -1 : result.getUpdateCount();
+	}
+
+	@Override
+	public boolean getMoreResults() {
+		closeResultSet();
+		result = null;
+		return false;
+	}
+
+	@Override
+	public void clearParameters() {
+		Arrays.fill(parameters, null);
+		parameterCount = 0;
+	}
+
+	@Override
+	public void setNull(int parameterIndex, int sqlType) throws SQLException {
+		setValue(parameterIndex, null);
+	}
+
+	@Override
+	public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+		setValue(parameterIndex, x);
+	}
+
+	@Override
+	public void setInt(int parameterIndex, int x) throws SQLException {
+		setValue(parameterIndex, x);
+	}
+
+	@Override
+	public void setLong(int parameterIndex, long x) throws SQLException {
+		setValue(parameterIndex, x);
+	}
+
+	@Override
+	public void setDouble(int parameterIndex, double x) throws SQLException {
+		setValue(parameterIndex, x);
+	}
+
+	@Override
+	public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+		setValue(parameterIndex, x);
+	}
+
+	@Override
+	public void setString(int parameterIndex, String x) throws SQLException {
+		setValue(parameterIndex, x);
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x) throws SQLException {
+		setValue(parameterIndex, x);
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+		setValue(parameterIndex, x);
+	}
+
+	@Override
+	public void setFetchSize(int rows) throws SQLException {
+		checkOpen();
+		fetchSize = rows;
+	}
+
+	@Override
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	@Override
+	public Connection getConnection() {
+		return connection;
+	}
+
+	@Override
+	public void close() {
+		closeResultSet();
+		closed = true;
+	}
+
+	@Override
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if(iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+
+		throw new SQLException("Not a wrapper for " + iface.getName());
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) {
+		return iface.isInstance(this);
+	}
+
+	/* The rest of the interface is not used by the DAOs. */
+
+	@Override
+	public void addBatch(String sql) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void cancel() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void closeOnCompletion() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public boolean execute(String sql, String[] columnNames) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public int getFetchDirection() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public int getMaxFieldSize() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public int getMaxRows() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public boolean getMoreResults(int current) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public ParameterMetaData getParameterMetaData() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public int getQueryTimeout() {
+		return queryTimeout;
+	}
+
+	@Override
+	public int getResultSetConcurrency() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public int getResultSetHoldability() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public int getResultSetType() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public boolean isCloseOnCompletion() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public boolean isPoolable() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setArray(int parameterIndex, Array x) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setBinaryStream(int parameterIndex, InputStream x, long length)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setBlob(int parameterIndex, InputStream inputStream, long length)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setBlob(int parameterIndex, Blob x) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setByte(int parameterIndex, byte x) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setCharacterStream(int parameterIndex, Reader reader, int length)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setCharacterStream(int parameterIndex, Reader reader, long length)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setClob(int parameterIndex, Reader reader, long length) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setClob(int parameterIndex, Reader reader) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setClob(int parameterIndex, Clob x) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setCursorName(String name) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setDate(int parameterIndex, Date x) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setEscapeProcessing(boolean enable) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setFetchDirection(int direction) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setFloat(int parameterIndex, float x) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setMaxFieldSize(int max) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setMaxRows(int max) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setNCharacterStream(int parameterIndex, Reader value, long length)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setNClob(int parameterIndex, NClob value) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setNString(int parameterIndex, String value) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setPoolable(boolean poolable) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setQueryTimeout(int seconds) throws SQLException {
+		/* Kept but not enforced; the fake's latency is fixed. */
+		checkOpen();
+		queryTimeout = seconds;
+	}
+
+	@Override
+	public void setRef(int parameterIndex, Ref x) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setRowId(int parameterIndex, RowId x) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setShort(int parameterIndex, short x) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setTime(int parameterIndex, Time x) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setURL(int parameterIndex, URL x) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	@Deprecated
+	public void setUnicodeStream(int parameterIndex, InputStream x, int length)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+}
@@ -0,0 +1,316 @@
+package projects.dao.fake;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the SQL that {@link projects.dao.ProjectDao} issues from generated project tables. Every
+ * value is computed from the project ID, so two runs with the same sizes see exactly the same rows.
+ * All query results are built when the tables are installed and then shared, so serving a query
+ * allocates little more than the result set object and a benchmark measures the DAO rather than the
+ * fake. The memory used grows with the number of projects.
+ *
+ * Writes are acknowledged but not applied: an insert gets the next project ID, and an update or
+ * delete of an existing project ID reports one row changed. Every read therefore returns the same
+ * data however many writes have run, and every project stays at row version 1. The change log is
+ * always empty.
+ */
+public class FakeProjectTables {
+	// @formatter:off
+	private static final List<String> PROJECT_COLUMNS = List.of(
+			"project_id", "project_name", "estimated_hours", "actual_hours", "difficulty", "notes",
+			"row_version");
+	private static final List<String> MATERIAL_COLUMNS = List.of(
+			"material_id", "project_id", "material_name", "num_required", "cost");
+	private static final List<String> STEP_COLUMNS = List.of(
+			"step_id", "project_id", "step_text", "step_order");
+	private static final List<String> CATEGORY_COLUMNS = List.of(
+			"category_id", "category_name");
+	private static final List<String> PAYLOAD_COLUMNS = List.of(
+			"project_id", "payload");
+	private static final List<String> CHANGE_COLUMNS = List.of(
+			"change_id", "project_id", "change_type", "changed_at", "payload");
+	// @formatter:on
+
+	private static final String CATEGORY_PREFIX = "Category ";
+	private static final FakeResult VERSION_1 =
+			FakeResult.rows(List.of("row_version"), List.<Object[]>of(new Object[] {1}));
+	private static final FakeResult NO_VERSION = FakeResult.rows(List.of("row_version"), List.of());
+	private static final FakeResult NO_ROWS = FakeResult.updateCount(0);
+	private static final FakeResult ONE_ROW = FakeResult.updateCount(1);
+
+	private final int projectCount;
+	private final int categoryCount;
+	private final FakeResult allProjects;
+	private final FakeResult[] projects;
+	private final FakeResult[] materials;
+	private final FakeResult[] steps;
+	private final FakeResult[] categories;
+	private final FakeResult[] projectsByCategory;
+	private final AtomicInteger nextProjectId;
+
+	/**
+	 * Generates the tables.
+	 *
+	 * @param projectCount The number of projects. Their IDs run from 1 to this number, and their names
+	 *        sort in ID order.
+	 * @param materialsPerProject The number of materials of each project.
+	 * @param stepsPerProject The number of steps of each project.
+	 * @param categoriesPerProject The number of categories of each project.
+	 * @param categoryCount The number of distinct categories the projects are spread across. It must
+	 *        be at least categoriesPerProject.
+	 */
+	public FakeProjectTables(int projectCount, int materialsPerProject, int stepsPerProject,
+			int categoriesPerProject, int categoryCount) {
+		if(categoryCount < categoriesPerProject) {
+			throw new IllegalArgumentException("There must be at least " + categoriesPerProject
+					+ " categories.");
+		}
+
+		this.projectCount = projectCount;
+		this.categoryCount = categoryCount;
+		this.projects = new FakeResult[projectCount + 1];
+		this.materials = new FakeResult[projectCount + 1];
+		this.steps = new FakeResult[projectCount + 1];
+		this.categories = new FakeResult[projectCount + 1];
+		this.projectsByCategory = new FakeResult[categoryCount + 1];
+		this.nextProjectId = new AtomicInteger(projectCount + 1);
+
+		List<Object[]> projectRows = new ArrayList<>(projectCount);
+		List<List<Object[]>> categoryProjectRows = new ArrayList<>(categoryCount + 1);
+
+		for(int categoryId = 0; categoryId <= categoryCount; categoryId++) {
+			categoryProjectRows.add(new ArrayList<>());
+		}
+
+		for(int projectId = 1; projectId <= projectCount; projectId++) {
+			Object[] projectRow = projectRow(projectId);
+			List<Object[]> materialRows = new ArrayList<>(materialsPerProject);
+			List<Object[]> stepRows = new ArrayList<>(stepsPerProject);
+			List<Object[]> categoryRows = new ArrayList<>(categoriesPerProject);
+
+			for(int pos = 0; pos < materialsPerProject; pos++) {
+				int materialId = (projectId - 1) * materialsPerProject + pos + 1;
+
+				materialRows.add(new Object[] {materialId, projectId, "Material " + materialId, pos + 1,
+						hours(materialId % 5000)});
+			}
+
+			for(int pos = 0; pos < stepsPerProject; pos++) {
+				int stepId = (projectId - 1) * stepsPerProject + pos + 1;
+
+				stepRows.add(new Object[] {stepId, projectId, "Step " + (pos + 1) + " of project "
+						+ projectId, pos + 1});
+			}
+
+			for(int pos = 0; pos < categoriesPerProject; pos++) {
+				int categoryId = (projectId + pos) % categoryCount + 1;
+
+				categoryRows.add(new Object[] {categoryId, categoryName(categoryId)});
+				categoryProjectRows.get(categoryId).add(projectRow);
+			}
+
+			projectRows.add(projectRow);
+			projects[projectId] = FakeResult.rows(PROJECT_COLUMNS, List.<Object[]>of(projectRow));
+			materials[projectId] = FakeResult.rows(MATERIAL_COLUMNS, materialRows);
+			steps[projectId] = FakeResult.rows(STEP_COLUMNS, stepRows);
+			categories[projectId] = FakeResult.rows(CATEGORY_COLUMNS, categoryRows);
+		}
+
+		allProjects = FakeResult.rows(PROJECT_COLUMNS, projectRows);
+		projects[0] = FakeResult.rows(PROJECT_COLUMNS, List.of());
+		materials[0] = FakeResult.rows(MATERIAL_COLUMNS, List.of());
+		steps[0] = FakeResult.rows(STEP_COLUMNS, List.of());
+		categories[0] = FakeResult.rows(CATEGORY_COLUMNS, List.of());
+
+		for(int categoryId = 0; categoryId <= categoryCount; categoryId++) {
+			projectsByCategory[categoryId] =
+					FakeResult.rows(PROJECT_COLUMNS, categoryProjectRows.get(categoryId));
+		}
+	}
+
+	/**
+	 * Returns the name of the project with the given ID.
+	 */
+	public static String projectName(int projectId) {
+		return String.format("Project %07d", projectId);
+	}
+
+	/**
+	 * Returns the name of the category with the given ID.
+	 */
+	public static String categoryName(int categoryId) {
+		return CATEGORY_PREFIX + categoryId;
+	}
+
+	public int getProjectCount() {
+		return projectCount;
+	}
+
+	/**
+	 * Adds handlers for every statement ProjectDao issues to the database.
+	 *
+	 * @param database The database.
+	 * @return The database.
+	 */
+	public FakeDatabase install(FakeDatabase database) {
+		// @formatter:off
+		database
+			.onSql("SELECT * FROM project ORDER BY project_name",
+					parameters -> allProjects)
+			.onSql("SELECT * FROM project ORDER BY project_name, project_id LIMIT ?",
+					parameters -> page(0, parameters.get(0)))
+			.onSql("SELECT * FROM project WHERE (project_name, project_id) > (?, ?) "
+					+ "ORDER BY project_name, project_id LIMIT ?",
+					parameters -> page(((Number)parameters.get(1)).intValue(), parameters.get(2)))
+			.onSql("SELECT * FROM project WHERE project_id = ?",
+					parameters -> projects[index(parameters.get(0))])
+			.onSql("SELECT row_version FROM project WHERE project_id = ?",
+					parameters -> index(parameters.get(0)) == 0 ? NO_VERSION : VERSION_1)
+			.onSql("SELECT * FROM material WHERE project_id = ?",
+					parameters -> materials[index(parameters.get(0))])
+			.onSql("SELECT * FROM step WHERE project_id = ?",
+					parameters -> steps[index(parameters.get(0))])
+			.onSql("SELECT c.* FROM category c "
+					+ "JOIN project_category pc USING (category_id) "
+					+ "WHERE project_id = ?",
+					parameters -> categories[index(parameters.get(0))])
+			.onSql("SELECT p.* FROM project p "
+					+ "JOIN project_category pc USING (project_id) "
+					+ "JOIN category c USING (category_id) "
+					+ "WHERE c.category_name = ? "
+					+ "ORDER BY p.project_name",
+					parameters -> projectsByCategory[categoryIndex(parameters.get(0))])
+			.onSql("INSERT INTO project "
+					+ "(project_name, estimated_hours, actual_hours, difficulty, notes) "
+					+ "VALUES "
+					+ "(?, ?, ?, ?, ?)",
+					parameters -> FakeResult.updateCount(1, List.of(nextProjectId.getAndIncrement())))
+			.onSql("UPDATE project SET "
+					+ "project_name = ?, "
+					+ "estimated_hours = ?, "
+					+ "actual_hours = ?, "
+					+ "difficulty = ?, "
+					+ "notes = ?, "
+					+ "row_version = row_version + 1 "
+					+ "WHERE project_id = ?",
+					parameters -> changed(parameters.get(5)))
+			.onSql("UPDATE project SET "
+					+ "project_name = COALESCE(?, project_name), "
+					+ "estimated_hours = COALESCE(?, estimated_hours), "
+					+ "actual_hours = COALESCE(?, actual_hours), "
+					+ "difficulty = COALESCE(?, difficulty), "
+					+ "notes = COALESCE(?, notes), "
+					+ "row_version = row_version + 1 "
+					+ "WHERE project_id = ?",
+					parameters -> changed(parameters.get(5)))
+			.onSql("UPDATE project SET "
+					+ "actual_hours = COALESCE(actual_hours, 0) + ?, "
+					+ "row_version = row_version + 1 "
+					+ "WHERE project_id = ?",
+					parameters -> changed(parameters.get(1)))
+			.onSql("DELETE FROM project WHERE project_id = ?",
+					parameters -> changed(parameters.get(0)))
+			.onSqlPrefix("SELECT project_id, JSON_OBJECT(", this::payloads)
+			.onSqlPrefix("INSERT INTO project_change_log ",
+					parameters -> ONE_ROW)
+			.onSql("SELECT * FROM project_change_log WHERE change_id > ? ORDER BY change_id LIMIT ?",
+					parameters -> FakeResult.rows(CHANGE_COLUMNS, List.of()))
+			.onSql("SELECT COALESCE(MAX(change_id), 0) FROM project_change_log "
+					+ "WHERE changed_at < NOW() - INTERVAL ? SECOND",
+					parameters -> FakeResult.rows(List.of("COALESCE(MAX(change_id), 0)"),
+							List.<Object[]>of(new Object[] {0L})))
+			.onSql("SELECT COALESCE(MIN(change_id), 0) FROM project_change_log",
+					parameters -> FakeResult.rows(List.of("COALESCE(MIN(change_id), 0)"),
+							List.<Object[]>of(new Object[] {0L})))
+			.onSql("SELECT project_id FROM project_change_log WHERE change_id > ?",
+					parameters -> FakeResult.rows(List.of("project_id"), List.of()));
+		// @formatter:on
+
+		return database;
+	}
+
+	/**
+	 * Returns the projects after a project ID. Project names sort in ID order, so this is also the
+	 * page after that project's name.
+	 */
+	private FakeResult page(int afterId, Object limit) {
+		int first = Math.max(1, afterId + 1);
+		int last = (int)Math.min(projectCount, (long)afterId + ((Number)limit).intValue());
+		List<Object[]> rows = new ArrayList<>();
+
+		for(int projectId = first; projectId <= last; projectId++) {
+			rows.add(projectRow(projectId));
+		}
+
+		return FakeResult.rows(PROJECT_COLUMNS, rows);
+	}
+
+	private Object[] projectRow(int projectId) {
+		BigDecimal actualHours = projectId % 3 == 0 ? null : hours(projectId % 400);
+
+		return new Object[] {projectId, projectName(projectId), hours(projectId % 500 + 1),
+				actualHours, projectId % 5 + 1, "Notes for project " + projectId, 1};
+	}
+
+	/**
+	 * Returns a DECIMAL(7, 2) value, with the scale that MySQL returns.
+	 */
+	private static BigDecimal hours(int value) {
+		return BigDecimal.valueOf(value * 25L, 2);
+	}
+
+	/**
+	 * Maps a project ID parameter to an index into the per-project results. Unknown IDs map to 0,
+	 * which holds empty results.
+	 */
+	private int index(Object projectId) {
+		if(Objects.isNull(projectId)) {
+			return 0;
+		}
+
+		int id = ((Number)projectId).intValue();
+		return id >= 1 && id <= projectCount ? id : 0;
+	}
+
+	private int categoryIndex(Object categoryName) {
+		String name = (String)categoryName;
+
+		if(Objects.isNull(name) || !name.startsWith(CATEGORY_PREFIX)) {
+			return 0;
+		}
+
+		try {
+			int id = Integer.parseInt(name.substring(CATEGORY_PREFIX.length()));
+			return id >= 1 && id <= categoryCount ? id : 0;
+		}
+		catch(NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns a change log payload for every project ID that has been handed out, inserted ones
+	 * included.
+	 */
+	private FakeResult payloads(List<Object> parameters) {
+		List<Object[]> rows = new ArrayList<>();
+
+		for(Object parameter : parameters) {
+			int projectId = ((Number)parameter).intValue();
+
+			if(projectId >= 1 && projectId < nextProjectId.get()) {
+				rows.add(new Object[] {projectId, "{\"projectId\": " + projectId + "}"});
+			}
+		}
+
+		return FakeResult.rows(PAYLOAD_COLUMNS, rows);
+	}
+
+	private FakeResult changed(Object projectId) {
+		return index(projectId) == 0 ? NO_ROWS : ONE_ROW;
+	}
+}
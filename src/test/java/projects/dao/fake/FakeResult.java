@@ -0,0 +1,101 @@
+package projects.dao.fake;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The result of one statement run against a {@link FakeDatabase}: either rows or an update count
+ * with any generated keys. The driver never changes a result, so the same result may be returned by
+ * many statements at once and canned results can be built once and served without allocating.
+ */
+public class FakeResult {
+	private final List<String> columns;
+	private final Map<String, Integer> columnIndexes;
+	private final List<Object[]> rows;
+	private final int updateCount;
+	private final List<Integer> generatedKeys;
+
+	private FakeResult(List<String> columns, List<Object[]> rows, int updateCount,
+			List<Integer> generatedKeys) {
+		this.columns = columns;
+		this.rows = rows;
+		this.updateCount = updateCount;
+		this.generatedKeys = generatedKeys;
+		this.columnIndexes = new HashMap<>();
+
+		for(int col = 0; col < columns.size(); col++) {
+			/* MySQL column labels are matched without regard to case; the first match wins. */
+			columnIndexes.putIfAbsent(columns.get(col).toLowerCase(Locale.ROOT), col + 1);
+		}
+	}
+
+	/**
+	 * Returns a query result.
+	 *
+	 * @param columns The column labels.
+	 * @param rows The rows. Each holds one value per column, of the Java type the MySQL driver returns
+	 *        from getObject: Integer for INT, Long for BIGINT, BigDecimal for DECIMAL and String for
+	 *        character types.
+	 * @return The result.
+	 */
+	public static FakeResult rows(List<String> columns, List<Object[]> rows) {
+		return new FakeResult(List.copyOf(columns), List.copyOf(rows), -1, List.of());
+	}
+
+	/**
+	 * Returns the result of an INSERT, UPDATE or DELETE that generated no keys.
+	 *
+	 * @param updateCount The number of rows changed.
+	 * @return The result.
+	 */
+	public static FakeResult updateCount(int updateCount) {
+		return updateCount(updateCount, List.of());
+	}
+
+	/**
+	 * Returns the result of an INSERT that generated keys.
+	 *
+	 * @param updateCount The number of rows changed.
+	 * @param generatedKeys The generated keys in row order.
+	 * @return The result.
+	 */
+	public static FakeResult updateCount(int updateCount, List<Integer> generatedKeys) {
+		return new FakeResult(List.of(), List.of(), updateCount, List.copyOf(generatedKeys));
+	}
+
+	public boolean isQuery() {
+		return updateCount < 0;
+	}
+
+	public List<String> getColumns() {
+		return columns;
+	}
+
+	public List<Object[]> getRows() {
+		return rows;
+	}
+
+	public int getUpdateCount() {
+		return updateCount;
+	}
+
+	public List<Integer> getGeneratedKeys() {
+		return generatedKeys;
+	}
+
+	/**
+	 * Returns the one-based index of a column, or 0 if there is no column with the label.
+	 */
+	int findColumn(String label) {
+		Integer index = columnIndexes.get(label);
+
+		if(Objects.isNull(index)) {
+			index = columnIndexes.getOrDefault(label.toLowerCase(Locale.ROOT), 0);
+		}
+
+		return index;
+	}
+}
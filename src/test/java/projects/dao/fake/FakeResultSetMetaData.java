@@ -0,0 +1,150 @@
+package projects.dao.fake;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * The column labels of a {@link FakeResult}. The fake keeps no column types, so every column is
+ * reported as a nullable VARCHAR and the type details the DAOs never ask for throw
+ * {@link SQLFeatureNotSupportedException}.
+ */
+class FakeResultSetMetaData implements ResultSetMetaData {
+	private final List<String> columns;
+
+	FakeResultSetMetaData(List<String> columns) {
+		this.columns = columns;
+	}
+
+	private String column(int column) throws SQLException {
+		if(column < 1 || column > columns.size()) {
+			throw new SQLException("Column Index out of range, " + column + " > " + columns.size() + ".",
+					"S1009");
+		}
+
+		return columns.get(column - 1);
+	}
+
+	@Override
+	public int getColumnCount() {
+		return columns.size();
+	}
+
+	@Override
+	public String getColumnLabel(int column) throws SQLException {
+		return column(column);
+	}
+
+	@Override
+	public String getColumnName(int column) throws SQLException {
+		return column(column);
+	}
+
+	@Override
+	public int getColumnType(int column) throws SQLException {
+		column(column);
+		return Types.VARCHAR;
+	}
+
+	@Override
+	public int isNullable(int column) throws SQLException {
+		column(column);
+		return columnNullable;
+	}
+
+	@Override
+	public boolean isAutoIncrement(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public boolean isCaseSensitive(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public boolean isSearchable(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public boolean isCurrency(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public boolean isSigned(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public int getColumnDisplaySize(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public String getSchemaName(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public int getPrecision(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public int getScale(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public String getTableName(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public String getCatalogName(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public String getColumnTypeName(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public boolean isReadOnly(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public boolean isWritable(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public boolean isDefinitelyWritable(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public String getColumnClassName(int column) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if(iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+
+		throw new SQLException("Not a wrapper for " + iface.getName());
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) {
+		return iface.isInstance(this);
+	}
+}
@@ -0,0 +1,181 @@
+package projects.json;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+class ProjectJsonCodecTest {
+	@Test
+	void keepsNullFieldsAndEmptyChildLists() {
+		Project project = new Project();
+
+		project.setProjectId(1);
+		project.setProjectName("Shelf");
+
+		String json = write(project);
+
+		assertEquals("{\"projectId\":1,\"projectName\":\"Shelf\",\"estimatedHours\":null,"
+				+ "\"actualHours\":null,\"difficulty\":null,\"notes\":null,\"materials\":[],"
+				+ "\"steps\":[],\"categories\":[]}", json);
+
+		Project read = read(json);
+
+		assertNull(read.getEstimatedHours());
+		assertNull(read.getActualHours());
+		assertNull(read.getDifficulty());
+		assertNull(read.getNotes());
+		assertTrue(read.getMaterials().isEmpty());
+		assertTrue(read.getSteps().isEmpty());
+		assertTrue(read.getCategories().isEmpty());
+		assertEquals(json, write(read));
+	}
+
+	@Test
+	void writesDecimalsExactlyOnTheFastAndSlowPaths() {
+		List<String> decimals = List.of("0", "0.00", "-0.01", "12.50", "999999999999.99",
+				"-1125899906842.623", "0.000000000000001", "1234567890.123456789",
+				"0.0000000000000000001", "98765432109876543210.5");
+
+		for(String text : decimals) {
+			BigDecimal value = new BigDecimal(text);
+			Project read = read(write(project(value)));
+
+			assertEquals(value, read.getEstimatedHours(), text);
+			assertEquals(value.scale(), read.getEstimatedHours().scale(), text);
+		}
+	}
+
+	@Test
+	void writesANegativeScaleWithoutAnExponent() {
+		BigDecimal value = new BigDecimal("1.2E+3");
+		String json = write(project(value));
+
+		assertTrue(json.contains("\"estimatedHours\":1200,"), json);
+		assertEquals(0, value.compareTo(read(json).getEstimatedHours()));
+	}
+
+	@Test
+	void escapesControlCharactersAndKeepsEveryCodePoint() {
+		String notes = "tab\there \"quoted\" back\\slash \u0000\u001f\u007f é € 😀 𝄞";
+		String json = write(project(notes));
+
+		assertTrue(json.contains("\\t"), json);
+		assertTrue(json.contains("\\u0000\\u001f"), json);
+		assertEquals(notes, read(json).getNotes());
+	}
+
+	@Test
+	void escapesLoneSurrogatesSoTheOutputIsValidUtf8() {
+		String notes = "high \ud83d alone, low \ude00 alone, reversed \ude00\ud83d";
+		String json = write(project(notes));
+
+		assertTrue(json.contains("\\ud83d"), json);
+		assertTrue(json.contains("\\ude00"), json);
+		assertEquals(notes, read(json).getNotes());
+	}
+
+	@Test
+	void readsCharactersThatStraddleTheBufferBoundary() {
+		Project project = project("é€😀".repeat(40));
+		byte[] json = write(project).getBytes(StandardCharsets.UTF_8);
+
+		/*
+		 * The three characters take nine bytes, so nine consecutive buffer sizes put a refill at every
+		 * offset within them. The reader uses at least 64 bytes.
+		 */
+		for(int bufferSize = 64; bufferSize < 64 + 9; bufferSize++) {
+			Project read = ProjectJsonCodec.readProject(
+					new JsonReader(new ByteArrayInputStream(json), bufferSize));
+
+			assertEquals(project.getNotes(), read.getNotes(), "buffer size " + bufferSize);
+		}
+	}
+
+	@Test
+	void writesTheSameBytesWhateverTheBufferSize() {
+		Project project = project("é€😀".repeat(100));
+
+		project.getMaterials().add(material());
+		project.getSteps().add(step());
+		project.getCategories().add(category());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JsonWriter writer = new JsonWriter(out, 64);
+
+		ProjectJsonCodec.writeProject(project, writer);
+		writer.flush();
+
+		assertArrayEquals(write(project).getBytes(StandardCharsets.UTF_8), out.toByteArray());
+		assertEquals(write(project), write(read(out.toString(StandardCharsets.UTF_8))));
+	}
+
+	private static Project project(BigDecimal estimatedHours) {
+		Project project = new Project();
+
+		project.setProjectId(1);
+		project.setEstimatedHours(estimatedHours);
+		return project;
+	}
+
+	private static Project project(String notes) {
+		Project project = new Project();
+
+		project.setProjectId(1);
+		project.setNotes(notes);
+		return project;
+	}
+
+	private static Material material() {
+		Material material = new Material();
+
+		material.setMaterialId(1);
+		material.setMaterialName("Pine board");
+		material.setNumRequired(3);
+		material.setCost(new BigDecimal("12.99"));
+		return material;
+	}
+
+	private static Step step() {
+		Step step = new Step();
+
+		step.setStepId(1);
+		step.setStepText("Cut");
+		step.setStepOrder(1);
+		return step;
+	}
+
+	private static Category category() {
+		Category category = new Category();
+
+		category.setCategoryId(1);
+		category.setCategoryName("Woodwork");
+		return category;
+	}
+
+	private static String write(Project project) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JsonWriter writer = new JsonWriter(out);
+
+		ProjectJsonCodec.writeProject(project, writer);
+		writer.flush();
+
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	private static Project read(String json) {
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+		return ProjectJsonCodec.readProject(new JsonReader(bytes, 0, bytes.length));
+	}
+}
@@ -0,0 +1,122 @@
+package projects.service;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.math.BigDecimal;
+import java.sql.SQLDataException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import projects.exception.DbException;
+
+class ActualHoursAccumulatorTest {
+	private static final long NEVER = TimeUnit.HOURS.toMillis(1);
+	private static final int POISON = 13;
+
+	@Test
+	void isolatesAPoisonTotalAndDropsItAfterMaxAttempts() {
+		Map<Integer, BigDecimal> written = new TreeMap<>();
+
+		try(ActualHoursAccumulator accumulator = new ActualHoursAccumulator(deltas -> {
+			if(deltas.containsKey(POISON)) {
+				throw new DbException(new SQLDataException("Out of range value for column"));
+			}
+
+			deltas.forEach((projectId, delta) -> written.merge(projectId, delta, BigDecimal::add));
+		}, NEVER, 2)) {
+			accumulator.add(1, 150);
+			accumulator.add(POISON, 100);
+			accumulator.add(2, 25);
+
+			assertThrows(DbException.class, accumulator::flush);
+			assertEquals(Map.of(1, new BigDecimal("1.50"), 2, new BigDecimal("0.25")), written);
+
+			accumulator.add(1, 50);
+			assertThrows(DbException.class, accumulator::flush);
+
+			assertEquals(1, accumulator.getDroppedTotals());
+			assertEquals(new BigDecimal("2.00"), written.get(1));
+			assertDoesNotThrow(accumulator::flush);
+		}
+	}
+
+	@Test
+	void supersedeDiscardsEarlierIncrements() {
+		Map<Integer, BigDecimal> written = new TreeMap<>();
+
+		try(ActualHoursAccumulator accumulator = new ActualHoursAccumulator(written::putAll, NEVER, 2)) {
+			accumulator.add(1, 300);
+			accumulator.add(2, 100);
+
+			/* Setting project 1's hours outright overwrites the increment made before it. */
+			accumulator.supersede(1, () -> null);
+			accumulator.add(1, 25);
+			accumulator.flush();
+
+			assertEquals(Map.of(1, new BigDecimal("0.25"), 2, new BigDecimal("1.00")), written);
+		}
+	}
+
+	@Test
+	void keepsIncrementsMadeWhileTheSupersedingWriteRuns() {
+		Map<Integer, BigDecimal> written = new TreeMap<>();
+
+		try(ActualHoursAccumulator accumulator = new ActualHoursAccumulator(written::putAll, NEVER, 2)) {
+			accumulator.add(1, 300);
+
+			int result = accumulator.supersede(1, () -> {
+				accumulator.add(1, 40);
+				/* A flush while the write runs leaves the fenced project alone. */
+				accumulator.flush();
+				return 7;
+			});
+
+			assertEquals(7, result);
+			assertEquals(Map.of(), written);
+
+			accumulator.flush();
+			assertEquals(Map.of(1, new BigDecimal("0.40")), written);
+		}
+	}
+
+	@Test
+	void supersedeWaitsOnlyForAFlushWritingTheSameProject() throws Exception {
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		try(ActualHoursAccumulator accumulator = new ActualHoursAccumulator(deltas -> {
+			writing.countDown();
+
+			try {
+				release.await();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, NEVER, 2)) {
+			accumulator.add(1, 100);
+
+			CompletableFuture<Void> flush = CompletableFuture.runAsync(accumulator::flush);
+
+			writing.await();
+
+			/* Another project goes straight through while the flush is stuck in the database. */
+			assertEquals("other", accumulator.supersede(2, () -> "other"));
+
+			CompletableFuture<String> same =
+					CompletableFuture.supplyAsync(() -> accumulator.supersede(1, () -> "same"));
+
+			Thread.sleep(100);
+			assertFalse(same.isDone());
+
+			release.countDown();
+			flush.get(5, TimeUnit.SECONDS);
+			assertEquals("same", same.get(5, TimeUnit.SECONDS));
+		}
+	}
+}
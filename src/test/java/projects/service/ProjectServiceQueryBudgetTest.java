@@ -0,0 +1,180 @@
+package projects.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import projects.dao.ProjectDao;
+import projects.dao.QueryAssertions;
+import projects.dao.TestDatabase;
+import projects.dao.fake.FakeDatabase;
+import projects.dao.fake.FakeProjectTables;
+import projects.dao.fake.FakeResult;
+import projects.entity.Project;
+
+/**
+ * Runs each {@link ProjectService} operation against the fake driver and holds it to the number of
+ * statements it issues today, so that a change adding a query per row fails here rather than in
+ * production. Backup and restore are not covered: their reads and writes run on worker threads,
+ * which the statement counter does not see.
+ */
+class ProjectServiceQueryBudgetTest {
+	private static final int PROJECTS = 100;
+
+	@TempDir
+	Path dir;
+
+	private ProjectService service;
+
+	@BeforeEach
+	void setUp() {
+		TestDatabase.create(new FakeProjectTables(PROJECTS, 5, 8, 2, 10));
+		service = ProjectService.create(new ProjectDao());
+	}
+
+	@AfterEach
+	void tearDown() {
+		service.close();
+	}
+
+	@Test
+	void addProjectInsertsTheRowReadsItsKeyAndLogsIt() {
+		Project project = new Project();
+
+		project.setProjectName("Shelf");
+		project.setEstimatedHours(new BigDecimal("4.50"));
+		project.setDifficulty(2);
+
+		QueryAssertions.assertExactQueries(4, () -> service.addProject(project));
+	}
+
+	@Test
+	void listsTakeOneQueryWhateverTheirSize() {
+		QueryAssertions.assertExactQueries(1, () -> service.fetchAllProjects());
+		QueryAssertions.assertExactQueries(1,
+				() -> service.fetchProjectsByCategory(FakeProjectTables.categoryName(1)));
+		QueryAssertions.assertExactQueries(1, () -> service.fetchProjectsPage(null, null, 10));
+		QueryAssertions.assertExactQueries(1,
+				() -> service.fetchProjectsPage(FakeProjectTables.projectName(10), 10, 10));
+	}
+
+	@Test
+	void fetchProjectByIdReadsEachTableOnceAndThenServesTheCache() {
+		/* The project, its materials, its steps and its categories. */
+		QueryAssertions.assertExactQueries(4, () -> service.fetchProjectById(5));
+		QueryAssertions.assertExactQueries(0, () -> service.fetchProjectById(5));
+		QueryAssertions.assertExactQueries(1, () -> service.fetchProjectVersion(6));
+	}
+
+	@Test
+	void modifyAndDeleteWriteTheRowAndOneChangeLogEntry() {
+		Project project = service.fetchProjectById(7);
+
+		QueryAssertions.assertExactQueries(3, () -> service.modifyProjectDetails(project));
+		QueryAssertions.assertExactQueries(2, () -> service.deleteProject(8));
+	}
+
+	@Test
+	void hoursIncrementsWaitForTheFlushAndAreWrittenAsOneBatch() {
+		QueryAssertions.assertExactQueries(0, () -> {
+			for(int projectId = 1; projectId <= 50; projectId++) {
+				service.incrementActualHours(projectId, BigDecimal.ONE);
+			}
+		});
+
+		/* One batched update, the change log payloads and their insert for all fifty projects. */
+		QueryAssertions.assertExactQueries(3, () -> service.flush());
+	}
+
+	@Test
+	void importWritesEachTableOncePerCommit() throws IOException {
+		FakeDatabase database = TestDatabase.create();
+		Path file = dir.resolve("projects.ndjson");
+
+		Files.writeString(file, IntStream.rangeClosed(1, 200).mapToObj(pos -> "{\"projectName\":"
+				+ "\"Project " + pos + "\",\"estimatedHours\":4.5,\"difficulty\":2,\"materials\":"
+				+ "[{\"materialName\":\"Board\",\"numRequired\":2,\"cost\":1.25}],\"steps\":"
+				+ "[{\"stepText\":\"Cut\"}],\"categories\":[\"Woodwork\"]}\n")
+				.reduce("", String::concat), StandardCharsets.UTF_8);
+
+		database
+				.onSqlPrefix("SELECT records_committed FROM project_import ",
+						parameters -> FakeResult.rows(List.of("records_committed"), List.of()))
+				.onSqlPrefix("SELECT category_id, category_name FROM category ",
+						parameters -> FakeResult.rows(List.of("category_id", "category_name"),
+								List.<Object[]>of(new Object[] {1, "Woodwork"})))
+				.onSqlPrefix("INSERT INTO project (",
+						parameters -> keys(parameters.size() / 5))
+				.onSqlPrefix("SELECT project_id, JSON_OBJECT(",
+						parameters -> FakeResult.rows(List.of("project_id", "payload"),
+								parameters.stream().map(projectId -> new Object[] {projectId, "{}"})
+										.toList()))
+				.onSqlPrefix("INSERT INTO ",
+						parameters -> FakeResult.updateCount(parameters.size()))
+				.onSqlPrefix("DELETE FROM project_import ",
+						parameters -> FakeResult.updateCount(1));
+
+		/*
+		 * The checkpoint read; one insert per table, the category lookup and the change log payloads
+		 * and insert for the single commit; then the checkpoint write and its deletion once the file is
+		 * done.
+		 */
+		QueryAssertions.assertExactQueries(10, () -> {
+			try {
+				assertEquals(200, service.importProjects(file).getRecordsImported());
+			}
+			catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	@Test
+	void exportStreamsEachTableWithOneQuery() {
+		FakeDatabase database = TestDatabase.create();
+
+		database
+				.onSql("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY",
+						parameters -> FakeResult.updateCount(0))
+				.onSqlPrefix("SELECT project_id, project_name, ",
+						parameters -> FakeResult.rows(List.of("project_id", "project_name",
+								"estimated_hours", "actual_hours", "difficulty", "notes"),
+								IntStream.rangeClosed(1, PROJECTS).mapToObj(projectId ->
+										new Object[] {projectId, "Project " + projectId,
+												BigDecimal.ONE, null, 1, null}).toList()))
+				.onSqlPrefix("SELECT project_id, material_id, ",
+						parameters -> FakeResult.rows(List.of("project_id", "material_id",
+								"material_name", "num_required", "cost"), List.of()))
+				.onSqlPrefix("SELECT project_id, step_id, ",
+						parameters -> FakeResult.rows(List.of("project_id", "step_id", "step_text",
+								"step_order"), List.of()))
+				.onSqlPrefix("SELECT pc.project_id, ",
+						parameters -> FakeResult.rows(List.of("project_id", "category_id",
+								"category_name"), List.of()));
+
+		Path file = dir.resolve("projects.ndjson");
+
+		/* The snapshot and one cursor per table. */
+		QueryAssertions.assertExactQueries(5, () -> {
+			try {
+				assertEquals(PROJECTS, service.exportProjects(file));
+			}
+			catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	private static FakeResult keys(int count) {
+		return FakeResult.updateCount(count, IntStream.rangeClosed(1, count).boxed().toList());
+	}
+}
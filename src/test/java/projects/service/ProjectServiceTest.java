@@ -0,0 +1,74 @@
+package projects.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.math.BigDecimal;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Test;
+import projects.dao.InMemoryProjectRepository;
+import projects.entity.Project;
+
+class ProjectServiceTest {
+	@Test
+	void closeStopsTheBackgroundThreads() {
+		long before = serviceThreads();
+
+		for(int pass = 0; pass < 5; pass++) {
+			ProjectService service = ProjectService.create(new InMemoryProjectRepository());
+
+			service.close();
+			/* A second call, as the shutdown hook would make, does nothing. */
+			service.close();
+		}
+
+		assertEquals(before, serviceThreads());
+	}
+
+	@Test
+	void writesToAMissingProjectReportItAsMissing() {
+		ProjectService service = ProjectService.create(new InMemoryProjectRepository());
+
+		try {
+			Project project = new Project();
+
+			project.setProjectId(404);
+			project.setProjectName("Shelf");
+			project.setEstimatedHours(BigDecimal.ONE);
+			project.setDifficulty(1);
+
+			assertThrows(NoSuchElementException.class, () -> service.modifyProjectDetails(project));
+			assertThrows(NoSuchElementException.class, () -> service.deleteProject(404));
+		}
+		finally {
+			service.close();
+		}
+	}
+
+	/**
+	 * Counts the live flusher and metrics threads, waiting briefly for stopped ones to exit.
+	 */
+	private static long serviceThreads() {
+		long count = 0;
+
+		for(int attempt = 0; attempt < 50; attempt++) {
+			count = Thread.getAllStackTraces().keySet().stream()
+					.filter(thread -> thread.getName().endsWith("-flusher")
+							|| thread.getName().equals("operation-metrics"))
+					.count();
+
+			if(count == 0) {
+				return 0;
+			}
+
+			try {
+				Thread.sleep(20);
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return count;
+			}
+		}
+
+		return count;
+	}
+}
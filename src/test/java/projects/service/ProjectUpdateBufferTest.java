@@ -0,0 +1,148 @@
+package projects.service;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import java.sql.SQLDataException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import projects.entity.Project;
+import projects.exception.DbException;
+
+class ProjectUpdateBufferTest {
+	private static final long NEVER = TimeUnit.HOURS.toMillis(1);
+	private static final int POISON = 13;
+
+	@Test
+	void isolatesAPoisonRowAndDropsItAfterMaxAttempts() {
+		List<Integer> written = new ArrayList<>();
+
+		try(ProjectUpdateBuffer buffer = new ProjectUpdateBuffer(batch -> {
+			if(batch.stream().anyMatch(project -> project.getProjectId() == POISON)) {
+				throw new DbException(new SQLDataException("Data too long for column 'notes'"));
+			}
+
+			batch.forEach(project -> written.add(project.getProjectId()));
+		}, 100, NEVER, 3)) {
+			for(int projectId = 10; projectId < 20; projectId++) {
+				buffer.enqueue(update(projectId, "Notes " + projectId));
+			}
+
+			assertThrows(DbException.class, buffer::flush);
+			assertEquals(9, written.size());
+			assertTrue(buffer.hasPending(POISON));
+
+			assertThrows(DbException.class, buffer::flush);
+			assertThrows(DbException.class, buffer::flush);
+
+			assertEquals(1, buffer.getDroppedUpdates());
+			assertFalse(buffer.hasPending(POISON));
+			assertDoesNotThrow(buffer::flush);
+			assertFalse(written.contains(POISON));
+		}
+	}
+
+	@Test
+	void retriesEverythingWhileTheDatabaseIsDown() {
+		boolean[] down = {true};
+		List<Integer> written = new ArrayList<>();
+
+		try(ProjectUpdateBuffer buffer = new ProjectUpdateBuffer(batch -> {
+			if(down[0]) {
+				throw new DbException(new SQLTransientConnectionException("Connection refused"));
+			}
+
+			batch.forEach(project -> written.add(project.getProjectId()));
+		}, 100, NEVER, 2)) {
+			buffer.enqueue(update(1, "a"));
+			buffer.enqueue(update(2, "b"));
+
+			for(int attempt = 0; attempt < 5; attempt++) {
+				assertThrows(DbException.class, buffer::flush);
+			}
+
+			down[0] = false;
+			buffer.flush();
+
+			assertEquals(0, buffer.getDroppedUpdates());
+			assertEquals(List.of(1, 2), written.stream().sorted().toList());
+		}
+	}
+
+	@Test
+	void anUpdateStaysVisibleWhileItIsBeingWritten() throws Exception {
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		try(ProjectUpdateBuffer buffer = new ProjectUpdateBuffer(batch -> {
+			writing.countDown();
+
+			try {
+				release.await();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, 100, NEVER, 3)) {
+			buffer.enqueue(update(5, "new notes"));
+
+			CompletableFuture<Void> flush = CompletableFuture.runAsync(buffer::flush);
+
+			assertTrue(writing.await(10, TimeUnit.SECONDS));
+
+			Project stored = update(5, "old notes");
+			stored.setRowVersion(7);
+			buffer.applyPending(stored);
+
+			assertTrue(buffer.hasPending(5));
+			assertEquals("new notes", stored.getNotes());
+			assertNull(stored.getRowVersion());
+
+			release.countDown();
+			flush.get(10, TimeUnit.SECONDS);
+
+			assertFalse(buffer.hasPending(5));
+		}
+	}
+
+	@Test
+	void incrementsAreFoldedIntoAnUpdateThatSetsTheHours() {
+		List<Project> written = new ArrayList<>();
+
+		try(ProjectUpdateBuffer buffer = new ProjectUpdateBuffer(written::addAll, 100, NEVER, 3)) {
+			Project update = update(1, null);
+
+			update.setActualHours(new BigDecimal("10.00"));
+			buffer.enqueue(update);
+
+			assertTrue(buffer.addToActualHours(1, new BigDecimal("2.50")));
+			assertFalse(buffer.addToActualHours(2, new BigDecimal("1.00")));
+			buffer.enqueue(update(2, "notes only"));
+			assertFalse(buffer.addToActualHours(2, new BigDecimal("1.00")));
+
+			buffer.flush();
+
+			assertEquals(new BigDecimal("12.50"), written.stream()
+					.filter(project -> project.getProjectId() == 1).findFirst().orElseThrow()
+					.getActualHours());
+		}
+	}
+
+	private static Project update(int projectId, String notes) {
+		Project project = new Project();
+
+		project.setProjectId(projectId);
+		project.setNotes(notes);
+
+		return project;
+	}
+}
@@ -0,0 +1,54 @@
+package projects.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.function.Supplier;
+
+/**
+ * Measures the heap retained by a data structure: the used heap after a full collection, with the
+ * structure reachable, minus the used heap after a full collection before it was built. It is only
+ * meaningful for structures of many megabytes, where the noise of a collection is small.
+ */
+class HeapFootprint {
+	private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+	private HeapFootprint() {
+	}
+
+	/**
+	 * Builds a structure and returns the number of heap bytes it retains.
+	 *
+	 * @param builder Builds the structure. Anything it allocates and drops is not counted.
+	 * @return The retained bytes.
+	 */
+	static long retainedBytes(Supplier<Object> builder) {
+		long before = settledHeapUsed();
+		Object structure = builder.get();
+		long after = settledHeapUsed();
+
+		Reference.reachabilityFence(structure);
+		return after - before;
+	}
+
+	/**
+	 * Collects until the used heap stops shrinking and returns it.
+	 */
+	private static long settledHeapUsed() {
+		long used = Long.MAX_VALUE;
+
+		for(int round = 0; round < 10; round++) {
+			System.gc();
+
+			long now = MEMORY.getHeapMemoryUsage().getUsed();
+
+			if(now >= used) {
+				return now;
+			}
+
+			used = now;
+		}
+
+		return used;
+	}
+}
@@ -0,0 +1,76 @@
+package projects.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class IntObjectMapTest {
+	private static final int ENTRIES = 1_000_000;
+
+	@Test
+	void matchesHashMapUnderRandomPutsAndRemoves() {
+		IntObjectMap<String> map = new IntObjectMap<>();
+		Map<Integer, String> expected = new HashMap<>();
+		Random random = new Random(42);
+
+		for(int op = 0; op < 200_000; op++) {
+			/* A small key range makes removals hit, which exercises the backward shift. */
+			int key = random.nextInt(5000) - 100;
+
+			if(random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), map.remove(key));
+			}
+			else {
+				String value = "v" + op;
+				assertEquals(expected.put(key, value), map.put(key, value));
+			}
+		}
+
+		assertEquals(expected.size(), map.size());
+		expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+
+		int[] visited = new int[1];
+
+		map.forEach((key, value) -> {
+			assertEquals(expected.get(key), value);
+			visited[0]++;
+		});
+		assertEquals(expected.size(), visited[0]);
+		assertNull(map.get(10_000));
+	}
+
+	@Test
+	void retainsLessThanHalfOfHashMap() {
+		Object value = new Object();
+
+		long primitive = HeapFootprint.retainedBytes(() -> {
+			IntObjectMap<Object> map = new IntObjectMap<>();
+
+			for(int key = 1; key <= ENTRIES; key++) {
+				map.put(key, value);
+			}
+
+			return map;
+		});
+
+		long boxed = HeapFootprint.retainedBytes(() -> {
+			Map<Integer, Object> map = new HashMap<>();
+
+			for(int key = 1; key <= ENTRIES; key++) {
+				map.put(key, value);
+			}
+
+			return map;
+		});
+
+		System.out.printf("%,d entries: IntObjectMap %,d bytes, HashMap %,d bytes%n", ENTRIES,
+				primitive, boxed);
+		assertTrue(primitive > 0 && boxed > 0, "The heap could not be measured");
+		assertTrue(primitive * 2 < boxed,
+				"IntObjectMap retains " + primitive + " bytes, HashMap " + boxed + " bytes");
+	}
+}
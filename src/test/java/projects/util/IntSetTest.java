@@ -0,0 +1,71 @@
+package projects.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class IntSetTest {
+	private static final int ENTRIES = 1_000_000;
+
+	@Test
+	void matchesHashSetUnderRandomAddsAndRemoves() {
+		IntSet set = new IntSet();
+		Set<Integer> expected = new HashSet<>();
+		Random random = new Random(7);
+
+		for(int op = 0; op < 200_000; op++) {
+			int key = random.nextInt(5000) - 100;
+
+			if(random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), set.remove(key));
+			}
+			else {
+				assertEquals(expected.add(key), set.add(key));
+			}
+		}
+
+		assertEquals(expected.size(), set.size());
+
+		for(int key = -100; key < 4900; key++) {
+			assertEquals(expected.contains(key), set.contains(key));
+		}
+
+		int[] members = set.toArray();
+
+		Arrays.sort(members);
+		assertArrayEquals(expected.stream().mapToInt(Integer::intValue).sorted().toArray(), members);
+	}
+
+	@Test
+	void retainsLessThanHalfOfHashSet() {
+		long primitive = HeapFootprint.retainedBytes(() -> {
+			IntSet set = new IntSet();
+
+			for(int key = 1; key <= ENTRIES; key++) {
+				set.add(key);
+			}
+
+			return set;
+		});
+
+		long boxed = HeapFootprint.retainedBytes(() -> {
+			Set<Integer> set = new HashSet<>();
+
+			for(int key = 1; key <= ENTRIES; key++) {
+				set.add(key);
+			}
+
+			return set;
+		});
+
+		System.out.printf("%,d keys: IntSet %,d bytes, HashSet %,d bytes%n", ENTRIES, primitive, boxed);
+		assertTrue(primitive > 0 && boxed > 0, "The heap could not be measured");
+		assertTrue(primitive * 2 < boxed, "IntSet retains " + primitive + " bytes, HashSet " + boxed
+				+ " bytes");
+	}
+}